@@ -0,0 +1,31 @@
+package com.example.callhierarchyplugin.graph.bench;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * benchmarks.jar のエントリポイント。JMH のコマンドライン引数をそのまま受け付け、
+ * アロケーションレート (gc.alloc.rate.norm など) を報告するために GC プロファイラーを常に追加します。
+ * <pre>
+ * java -jar target/benchmarks.jar                          # すべてのベンチマーク
+ * java -jar target/benchmarks.jar resolveRoots -p shape=DIAMONDS -rf json -rff result.json
+ * </pre>
+ */
+public final class BenchmarkRunner {
+
+    private BenchmarkRunner() {
+    }
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        Options options = new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,124 @@
+package com.example.callhierarchyplugin.graph.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.example.callhierarchyplugin.graph.CallGraph;
+import com.example.callhierarchyplugin.graph.Frontier;
+import com.example.callhierarchyplugin.graph.LongHashSet;
+import com.example.callhierarchyplugin.graph.RootResolver;
+
+/**
+ * RootCallerFinder と同じ手順 (レベル同期 BFS でのグラフ構築、直接呼び出しの重複判定、SCC による起点の特定) を
+ * 合成したグラフで計測します。
+ * <p>
+ * Throughput (ops/s) と SampleTime (p50/p90/p99 などのパーセンタイル) の両方で計測します。
+ * アロケーションレートは {@link BenchmarkRunner} が GC プロファイラーを付けて報告します
+ * (org.openjdk.jmh.Main で実行する場合は -prof gc を指定してください)。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "-Xms2g", "-Xmx2g" })
+public class CallGraphBenchmark {
+
+    @Param({ "DEEP_CHAIN", "WIDE_FAN_IN", "DIAMONDS", "CYCLES", "MILLION_EDGES" })
+    public SyntheticGraph.Shape shape;
+
+    private SyntheticGraph synthetic;
+    // 起点の特定を単独で計測するための構築済みグラフ
+    private CallGraph<Object> builtGraph;
+    private int targetNode;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        synthetic = SyntheticGraph.create(shape);
+        builtGraph = buildGraph(synthetic);
+        targetNode = builtGraph.indexOf(synthetic.keyOf(0));
+    }
+
+    /** 検索対象からレベルごとにフロンティアを取り出し、呼び出し元を辺として追加する (検索結果は合成グラフから取得) */
+    @Benchmark
+    public int buildCallGraph() {
+        return buildGraph(synthetic).edgeCount();
+    }
+
+    /** 構築済みのグラフで、対象の直接の呼び出し元すべての起点を求める */
+    @Benchmark
+    public int resolveRoots() {
+        RootResolver resolver = new RootResolver(builtGraph, node -> false);
+        int total = 0;
+        int callerCount = builtGraph.callerCount(targetNode);
+        for (int i = 0; i < callerCount; i++) {
+            total += resolver.rootsOf(builtGraph.callerAt(targetNode, i)).length;
+        }
+        return total;
+    }
+
+    /** グラフの構築中に起点が確定した呼び出しを判定する (構築中のグラフ用の経路) */
+    @Benchmark
+    public int resolveWhileExpanding() {
+        // 呼び出し元を持つノードの半分を未検索として扱う
+        RootResolver resolver = new RootResolver(builtGraph, node -> false, node -> (node & 1) == 1);
+        int resolved = 0;
+        int callerCount = builtGraph.callerCount(targetNode);
+        for (int i = 0; i < callerCount; i++) {
+            if (resolver.isResolved(builtGraph.callerAt(targetNode, i))) resolved++;
+        }
+        return resolved;
+    }
+
+    /** 直接呼び出しの重複判定 ((呼び出し元, オフセット) を詰めた long) */
+    @Benchmark
+    public int deduplicateCallSites() {
+        LongHashSet seen = new LongHashSet();
+        int added = 0;
+        for (int node = 0; node < synthetic.nodeCount(); node++) {
+            for (int caller : synthetic.callersOf(node)) {
+                if (seen.add(LongHashSet.pack(caller, node))) added++;
+            }
+        }
+        return added;
+    }
+
+    private static CallGraph<Object> buildGraph(SyntheticGraph synthetic) {
+        CallGraph<Object> graph = new CallGraph<>();
+        Frontier queue = new Frontier();
+        // 合成グラフのノード番号 → CallGraph のノード ID
+        int[] ids = new int[synthetic.nodeCount()];
+        int[] syntheticOf = new int[synthetic.nodeCount()];
+        ids[0] = graph.intern(synthetic.keyOf(0), null);
+        syntheticOf[ids[0]] = 0;
+        queue.offer(ids[0]);
+        boolean[] interned = new boolean[synthetic.nodeCount()];
+        interned[0] = true;
+        while (!queue.isEmpty()) {
+            for (int callee : queue.drain()) {
+                for (int caller : synthetic.callersOf(syntheticOf[callee])) {
+                    if (!interned[caller]) {
+                        ids[caller] = graph.intern(synthetic.keyOf(caller), null);
+                        syntheticOf[ids[caller]] = caller;
+                        interned[caller] = true;
+                    }
+                    graph.addEdge(callee, ids[caller]);
+                    queue.offer(ids[caller]);
+                }
+            }
+        }
+        return graph;
+    }
+}
@@ -0,0 +1,150 @@
+package com.example.callhierarchyplugin.graph.bench;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * ベンチマーク用の合成した呼び出し関係グラフ (呼び出し先 → 呼び出し元の辺の一覧)。
+ * <p>
+ * ノード 0 が検索対象で、{@link #callersOf(int)} が SearchEngine の検索結果に相当します。
+ * 乱数を使う形状も固定のシードで生成するため、実行ごとに同じグラフになります。
+ */
+public final class SyntheticGraph {
+
+    /** グラフの形状 */
+    public enum Shape {
+        /** 10 万段の直線の呼び出し (深い BFS、ルートは末端の 1 つ) */
+        DEEP_CHAIN,
+        /** 対象を 10 万のメソッドが直接呼び出す (1 レベルの巨大なフロンティア) */
+        WIDE_FAN_IN,
+        /** 2 万段の菱形の連なり (経路数は 2^20000、SCC の縮約なしでは計算できない) */
+        DIAMONDS,
+        /** 10 ノードの循環を 1 万個つないだもの (強連結成分の縮約) */
+        CYCLES,
+        /** 25 万ノード・約 100 万辺のランダムなグラフ (一部に逆向きの辺による循環を含む) */
+        MILLION_EDGES
+    }
+
+    private static final long SEED = 42L;
+
+    private final int nodeCount;
+    private final int[][] callers;
+    private final int edgeCount;
+    private final String[] keys;
+
+    private SyntheticGraph(int nodeCount, int[][] callers) {
+        this.nodeCount = nodeCount;
+        this.callers = callers;
+        int edges = 0;
+        for (int[] list : callers) edges += list.length;
+        this.edgeCount = edges;
+        this.keys = new String[nodeCount];
+        for (int i = 0; i < nodeCount; i++) {
+            // IMethod のハンドル識別子に近い長さのキー
+            keys[i] = "=proj/src<com.example.synthetic{Type" + (i / 64) + ".java[Type" + (i / 64) + "~method" + i;
+        }
+    }
+
+    public static SyntheticGraph create(Shape shape) {
+        switch (shape) {
+            case DEEP_CHAIN: return deepChain(100_000);
+            case WIDE_FAN_IN: return wideFanIn(100_000);
+            case DIAMONDS: return diamonds(20_000);
+            case CYCLES: return cycles(10_000, 10);
+            case MILLION_EDGES: return random(250_000, 4, 0.01);
+            default: throw new IllegalArgumentException(shape.name());
+        }
+    }
+
+    public int nodeCount() {
+        return nodeCount;
+    }
+
+    public int edgeCount() {
+        return edgeCount;
+    }
+
+    /** ノードの呼び出し元 (返された配列は変更しないこと) */
+    public int[] callersOf(int node) {
+        return callers[node];
+    }
+
+    /** ノードのキー (CallGraph#intern に渡す文字列) */
+    public String keyOf(int node) {
+        return keys[node];
+    }
+
+    private static SyntheticGraph deepChain(int n) {
+        int[][] callers = new int[n][];
+        for (int i = 0; i < n; i++) {
+            callers[i] = i + 1 < n ? new int[] { i + 1 } : new int[0];
+        }
+        return new SyntheticGraph(n, callers);
+    }
+
+    private static SyntheticGraph wideFanIn(int n) {
+        int[][] callers = new int[n][];
+        int[] direct = new int[n - 1];
+        for (int i = 1; i < n; i++) {
+            direct[i - 1] = i;
+            callers[i] = new int[0];
+        }
+        callers[0] = direct;
+        return new SyntheticGraph(n, callers);
+    }
+
+    /** 段 j の上端 4j、左 4j+1、右 4j+2、次の段の上端 4(j+1) */
+    private static SyntheticGraph diamonds(int levels) {
+        int n = levels * 4 + 1;
+        int[][] callers = new int[n][];
+        for (int j = 0; j < levels; j++) {
+            int top = 4 * j;
+            int next = 4 * (j + 1);
+            callers[top] = new int[] { top + 1, top + 2 };
+            callers[top + 1] = new int[] { next };
+            callers[top + 2] = new int[] { next };
+            callers[top + 3] = new int[0]; // 未使用 (どこからも呼ばれない単独ノード)
+        }
+        callers[n - 1] = new int[0];
+        return new SyntheticGraph(n, callers);
+    }
+
+    /** 各循環の最後のノードが次の循環の先頭を呼び出し元に持つ */
+    private static SyntheticGraph cycles(int count, int ringSize) {
+        int n = count * ringSize;
+        int[][] callers = new int[n][];
+        for (int c = 0; c < count; c++) {
+            int base = c * ringSize;
+            for (int i = 0; i < ringSize; i++) {
+                int node = base + i;
+                int next = base + (i + 1) % ringSize;
+                boolean exit = i == ringSize - 1 && c + 1 < count;
+                callers[node] = exit ? new int[] { next, base + ringSize } : new int[] { next };
+            }
+        }
+        return new SyntheticGraph(n, callers);
+    }
+
+    /** 各ノードに ID の大きいノードから degree 個の呼び出し元を付け、backEdgeRatio の割合で小さいノードからの辺を混ぜる */
+    private static SyntheticGraph random(int n, int degree, double backEdgeRatio) {
+        SplittableRandom random = new SplittableRandom(SEED);
+        int[][] callers = new int[n][];
+        for (int i = 0; i < n; i++) {
+            int remaining = n - i - 1;
+            if (remaining == 0) {
+                callers[i] = new int[0];
+                continue;
+            }
+            int[] list = new int[degree];
+            int count = 0;
+            for (int d = 0; d < degree; d++) {
+                int caller = i > 0 && random.nextDouble() < backEdgeRatio
+                        ? random.nextInt(i)
+                        : i + 1 + random.nextInt(remaining);
+                list[count++] = caller;
+            }
+            callers[i] = Arrays.copyOf(list, count);
+        }
+        return new SyntheticGraph(n, callers);
+    }
+}
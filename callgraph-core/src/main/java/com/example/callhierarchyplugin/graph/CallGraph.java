@@ -0,0 +1,186 @@
+package com.example.callhierarchyplugin.graph;
+
+import java.util.Arrays;
+
+/**
+ * 呼び出し関係グラフ (呼び出し先 → 呼び出し元) を整数 ID で保持するコンパクトな表現。
+ * <p>
+ * ノードはキー文字列 (IMethod のハンドル識別子など) で識別され、追加順に 0 から ID が振られます。
+ * 呼び出し元の一覧はノードごとのプリミティブ int 配列に格納し、辺の重複は
+ * (呼び出し先, 呼び出し元) を詰めた long のハッシュセットで判定します。
+ * ノードごとの HashSet やボクシングされた要素を持たないため、大きなグラフでもヒープ使用量が小さく済みます。
+ * <p>
+ * スレッドセーフではありません。
+ *
+ * @param <T> ノードに関連付ける値の型
+ */
+public class CallGraph<T> {
+
+    private static final int[] NO_EDGES = new int[0];
+    private static final int EMPTY_SLOT = -1;
+
+    private String[] keys;
+    private Object[] values;
+    private int[][] callers;
+    private int[] callerCounts;
+    private int nodeCount;
+
+    // キー → ID のハッシュ表 (オープンアドレス法、値はノード ID)
+    private int[] keyTable;
+    private int keyTableMask;
+
+    private final LongHashSet edgeSet = new LongHashSet();
+
+    public CallGraph() {
+        this(64);
+    }
+
+    public CallGraph(int expectedNodes) {
+        int capacity = Math.max(16, expectedNodes);
+        keys = new String[capacity];
+        values = new Object[capacity];
+        callers = new int[capacity][];
+        callerCounts = new int[capacity];
+        allocateKeyTable(Integer.highestOneBit(capacity * 2 - 1) << 1);
+    }
+
+    /**
+     * キーに対応するノードの ID を返します。存在しない場合は value を関連付けたノードを追加します。
+     *
+     * @return ノード ID
+     */
+    public int intern(String key, T value) {
+        int slot = findSlot(key);
+        if (keyTable[slot] != EMPTY_SLOT) return keyTable[slot];
+
+        if (nodeCount == keys.length) {
+            int newCapacity = keys.length << 1;
+            keys = Arrays.copyOf(keys, newCapacity);
+            values = Arrays.copyOf(values, newCapacity);
+            callers = Arrays.copyOf(callers, newCapacity);
+            callerCounts = Arrays.copyOf(callerCounts, newCapacity);
+        }
+        int id = nodeCount++;
+        keys[id] = key;
+        values[id] = value;
+        callers[id] = NO_EDGES;
+        keyTable[slot] = id;
+        if (nodeCount * 2 > keyTable.length) {
+            rehashKeys(keyTable.length << 1);
+        }
+        return id;
+    }
+
+    /** キーに対応するノード ID を返します。存在しない場合は -1 */
+    public int indexOf(String key) {
+        return keyTable[findSlot(key)];
+    }
+
+    /**
+     * 呼び出し先 callee から呼び出し元 caller への辺を追加します。
+     *
+     * @return 新たに追加された場合は true、既に存在した場合は false
+     */
+    public boolean addEdge(int callee, int caller) {
+        checkId(callee);
+        checkId(caller);
+        if (!edgeSet.add(LongHashSet.pack(callee, caller))) return false;
+
+        int[] list = callers[callee];
+        int count = callerCounts[callee];
+        if (count == list.length) {
+            list = Arrays.copyOf(list, Math.max(4, count + (count >> 1)));
+            callers[callee] = list;
+        }
+        list[count] = caller;
+        callerCounts[callee] = count + 1;
+        return true;
+    }
+
+    public boolean hasEdge(int callee, int caller) {
+        return edgeSet.contains(LongHashSet.pack(callee, caller));
+    }
+
+    @SuppressWarnings("unchecked")
+    public T get(int id) {
+        checkId(id);
+        return (T) values[id];
+    }
+
+    public String getKey(int id) {
+        checkId(id);
+        return keys[id];
+    }
+
+    /** ノードの呼び出し元の数 */
+    public int callerCount(int id) {
+        checkId(id);
+        return callerCounts[id];
+    }
+
+    /** ノードの index 番目の呼び出し元 (追加順) */
+    public int callerAt(int id, int index) {
+        if (index < 0 || index >= callerCount(id)) throw new IndexOutOfBoundsException("index: " + index);
+        return callers[id][index];
+    }
+
+    /** ノードの呼び出し元のコピー (追加順) */
+    public int[] callersOf(int id) {
+        checkId(id);
+        return Arrays.copyOf(callers[id], callerCounts[id]);
+    }
+
+    /** ノード数 */
+    public int size() {
+        return nodeCount;
+    }
+
+    /** 辺の数 */
+    public int edgeCount() {
+        return edgeSet.size();
+    }
+
+    public void clear() {
+        Arrays.fill(keys, 0, nodeCount, null);
+        Arrays.fill(values, 0, nodeCount, null);
+        Arrays.fill(callers, 0, nodeCount, null);
+        Arrays.fill(callerCounts, 0, nodeCount, 0);
+        Arrays.fill(keyTable, EMPTY_SLOT);
+        nodeCount = 0;
+        edgeSet.clear();
+    }
+
+    private void checkId(int id) {
+        if (id < 0 || id >= nodeCount) throw new IndexOutOfBoundsException("node id: " + id);
+    }
+
+    /** キーが格納されているスロット、または格納すべき空きスロットを返す */
+    private int findSlot(String key) {
+        int slot = spread(key.hashCode()) & keyTableMask;
+        while (keyTable[slot] != EMPTY_SLOT && !keys[keyTable[slot]].equals(key)) {
+            slot = (slot + 1) & keyTableMask;
+        }
+        return slot;
+    }
+
+    private void allocateKeyTable(int capacity) {
+        keyTable = new int[capacity];
+        Arrays.fill(keyTable, EMPTY_SLOT);
+        keyTableMask = capacity - 1;
+    }
+
+    private void rehashKeys(int newCapacity) {
+        allocateKeyTable(newCapacity);
+        for (int id = 0; id < nodeCount; id++) {
+            int slot = spread(keys[id].hashCode()) & keyTableMask;
+            while (keyTable[slot] != EMPTY_SLOT) {
+                slot = (slot + 1) & keyTableMask;
+            }
+            keyTable[slot] = id;
+        }
+    }
+
+    private static int spread(int h) {
+        return (h ^ (h >>> 16)) * 0x9E3779B1;
+    }
+}
@@ -0,0 +1,221 @@
+package com.example.callhierarchyplugin.graph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.IntPredicate;
+
+/**
+ * 探索の終了時の呼び出し関係グラフを固定したもので、起点から直接の呼び出し元までの経路を列挙します。
+ * <p>
+ * 経路そのものは保持せず、呼び出し元と呼び出し先の隣接リスト (ノード数 + 辺数に比例する int 配列) だけを持ちます。
+ * 経路は {@link #tree(int, int)} が返す木 ({@link PathNode}) を展開した分だけ作成され、
+ * 共通の接頭辞 (起点側の経路) は親へのポインターで共有されます。経路の数が組み合わせ的に増えるグラフでも、
+ * メモリ使用量はグラフの規模と展開した節の数に比例します。
+ * <p>
+ * 経路は同じノードを 2 度通らない (単純経路) ものだけを列挙します。展開した子からは必ず終点に到達できます。
+ * 作成後は変更されないため、複数のスレッドから参照できます (ただし {@link PathNode} の展開は同期しない)。
+ *
+ * @param <T> ノードに関連付ける値の型
+ */
+public final class CallPaths<T> {
+
+    private final Object[] values;
+    // CSR 形式の隣接リスト: ノード n の呼び出し元は callers[callerStart[n] .. callerStart[n + 1])
+    private final int[] callerStart;
+    private final int[] callers;
+    private final int[] calleeStart;
+    private final int[] callees;
+
+    private CallPaths(Object[] values, int[] callerStart, int[] callers, int[] calleeStart, int[] callees) {
+        this.values = values;
+        this.callerStart = callerStart;
+        this.callers = callers;
+        this.calleeStart = calleeStart;
+        this.callees = callees;
+    }
+
+    /**
+     * グラフの現在の内容を固定します。除外ノード (JAR 内のメソッドなど、起点の探索で辿らないノード) を通る辺は含めません。
+     * ノード ID は元のグラフと同じです。
+     */
+    public static <T> CallPaths<T> snapshot(CallGraph<T> graph, IntPredicate excluded) {
+        int nodeCount = graph.size();
+        Object[] values = new Object[nodeCount];
+        int[] callerStart = new int[nodeCount + 1];
+        int[] calleeCounts = new int[nodeCount];
+        int edgeCount = 0;
+        for (int node = 0; node < nodeCount; node++) {
+            values[node] = graph.get(node);
+            callerStart[node] = edgeCount;
+            if (excluded.test(node)) continue;
+            for (int i = 0, count = graph.callerCount(node); i < count; i++) {
+                int caller = graph.callerAt(node, i);
+                if (excluded.test(caller)) continue;
+                edgeCount++;
+                calleeCounts[caller]++;
+            }
+        }
+        callerStart[nodeCount] = edgeCount;
+
+        int[] callers = new int[edgeCount];
+        int[] calleeStart = new int[nodeCount + 1];
+        for (int node = 0; node < nodeCount; node++) {
+            calleeStart[node + 1] = calleeStart[node] + calleeCounts[node];
+        }
+        int[] calleeFill = Arrays.copyOf(calleeStart, nodeCount);
+        int[] callees = new int[edgeCount];
+        for (int node = 0; node < nodeCount; node++) {
+            if (excluded.test(node)) continue;
+            int position = callerStart[node];
+            for (int i = 0, count = graph.callerCount(node); i < count; i++) {
+                int caller = graph.callerAt(node, i);
+                if (excluded.test(caller)) continue;
+                callers[position++] = caller;
+                callees[calleeFill[caller]++] = node;
+            }
+        }
+        return new CallPaths<>(values, callerStart, callers, calleeStart, callees);
+    }
+
+    /** ノード数 */
+    public int size() {
+        return values.length;
+    }
+
+    @SuppressWarnings("unchecked")
+    public T get(int node) {
+        checkId(node);
+        return (T) values[node];
+    }
+
+    /**
+     * root から end までの経路の木の根を返します。
+     *
+     * @return 根 (root のノード)。root から end に到達できない場合は null
+     */
+    public PathNode tree(int root, int end) {
+        checkId(root);
+        checkId(end);
+        PathNode start = new PathNode(root, end, null);
+        if (root != end && !reachableAvoidingPrefix(start).get(root)) return null;
+        return start;
+    }
+
+    /**
+     * prefix の経路上のノード (prefix 自身を除く) を通らずに終点へ到達できるノードの集合。
+     * 終点から呼び出し元の方向に幅優先探索します。
+     */
+    private BitSet reachableAvoidingPrefix(PathNode prefix) {
+        BitSet blocked = new BitSet(values.length);
+        for (PathNode p = prefix.parent; p != null; p = p.parent) {
+            blocked.set(p.node);
+        }
+        BitSet reached = new BitSet(values.length);
+        int[] queue = new int[values.length];
+        int head = 0;
+        int tail = 0;
+        reached.set(prefix.end);
+        queue[tail++] = prefix.end;
+        while (head < tail) {
+            int node = queue[head++];
+            if (node == prefix.node) continue; // prefix の先は経路に含めない
+            for (int i = callerStart[node]; i < callerStart[node + 1]; i++) {
+                int caller = callers[i];
+                if (!blocked.get(caller) && !reached.get(caller)) {
+                    reached.set(caller);
+                    queue[tail++] = caller;
+                }
+            }
+        }
+        return reached;
+    }
+
+    private void checkId(int id) {
+        if (id < 0 || id >= values.length) throw new IndexOutOfBoundsException("node id: " + id);
+    }
+
+    /**
+     * 経路の木の節。根から節までの経路 (起点 → … → このノード) を表し、子は経路を 1 段延ばしたものです。
+     * 子は最初に {@link #children()} を呼び出したときに計算して保持します。
+     */
+    public final class PathNode {
+        private final int node;
+        private final int end;
+        private final PathNode parent;
+        private final int depth;
+        private List<PathNode> children;
+
+        private PathNode(int node, int end, PathNode parent) {
+            this.node = node;
+            this.end = end;
+            this.parent = parent;
+            this.depth = parent != null ? parent.depth + 1 : 0;
+        }
+
+        /** この節のノード ID */
+        public int node() {
+            return node;
+        }
+
+        public T value() {
+            return get(node);
+        }
+
+        /** 親の節 (根の場合は null) */
+        public PathNode parent() {
+            return parent;
+        }
+
+        /** 根からの呼び出しの数 */
+        public int depth() {
+            return depth;
+        }
+
+        /** 経路が終点に達しているか */
+        public boolean isEnd() {
+            return node == end;
+        }
+
+        /**
+         * 経路を 1 段延ばした子 (このノードが呼び出すメソッドのうち、経路上のノードを通らずに終点へ到達できるもの)。
+         * 終点の節の子は空です。
+         */
+        public List<PathNode> children() {
+            if (children == null) {
+                if (isEnd()) {
+                    children = Collections.emptyList();
+                } else {
+                    BitSet reachable = reachableAvoidingPrefix(this);
+                    List<PathNode> list = new ArrayList<>();
+                    for (int i = calleeStart[node]; i < calleeStart[node + 1]; i++) {
+                        int callee = callees[i];
+                        if (reachable.get(callee) && !isOnPath(callee)) {
+                            list.add(new PathNode(callee, end, this));
+                        }
+                    }
+                    children = Collections.unmodifiableList(list);
+                }
+            }
+            return children;
+        }
+
+        /** 根からこの節までのノード ID */
+        public int[] path() {
+            int[] path = new int[depth + 1];
+            for (PathNode p = this; p != null; p = p.parent) {
+                path[p.depth] = p.node;
+            }
+            return path;
+        }
+
+        private boolean isOnPath(int candidate) {
+            for (PathNode p = this; p != null; p = p.parent) {
+                if (p.node == candidate) return true;
+            }
+            return false;
+        }
+    }
+}
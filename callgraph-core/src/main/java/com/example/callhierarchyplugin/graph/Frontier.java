@@ -0,0 +1,69 @@
+package com.example.callhierarchyplugin.graph;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * レベル同期 BFS の探索キュー。ノード ID を追加順に保持し、{@link #drain()} で 1 レベル分をまとめて取り出します。
+ * 一度キューに入れたノード (処理済みを含む) はビットセットで記録し、再度追加されません。
+ * まだ取り出されていないノードは {@link #isPending(int)} で判定できます。
+ * スレッドセーフではありません。
+ */
+public class Frontier {
+
+    private final BitSet seen = new BitSet();
+    private final BitSet pending = new BitSet();
+    private int[] queue = new int[16];
+    private int size;
+
+    /**
+     * ノードをキューに追加します。
+     *
+     * @return 追加された場合は true、既にキューに入れたことがある場合は false
+     */
+    public boolean offer(int id) {
+        if (seen.get(id)) return false;
+        seen.set(id);
+        pending.set(id);
+        if (size == queue.length) {
+            queue = Arrays.copyOf(queue, size << 1);
+        }
+        queue[size++] = id;
+        return true;
+    }
+
+    /** キューに入っていて、まだ取り出されていないかどうか */
+    public boolean isPending(int id) {
+        return pending.get(id);
+    }
+
+    /** キューに入れたことがあるかどうか */
+    public boolean isSeen(int id) {
+        return seen.get(id);
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /** キューに残っているノード数 */
+    public int size() {
+        return size;
+    }
+
+    /** キュー内のノードを追加順にすべて取り出します。 */
+    public int[] drain() {
+        int[] level = Arrays.copyOf(queue, size);
+        for (int id : level) {
+            pending.clear(id);
+        }
+        size = 0;
+        return level;
+    }
+
+    public void clear() {
+        seen.clear();
+        pending.clear();
+        size = 0;
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.callhierarchyplugin.graph;
+
+import java.util.Arrays;
+
+/**
+ * long 値のハッシュセット (オープンアドレス法、ボクシングなし)。
+ * (呼び出し元 ID, オフセット) や (呼び出し先 ID, 呼び出し元 ID) の組を 1 つの long に詰めて重複判定するために使用します。
+ * スレッドセーフではありません。
+ */
+public class LongHashSet {
+
+    private static final long FREE = 0L;
+    private static final float LOAD_FACTOR = 0.6f;
+
+    private long[] slots;
+    private int mask;
+    private int size;
+    private int resizeThreshold;
+    private boolean containsFree; // FREE と同じ値 (0) はスロットに格納できないため別に管理
+
+    public LongHashSet() {
+        this(16);
+    }
+
+    public LongHashSet(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(4, (int) (expectedSize / LOAD_FACTOR)) - 1) << 1;
+        allocate(capacity);
+    }
+
+    /** 2 つの int を 1 つの long に詰める (上位 32 ビットが high) */
+    public static long pack(int high, int low) {
+        return ((long) high << 32) | (low & 0xFFFFFFFFL);
+    }
+
+    /**
+     * 値を追加します。
+     *
+     * @return 新たに追加された場合は true、既に含まれていた場合は false
+     */
+    public boolean add(long value) {
+        if (value == FREE) {
+            if (containsFree) return false;
+            containsFree = true;
+            size++;
+            return true;
+        }
+        int index = indexFor(value);
+        while (slots[index] != FREE) {
+            if (slots[index] == value) return false;
+            index = (index + 1) & mask;
+        }
+        slots[index] = value;
+        if (++size > resizeThreshold) {
+            rehash(slots.length << 1);
+        }
+        return true;
+    }
+
+    public boolean contains(long value) {
+        if (value == FREE) return containsFree;
+        int index = indexFor(value);
+        while (slots[index] != FREE) {
+            if (slots[index] == value) return true;
+            index = (index + 1) & mask;
+        }
+        return false;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        Arrays.fill(slots, FREE);
+        size = 0;
+        containsFree = false;
+    }
+
+    private int indexFor(long value) {
+        // MurmurHash3 の fmix64 で上位ビットも混ぜる
+        long h = value;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return (int) h & mask;
+    }
+
+    private void allocate(int capacity) {
+        slots = new long[capacity];
+        mask = capacity - 1;
+        resizeThreshold = (int) (capacity * LOAD_FACTOR);
+    }
+
+    private void rehash(int newCapacity) {
+        long[] old = slots;
+        allocate(newCapacity);
+        for (long value : old) {
+            if (value == FREE) continue;
+            int index = indexFor(value);
+            while (slots[index] != FREE) {
+                index = (index + 1) & mask;
+            }
+            slots[index] = value;
+        }
+    }
+}
@@ -0,0 +1,261 @@
+package com.example.callhierarchyplugin.graph;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.function.IntPredicate;
+
+/**
+ * 呼び出し関係グラフを強連結成分 (SCC) に縮約し、各ノードの根本的な呼び出し元 (ルート) を求めます。
+ * <p>
+ * 呼び出し元方向の辺で Tarjan のアルゴリズムを (再帰を使わずに) 実行すると、SCC はその呼び出し元側の SCC が
+ * すべて確定した後に確定します。そのため SCC ごとのルート集合は確定した時点で 1 回だけ計算でき、
+ * 経路ごとに探索し直す方法と違って菱形の多いグラフでも線形時間で済みます。
+ * ルート集合はノード ID の昇順の int 配列で、外部の呼び出し元 SCC が 1 つだけの場合は同じ配列を共有します。
+ * <p>
+ * ルートの定義は次の通りです。
+ * <ul>
+ * <li>除外ノード (JAR 内のメソッドなど) は呼び出し元として辿らず、ルートにもしない</li>
+ * <li>外部からの呼び出し元がない SCC は、循環していない単独ノードであればそのノード自身がルート、
+ *     循環している場合はルートなし</li>
+ * <li>それ以外の SCC のルートは、外部の呼び出し元 SCC のルートの和集合</li>
+ * </ul>
+ * 計算は {@link #rootsOf(int)} で要求されたノードから到達できる範囲だけを遅延して行います。
+ * <p>
+ * グラフの構築中 (呼び出し元をまだ検索していないノードがある状態) でも使用できます。
+ * その場合、{@link #isResolved(int)} が true のノード、つまり自身の SCC と呼び出し元側のすべての SCC が
+ * 検索済みのノードのルートだけが確定しており、グラフの構築が進んでも変わりません。
+ * スレッドセーフではありません。
+ */
+public class RootResolver {
+
+    private static final int[] NO_ROOTS = new int[0];
+    private static final int UNVISITED = -1;
+
+    private final CallGraph<?> graph;
+    private final IntPredicate excluded;
+    private final IntPredicate unexpanded;
+
+    private final int[] componentOf;
+    private int[][] componentRoots = new int[16][];
+    private boolean[] componentResolved = new boolean[16];
+    private int componentCount;
+
+    // Tarjan のアルゴリズムの作業領域
+    private final int[] index;
+    private final int[] lowLink;
+    private final BitSet onStack = new BitSet();
+    private int[] sccStack = new int[16];
+    private int sccStackSize;
+    private int[] frameNode = new int[16];
+    private int[] frameEdge = new int[16];
+    private int nextIndex;
+
+    /**
+     * @param graph 呼び出し関係グラフ (構築が完了していること)
+     * @param excluded 呼び出し元として辿らないノードの判定
+     */
+    public RootResolver(CallGraph<?> graph, IntPredicate excluded) {
+        this(graph, excluded, node -> false);
+    }
+
+    /**
+     * 構築中のグラフ用のコンストラクタ。
+     *
+     * @param graph 呼び出し関係グラフ (この時点までに追加された辺を対象にする)
+     * @param excluded 呼び出し元として辿らないノードの判定
+     * @param unexpanded 呼び出し元をまだ検索していないノードの判定
+     */
+    public RootResolver(CallGraph<?> graph, IntPredicate excluded, IntPredicate unexpanded) {
+        this.graph = graph;
+        this.excluded = excluded;
+        this.unexpanded = unexpanded;
+        int n = graph.size();
+        componentOf = new int[n];
+        index = new int[n];
+        lowLink = new int[n];
+        Arrays.fill(componentOf, UNVISITED);
+        Arrays.fill(index, UNVISITED);
+    }
+
+    /**
+     * ノードのルートを返します。
+     *
+     * @return ルートのノード ID (昇順)。ルートがない場合は空配列。返された配列は変更しないこと
+     */
+    public int[] rootsOf(int node) {
+        if (excluded.test(node)) return NO_ROOTS;
+        if (componentOf[node] == UNVISITED) {
+            strongConnect(node);
+        }
+        return componentRoots[componentOf[node]];
+    }
+
+    /**
+     * ノードのルートが確定しているかどうか (自身と呼び出し元側のすべてのノードが検索済みかどうか)。
+     * 除外ノードは常に確定しています。
+     */
+    public boolean isResolved(int node) {
+        if (excluded.test(node)) return true;
+        if (componentOf[node] == UNVISITED) {
+            strongConnect(node);
+        }
+        return componentResolved[componentOf[node]];
+    }
+
+    /** ノードが属する SCC の番号 (未計算の場合は計算する)。除外ノードの場合は -1 */
+    public int componentOf(int node) {
+        if (excluded.test(node)) return UNVISITED;
+        if (componentOf[node] == UNVISITED) {
+            strongConnect(node);
+        }
+        return componentOf[node];
+    }
+
+    /** これまでに確定した SCC の数 */
+    public int componentCount() {
+        return componentCount;
+    }
+
+    private void strongConnect(int start) {
+        int depth = 0;
+        depth = pushFrame(start, depth);
+        while (depth > 0) {
+            int v = frameNode[depth - 1];
+            int edge = frameEdge[depth - 1];
+            if (edge < graph.callerCount(v)) {
+                frameEdge[depth - 1] = edge + 1;
+                int w = graph.callerAt(v, edge);
+                if (excluded.test(w)) continue;
+                if (index[w] == UNVISITED) {
+                    depth = pushFrame(w, depth);
+                } else if (onStack.get(w)) {
+                    lowLink[v] = Math.min(lowLink[v], index[w]);
+                }
+            } else {
+                depth--;
+                if (depth > 0) {
+                    int parent = frameNode[depth - 1];
+                    lowLink[parent] = Math.min(lowLink[parent], lowLink[v]);
+                }
+                if (lowLink[v] == index[v]) {
+                    popComponent(v);
+                }
+            }
+        }
+    }
+
+    private int pushFrame(int node, int depth) {
+        index[node] = nextIndex;
+        lowLink[node] = nextIndex;
+        nextIndex++;
+        if (sccStackSize == sccStack.length) sccStack = Arrays.copyOf(sccStack, sccStackSize << 1);
+        sccStack[sccStackSize++] = node;
+        onStack.set(node);
+        if (depth == frameNode.length) {
+            frameNode = Arrays.copyOf(frameNode, depth << 1);
+            frameEdge = Arrays.copyOf(frameEdge, depth << 1);
+        }
+        frameNode[depth] = node;
+        frameEdge[depth] = 0;
+        return depth + 1;
+    }
+
+    /** root を代表とする SCC をスタックから取り出し、ルート集合を計算する */
+    private void popComponent(int root) {
+        int component = componentCount++;
+        int start = sccStackSize;
+        do {
+            int member = sccStack[--start];
+            onStack.clear(member);
+            componentOf[member] = component;
+        } while (sccStack[start] != root);
+        int[] members = Arrays.copyOfRange(sccStack, start, sccStackSize);
+        sccStackSize = start;
+
+        if (component == componentRoots.length) {
+            componentRoots = Arrays.copyOf(componentRoots, component << 1);
+            componentResolved = Arrays.copyOf(componentResolved, component << 1);
+        }
+        componentRoots[component] = computeRoots(component, members);
+        componentResolved[component] = computeResolved(component, members);
+    }
+
+    /** SCC のすべてのメンバーが検索済みで、外部の呼び出し元 SCC もすべて確定しているかどうか */
+    private boolean computeResolved(int component, int[] members) {
+        for (int member : members) {
+            if (unexpanded.test(member)) return false;
+        }
+        for (int member : members) {
+            int callerCount = graph.callerCount(member);
+            for (int i = 0; i < callerCount; i++) {
+                int caller = graph.callerAt(member, i);
+                if (excluded.test(caller)) continue;
+                int callerComponent = componentOf[caller];
+                if (callerComponent != component && !componentResolved[callerComponent]) return false;
+            }
+        }
+        return true;
+    }
+
+    private int[] computeRoots(int component, int[] members) {
+        int[] shared = null;      // 外部の呼び出し元 SCC のルート集合が 1 種類だけの場合はそれを共有する
+        int[][] distinct = null;  // 2 種類以上ある場合の一覧
+        int distinctCount = 0;
+        boolean cyclic = members.length > 1;
+
+        for (int member : members) {
+            int callerCount = graph.callerCount(member);
+            for (int i = 0; i < callerCount; i++) {
+                int caller = graph.callerAt(member, i);
+                if (excluded.test(caller)) continue;
+                int callerComponent = componentOf[caller];
+                if (callerComponent == component) {
+                    cyclic = true;
+                    continue;
+                }
+                int[] roots = componentRoots[callerComponent];
+                if (shared == null && distinct == null) {
+                    shared = roots;
+                } else if (roots != shared) {
+                    if (distinct == null) {
+                        distinct = new int[4][];
+                        distinct[distinctCount++] = shared;
+                    }
+                    if (!containsReference(distinct, distinctCount, roots)) {
+                        if (distinctCount == distinct.length) distinct = Arrays.copyOf(distinct, distinctCount << 1);
+                        distinct[distinctCount++] = roots;
+                    }
+                }
+            }
+        }
+
+        if (distinct != null) return union(distinct, distinctCount);
+        if (shared != null) return shared;
+        return cyclic ? NO_ROOTS : new int[] { members[0] };
+    }
+
+    private static boolean containsReference(int[][] arrays, int count, int[] target) {
+        for (int i = 0; i < count; i++) {
+            if (arrays[i] == target) return true;
+        }
+        return false;
+    }
+
+    /** 昇順の配列の和集合 (重複なし、昇順) */
+    private static int[] union(int[][] arrays, int count) {
+        int total = 0;
+        for (int i = 0; i < count; i++) total += arrays[i].length;
+        int[] merged = new int[total];
+        int pos = 0;
+        for (int i = 0; i < count; i++) {
+            System.arraycopy(arrays[i], 0, merged, pos, arrays[i].length);
+            pos += arrays[i].length;
+        }
+        Arrays.sort(merged);
+        int unique = 0;
+        for (int i = 0; i < merged.length; i++) {
+            if (unique == 0 || merged[unique - 1] != merged[i]) merged[unique++] = merged[i];
+        }
+        return unique == merged.length ? merged : Arrays.copyOf(merged, unique);
+    }
+}
@@ -0,0 +1,118 @@
+package com.example.callhierarchyplugin.graph;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.IntPredicate;
+
+/**
+ * 構築中の呼び出し関係グラフで、起点から直接の呼び出し元までの最短経路 (呼び出しの数が最も少ない経路) を求めます。
+ * <p>
+ * 終点から呼び出し元の方向に 1 回だけ幅優先探索し、探索木を辿って各起点からの経路を作ります。
+ * 作業用の配列は作成時のノード数で確保して使い回し、探索ごとに訪問したノードの分だけ元に戻します。
+ * 求めた経路は終点ごとに保持し、同じ終点と起点の問い合わせ (同じ直接の呼び出し元からの複数の呼び出し箇所) では探索しません。
+ * 作成後に追加されたノードは扱えないため、グラフにノードを追加したら作り直してください。
+ * <p>
+ * スレッドセーフではありません。
+ */
+public class ShortestPaths {
+
+    private static final int[] NO_PATH = new int[0];
+
+    private final CallGraph<?> graph;
+    private final IntPredicate excluded;
+    // ノード → 終点側の次のノード (未訪問は -1)
+    private final int[] next;
+    private final int[] queue;
+    // 探索中の起点の印 (ノード → roots に含まれる数)
+    private final int[] rootMarks;
+    // 終点 → 求めた経路 (起点の配列と経路)
+    private final Map<Integer, CachedPaths> cache = new HashMap<>();
+
+    private static final class CachedPaths {
+        final int[] roots;
+        final int[][] paths;
+
+        CachedPaths(int[] roots, int[][] paths) {
+            this.roots = roots;
+            this.paths = paths;
+        }
+    }
+
+    /**
+     * @param excluded 経路に含めないノード (RootResolver に渡すものと同じ)
+     */
+    public ShortestPaths(CallGraph<?> graph, IntPredicate excluded) {
+        this.graph = graph;
+        this.excluded = excluded;
+        this.next = new int[graph.size()];
+        this.queue = new int[graph.size()];
+        this.rootMarks = new int[graph.size()];
+        Arrays.fill(next, -1);
+    }
+
+    /**
+     * roots のそれぞれから end までの最短経路を返します。
+     *
+     * @return roots と同じ順の経路 (起点から end までのノード、両端を含む)。到達できない起点は空の配列。
+     *         同じ問い合わせの結果と共有するため、変更しないでください
+     */
+    public int[][] pathsTo(int end, int[] roots) {
+        checkId(end);
+        CachedPaths cached = cache.get(end);
+        if (cached != null && Arrays.equals(cached.roots, roots)) {
+            return cached.paths;
+        }
+        int[][] paths = new int[roots.length][];
+        int remaining = 0;
+        for (int root : roots) {
+            checkId(root);
+            rootMarks[root]++;
+            remaining++;
+        }
+
+        int head = 0;
+        int tail = 0;
+        next[end] = end;
+        queue[tail++] = end;
+        remaining -= rootMarks[end];
+        while (head < tail && remaining > 0) {
+            int node = queue[head++];
+            for (int i = 0, count = graph.callerCount(node); i < count; i++) {
+                int caller = graph.callerAt(node, i);
+                if (next[caller] >= 0 || excluded.test(caller)) continue;
+                next[caller] = node;
+                queue[tail++] = caller;
+                remaining -= rootMarks[caller];
+            }
+        }
+
+        for (int r = 0; r < roots.length; r++) {
+            paths[r] = next[roots[r]] >= 0 ? follow(roots[r], end) : NO_PATH;
+        }
+        for (int i = 0; i < tail; i++) {
+            next[queue[i]] = -1;
+        }
+        for (int root : roots) {
+            rootMarks[root] = 0;
+        }
+        cache.put(end, new CachedPaths(roots.clone(), paths));
+        return paths;
+    }
+
+    private int[] follow(int root, int end) {
+        int length = 1;
+        for (int node = root; node != end; node = next[node]) length++;
+        int[] path = new int[length];
+        int node = root;
+        for (int i = 0; i < length; i++) {
+            path[i] = node;
+            node = next[node];
+        }
+        return path;
+    }
+
+    private void checkId(int id) {
+        if (id < 0 || id >= next.length) throw new IndexOutOfBoundsException("node id: " + id);
+    }
+}
@@ -0,0 +1,174 @@
+package com.example.callhierarchyplugin.graph.io;
+
+import com.example.callhierarchyplugin.graph.CallGraph;
+
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * {@link BinaryCallGraphWriter} が書き出したバイナリ形式を読み込むリーダー。
+ * <p>
+ * {@link #read(InputStream, Visitor)} はノードと辺を読み込んだ順に通知するだけで、グラフを保持しません。
+ * {@link #readGraph(InputStream)} は読み込んだ内容から {@link CallGraph} を作成します。
+ * 入力ストリームは閉じません。
+ */
+public class BinaryCallGraphReader {
+
+    /** 読み込んだ内容の通知先 */
+    public interface Visitor {
+        /** ヘッダーを読み込んだとき (ノードと辺より前に 1 回) */
+        default void header(int nodeCount, int edgeCount) {
+        }
+
+        /** ノードを読み込んだとき (ノード ID の順) */
+        void node(int id, String key, String label, boolean target) throws IOException;
+
+        /** 辺を読み込んだとき (すべてのノードの後。呼び出し先のノード ID の順) */
+        void edge(int callee, int caller) throws IOException;
+    }
+
+    /** {@link #readGraph(InputStream)} の結果 */
+    public static final class Result {
+        private final CallGraph<String> graph;
+        private final BitSet targets;
+
+        Result(CallGraph<String> graph, BitSet targets) {
+            this.graph = graph;
+            this.targets = targets;
+        }
+
+        /** 読み込んだグラフ (ノードのキーは書き出したときのキー、値は表示名。ノード ID も書き出したときと同じ) */
+        public CallGraph<String> getGraph() {
+            return graph;
+        }
+
+        /** 検索対象のノードか */
+        public boolean isTarget(int node) {
+            return targets.get(node);
+        }
+    }
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final InputStream input;
+    private byte[] stringBuffer = new byte[256];
+
+    private BinaryCallGraphReader(InputStream in) {
+        this.input = new BufferedInputStream(in, BUFFER_SIZE);
+    }
+
+    /**
+     * ストリームを読み込み、ノードと辺を visitor に通知します。
+     *
+     * @throws IOException 形式が正しくない場合や、ストリームが途中で終わっている場合
+     */
+    public static void read(InputStream in, Visitor visitor) throws IOException {
+        new BinaryCallGraphReader(in).readAll(visitor);
+    }
+
+    /** ストリームを読み込み、グラフを作成します。 */
+    public static Result readGraph(InputStream in) throws IOException {
+        GraphBuilder builder = new GraphBuilder();
+        read(in, builder);
+        return new Result(builder.graph, builder.targets);
+    }
+
+    /** 読み込んだ内容から CallGraph を作成する Visitor */
+    private static final class GraphBuilder implements Visitor {
+        CallGraph<String> graph = new CallGraph<>();
+        final BitSet targets = new BitSet();
+
+        @Override
+        public void header(int nodeCount, int edgeCount) {
+            graph = new CallGraph<>(nodeCount);
+        }
+
+        @Override
+        public void node(int id, String key, String label, boolean target) throws IOException {
+            if (graph.intern(key, label) != id) {
+                throw new IOException("キーが重複しています: " + key);
+            }
+            if (target) targets.set(id);
+        }
+
+        @Override
+        public void edge(int callee, int caller) {
+            graph.addEdge(callee, caller);
+        }
+    }
+
+    private void readAll(Visitor visitor) throws IOException {
+        byte[] magic = new byte[BinaryCallGraphWriter.MAGIC.length];
+        readFully(magic, magic.length);
+        if (!Arrays.equals(magic, BinaryCallGraphWriter.MAGIC)) {
+            throw new IOException("呼び出し関係グラフのバイナリ形式ではありません");
+        }
+        int version = readByte();
+        if (version != BinaryCallGraphWriter.VERSION) {
+            throw new IOException("対応していないバージョンです: " + version);
+        }
+        int nodeCount = readVarInt();
+        int edgeCount = readVarInt();
+        visitor.header(nodeCount, edgeCount);
+        for (int node = 0; node < nodeCount; node++) {
+            int flags = readByte();
+            String key = readString();
+            String label = readString();
+            visitor.node(node, key, label, (flags & BinaryCallGraphWriter.FLAG_TARGET) != 0);
+        }
+        int edges = 0;
+        for (int callee = 0; callee < nodeCount; callee++) {
+            int count = readVarInt();
+            for (int i = 0; i < count; i++) {
+                int caller = readVarInt();
+                if (caller >= nodeCount) {
+                    throw new IOException("ノード ID が範囲外です: " + caller);
+                }
+                visitor.edge(callee, caller);
+            }
+            edges += count;
+        }
+        if (edges != edgeCount) {
+            throw new IOException("辺の数がヘッダーと一致しません: " + edges + " (ヘッダー " + edgeCount + ")");
+        }
+    }
+
+    private String readString() throws IOException {
+        int length = readVarInt();
+        if (length > stringBuffer.length) {
+            stringBuffer = new byte[Math.max(length, stringBuffer.length * 2)];
+        }
+        readFully(stringBuffer, length);
+        return new String(stringBuffer, 0, length, StandardCharsets.UTF_8);
+    }
+
+    private int readVarInt() throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = readByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return value;
+        }
+        throw new IOException("varint が長すぎます");
+    }
+
+    private int readByte() throws IOException {
+        int b = input.read();
+        if (b < 0) throw new EOFException("ストリームが途中で終わっています");
+        return b;
+    }
+
+    private void readFully(byte[] buffer, int length) throws IOException {
+        int offset = 0;
+        while (offset < length) {
+            int read = input.read(buffer, offset, length - offset);
+            if (read < 0) throw new EOFException("ストリームが途中で終わっています");
+            offset += read;
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.callhierarchyplugin.graph.io;
+
+import com.example.callhierarchyplugin.graph.CallGraph;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Function;
+import java.util.function.IntPredicate;
+
+/**
+ * 長さ付きのコンパクトなバイナリ形式で書き出すライター。{@link BinaryCallGraphReader} で読み込めます。
+ * <pre>
+ * ヘッダー   : マジック "CGRF" (4 バイト), バージョン (1 バイト), ノード数 (varint), 辺の数 (varint)
+ * ノード     : フラグ (1 バイト, bit0 = 検索対象), キーのバイト数 (varint) + UTF-8, 表示名のバイト数 (varint) + UTF-8
+ *              ... をノード ID の順にノード数だけ
+ * 辺         : 呼び出し元の数 (varint), 呼び出し元のノード ID (varint) ...
+ *              ... を呼び出し先のノード ID の順にノード数だけ
+ * </pre>
+ * varint は符号なしの LEB128 (7 ビットずつ下位から、最上位ビットが継続) です。
+ * ノード ID が小さいグラフでは 1 辺あたりほぼ 1〜3 バイトになります。
+ */
+public class BinaryCallGraphWriter implements CallGraphWriter {
+
+    static final byte[] MAGIC = { 'C', 'G', 'R', 'F' };
+    static final int VERSION = 1;
+    static final int FLAG_TARGET = 1;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    @Override
+    public <T> void write(CallGraph<T> graph, Function<? super T, String> labels, IntPredicate targets, OutputStream out) throws IOException {
+        OutputStream output = new BufferedOutputStream(out, BUFFER_SIZE);
+        output.write(MAGIC);
+        output.write(VERSION);
+        writeVarInt(output, graph.size());
+        writeVarInt(output, graph.edgeCount());
+        for (int node = 0; node < graph.size(); node++) {
+            output.write(targets.test(node) ? FLAG_TARGET : 0);
+            writeString(output, graph.getKey(node));
+            writeString(output, labels.apply(graph.get(node)));
+        }
+        for (int callee = 0; callee < graph.size(); callee++) {
+            int count = graph.callerCount(callee);
+            writeVarInt(output, count);
+            for (int i = 0; i < count; i++) {
+                writeVarInt(output, graph.callerAt(callee, i));
+            }
+        }
+        output.flush();
+    }
+
+    private static void writeString(OutputStream output, String value) throws IOException {
+        byte[] bytes = value != null ? value.getBytes(StandardCharsets.UTF_8) : new byte[0];
+        writeVarInt(output, bytes.length);
+        output.write(bytes);
+    }
+
+    static void writeVarInt(OutputStream output, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            output.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        output.write(value);
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.callhierarchyplugin.graph.io;
+
+import com.example.callhierarchyplugin.graph.CallGraph;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.function.Function;
+import java.util.function.IntPredicate;
+
+/**
+ * 呼び出し関係グラフをファイル形式に書き出すライター。
+ * <p>
+ * 実装はノードと辺を 1 つずつ出力ストリームへ書き込み、グラフ全体の文字列やノードごとの String を組み立てません。
+ * 辺は呼び出し元 → 呼び出し先の向き (呼び出しの向き) で出力します。
+ * 出力ストリームはフラッシュしますが閉じません。
+ */
+public interface CallGraphWriter {
+
+    /**
+     * グラフのすべてのノードと辺を書き込みます。
+     *
+     * @param labels ノードの値から表示名を作成する関数
+     * @param targets 検索対象のノードか (形式に応じて強調表示や属性として出力する)
+     */
+    <T> void write(CallGraph<T> graph, Function<? super T, String> labels, IntPredicate targets, OutputStream out) throws IOException;
+
+    /** 出力形式 */
+    enum Format {
+        DOT(".dot"),
+        GRAPHML(".graphml"),
+        BINARY(".cgraph");
+
+        private final String extension;
+
+        Format(String extension) {
+            this.extension = extension;
+        }
+
+        /** ファイルの拡張子 ("." を含む) */
+        public String getExtension() {
+            return extension;
+        }
+
+        /** この形式のライター */
+        public CallGraphWriter newWriter() {
+            switch (this) {
+                case GRAPHML: return new GraphMlCallGraphWriter();
+                case BINARY: return new BinaryCallGraphWriter();
+                case DOT:
+                default: return new DotCallGraphWriter();
+            }
+        }
+
+        /** 形式名 ("dot" / "graphml" / "binary") から形式を取得します。該当しない場合は null */
+        public static Format fromName(String name) {
+            for (Format format : values()) {
+                if (format.name().equalsIgnoreCase(name)) return format;
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.callhierarchyplugin.graph.io;
+
+import com.example.callhierarchyplugin.graph.CallGraph;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Function;
+import java.util.function.IntPredicate;
+
+/**
+ * Graphviz の DOT 形式 (UTF-8) で書き出すライター。
+ * <pre>
+ * digraph callers {
+ *   node [shape=box];
+ *   n0 [label="Foo#bar()", style=bold];
+ *   n1 [label="Baz#qux()"];
+ *   n1 -&gt; n0;
+ * }
+ * </pre>
+ * ノード ID はグラフのノード ID に "n" を付けたものです。検索対象のノードは太線で表示します。
+ */
+public class DotCallGraphWriter implements CallGraphWriter {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    @Override
+    public <T> void write(CallGraph<T> graph, Function<? super T, String> labels, IntPredicate targets, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+        writer.write("digraph callers {\n  node [shape=box];\n");
+        for (int node = 0; node < graph.size(); node++) {
+            writer.write("  n");
+            writer.write(Integer.toString(node));
+            writer.write(" [label=\"");
+            writeEscaped(writer, labels.apply(graph.get(node)));
+            writer.write(targets.test(node) ? "\", style=bold];\n" : "\"];\n");
+        }
+        for (int callee = 0; callee < graph.size(); callee++) {
+            for (int i = 0, count = graph.callerCount(callee); i < count; i++) {
+                writer.write("  n");
+                writer.write(Integer.toString(graph.callerAt(callee, i)));
+                writer.write(" -> n");
+                writer.write(Integer.toString(callee));
+                writer.write(";\n");
+            }
+        }
+        writer.write("}\n");
+        writer.flush();
+    }
+
+    /** DOT の文字列リテラルの中身として書き込む (ダブルクォートとバックスラッシュをエスケープし、改行は \n にする) */
+    private static void writeEscaped(Writer writer, String value) throws IOException {
+        if (value == null) return;
+        for (int i = 0, length = value.length(); i < length; i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"': writer.write("\\\""); break;
+                case '\\': writer.write("\\\\"); break;
+                case '\n': writer.write("\\n"); break;
+                case '\r': break;
+                default: writer.write(c);
+            }
+        }
+    }
+}
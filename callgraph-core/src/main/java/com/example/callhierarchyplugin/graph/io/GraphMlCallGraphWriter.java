@@ -0,0 +1,75 @@
+package com.example.callhierarchyplugin.graph.io;
+
+import com.example.callhierarchyplugin.graph.CallGraph;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Function;
+import java.util.function.IntPredicate;
+
+/**
+ * GraphML 形式 (UTF-8) で書き出すライター。
+ * <p>
+ * ノードには表示名 (label)、キー (key: メソッドのハンドル識別子など)、検索対象か (target) の属性を付けます。
+ * ノード ID はグラフのノード ID に "n" を付けたものです。
+ */
+public class GraphMlCallGraphWriter implements CallGraphWriter {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    @Override
+    public <T> void write(CallGraph<T> graph, Function<? super T, String> labels, IntPredicate targets, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+        writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+        writer.write("<graphml xmlns=\"http://graphml.graphdrawing.org/xmlns\">\n");
+        writer.write("  <key id=\"label\" for=\"node\" attr.name=\"label\" attr.type=\"string\"/>\n");
+        writer.write("  <key id=\"key\" for=\"node\" attr.name=\"key\" attr.type=\"string\"/>\n");
+        writer.write("  <key id=\"target\" for=\"node\" attr.name=\"target\" attr.type=\"boolean\">\n");
+        writer.write("    <default>false</default>\n  </key>\n");
+        writer.write("  <graph id=\"callers\" edgedefault=\"directed\">\n");
+        for (int node = 0; node < graph.size(); node++) {
+            writer.write("    <node id=\"n");
+            writer.write(Integer.toString(node));
+            writer.write("\"><data key=\"label\">");
+            writeEscaped(writer, labels.apply(graph.get(node)));
+            writer.write("</data><data key=\"key\">");
+            writeEscaped(writer, graph.getKey(node));
+            writer.write("</data>");
+            if (targets.test(node)) {
+                writer.write("<data key=\"target\">true</data>");
+            }
+            writer.write("</node>\n");
+        }
+        for (int callee = 0; callee < graph.size(); callee++) {
+            for (int i = 0, count = graph.callerCount(callee); i < count; i++) {
+                writer.write("    <edge source=\"n");
+                writer.write(Integer.toString(graph.callerAt(callee, i)));
+                writer.write("\" target=\"n");
+                writer.write(Integer.toString(callee));
+                writer.write("\"/>\n");
+            }
+        }
+        writer.write("  </graph>\n</graphml>\n");
+        writer.flush();
+    }
+
+    /** XML の文字データとして書き込む (XML 1.0 で使えない制御文字は出力しない) */
+    private static void writeEscaped(Writer writer, String value) throws IOException {
+        if (value == null) return;
+        for (int i = 0, length = value.length(); i < length; i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '<': writer.write("&lt;"); break;
+                case '>': writer.write("&gt;"); break;
+                case '&': writer.write("&amp;"); break;
+                case '"': writer.write("&quot;"); break;
+                default:
+                    if (c >= 0x20 || c == '\t' || c == '\n' || c == '\r') writer.write(c);
+            }
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.example.callhierarchyplugin.graph;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * CallPaths の経路の木 (菱形、循環、除外ノード) と ShortestPaths の最短経路のテスト。
+ */
+public class CallPathsTest {
+
+    /** ノード 0..count-1 を持つグラフ (ノードの値はキーと同じ文字列) */
+    private static CallGraph<String> graph(int count) {
+        CallGraph<String> graph = new CallGraph<>();
+        for (int i = 0; i < count; i++) {
+            graph.intern("m" + i, "m" + i);
+        }
+        return graph;
+    }
+
+    /** 木を展開して終点に達した経路をすべて集める */
+    private static List<String> collect(CallPaths<String>.PathNode node, List<String> paths) {
+        if (node.isEnd()) {
+            StringBuilder path = new StringBuilder();
+            for (int id : node.path()) {
+                if (path.length() > 0) path.append('>');
+                path.append(id);
+            }
+            paths.add(path.toString());
+        }
+        for (CallPaths<String>.PathNode child : node.children()) {
+            collect(child, paths);
+        }
+        return paths;
+    }
+
+    @Test
+    public void diamondHasTwoPathsSharingRoot() {
+        // 3 -> 1 -> 0, 3 -> 2 -> 0
+        CallGraph<String> graph = graph(4);
+        graph.addEdge(0, 1);
+        graph.addEdge(0, 2);
+        graph.addEdge(1, 3);
+        graph.addEdge(2, 3);
+        CallPaths<String> paths = CallPaths.snapshot(graph, node -> false);
+        CallPaths<String>.PathNode root = paths.tree(3, 0);
+        assertEquals(List.of("3>1>0", "3>2>0"), collect(root, new ArrayList<>()));
+        assertEquals("m3", root.value());
+    }
+
+    @Test
+    public void cycleIsNotRepeatedAndDeadEndsAreOmitted() {
+        // 3 -> 1 -> 0, 1 <-> 2 (2 からは 1 を経由しないと 0 に届かない)
+        CallGraph<String> graph = graph(4);
+        graph.addEdge(0, 1);
+        graph.addEdge(1, 2);
+        graph.addEdge(2, 1);
+        graph.addEdge(1, 3);
+        CallPaths<String> paths = CallPaths.snapshot(graph, node -> false);
+        CallPaths<String>.PathNode root = paths.tree(3, 0);
+        assertEquals(List.of("3>1>0"), collect(root, new ArrayList<>()));
+        CallPaths<String>.PathNode one = root.children().get(0);
+        assertEquals(1, one.children().size());
+        assertTrue(one.children().get(0).isEnd());
+    }
+
+    @Test
+    public void excludedNodesAreNotTraversed() {
+        // 3 -> 1 -> 0, 3 -> 2 -> 0 (2 は除外)
+        CallGraph<String> graph = graph(4);
+        graph.addEdge(0, 1);
+        graph.addEdge(0, 2);
+        graph.addEdge(1, 3);
+        graph.addEdge(2, 3);
+        CallPaths<String> paths = CallPaths.snapshot(graph, node -> node == 2);
+        assertEquals(List.of("3>1>0"), collect(paths.tree(3, 0), new ArrayList<>()));
+        assertNull(paths.tree(2, 0));
+    }
+
+    @Test
+    public void unreachableRootHasNoTree() {
+        CallGraph<String> graph = graph(3);
+        graph.addEdge(0, 1);
+        CallPaths<String> paths = CallPaths.snapshot(graph, node -> false);
+        assertNull(paths.tree(2, 0));
+        assertTrue(paths.tree(0, 0).isEnd());
+    }
+
+    @Test
+    public void shortestPathsFromEachRoot() {
+        // 4 -> 3 -> 2 -> 1 -> 0, 4 -> 1, 5 -> 2
+        CallGraph<String> graph = graph(6);
+        graph.addEdge(0, 1);
+        graph.addEdge(1, 2);
+        graph.addEdge(2, 3);
+        graph.addEdge(3, 4);
+        graph.addEdge(1, 4);
+        graph.addEdge(2, 5);
+        ShortestPaths shortest = new ShortestPaths(graph, node -> false);
+        int[][] paths = shortest.pathsTo(0, new int[] { 4, 5, 0 });
+        assertArrayEquals(new int[] { 4, 1, 0 }, paths[0]);
+        assertArrayEquals(new int[] { 5, 2, 1, 0 }, paths[1]);
+        assertArrayEquals(new int[] { 0 }, paths[2]);
+        // 作業用の配列が元に戻り、続けて使えること
+        assertArrayEquals(new int[] { 5, 2 }, shortest.pathsTo(2, new int[] { 5 })[0]);
+        // 同じ終点と起点の問い合わせは探索せずに同じ結果を返し、起点が異なれば探索し直す
+        assertTrue(paths == shortest.pathsTo(0, new int[] { 4, 5, 0 }));
+        assertArrayEquals(new int[] { 4, 3, 2 }, shortest.pathsTo(2, new int[] { 4 })[0]);
+    }
+
+    @Test
+    public void shortestPathSkipsExcludedNodes() {
+        CallGraph<String> graph = graph(4);
+        graph.addEdge(0, 1);
+        graph.addEdge(0, 2);
+        graph.addEdge(1, 3);
+        graph.addEdge(2, 3);
+        ShortestPaths shortest = new ShortestPaths(graph, node -> node == 1);
+        assertArrayEquals(new int[] { 3, 2, 0 }, shortest.pathsTo(0, new int[] { 3 })[0]);
+        assertArrayEquals(new int[0], new ShortestPaths(graph, node -> node != 0).pathsTo(0, new int[] { 3 })[0]);
+    }
+}
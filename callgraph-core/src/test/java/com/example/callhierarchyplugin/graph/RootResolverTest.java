@@ -0,0 +1,103 @@
+package com.example.callhierarchyplugin.graph;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.BitSet;
+
+import org.junit.Test;
+
+/**
+ * RootResolver の起点の定義 (鎖、菱形、循環、除外ノード、構築中のグラフ) のテスト。
+ */
+public class RootResolverTest {
+
+    /** ノード 0..count-1 を持つグラフ (ノードの値はキーと同じ文字列) */
+    private static CallGraph<String> graph(int count) {
+        CallGraph<String> graph = new CallGraph<>();
+        for (int i = 0; i < count; i++) {
+            graph.intern("m" + i, "m" + i);
+        }
+        return graph;
+    }
+
+    @Test
+    public void chainResolvesToOutermostCaller() {
+        CallGraph<String> graph = graph(3);
+        graph.addEdge(0, 1);
+        graph.addEdge(1, 2);
+        RootResolver resolver = new RootResolver(graph, node -> false);
+        assertArrayEquals(new int[] { 2 }, resolver.rootsOf(0));
+        assertArrayEquals(new int[] { 2 }, resolver.rootsOf(2));
+    }
+
+    @Test
+    public void diamondSharesSingleRoot() {
+        CallGraph<String> graph = graph(4);
+        graph.addEdge(0, 1);
+        graph.addEdge(0, 2);
+        graph.addEdge(1, 3);
+        graph.addEdge(2, 3);
+        RootResolver resolver = new RootResolver(graph, node -> false);
+        assertArrayEquals(new int[] { 3 }, resolver.rootsOf(0));
+    }
+
+    @Test
+    public void multipleRootsAreSortedAndUnique() {
+        CallGraph<String> graph = graph(5);
+        graph.addEdge(0, 1);
+        graph.addEdge(0, 2);
+        graph.addEdge(1, 4);
+        graph.addEdge(2, 3);
+        graph.addEdge(2, 4);
+        RootResolver resolver = new RootResolver(graph, node -> false);
+        assertArrayEquals(new int[] { 3, 4 }, resolver.rootsOf(0));
+    }
+
+    @Test
+    public void cycleWithoutExternalCallerHasNoRoot() {
+        CallGraph<String> graph = graph(2);
+        graph.addEdge(0, 1);
+        graph.addEdge(1, 0);
+        RootResolver resolver = new RootResolver(graph, node -> false);
+        assertArrayEquals(new int[0], resolver.rootsOf(0));
+        assertArrayEquals(new int[0], resolver.rootsOf(1));
+    }
+
+    @Test
+    public void cycleWithExternalCallerResolvesThroughIt() {
+        CallGraph<String> graph = graph(4);
+        graph.addEdge(0, 1);
+        graph.addEdge(1, 2);
+        graph.addEdge(2, 1);
+        graph.addEdge(2, 3);
+        RootResolver resolver = new RootResolver(graph, node -> false);
+        assertArrayEquals(new int[] { 3 }, resolver.rootsOf(0));
+        assertTrue(resolver.componentOf(1) == resolver.componentOf(2));
+    }
+
+    @Test
+    public void excludedCallersAreNotFollowed() {
+        CallGraph<String> graph = graph(3);
+        graph.addEdge(0, 1);
+        graph.addEdge(1, 2);
+        RootResolver resolver = new RootResolver(graph, node -> node == 2);
+        assertArrayEquals(new int[] { 1 }, resolver.rootsOf(0));
+        assertArrayEquals(new int[0], resolver.rootsOf(2));
+    }
+
+    @Test
+    public void unexpandedCallerLeavesNodeUnresolved() {
+        CallGraph<String> graph = graph(4);
+        graph.addEdge(0, 1);
+        graph.addEdge(0, 2);
+        graph.addEdge(2, 3);
+        BitSet unexpanded = new BitSet();
+        unexpanded.set(3);
+        RootResolver resolver = new RootResolver(graph, node -> false, unexpanded::get);
+        assertTrue(resolver.isResolved(1));
+        assertFalse(resolver.isResolved(2));
+        assertFalse(resolver.isResolved(0));
+    }
+}
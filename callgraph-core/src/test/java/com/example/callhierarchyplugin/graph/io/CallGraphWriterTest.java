@@ -0,0 +1,123 @@
+package com.example.callhierarchyplugin.graph.io;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.example.callhierarchyplugin.graph.CallGraph;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+/**
+ * DOT / GraphML / バイナリ形式の書き出しと、バイナリ形式の読み込み (往復) のテスト。
+ */
+public class CallGraphWriterTest {
+
+    /** 2 -> 1 -> 0, 3 -> 0 (0 が検索対象)。表示名にはエスケープが必要な文字を含める */
+    private static CallGraph<String> sample() {
+        CallGraph<String> graph = new CallGraph<>();
+        graph.intern("=p/src<a{Foo.java[Foo~bar", "Foo#bar(\"x\")");
+        graph.intern("=p/src<a{Foo.java[Foo~baz", "Foo#baz(List<String>)");
+        graph.intern("=p/src<a{Main.java[Main~main", "Main#main() & 日本語");
+        graph.intern("=p/src<a{Other.java[Other~run", "Other#run()");
+        graph.addEdge(0, 1);
+        graph.addEdge(1, 2);
+        graph.addEdge(0, 3);
+        return graph;
+    }
+
+    private static byte[] write(CallGraphWriter.Format format, CallGraph<String> graph) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        format.newWriter().write(graph, label -> label, node -> node == 0, out);
+        return out.toByteArray();
+    }
+
+    @Test
+    public void binaryRoundTripKeepsNodeIdsEdgesAndTargets() throws IOException {
+        CallGraph<String> graph = sample();
+        BinaryCallGraphReader.Result result = BinaryCallGraphReader.readGraph(
+                new ByteArrayInputStream(write(CallGraphWriter.Format.BINARY, graph)));
+        CallGraph<String> read = result.getGraph();
+        assertEquals(graph.size(), read.size());
+        assertEquals(graph.edgeCount(), read.edgeCount());
+        for (int node = 0; node < graph.size(); node++) {
+            assertEquals(graph.getKey(node), read.getKey(node));
+            assertEquals(graph.get(node), read.get(node));
+            assertArrayEquals(graph.callersOf(node), read.callersOf(node));
+            assertEquals(node == 0, result.isTarget(node));
+        }
+    }
+
+    @Test
+    public void binaryRoundTripHandlesLargeIds() throws IOException {
+        // varint が複数バイトになるノード ID
+        CallGraph<String> graph = new CallGraph<>();
+        for (int i = 0; i < 20000; i++) {
+            graph.intern("m" + i, "");
+        }
+        graph.addEdge(0, 19999);
+        graph.addEdge(19999, 128);
+        CallGraph<String> read = BinaryCallGraphReader.readGraph(
+                new ByteArrayInputStream(write(CallGraphWriter.Format.BINARY, graph))).getGraph();
+        assertArrayEquals(new int[] { 19999 }, read.callersOf(0));
+        assertArrayEquals(new int[] { 128 }, read.callersOf(19999));
+        assertEquals("m12345", read.getKey(12345));
+    }
+
+    @Test
+    public void binaryReaderRejectsTruncatedAndForeignInput() {
+        byte[] bytes;
+        try {
+            bytes = write(CallGraphWriter.Format.BINARY, sample());
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+        for (byte[] input : Arrays.asList(Arrays.copyOf(bytes, bytes.length - 1), "digraph".getBytes(StandardCharsets.UTF_8))) {
+            try {
+                BinaryCallGraphReader.readGraph(new ByteArrayInputStream(input));
+                fail("IOException が発生しませんでした");
+            } catch (IOException expected) {
+                // 期待どおり
+            }
+        }
+    }
+
+    @Test
+    public void dotEscapesLabelsAndWritesCallDirection() throws IOException {
+        String dot = new String(write(CallGraphWriter.Format.DOT, sample()), StandardCharsets.UTF_8);
+        assertTrue(dot.startsWith("digraph callers {\n"));
+        assertTrue(dot.contains("  n0 [label=\"Foo#bar(\\\"x\\\")\", style=bold];\n"));
+        assertTrue(dot.contains("  n2 [label=\"Main#main() & 日本語\"];\n"));
+        assertTrue(dot.contains("  n1 -> n0;\n"));
+        assertTrue(dot.contains("  n2 -> n1;\n"));
+        assertTrue(dot.contains("  n3 -> n0;\n"));
+        assertTrue(dot.endsWith("}\n"));
+    }
+
+    @Test
+    public void graphMlEscapesMarkupAndMarksTargets() throws IOException {
+        String xml = new String(write(CallGraphWriter.Format.GRAPHML, sample()), StandardCharsets.UTF_8);
+        assertTrue(xml.contains("<node id=\"n0\"><data key=\"label\">Foo#bar(&quot;x&quot;)</data>"
+                + "<data key=\"key\">=p/src&lt;a{Foo.java[Foo~bar</data><data key=\"target\">true</data></node>"));
+        assertTrue(xml.contains("<data key=\"label\">Foo#baz(List&lt;String&gt;)</data>"));
+        assertTrue(xml.contains("Main#main() &amp; 日本語"));
+        assertTrue(xml.contains("<data key=\"key\">=p/src&lt;a{Other.java[Other~run</data></node>"));
+        assertTrue(xml.contains("<edge source=\"n2\" target=\"n1\"/>"));
+        assertTrue(xml.trim().endsWith("</graphml>"));
+    }
+
+    @Test
+    public void formatIsResolvedByName() {
+        assertEquals(CallGraphWriter.Format.GRAPHML, CallGraphWriter.Format.fromName("GraphML"));
+        assertEquals(CallGraphWriter.Format.BINARY, CallGraphWriter.Format.fromName("binary"));
+        assertNull(CallGraphWriter.Format.fromName("csv"));
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.callhierarchyplugin.fixture;
+
+import org.eclipse.core.resources.*;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.jdt.core.IClasspathEntry;
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.JavaCore;
+import org.eclipse.jdt.core.search.IJavaSearchConstants;
+import org.eclipse.jdt.core.search.SearchEngine;
+import org.eclipse.jdt.core.search.SearchPattern;
+import org.eclipse.jdt.core.search.TypeNameRequestor;
+import org.eclipse.jdt.launching.JavaRuntime;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * テスト用の Java プロジェクトとソースをワークスペースに生成するヘルパー。
+ * <p>
+ * プロジェクトはソースフォルダー src、出力フォルダー bin、既定の JRE をクラスパスに持ちます。
+ * ソースを書き込んだ後は {@link #buildAndWaitForIndex} でビルドと検索インデックスの作成を待ってから検索してください。
+ */
+public final class JavaProjects {
+
+    private JavaProjects() {
+    }
+
+    /**
+     * Java プロジェクトを作成します。同じ名前のプロジェクトがある場合は削除してから作成します。
+     *
+     * @param requiredProjects クラスパスで参照するプロジェクト
+     */
+    public static IJavaProject create(String name, List<IJavaProject> requiredProjects, IProgressMonitor monitor) throws CoreException {
+        IProject project = ResourcesPlugin.getWorkspace().getRoot().getProject(name);
+        if (project.exists()) {
+            project.delete(true, true, monitor);
+        }
+        project.create(monitor);
+        project.open(monitor);
+        IProjectDescription description = project.getDescription();
+        description.setNatureIds(new String[] { JavaCore.NATURE_ID });
+        project.setDescription(description, monitor);
+
+        IFolder src = project.getFolder("src");
+        src.create(true, true, monitor);
+        IFolder bin = project.getFolder("bin");
+        bin.create(true, true, monitor);
+
+        IJavaProject javaProject = JavaCore.create(project);
+        List<IClasspathEntry> entries = new ArrayList<>();
+        entries.add(JavaCore.newSourceEntry(src.getFullPath()));
+        entries.add(JavaRuntime.getDefaultJREContainerEntry());
+        for (IJavaProject required : requiredProjects) {
+            entries.add(JavaCore.newProjectEntry(required.getPath()));
+        }
+        javaProject.setRawClasspath(entries.toArray(new IClasspathEntry[0]), bin.getFullPath(), monitor);
+        return javaProject;
+    }
+
+    /**
+     * ソースフォルダーにコンパイルユニット (UTF-8) を作成します。
+     *
+     * @param typeDeclaration 型の宣言 (package 宣言の後に続くソース)
+     */
+    public static void writeCompilationUnit(IJavaProject project, String packageName, String simpleName,
+            CharSequence typeDeclaration, IProgressMonitor monitor) throws CoreException {
+        IFolder folder = project.getProject().getFolder("src");
+        for (String segment : packageName.split("\\.")) {
+            folder = folder.getFolder(segment);
+            if (!folder.exists()) folder.create(true, true, monitor);
+        }
+        String source = "package " + packageName + ";\n\n" + typeDeclaration;
+        IFile file = folder.getFile(simpleName + ".java");
+        file.create(new ByteArrayInputStream(source.getBytes(StandardCharsets.UTF_8)), true, monitor);
+        file.setCharset(StandardCharsets.UTF_8.name(), monitor);
+    }
+
+    /** ワークスペースをビルドし、ビルドと検索インデックスの作成が終わるまで待ちます。 */
+    public static void buildAndWaitForIndex(IProgressMonitor monitor) throws CoreException, InterruptedException {
+        ResourcesPlugin.getWorkspace().build(IncrementalProjectBuilder.FULL_BUILD, monitor);
+        Job.getJobManager().join(ResourcesPlugin.FAMILY_AUTO_BUILD, monitor);
+        // 検索インデックスの作成が終わるまで待つ (存在しない型名の検索で WAIT_UNTIL_READY_TO_SEARCH を指定する)
+        new SearchEngine().searchAllTypeNames(null, SearchPattern.R_EXACT_MATCH, "$NoSuchType$".toCharArray(),
+                SearchPattern.R_EXACT_MATCH | SearchPattern.R_CASE_SENSITIVE, IJavaSearchConstants.TYPE,
+                SearchEngine.createWorkspaceScope(), new TypeNameRequestor() {
+                }, IJavaSearchConstants.WAIT_UNTIL_READY_TO_SEARCH, monitor);
+    }
+}
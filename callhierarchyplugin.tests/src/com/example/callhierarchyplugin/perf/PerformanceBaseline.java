@@ -0,0 +1,172 @@
+package com.example.callhierarchyplugin.perf;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 性能測定のベースラインファイル (JSON) の読み書き。
+ * <pre>
+ * {
+ *   "workspace": {"projects":3,"classesPerProject":200,"callDepth":8,"fanIn":4,"targets":3},
+ *   "tolerance": 1.5,
+ *   "minSlackMillis": 250,
+ *   "measurements": [
+ *     {"name":"findRootCallers/target0","millis":120,"results":4},
+ *     {"name":"directCsvExport/target0","millis":150,"results":4,"tolerance":2.0}
+ *   ]
+ * }
+ * </pre>
+ * 測定値の上限は max(millis × tolerance, millis + minSlackMillis) です (tolerance は測定ごとに上書きできる)。
+ * results は結果の件数で、一致しない場合は生成したワークスペースか検索の動作が変わっているため比較しません。
+ * このクラスが書き出す形式 (measurements の 1 要素を 1 行) だけを読み込みます。
+ */
+class PerformanceBaseline {
+
+    private static final double DEFAULT_TOLERANCE = 1.5;
+    private static final long DEFAULT_MIN_SLACK_MILLIS = 250;
+
+    private static final Pattern WORKSPACE = Pattern.compile("\"workspace\"\\s*:\\s*(\\{[^}]*\\})");
+    private static final Pattern TOLERANCE = Pattern.compile("^\\s*\"tolerance\"\\s*:\\s*([0-9.]+)", Pattern.MULTILINE);
+    private static final Pattern MIN_SLACK = Pattern.compile("\"minSlackMillis\"\\s*:\\s*([0-9]+)");
+    private static final Pattern MEASUREMENT = Pattern.compile(
+            "\\{\\s*\"name\"\\s*:\\s*\"([^\"]+)\"\\s*,\\s*\"millis\"\\s*:\\s*([0-9]+)\\s*,\\s*\"results\"\\s*:\\s*([0-9]+)"
+            + "(?:\\s*,\\s*\"tolerance\"\\s*:\\s*([0-9.]+))?\\s*\\}");
+
+    /** 1 つの測定値 */
+    static class Measurement {
+        final String name;
+        final long millis;
+        final int results;
+        final Double tolerance; // null の場合はファイル全体の値
+
+        Measurement(String name, long millis, int results, Double tolerance) {
+            this.name = name;
+            this.millis = millis;
+            this.results = results;
+            this.tolerance = tolerance;
+        }
+
+        String toJson() {
+            return "{\"name\":\"" + name + "\",\"millis\":" + millis + ",\"results\":" + results
+                    + (tolerance != null ? ",\"tolerance\":" + formatDouble(tolerance) : "") + "}";
+        }
+    }
+
+    private String workspaceJson;
+    private double tolerance = DEFAULT_TOLERANCE;
+    private long minSlackMillis = DEFAULT_MIN_SLACK_MILLIS;
+    private final Map<String, Measurement> measurements = new LinkedHashMap<>();
+
+    PerformanceBaseline(String workspaceJson) {
+        this.workspaceJson = workspaceJson;
+    }
+
+    /** ファイルを読み込みます。存在しない場合は空のベースラインを返します。 */
+    static PerformanceBaseline read(File file) throws IOException {
+        PerformanceBaseline baseline = new PerformanceBaseline(null);
+        if (!file.isFile()) return baseline;
+        String text = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+        Matcher matcher = WORKSPACE.matcher(text);
+        if (matcher.find()) baseline.workspaceJson = matcher.group(1).replaceAll("\\s", "");
+        matcher = TOLERANCE.matcher(text);
+        if (matcher.find()) baseline.tolerance = Double.parseDouble(matcher.group(1));
+        matcher = MIN_SLACK.matcher(text);
+        if (matcher.find()) baseline.minSlackMillis = Long.parseLong(matcher.group(1));
+        matcher = MEASUREMENT.matcher(text);
+        while (matcher.find()) {
+            Double tolerance = matcher.group(4) != null ? Double.valueOf(matcher.group(4)) : null;
+            baseline.put(new Measurement(matcher.group(1), Long.parseLong(matcher.group(2)),
+                    Integer.parseInt(matcher.group(3)), tolerance));
+        }
+        return baseline;
+    }
+
+    void write(File file) throws IOException {
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+            throw new IOException("ディレクトリを作成できません: " + parent);
+        }
+        StringBuilder json = new StringBuilder();
+        json.append("{\n  \"workspace\": ").append(workspaceJson).append(",\n");
+        json.append("  \"tolerance\": ").append(formatDouble(tolerance)).append(",\n");
+        json.append("  \"minSlackMillis\": ").append(minSlackMillis).append(",\n");
+        json.append("  \"measurements\": [\n");
+        int i = 0;
+        for (Measurement measurement : measurements.values()) {
+            json.append("    ").append(measurement.toJson()).append(++i < measurements.size() ? ",\n" : "\n");
+        }
+        json.append("  ]\n}\n");
+        Files.write(file.toPath(), json.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /** 記録したワークスペースの規模 (空白を除いた JSON)。記録がない場合は null */
+    String getWorkspaceJson() {
+        return workspaceJson;
+    }
+
+    /** 閾値の設定 (tolerance と minSlackMillis) を引き継ぎます。 */
+    void copyThresholds(PerformanceBaseline other) {
+        this.tolerance = other.tolerance;
+        this.minSlackMillis = other.minSlackMillis;
+    }
+
+    void put(Measurement measurement) {
+        measurements.put(measurement.name, measurement);
+    }
+
+    /** 記録した測定の名前 (記録順) */
+    List<String> names() {
+        return new ArrayList<>(measurements.keySet());
+    }
+
+    Measurement get(String name) {
+        return measurements.get(name);
+    }
+
+    /** 測定値の上限 (ミリ秒) */
+    long limitMillis(Measurement baseline) {
+        double ratio = baseline.tolerance != null ? baseline.tolerance : tolerance;
+        return Math.max((long) Math.ceil(baseline.millis * ratio), baseline.millis + minSlackMillis);
+    }
+
+    /**
+     * 測定結果をこのベースラインと比較し、上限を超えた測定とベースラインに記録がない測定の説明を返します
+     * (記録がない測定を見逃すと、空のベースラインでは常に成功してしまうため)。
+     * 結果の件数が異なる測定は比較せず、警告を出力します。
+     */
+    List<String> findRegressions(PerformanceBaseline actual) {
+        List<String> regressions = new ArrayList<>();
+        for (Measurement measured : actual.measurements.values()) {
+            Measurement expected = measurements.get(measured.name);
+            if (expected == null) {
+                regressions.add(measured.name + ": ベースラインに記録がありません (基準とするマシンで"
+                        + " -Dperf.updateBaseline=true を指定して記録してください)");
+                continue;
+            }
+            if (expected.results != measured.results) {
+                System.err.println("警告(Perf): 結果の件数がベースラインと異なるため比較しません: " + measured.name
+                        + " (ベースライン " + expected.results + " 件, 測定 " + measured.results + " 件)");
+                continue;
+            }
+            long limit = limitMillis(expected);
+            if (measured.millis > limit) {
+                regressions.add(measured.name + ": " + measured.millis + " ms (ベースライン " + expected.millis
+                        + " ms, 上限 " + limit + " ms)");
+            }
+        }
+        return regressions;
+    }
+
+    private static String formatDouble(double value) {
+        return String.format(Locale.ROOT, "%.2f", value);
+    }
+}
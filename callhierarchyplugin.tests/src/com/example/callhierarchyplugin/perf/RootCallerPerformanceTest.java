@@ -0,0 +1,168 @@
+package com.example.callhierarchyplugin.perf;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.example.callhierarchyplugin.index.PersistentCallIndex;
+import com.example.callhierarchyplugin.search.CallInfo;
+import com.example.callhierarchyplugin.search.DirectCsvExportJob;
+import com.example.callhierarchyplugin.search.RootCallerFinder;
+import com.example.callhierarchyplugin.search.SearchScopeProvider;
+import com.example.callhierarchyplugin.utils.AstCache;
+import com.example.callhierarchyplugin.utils.TypeHierarchyCache;
+
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.jdt.core.IMethod;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 生成したワークスペースで RootCallerFinder と DirectCsvExportJob の所要時間を測定し、ベースラインと比較する性能の回帰テスト。
+ * <p>
+ * JUnit プラグインテストとしてヘッドレス (アプリケーションなし) で実行します。対象ごとに 1 回の空実行の後、
+ * perf.iterations 回 (既定 5 回) 測定した中央値を記録します。各回の前に AST・型階層・検索範囲のキャッシュと
+ * 呼び出しインデックスを破棄するため、初回の検索に相当する時間を測ります。
+ * <p>
+ * 測定結果は perf.results (既定 target/perf-results.json) にベースラインと同じ形式で出力し、
+ * perf.baseline (既定 perf-baseline.json) の値の上限を超えた測定や、ベースラインに記録がない測定があれば失敗します。
+ * ワークスペースの規模 (perf.projects / perf.classes / perf.depth / perf.fanIn / perf.targets) が
+ * ベースラインと異なる場合は比較しません。-Dperf.updateBaseline=true を指定するとベースラインを測定結果で置き換えます
+ * (閾値の設定は引き継ぐ)。ベースラインは基準とするマシンで更新してください。
+ */
+public class RootCallerPerformanceTest {
+
+    private static final int ITERATIONS = Integer.getInteger("perf.iterations", 5);
+    private static final File BASELINE_FILE = new File(System.getProperty("perf.baseline", "perf-baseline.json"));
+    private static final File RESULTS_FILE = new File(System.getProperty("perf.results", "target/perf-results.json"));
+    private static final boolean UPDATE_BASELINE = Boolean.getBoolean("perf.updateBaseline");
+
+    private static SyntheticWorkspace workspace;
+    private static PerformanceBaseline results;
+
+    /** 1 回分の測定 (結果の件数を返す) */
+    private interface Run {
+        int run() throws Exception;
+    }
+
+    @BeforeClass
+    public static void createWorkspace() throws Exception {
+        workspace = new SyntheticWorkspace(new SyntheticWorkspace.Spec());
+        long start = System.nanoTime();
+        workspace.create(new NullProgressMonitor());
+        System.out.println("Perf: ワークスペースの生成とインデックス作成 " + (System.nanoTime() - start) / 1_000_000 + " ms "
+                + workspace.getSpec().toJson());
+        results = new PerformanceBaseline(workspace.getSpec().toJson());
+    }
+
+    @AfterClass
+    public static void deleteWorkspace() throws Exception {
+        if (workspace != null) {
+            workspace.delete(new NullProgressMonitor());
+        }
+    }
+
+    @Test
+    public void findRootCallersWithinBaseline() throws Exception {
+        for (int t = 0; t < workspace.getSpec().targets; t++) {
+            IMethod target = workspace.getTarget(t);
+            measure("findRootCallers/target" + t, () -> {
+                List<CallInfo> found = new RootCallerFinder(target).findRootCallers(new NullProgressMonitor());
+                return found.size();
+            });
+        }
+        compareWithBaseline();
+    }
+
+    @Test
+    public void directCsvExportWithinBaseline() throws Exception {
+        File csv = File.createTempFile("perf-export", ".csv");
+        try {
+            for (int t = 0; t < workspace.getSpec().targets; t++) {
+                IMethod target = workspace.getTarget(t);
+                measure("directCsvExport/target" + t, () -> {
+                    DirectCsvExportJob job = new DirectCsvExportJob(target, null, csv, null);
+                    job.schedule();
+                    job.join();
+                    IStatus status = job.getResult();
+                    assertTrue("CSV出力に失敗しました: " + status, status.isOK());
+                    // 結果がない場合はファイルが削除される。先頭行は見出し
+                    return csv.isFile() ? Files.readAllLines(csv.toPath(), StandardCharsets.UTF_8).size() - 1 : 0;
+                });
+            }
+        } finally {
+            csv.delete();
+        }
+        compareWithBaseline();
+    }
+
+    /** 空実行の後 ITERATIONS 回測定し、中央値を記録します。結果の件数は毎回同じでなければなりません。 */
+    private static void measure(String name, Run run) throws Exception {
+        resetCaches();
+        int expectedResults = run.run();
+        long[] millis = new long[ITERATIONS];
+        for (int i = 0; i < ITERATIONS; i++) {
+            resetCaches();
+            long start = System.nanoTime();
+            int count = run.run();
+            millis[i] = (System.nanoTime() - start) / 1_000_000;
+            assertEquals(name + " の結果の件数が実行ごとに異なります", expectedResults, count);
+        }
+        Arrays.sort(millis);
+        long median = millis[ITERATIONS / 2];
+        System.out.println("Perf: " + name + " " + median + " ms (" + expectedResults + " 件, 最小 " + millis[0]
+                + " ms, 最大 " + millis[ITERATIONS - 1] + " ms)");
+        results.put(new PerformanceBaseline.Measurement(name, median, expectedResults, null));
+    }
+
+    /** 検索の間で共有されるキャッシュをすべて破棄します。 */
+    private static void resetCaches() {
+        AstCache.getDefault().clear();
+        TypeHierarchyCache.getDefault().clear();
+        SearchScopeProvider.getDefault().invalidate();
+        PersistentCallIndex index = PersistentCallIndex.getDefault();
+        if (index != null) {
+            index.invalidateAll();
+        }
+    }
+
+    /** これまでの測定結果を出力し、ベースラインと比較します (更新する場合は置き換えるだけ)。 */
+    private static void compareWithBaseline() throws Exception {
+        PerformanceBaseline baseline = PerformanceBaseline.read(BASELINE_FILE);
+        results.copyThresholds(baseline);
+        results.write(RESULTS_FILE);
+        if (UPDATE_BASELINE) {
+            mergeInto(baseline, results).write(BASELINE_FILE);
+            System.out.println("Perf: ベースラインを更新しました: " + BASELINE_FILE.getAbsolutePath());
+            return;
+        }
+        if (!workspace.getSpec().toJson().equals(baseline.getWorkspaceJson())) {
+            System.err.println("警告(Perf): ワークスペースの規模がベースラインと異なるため比較しません: "
+                    + baseline.getWorkspaceJson());
+            return;
+        }
+        List<String> regressions = baseline.findRegressions(results);
+        assertTrue("ベースラインより遅いか、ベースラインに記録がありません:\n" + String.join("\n", regressions), regressions.isEmpty());
+    }
+
+    /** 既存のベースラインの閾値を保ったまま、測定結果の値で置き換えたベースライン */
+    private static PerformanceBaseline mergeInto(PerformanceBaseline baseline, PerformanceBaseline measured) {
+        PerformanceBaseline merged = new PerformanceBaseline(workspace.getSpec().toJson());
+        merged.copyThresholds(baseline);
+        for (String name : measured.names()) {
+            PerformanceBaseline.Measurement value = measured.get(name);
+            PerformanceBaseline.Measurement previous = baseline.get(name);
+            // 測定ごとの tolerance は引き継ぐ
+            merged.put(new PerformanceBaseline.Measurement(name, value.millis, value.results,
+                    previous != null ? previous.tolerance : null));
+        }
+        return merged;
+    }
+}
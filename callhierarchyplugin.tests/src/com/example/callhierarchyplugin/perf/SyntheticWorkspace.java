@@ -0,0 +1,163 @@
+package com.example.callhierarchyplugin.perf;
+
+import com.example.callhierarchyplugin.fixture.JavaProjects;
+
+import org.eclipse.core.resources.IWorkspace;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.IMethod;
+import org.eclipse.jdt.core.IType;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 性能測定用の Java プロジェクト群をワークスペースに生成します。
+ * <p>
+ * プロジェクト perf0 ～ perf(N-1) を作成し、各プロジェクトはそれより前のすべてのプロジェクトをクラスパスで参照します。
+ * perf0 の Targets クラスに検索対象のメソッド target0 ～ target(T-1) を置き、その上に callDepth 段の呼び出し層を積みます。
+ * 各層は fanIn 個のクラス (Layer{段}_{番号}) からなり、各クラスのメソッド call{t} は 1 つ下の層のすべての call{t}
+ * (1 段目は Targets.target{t}) を呼び出します。層は段が上がるほど後ろのプロジェクトに配置します。
+ * したがって対象ごとの根本起点は最上段の fanIn 個のメソッドで、探索するメソッド数は callDepth × fanIn です。
+ * 呼び出し関係のない Filler クラスを各プロジェクトに classesPerProject 個置き、インデックスと検索範囲の規模を実際のワークスペースに近づけます。
+ */
+public class SyntheticWorkspace {
+
+    static final String PROJECT_PREFIX = "perf";
+    private static final String TARGETS_CLASS = "Targets";
+    private static final int FILLER_METHODS = 6;
+
+    /** 生成するワークスペースの規模 (既定値はシステムプロパティ perf.* で変更できる) */
+    public static class Spec {
+        int projects = Integer.getInteger("perf.projects", 3);
+        int classesPerProject = Integer.getInteger("perf.classes", 200);
+        int callDepth = Integer.getInteger("perf.depth", 8);
+        int fanIn = Integer.getInteger("perf.fanIn", 4);
+        int targets = Integer.getInteger("perf.targets", 3);
+
+        /** ベースラインファイルの "workspace" に記録する JSON */
+        String toJson() {
+            return "{\"projects\":" + projects + ",\"classesPerProject\":" + classesPerProject
+                    + ",\"callDepth\":" + callDepth + ",\"fanIn\":" + fanIn + ",\"targets\":" + targets + "}";
+        }
+    }
+
+    private final Spec spec;
+    private final List<IJavaProject> projects = new ArrayList<>();
+
+    public SyntheticWorkspace(Spec spec) {
+        this.spec = spec;
+    }
+
+    public Spec getSpec() {
+        return spec;
+    }
+
+    /** プロジェクトとソースを生成し、ビルドと検索インデックスの作成が終わるまで待ちます。 */
+    public void create(IProgressMonitor monitor) throws CoreException, InterruptedException {
+        IWorkspace workspace = ResourcesPlugin.getWorkspace();
+        workspace.run(m -> {
+            for (int p = 0; p < spec.projects; p++) {
+                // 各プロジェクトはそれより前のすべてのプロジェクトを参照する
+                projects.add(JavaProjects.create(PROJECT_PREFIX + p, new ArrayList<>(projects), m));
+            }
+            writeSources(m);
+        }, monitor);
+        JavaProjects.buildAndWaitForIndex(monitor);
+    }
+
+    /** 生成したプロジェクトをすべて削除します。 */
+    public void delete(IProgressMonitor monitor) throws CoreException {
+        ResourcesPlugin.getWorkspace().run(m -> {
+            for (IJavaProject project : projects) {
+                project.getProject().delete(true, true, m);
+            }
+        }, monitor);
+        projects.clear();
+    }
+
+    /** 検索対象のメソッド Targets#target{index} */
+    public IMethod getTarget(int index) throws CoreException {
+        IType type = projects.get(0).findType(packageName(0) + "." + TARGETS_CLASS);
+        if (type == null) {
+            throw new IllegalStateException("対象のクラスが見つかりません: " + TARGETS_CLASS);
+        }
+        return type.getMethod("target" + index, new String[0]);
+    }
+
+    private void writeSources(IProgressMonitor monitor) throws CoreException {
+        StringBuilder targets = new StringBuilder();
+        for (int t = 0; t < spec.targets; t++) {
+            targets.append("    public static int target").append(t).append("() {\n")
+                    .append("        return ").append(t).append(";\n    }\n");
+        }
+        writeClass(0, TARGETS_CLASS, targets, monitor);
+
+        for (int level = 1; level <= spec.callDepth; level++) {
+            for (int i = 0; i < spec.fanIn; i++) {
+                StringBuilder body = new StringBuilder();
+                for (int t = 0; t < spec.targets; t++) {
+                    body.append("    public static int call").append(t).append("() {\n        int sum = 0;\n");
+                    if (level == 1) {
+                        body.append("        sum += ").append(packageName(0)).append('.').append(TARGETS_CLASS)
+                                .append(".target").append(t).append("();\n");
+                    } else {
+                        for (int j = 0; j < spec.fanIn; j++) {
+                            body.append("        sum += ").append(layerClassName(level - 1, j))
+                                    .append(".call").append(t).append("();\n");
+                        }
+                    }
+                    body.append("        return sum;\n    }\n");
+                }
+                writeClass(projectOfLevel(level), simpleLayerName(level, i), body, monitor);
+            }
+        }
+
+        for (int p = 0; p < spec.projects; p++) {
+            for (int c = 0; c < spec.classesPerProject; c++) {
+                writeClass(p, "Filler" + c, fillerBody(c), monitor);
+            }
+        }
+    }
+
+    /** 互いに呼び出し合うが、対象とは関係のないメソッド */
+    private static StringBuilder fillerBody(int seed) {
+        StringBuilder body = new StringBuilder();
+        body.append("    private final java.util.List<String> values = new java.util.ArrayList<>();\n");
+        for (int m = 0; m < FILLER_METHODS; m++) {
+            body.append("    public String method").append(m).append("(String value) {\n");
+            body.append("        values.add(value + ").append(seed).append(");\n");
+            if (m + 1 < FILLER_METHODS) {
+                body.append("        return method").append(m + 1).append("(value.trim());\n");
+            } else {
+                body.append("        return String.join(\",\", values);\n");
+            }
+            body.append("    }\n");
+        }
+        return body;
+    }
+
+    private void writeClass(int project, String simpleName, CharSequence body, IProgressMonitor monitor) throws CoreException {
+        JavaProjects.writeCompilationUnit(projects.get(project), packageName(project), simpleName,
+                "public class " + simpleName + " {\n" + body + "}\n", monitor);
+    }
+
+    /** 段が上がるほど後ろのプロジェクト (呼び出し元は常に呼び出し先と同じか後ろのプロジェクトにある) */
+    private int projectOfLevel(int level) {
+        return Math.min(spec.projects - 1, (level - 1) * spec.projects / spec.callDepth);
+    }
+
+    private String layerClassName(int level, int index) {
+        return packageName(projectOfLevel(level)) + "." + simpleLayerName(level, index);
+    }
+
+    private static String simpleLayerName(int level, int index) {
+        return "Layer" + level + "_" + index;
+    }
+
+    private static String packageName(int project) {
+        return "perf.p" + project;
+    }
+}
@@ -0,0 +1,120 @@
+package com.example.callhierarchyplugin.search;
+
+import static org.junit.Assert.assertEquals;
+
+import com.example.callhierarchyplugin.fixture.JavaProjects;
+
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.IMethod;
+import org.eclipse.jdt.core.IType;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * オーバーライド関係を考慮した RootCallerFinder の検索結果のテスト。
+ * <p>
+ * JUnit プラグインテストとしてヘッドレスで実行します。インターフェース Service とその実装 ServiceImpl、
+ * インターフェース経由で呼び出す Client からなるプロジェクトを生成して検索します。
+ * 呼び出しインデックスは使用せず、毎回検索と AST の解析で結果を求めます。
+ */
+public class RootCallerFinderTest {
+
+    private static final String PROJECT_NAME = "rootCallerFinderTest";
+    private static final String PACKAGE_NAME = "finder";
+
+    private static IJavaProject project;
+
+    @BeforeClass
+    public static void createProject() throws Exception {
+        IProgressMonitor monitor = new NullProgressMonitor();
+        ResourcesPlugin.getWorkspace().run(m -> {
+            project = JavaProjects.create(PROJECT_NAME, List.of(), m);
+            writeClass("Service", "public interface Service {\n"
+                    + "    int run(int value);\n"
+                    + "}\n", m);
+            writeClass("ServiceImpl", "public class ServiceImpl implements Service {\n"
+                    + "    public int run(int value) {\n"
+                    + "        return value;\n"
+                    + "    }\n"
+                    + "}\n", m);
+            writeClass("Client", "public class Client {\n"
+                    + "    public static int callThroughInterface(Service service) {\n"
+                    + "        return service.run(42);\n"
+                    + "    }\n"
+                    + "}\n", m);
+        }, monitor);
+        JavaProjects.buildAndWaitForIndex(monitor);
+    }
+
+    @AfterClass
+    public static void deleteProject() throws Exception {
+        if (project != null) {
+            project.getProject().delete(true, true, new NullProgressMonitor());
+        }
+    }
+
+    /** インターフェースと実装の両方を対象にした場合、インターフェース経由の呼び出しはそれぞれの対象の直接呼び出しになる */
+    @Test
+    public void callSiteSharedByOverrideTargetsIsReportedForEachTarget() throws Exception {
+        IMethod declaration = method("Service");
+        IMethod implementation = method("ServiceImpl");
+        RootCallerFinder finder = newFinder(List.of(declaration, implementation));
+
+        Map<IMethod, List<CallInfo>> resultsByTarget = finder.findRootCallersByTarget(new NullProgressMonitor());
+
+        for (IMethod target : List.of(declaration, implementation)) {
+            List<CallInfo> results = resultsByTarget.get(target);
+            assertEquals(target.getElementName() + " の結果の件数", 1, results.size());
+            assertEquals(caller(), results.get(0).getDirectCaller());
+        }
+    }
+
+    /** 実装だけを対象にした場合も、インターフェース経由の呼び出し箇所の引数を AST から取得できる */
+    @Test
+    public void argumentsOfCallThroughInterfaceAreResolved() throws Exception {
+        RootCallerFinder finder = newFinder(List.of(method("ServiceImpl")));
+
+        List<CallInfo> results = finder.findRootCallers(new NullProgressMonitor());
+
+        assertEquals(1, results.size());
+        CallInfo info = results.get(0);
+        assertEquals(caller(), info.getDirectCaller());
+        assertEquals(5, info.getLineNumber());
+        assertEquals(List.of("42"), info.getArgumentValues());
+    }
+
+    private static RootCallerFinder newFinder(List<IMethod> targets) {
+        RootCallerFinder finder = new RootCallerFinder(targets);
+        finder.setResolveOverrides(true);
+        finder.setUseCallIndex(false);
+        return finder;
+    }
+
+    private static IMethod method(String typeName) throws CoreException {
+        return type(typeName).getMethod("run", new String[] { "I" });
+    }
+
+    private static IMethod caller() throws CoreException {
+        return type("Client").getMethod("callThroughInterface", new String[] { "QService;" });
+    }
+
+    private static IType type(String simpleName) throws CoreException {
+        IType type = project.findType(PACKAGE_NAME + "." + simpleName);
+        if (type == null) {
+            throw new IllegalStateException("クラスが見つかりません: " + simpleName);
+        }
+        return type;
+    }
+
+    private static void writeClass(String simpleName, String declaration, IProgressMonitor monitor) throws CoreException {
+        JavaProjects.writeCompilationUnit(project, PACKAGE_NAME, simpleName, declaration, monitor);
+    }
+}
@@ -1,5 +1,15 @@
 package com.example.callhierarchyplugin;
 
+import com.example.callhierarchyplugin.index.PersistentCallIndex;
+import com.example.callhierarchyplugin.search.SearchScopeProvider;
+import com.example.callhierarchyplugin.utils.AstCache;
+import com.example.callhierarchyplugin.utils.TypeHierarchyCache;
+import com.example.callhierarchyplugin.utils.TypeNameIndex;
+
+import org.eclipse.core.resources.ISavedState;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.jdt.core.ElementChangedEvent;
+import org.eclipse.jdt.core.JavaCore;
 import org.eclipse.ui.plugin.AbstractUIPlugin;
 import org.osgi.framework.BundleContext;
 
@@ -14,6 +24,8 @@ public class Activator extends AbstractUIPlugin {
     // The shared instance
     private static Activator plugin;
 
+    private PersistentCallIndex callIndex;
+
     /**
      * The constructor
      */
@@ -24,10 +36,36 @@ public class Activator extends AbstractUIPlugin {
     public void start(BundleContext context) throws Exception {
         super.start(context);
         plugin = this;
+        JavaCore.addElementChangedListener(AstCache.getDefault(), ElementChangedEvent.POST_CHANGE);
+        // クラスパスやプロジェクトの構成が変わったら、キャッシュした検索範囲を破棄する
+        JavaCore.addElementChangedListener(SearchScopeProvider.getDefault(), ElementChangedEvent.POST_CHANGE);
+        // 型名の索引 (メソッド名の解決と入力補完) を変更に追従させる
+        JavaCore.addElementChangedListener(TypeNameIndex.getDefault(), ElementChangedEvent.POST_CHANGE);
+
+        // 永続的な逆呼び出しインデックス: 前回の保存状態を読み込み、以降の変更を追跡する
+        callIndex = new PersistentCallIndex(getStateLocation().toFile());
+        ISavedState savedState = ResourcesPlugin.getWorkspace().addSaveParticipant(PLUGIN_ID, callIndex);
+        callIndex.restore(savedState);
+        JavaCore.addElementChangedListener(callIndex, ElementChangedEvent.POST_CHANGE);
+        PersistentCallIndex.setDefault(callIndex);
     }
 
     @Override
     public void stop(BundleContext context) throws Exception {
+        if (callIndex != null) {
+            PersistentCallIndex.setDefault(null);
+            JavaCore.removeElementChangedListener(callIndex);
+            ResourcesPlugin.getWorkspace().removeSaveParticipant(PLUGIN_ID);
+            callIndex.dispose();
+            callIndex = null;
+        }
+        JavaCore.removeElementChangedListener(TypeNameIndex.getDefault());
+        TypeNameIndex.getDefault().clear();
+        JavaCore.removeElementChangedListener(SearchScopeProvider.getDefault());
+        SearchScopeProvider.getDefault().invalidate();
+        JavaCore.removeElementChangedListener(AstCache.getDefault());
+        AstCache.getDefault().clear();
+        TypeHierarchyCache.getDefault().clear();
         plugin = null;
         super.stop(context);
     }
@@ -0,0 +1,369 @@
+package com.example.callhierarchyplugin.app;
+
+import com.example.callhierarchyplugin.export.CallGraphFiles;
+import com.example.callhierarchyplugin.export.CallInfoWriter;
+import com.example.callhierarchyplugin.graph.io.CallGraphWriter;
+import com.example.callhierarchyplugin.index.PersistentCallIndex;
+import com.example.callhierarchyplugin.index.WorkspaceCallIndexer;
+import com.example.callhierarchyplugin.search.CallInfo;
+import com.example.callhierarchyplugin.search.RootCallerFinder;
+import com.example.callhierarchyplugin.utils.JDTUtils;
+
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IWorkspace;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.*;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.equinox.app.IApplication;
+import org.eclipse.equinox.app.IApplicationContext;
+import org.eclipse.jdt.core.IMethod;
+import org.eclipse.jdt.core.search.IJavaSearchConstants;
+import org.eclipse.jdt.core.search.SearchEngine;
+import org.eclipse.jdt.core.search.SearchPattern;
+import org.eclipse.jdt.core.search.TypeNameRequestor;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 多数のメソッドの根本起点をまとめて検索するヘッドレスアプリケーション
+ * (アプリケーション ID: callhierarchyplugin.rootCallers)。
+ * <p>
+ * -data で指定したワークスペースを開き、対象ファイルの各行 ("クラス名#メソッド名"。オーバーロードは
+ * "クラス名#メソッド名(String,int)" のように引数の型で指定する) のメソッドについて
+ * RootCallerFinder を並行に実行します。結果は対象ごとに 1 つのファイルへ、起点が確定した順に書き込みます。
+ * <pre>
+ * eclipse -nosplash -data &lt;workspace&gt; -application callhierarchyplugin.rootCallers
+ *     -targets targets.txt [-output &lt;dir&gt;] [-format csv|jsonl] [-gzip] [-parallel N] [-buildIndex]
+ *     [-maxDepth N] [-maxNodes N] [-timeLimit 秒] [-overrides] [-paths] [-graph dot|graphml|binary]
+ * </pre>
+ * -maxDepth / -maxNodes / -timeLimit は対象ごとの探索の上限です。上限に達した対象は打ち切った時点の結果を出力します。
+ * -overrides を指定すると、スーパータイプやインターフェースの宣言を経由した呼び出しも呼び出し元として扱います。
+ * -paths を指定すると、起点から直接の呼び出し元までの最短経路を出力します (CSV では最後の列、JSON Lines では path)。
+ * -graph を指定すると、対象ごとに探索した呼び出し関係グラフを結果と同じ名前 (拡張子は .dot / .graphml / .cgraph) のファイルに出力します。
+ * 対象ファイルの空行と "#" で始まる行は無視します。"com.example.*Service#*" のようにワイルドカードを含む行は
+ * 一致するすべてのメソッドを 1 回の探索でまとめて検索し、対象メソッドの列 (JSON Lines では target) を付けて 1 つのファイルに出力します。
+ * 出力ディレクトリには、対象ごとの検索の計測値 (フェーズごとの時間や検索回数) を 1 行 1 対象の statistics.jsonl として出力します。
+ * すべての対象の検索に成功した場合は 0、失敗した対象がある場合は 1 を終了コードとして返します。
+ */
+public class RootCallerApplication implements IApplication {
+
+    private static final int DEFAULT_PARALLEL_SEARCHES = 2;
+    private static final Integer EXIT_FAILURE = Integer.valueOf(1);
+    private static final String STATISTICS_FILE_NAME = "statistics.jsonl";
+
+    // stop() で立てる停止要求。実行中の検索はモニター経由でキャンセルされる
+    private volatile boolean stopRequested;
+
+    /** コマンドライン引数 */
+    private static class Options {
+        File targetsFile;
+        File outputDir = new File("root-callers");
+        CallInfoWriter.Format format = CallInfoWriter.Format.CSV;
+        boolean gzip;
+        int parallel = DEFAULT_PARALLEL_SEARCHES;
+        boolean buildIndex;
+        int maxDepth;
+        int maxNodes;
+        long timeLimitMillis;
+        boolean resolveOverrides;
+        boolean recordPaths;
+        CallGraphWriter.Format graphFormat; // null の場合はグラフを出力しない
+    }
+
+    /** 1 対象分の実行結果 */
+    private static class TargetResult {
+        final String target;
+        File outputFile;
+        long rowCount;
+        long elapsedMillis;
+        String error; // 失敗した場合のみ
+        boolean truncated; // 上限に達して探索を打ち切った場合
+        String statisticsJson; // 検索を実行した場合の計測値
+
+        TargetResult(String target) {
+            this.target = target;
+        }
+    }
+
+    @Override
+    public Object start(IApplicationContext context) throws Exception {
+        String[] args = (String[]) context.getArguments().get(IApplicationContext.APPLICATION_ARGS);
+        Options options = parseOptions(args != null ? args : new String[0]);
+        if (options == null) {
+            printUsage();
+            return EXIT_FAILURE;
+        }
+        List<String> targets = readTargets(options.targetsFile);
+        if (!options.outputDir.isDirectory() && !options.outputDir.mkdirs()) {
+            System.err.println("エラー(App): 出力ディレクトリを作成できません: " + options.outputDir);
+            return EXIT_FAILURE;
+        }
+
+        IProgressMonitor monitor = createMonitor();
+        prepareWorkspace(options, monitor);
+
+        List<TargetResult> results = runSearches(targets, options, monitor);
+
+        // 検索中に記録した呼び出しインデックスを次回の実行のために保存する
+        ResourcesPlugin.getWorkspace().save(true, monitor);
+        writeStatistics(results, new File(options.outputDir, STATISTICS_FILE_NAME));
+
+        int failures = 0;
+        for (TargetResult result : results) {
+            if (result.error != null) {
+                failures++;
+                System.out.println("NG  " + result.target + "  " + result.error);
+            } else {
+                System.out.println("OK  " + result.target + "  " + result.rowCount + " 件  "
+                        + result.elapsedMillis + " ms" + (result.truncated ? " (打ち切り)" : "") + "  -> " + result.outputFile.getPath());
+            }
+        }
+        System.out.println("完了: " + (results.size() - failures) + " / " + results.size() + " 件の対象を検索しました。");
+        return failures == 0 ? IApplication.EXIT_OK : EXIT_FAILURE;
+    }
+
+    @Override
+    public void stop() {
+        stopRequested = true;
+    }
+
+    private Options parseOptions(String[] args) {
+        Options options = new Options();
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "-targets": options.targetsFile = new File(args[++i]); break;
+                    case "-output": options.outputDir = new File(args[++i]); break;
+                    case "-format":
+                        options.format = CallInfoWriter.Format.fromName(args[++i]);
+                        if (options.format == null) return null;
+                        break;
+                    case "-gzip": options.gzip = true; break;
+                    case "-parallel": options.parallel = Math.max(1, Integer.parseInt(args[++i])); break;
+                    case "-buildIndex": options.buildIndex = true; break;
+                    case "-maxDepth": options.maxDepth = Integer.parseInt(args[++i]); break;
+                    case "-maxNodes": options.maxNodes = Integer.parseInt(args[++i]); break;
+                    case "-timeLimit": options.timeLimitMillis = Long.parseLong(args[++i]) * 1000L; break;
+                    case "-overrides": options.resolveOverrides = true; break;
+                    case "-paths": options.recordPaths = true; break;
+                    case "-graph":
+                        options.graphFormat = CallGraphWriter.Format.fromName(args[++i]);
+                        if (options.graphFormat == null) return null;
+                        break;
+                    default:
+                        // Eclipse ランチャーの引数など、知らない引数は無視する
+                        break;
+                }
+            }
+        } catch (ArrayIndexOutOfBoundsException | NumberFormatException e) {
+            return null;
+        }
+        return options.targetsFile != null ? options : null;
+    }
+
+    private void printUsage() {
+        System.err.println("使い方: -application callhierarchyplugin.rootCallers -targets <ファイル>"
+                + " [-output <ディレクトリ>] [-format csv|jsonl] [-gzip] [-parallel N] [-buildIndex]"
+                + " [-maxDepth N] [-maxNodes N] [-timeLimit 秒] [-overrides] [-paths] [-graph dot|graphml|binary]");
+    }
+
+    /** 対象ファイルを読み込む (空行と "#" で始まる行は除く) */
+    private List<String> readTargets(File targetsFile) throws IOException {
+        List<String> targets = new ArrayList<>();
+        for (String line : Files.readAllLines(targetsFile.toPath(), StandardCharsets.UTF_8)) {
+            String target = line.trim();
+            if (target.isEmpty() || target.startsWith("#")) continue;
+            targets.add(target);
+        }
+        return targets;
+    }
+
+    /**
+     * ワークスペースを最新の状態にし、自動ビルドと Java の検索インデックスの準備ができるまで待つ。
+     * 指定された場合はワークスペース全体の呼び出しインデックスを作成する。
+     */
+    private void prepareWorkspace(Options options, IProgressMonitor monitor) throws CoreException, InterruptedException {
+        IWorkspace workspace = ResourcesPlugin.getWorkspace();
+        workspace.getRoot().refreshLocal(IResource.DEPTH_INFINITE, monitor);
+        Job.getJobManager().join(ResourcesPlugin.FAMILY_AUTO_BUILD, monitor);
+
+        // 検索インデックスの作成が終わるまで待つ (存在しない型名の検索で WAIT_UNTIL_READY_TO_SEARCH を指定する)
+        new SearchEngine().searchAllTypeNames(null, SearchPattern.R_EXACT_MATCH, "$NoSuchType$".toCharArray(),
+                SearchPattern.R_EXACT_MATCH | SearchPattern.R_CASE_SENSITIVE, IJavaSearchConstants.TYPE,
+                SearchEngine.createWorkspaceScope(), new TypeNameRequestor() {
+                }, IJavaSearchConstants.WAIT_UNTIL_READY_TO_SEARCH, monitor);
+
+        PersistentCallIndex index = PersistentCallIndex.getDefault();
+        if (options.buildIndex && index != null) {
+            WorkspaceCallIndexer indexer = new WorkspaceCallIndexer(index);
+            indexer.schedule();
+            indexer.join();
+            IStatus status = indexer.getResult();
+            if (status != null && !status.isOK()) {
+                System.err.println("警告(App): 呼び出しインデックスの作成に失敗しました: " + status.getMessage());
+            }
+        }
+    }
+
+    /** 対象ごとの検索を options.parallel 件ずつ並行に実行する */
+    private List<TargetResult> runSearches(List<String> targets, Options options, IProgressMonitor monitor) throws InterruptedException {
+        // 各検索も内部でワーカースレッドを使うため、プロセッサを並行数で分け合う
+        int workersPerSearch = Math.max(1, Runtime.getRuntime().availableProcessors() / options.parallel);
+        ExecutorService executor = Executors.newFixedThreadPool(options.parallel, new SearchThreadFactory());
+        List<Future<TargetResult>> futures = new ArrayList<>(targets.size());
+        try {
+            for (int i = 0; i < targets.size(); i++) {
+                String target = targets.get(i);
+                File outputFile = new File(options.outputDir, outputFileName(i, target, options));
+                futures.add(executor.submit(() -> searchTarget(target, outputFile, options, workersPerSearch, monitor)));
+            }
+            List<TargetResult> results = new ArrayList<>(futures.size());
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    results.add(futures.get(i).get());
+                } catch (ExecutionException e) {
+                    TargetResult failed = new TargetResult(targets.get(i));
+                    failed.error = "予期せぬエラー: " + e.getCause();
+                    results.add(failed);
+                }
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /** 1 つの対象を検索し、起点が確定した結果から順にファイルへ書き込む */
+    private TargetResult searchTarget(String target, File outputFile, Options options, int workerCount, IProgressMonitor monitor) {
+        TargetResult result = new TargetResult(target);
+        long start = System.nanoTime();
+        try {
+            boolean pattern = JDTUtils.isMethodPattern(target);
+            List<IMethod> methods;
+            if (pattern) {
+                methods = JDTUtils.findMethodsByPattern(target, monitor);
+            } else {
+                IMethod method = JDTUtils.findMethodFromQualifiedName(target);
+                methods = method != null ? List.of(method) : List.of();
+            }
+            if (methods.isEmpty()) {
+                result.error = "メソッドが見つかりません";
+                return result;
+            }
+            IOException[] writeError = new IOException[1];
+            try (CallInfoWriter writer = CallInfoWriter.open(outputFile, options.format, pattern, options.recordPaths)) {
+                RootCallerFinder finder = new RootCallerFinder(methods);
+                finder.setWorkerCount(workerCount);
+                finder.setRetainResults(false);
+                finder.setMaxDepth(options.maxDepth);
+                finder.setMaxNodes(options.maxNodes);
+                finder.setTimeLimit(options.timeLimitMillis);
+                finder.setResolveOverrides(options.resolveOverrides);
+                finder.setRecordPaths(options.recordPaths);
+                finder.setResultListener(batch -> {
+                    if (writeError[0] != null) return;
+                    try {
+                        for (CallInfo info : batch) {
+                            writer.write(info);
+                        }
+                    } catch (IOException e) {
+                        writeError[0] = e;
+                    }
+                });
+                finder.findRootCallers(monitor);
+                result.statisticsJson = finder.getStatistics().toJson();
+                if (writeError[0] != null) throw writeError[0];
+                if (monitor.isCanceled()) {
+                    result.error = "キャンセルされました";
+                    return result;
+                }
+                result.outputFile = outputFile;
+                result.rowCount = writer.getRowCount();
+                result.truncated = finder.isTruncated();
+                if (options.graphFormat != null) {
+                    CallGraphFiles.write(finder, graphFile(outputFile, options), options.graphFormat);
+                }
+            }
+        } catch (CoreException e) {
+            result.error = "検索エラー: " + e.getMessage();
+        } catch (IOException e) {
+            result.error = "書き込みエラー: " + e.getMessage();
+        } finally {
+            result.elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        }
+        return result;
+    }
+
+    /**
+     * 検索を実行した対象の計測値を 1 行ずつ書き込みます ({"output":"出力ファイル名","statistics":{...}})。
+     * 出力ファイル名は英数字と一部の記号だけで構成されるため、エスケープは不要です。
+     */
+    private static void writeStatistics(List<TargetResult> results, File file) {
+        StringBuilder lines = new StringBuilder();
+        for (TargetResult result : results) {
+            if (result.statisticsJson == null) continue;
+            lines.append("{\"output\":");
+            lines.append(result.outputFile != null ? "\"" + result.outputFile.getName() + "\"" : "null");
+            lines.append(",\"statistics\":").append(result.statisticsJson).append("}\n");
+        }
+        try {
+            Files.writeString(file.toPath(), lines, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            System.err.println("警告(App): 検索統計を書き込めません: " + file + " - " + e.getMessage());
+        }
+    }
+
+    /** 対象ごとの出力ファイル名。オーバーロードなどで同じ名前にならないよう、対象ファイル内の順番を付ける */
+    private static String outputFileName(int index, String target, Options options) {
+        StringBuilder name = new StringBuilder();
+        name.append(String.format("%04d_", index + 1));
+        for (int i = 0; i < target.length(); i++) {
+            char c = target.charAt(i);
+            name.append(Character.isLetterOrDigit(c) || c == '.' || c == '#' || c == '-' || c == '_' ? c : '_');
+        }
+        name.append(options.format.getExtension());
+        if (options.gzip) name.append(".gz");
+        return name.toString();
+    }
+
+    /** 結果のファイル名の拡張子をグラフの形式の拡張子に置き換えたファイル */
+    private static File graphFile(File outputFile, Options options) {
+        String suffix = options.format.getExtension() + (options.gzip ? ".gz" : "");
+        String name = outputFile.getName();
+        name = name.substring(0, name.length() - suffix.length()) + options.graphFormat.getExtension() + (options.gzip ? ".gz" : "");
+        return new File(outputFile.getParentFile(), name);
+    }
+
+    /** stop() で停止要求された場合にキャンセル状態になるモニター (複数の検索スレッドから参照される) */
+    private IProgressMonitor createMonitor() {
+        return new NullProgressMonitor() {
+            @Override
+            public boolean isCanceled() {
+                return stopRequested || super.isCanceled();
+            }
+        };
+    }
+
+    /** 検索用のデーモンスレッドを生成 */
+    private static class SearchThreadFactory implements ThreadFactory {
+        private final AtomicInteger threadNumber = new AtomicInteger(1);
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "RootCallerApplication-search-" + threadNumber.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
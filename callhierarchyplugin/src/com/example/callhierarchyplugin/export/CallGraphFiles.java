@@ -0,0 +1,56 @@
+package com.example.callhierarchyplugin.export;
+
+import com.example.callhierarchyplugin.graph.io.CallGraphWriter;
+import com.example.callhierarchyplugin.search.RootCallerFinder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Locale;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 検索で探索した呼び出し関係グラフのファイル出力 (DOT / GraphML / バイナリ)。
+ * ファイル名が ".gz" で終わる場合は gzip 圧縮します。
+ */
+public final class CallGraphFiles {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private CallGraphFiles() {
+    }
+
+    /**
+     * ファイル名の拡張子 (".gz" を除く) から出力形式を判定します。
+     *
+     * @return 形式。どの形式の拡張子でもない場合は null
+     */
+    public static CallGraphWriter.Format formatOf(File file) {
+        String name = file.getName().toLowerCase(Locale.ROOT);
+        if (name.endsWith(".gz")) {
+            name = name.substring(0, name.length() - ".gz".length());
+        }
+        for (CallGraphWriter.Format format : CallGraphWriter.Format.values()) {
+            if (name.endsWith(format.getExtension())) return format;
+        }
+        return null;
+    }
+
+    /**
+     * 直前の検索で探索したグラフをファイルに書き出します ({@link RootCallerFinder#writeCallGraph})。
+     * 書き込みに失敗した場合は途中までのファイルを削除します。
+     */
+    public static void write(RootCallerFinder finder, File file, CallGraphWriter.Format format) throws IOException {
+        boolean completed = false;
+        try (OutputStream fileOut = new FileOutputStream(file);
+                OutputStream out = CsvCallInfoWriter.isGzipFile(file) ? new GZIPOutputStream(fileOut, BUFFER_SIZE) : fileOut) {
+            finder.writeCallGraph(format.newWriter(), out);
+            completed = true;
+        } finally {
+            if (!completed) {
+                file.delete();
+            }
+        }
+    }
+}
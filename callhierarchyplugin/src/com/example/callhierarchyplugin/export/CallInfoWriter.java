@@ -0,0 +1,79 @@
+package com.example.callhierarchyplugin.export;
+
+import com.example.callhierarchyplugin.search.CallInfo;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * 検索結果を 1 件ずつ出力するライター。
+ * 実装は結果を溜めずに書き込み、{@link #write(CallInfo)} は複数のスレッドから呼び出しても構いません。
+ */
+public interface CallInfoWriter extends Closeable {
+
+    /** 1 件の結果を書き込みます。 */
+    void write(CallInfo info) throws IOException;
+
+    /** これまでに書き込んだ件数 */
+    long getRowCount();
+
+    /** 出力形式 */
+    enum Format {
+        CSV(".csv"),
+        JSONL(".jsonl");
+
+        private final String extension;
+
+        Format(String extension) {
+            this.extension = extension;
+        }
+
+        /** ファイルの拡張子 ("." を含む) */
+        public String getExtension() {
+            return extension;
+        }
+
+        /** 形式名 ("csv" / "jsonl") から形式を取得します。該当しない場合は null */
+        public static Format fromName(String name) {
+            for (Format format : values()) {
+                if (format.name().equalsIgnoreCase(name)) return format;
+            }
+            return null;
+        }
+    }
+
+    /**
+     * 指定した形式でファイルを開きます。ファイル名が ".gz" で終わる場合は gzip 圧縮します。
+     */
+    static CallInfoWriter open(File file, Format format) throws IOException {
+        return open(file, format, false);
+    }
+
+    /**
+     * 指定した形式でファイルを開きます。ファイル名が ".gz" で終わる場合は gzip 圧縮します。
+     *
+     * @param includeTarget 複数の対象の結果をまとめて出力するため、CSV に対象メソッドの列を追加する場合は true
+     *                      (JSON Lines では検索対象が設定された結果には常に target を出力する)
+     */
+    static CallInfoWriter open(File file, Format format, boolean includeTarget) throws IOException {
+        return open(file, format, includeTarget, false);
+    }
+
+    /**
+     * 指定した形式でファイルを開きます。ファイル名が ".gz" で終わる場合は gzip 圧縮します。
+     *
+     * @param includeTarget CSV に対象メソッドの列を追加する場合は true
+     * @param includePath CSV に呼び出し経路の列を追加する場合は true
+     *                    (JSON Lines では経路が記録された結果には常に path を出力する)
+     */
+    static CallInfoWriter open(File file, Format format, boolean includeTarget, boolean includePath) throws IOException {
+        switch (format) {
+            case JSONL:
+                return JsonLinesCallInfoWriter.open(file);
+            case CSV:
+            default:
+                return CsvCallInfoWriter.open(file, CsvCallInfoWriter.isGzipFile(file), includeTarget, includePath);
+        }
+    }
+}
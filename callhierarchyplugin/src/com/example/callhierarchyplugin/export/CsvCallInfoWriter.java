@@ -0,0 +1,173 @@
+package com.example.callhierarchyplugin.export;
+
+import com.example.callhierarchyplugin.search.CallInfo;
+import com.example.callhierarchyplugin.utils.JDTUtils;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 検索結果を 1 行ずつ CSV に書き込むライター。
+ * <p>
+ * 行は再利用する StringBuilder に組み立ててからバッファ付きの Writer に書き込むため、
+ * 行ごとの String[] や結合した String は作成せず、ヒープ使用量は結果の件数に依存しません。
+ * 先頭には Excel 向けの BOM を書き込みます。ファイル名が ".gz" で終わる場合は gzip 圧縮して出力します。
+ * 複数の対象をまとめて検索した結果を出力する場合は、先頭に対象メソッドの列を追加できます。
+ * 探索の打ち切りで起点が確定していない行は、「打ち切り」列が「はい」になります。
+ * 経路モードの結果を出力する場合は、最後に起点から直接の呼び出し元までの最短経路の列を追加できます。
+ */
+public class CsvCallInfoWriter implements CallInfoWriter {
+
+    private static final String[] HEADERS = { "起点クラス・メソッド", "直接の呼び出し元", "行", "引数", "打ち切り" };
+    private static final String TARGET_HEADER = "対象メソッド";
+    private static final String PATH_HEADER = "呼び出し経路";
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Writer writer;
+    private final StringBuilder line = new StringBuilder(256);
+    private final boolean includeTarget;
+    private final boolean includePath;
+    private long rowCount;
+
+    /**
+     * 出力先のストリームに CSV を書き込みます。ストリームは {@link #close()} で閉じられます。
+     */
+    public CsvCallInfoWriter(OutputStream out) throws IOException {
+        this(out, false);
+    }
+
+    /**
+     * @param includeTarget 先頭に対象メソッドの列を出力する場合は true
+     */
+    public CsvCallInfoWriter(OutputStream out, boolean includeTarget) throws IOException {
+        this(out, includeTarget, false);
+    }
+
+    /**
+     * @param includeTarget 先頭に対象メソッドの列を出力する場合は true
+     * @param includePath 最後に呼び出し経路の列を出力する場合は true (経路のない結果は空欄)
+     */
+    public CsvCallInfoWriter(OutputStream out, boolean includeTarget, boolean includePath) throws IOException {
+        this.writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+        this.includeTarget = includeTarget;
+        this.includePath = includePath;
+        writer.write('\uFEFF'); // BOM for Excel
+        if (includeTarget) {
+            appendField(TARGET_HEADER);
+            line.append(',');
+        }
+        for (int i = 0; i < HEADERS.length; i++) {
+            if (i > 0) line.append(',');
+            appendField(HEADERS[i]);
+        }
+        if (includePath) {
+            line.append(',');
+            appendField(PATH_HEADER);
+        }
+        flushLine();
+    }
+
+    /**
+     * ファイルを開いて CSV の書き込みを開始します。
+     * ファイル名が ".gz" で終わる場合は gzip 圧縮します。
+     */
+    public static CsvCallInfoWriter open(File file) throws IOException {
+        return open(file, isGzipFile(file), false);
+    }
+
+    /**
+     * ファイルを開いて CSV の書き込みを開始します。
+     *
+     * @param gzip gzip 圧縮して出力する場合は true
+     * @param includeTarget 先頭に対象メソッドの列を出力する場合は true
+     */
+    public static CsvCallInfoWriter open(File file, boolean gzip, boolean includeTarget) throws IOException {
+        return open(file, gzip, includeTarget, false);
+    }
+
+    /**
+     * ファイルを開いて CSV の書き込みを開始します。
+     *
+     * @param gzip gzip 圧縮して出力する場合は true
+     * @param includeTarget 先頭に対象メソッドの列を出力する場合は true
+     * @param includePath 最後に呼び出し経路の列を出力する場合は true
+     */
+    public static CsvCallInfoWriter open(File file, boolean gzip, boolean includeTarget, boolean includePath) throws IOException {
+        OutputStream out = new FileOutputStream(file);
+        try {
+            out = gzip ? new GZIPOutputStream(out, BUFFER_SIZE) : new BufferedOutputStream(out, BUFFER_SIZE);
+            return new CsvCallInfoWriter(out, includeTarget, includePath);
+        } catch (IOException | RuntimeException e) {
+            out.close();
+            throw e;
+        }
+    }
+
+    /** gzip 圧縮して出力するファイル名か */
+    public static boolean isGzipFile(File file) {
+        return file.getName().toLowerCase().endsWith(".gz");
+    }
+
+    /** 1 件の結果を 1 行として書き込みます。 */
+    @Override
+    public synchronized void write(CallInfo info) throws IOException {
+        if (includeTarget) {
+            appendField(info.getTarget() != null ? JDTUtils.getMethodQualifiedName(info.getTarget()) : "");
+            line.append(',');
+        }
+        appendField(info.getOriginalCallerName());
+        line.append(',');
+        appendField(info.getDirectCallerName());
+        line.append(',');
+        line.append('"');
+        if (info.getLineNumber() > 0) line.append(info.getLineNumber());
+        line.append('"');
+        line.append(',');
+        appendField(info.getArgumentsAsString());
+        line.append(',');
+        appendField(info.isTruncated() ? "はい" : "");
+        if (includePath) {
+            line.append(',');
+            appendField(info.getCallPath() != null ? info.getCallPath().getShortestPathText() : "");
+        }
+        flushLine();
+        rowCount++;
+    }
+
+    /** これまでに書き込んだ行数 (ヘッダーを除く) */
+    @Override
+    public synchronized long getRowCount() {
+        return rowCount;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        writer.close();
+    }
+
+    /** フィールドをダブルクォートで囲み、内部のダブルクォートを二重にして追加 */
+    private void appendField(String data) {
+        line.append('"');
+        if (data != null) {
+            for (int i = 0, length = data.length(); i < length; i++) {
+                char c = data.charAt(i);
+                if (c == '"') line.append('"');
+                line.append(c);
+            }
+        }
+        line.append('"');
+    }
+
+    private void flushLine() throws IOException {
+        line.append(System.lineSeparator());
+        writer.append(line);
+        line.setLength(0);
+    }
+}
@@ -0,0 +1,142 @@
+package com.example.callhierarchyplugin.export;
+
+import com.example.callhierarchyplugin.search.CallInfo;
+import com.example.callhierarchyplugin.utils.JDTUtils;
+
+import org.eclipse.jdt.core.IMethod;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 検索結果を 1 行 1 オブジェクトの JSON (JSON Lines) で書き込むライター。
+ * <p>
+ * 各行は次の形式です (行番号が不明な場合は line が null)。
+ * <pre>
+ * {"target":"...","originalCaller":"...","directCaller":"...","line":12,"arguments":["a","b"]}
+ * </pre>
+ * target は結果に検索対象が設定されている場合だけ出力します。
+ * 探索の打ち切りで起点が確定していない行には "truncated":true を追加します。
+ * 経路モードの結果には、起点から直接の呼び出し元までの最短経路を "path":["...", ...] として追加します。
+ * CSV と同じく再利用する StringBuilder に行を組み立てて書き込み、結果は溜めません。
+ * ファイル名が ".gz" で終わる場合は gzip 圧縮して出力します。
+ */
+public class JsonLinesCallInfoWriter implements CallInfoWriter {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Writer writer;
+    private final StringBuilder line = new StringBuilder(256);
+    private long rowCount;
+
+    /**
+     * 出力先のストリームに JSON Lines を書き込みます。ストリームは {@link #close()} で閉じられます。
+     */
+    public JsonLinesCallInfoWriter(OutputStream out) {
+        this.writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * ファイルを開いて書き込みを開始します。ファイル名が ".gz" で終わる場合は gzip 圧縮します。
+     */
+    public static JsonLinesCallInfoWriter open(File file) throws IOException {
+        OutputStream out = new FileOutputStream(file);
+        try {
+            out = CsvCallInfoWriter.isGzipFile(file) ? new GZIPOutputStream(out, BUFFER_SIZE) : new BufferedOutputStream(out, BUFFER_SIZE);
+            return new JsonLinesCallInfoWriter(out);
+        } catch (IOException | RuntimeException e) {
+            out.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public synchronized void write(CallInfo info) throws IOException {
+        line.append('{');
+        if (info.getTarget() != null) {
+            line.append("\"target\":");
+            appendString(JDTUtils.getMethodQualifiedName(info.getTarget()));
+            line.append(',');
+        }
+        line.append("\"originalCaller\":");
+        appendString(info.getOriginalCallerName());
+        line.append(",\"directCaller\":");
+        appendString(info.getDirectCallerName());
+        line.append(",\"line\":");
+        if (info.getLineNumber() > 0) {
+            line.append(info.getLineNumber());
+        } else {
+            line.append("null");
+        }
+        line.append(",\"arguments\":[");
+        boolean first = true;
+        for (String argument : info.getArgumentValues()) {
+            if (!first) line.append(',');
+            appendString(argument);
+            first = false;
+        }
+        line.append(']');
+        if (info.getCallPath() != null) {
+            line.append(",\"path\":[");
+            first = true;
+            for (IMethod method : info.getCallPath().getShortestPath()) {
+                if (!first) line.append(',');
+                appendString(JDTUtils.formatMethodName(method));
+                first = false;
+            }
+            line.append(']');
+        }
+        if (info.isTruncated()) {
+            line.append(",\"truncated\":true");
+        }
+        line.append("}\n");
+        writer.append(line);
+        line.setLength(0);
+        rowCount++;
+    }
+
+    @Override
+    public synchronized long getRowCount() {
+        return rowCount;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        writer.close();
+    }
+
+    /** JSON の文字列リテラルとして追加 (null の場合は null) */
+    private void appendString(String value) {
+        if (value == null) {
+            line.append("null");
+            return;
+        }
+        line.append('"');
+        for (int i = 0, length = value.length(); i < length; i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"': line.append("\\\""); break;
+                case '\\': line.append("\\\\"); break;
+                case '\n': line.append("\\n"); break;
+                case '\r': line.append("\\r"); break;
+                case '\t': line.append("\\t"); break;
+                default:
+                    if (c < 0x20) {
+                        line.append("\\u00");
+                        line.append(Character.forDigit(c >> 4, 16));
+                        line.append(Character.forDigit(c & 0xF, 16));
+                    } else {
+                        line.append(c);
+                    }
+            }
+        }
+        line.append('"');
+    }
+}
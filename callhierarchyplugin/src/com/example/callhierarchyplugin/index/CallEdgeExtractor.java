@@ -0,0 +1,195 @@
+package com.example.callhierarchyplugin.index;
+
+import com.example.callhierarchyplugin.index.CallIndexFile.IndexedCall;
+import com.example.callhierarchyplugin.utils.JDTUtils;
+
+import org.eclipse.jdt.core.IJavaElement;
+import org.eclipse.jdt.core.IMethod;
+import org.eclipse.jdt.core.dom.*;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * バインディング解決済みの AST から呼び出し関係 (呼び出し先 → 呼び出し箇所) を抽出します。
+ * <p>
+ * 対象はメソッド呼び出し、super のメソッド呼び出し、インスタンス生成、this(...) / super(...) と
+ * メソッド参照です。呼び出し元は最も内側のメソッド宣言またはラムダ式で、フィールド初期化子など
+ * メソッドの外にある呼び出しは SearchEngine の結果と同じく対象外です。
+ * 呼び出し先はジェネリクスのインスタンス化ではなく宣言のメソッドで識別します。
+ * オフセットは SearchEngine のマッチと同じく、メソッド呼び出しではメソッド名の先頭から呼び出しの末尾まで、
+ * それ以外では式全体を指します。
+ * 引数は JDTUtils.expressionToString で文字列化して記録します (メソッド参照には引数がないため記録しません)。
+ */
+public class CallEdgeExtractor extends ASTVisitor {
+
+    private final String unitKey;
+    private final Map<String, List<IndexedCall>> callsByCallee = new LinkedHashMap<>();
+    // 呼び出し元のハンドル識別子のスタック (メソッド宣言・ラムダ式の入れ子)
+    private final List<String> callerStack = new ArrayList<>();
+
+    private CallEdgeExtractor(String unitKey) {
+        this.unitKey = unitKey;
+    }
+
+    /**
+     * AST から呼び出し関係を抽出します。
+     *
+     * @param unitKey AST のコンパイルユニットのハンドル識別子
+     * @return 呼び出し先のハンドル識別子 → 呼び出し箇所 (出現順)
+     */
+    public static Map<String, List<IndexedCall>> extract(CompilationUnit ast, String unitKey) {
+        CallEdgeExtractor extractor = new CallEdgeExtractor(unitKey);
+        ast.accept(extractor);
+        return extractor.callsByCallee;
+    }
+
+    @Override
+    public boolean visit(MethodDeclaration node) {
+        pushCaller(node.resolveBinding());
+        return true;
+    }
+
+    @Override
+    public void endVisit(MethodDeclaration node) {
+        callerStack.remove(callerStack.size() - 1);
+    }
+
+    @Override
+    public boolean visit(LambdaExpression node) {
+        pushCaller(node.resolveMethodBinding());
+        return true;
+    }
+
+    @Override
+    public void endVisit(LambdaExpression node) {
+        callerStack.remove(callerStack.size() - 1);
+    }
+
+    @Override
+    public boolean visit(AnonymousClassDeclaration node) {
+        // 匿名クラスのフィールド初期化子は外側のメソッドの呼び出しとして扱わない
+        callerStack.add(null);
+        return true;
+    }
+
+    @Override
+    public void endVisit(AnonymousClassDeclaration node) {
+        callerStack.remove(callerStack.size() - 1);
+    }
+
+    @Override
+    public boolean visit(TypeDeclaration node) {
+        callerStack.add(null);
+        return true;
+    }
+
+    @Override
+    public void endVisit(TypeDeclaration node) {
+        callerStack.remove(callerStack.size() - 1);
+    }
+
+    @Override
+    public boolean visit(EnumDeclaration node) {
+        callerStack.add(null);
+        return true;
+    }
+
+    @Override
+    public void endVisit(EnumDeclaration node) {
+        callerStack.remove(callerStack.size() - 1);
+    }
+
+    @Override
+    public boolean visit(RecordDeclaration node) {
+        callerStack.add(null);
+        return true;
+    }
+
+    @Override
+    public void endVisit(RecordDeclaration node) {
+        callerStack.remove(callerStack.size() - 1);
+    }
+
+    @Override
+    public boolean visit(MethodInvocation node) {
+        int start = node.getName().getStartPosition();
+        record(node.resolveMethodBinding(), start, node.getStartPosition() + node.getLength() - start, node.arguments());
+        return true;
+    }
+
+    @Override
+    public boolean visit(SuperMethodInvocation node) {
+        int start = node.getName().getStartPosition();
+        record(node.resolveMethodBinding(), start, node.getStartPosition() + node.getLength() - start, node.arguments());
+        return true;
+    }
+
+    @Override
+    public boolean visit(ClassInstanceCreation node) {
+        record(node.resolveConstructorBinding(), node.getStartPosition(), node.getLength(), node.arguments());
+        return true;
+    }
+
+    @Override
+    public boolean visit(ConstructorInvocation node) {
+        record(node.resolveConstructorBinding(), node.getStartPosition(), node.getLength(), node.arguments());
+        return true;
+    }
+
+    @Override
+    public boolean visit(SuperConstructorInvocation node) {
+        record(node.resolveConstructorBinding(), node.getStartPosition(), node.getLength(), node.arguments());
+        return true;
+    }
+
+    @Override
+    public boolean visit(ExpressionMethodReference node) {
+        record(node.resolveMethodBinding(), node.getStartPosition(), node.getLength(), null);
+        return true;
+    }
+
+    @Override
+    public boolean visit(SuperMethodReference node) {
+        record(node.resolveMethodBinding(), node.getStartPosition(), node.getLength(), null);
+        return true;
+    }
+
+    @Override
+    public boolean visit(TypeMethodReference node) {
+        record(node.resolveMethodBinding(), node.getStartPosition(), node.getLength(), null);
+        return true;
+    }
+
+    @Override
+    public boolean visit(CreationReference node) {
+        record(node.resolveMethodBinding(), node.getStartPosition(), node.getLength(), null);
+        return true;
+    }
+
+    private void pushCaller(IMethodBinding binding) {
+        IJavaElement element = binding != null ? binding.getJavaElement() : null;
+        callerStack.add(element instanceof IMethod ? element.getHandleIdentifier() : null);
+    }
+
+    private void record(IMethodBinding binding, int offset, int length, List<?> arguments) {
+        if (binding == null || callerStack.isEmpty()) return;
+        String callerKey = callerStack.get(callerStack.size() - 1);
+        if (callerKey == null) return;
+        IJavaElement callee = binding.getMethodDeclaration().getJavaElement();
+        if (!(callee instanceof IMethod)) return;
+        callsByCallee.computeIfAbsent(callee.getHandleIdentifier(), k -> new ArrayList<>())
+                .add(new IndexedCall(callerKey, unitKey, offset, length, argumentTexts(arguments)));
+    }
+
+    private static List<String> argumentTexts(List<?> arguments) {
+        if (arguments == null) return null;
+        List<String> texts = new ArrayList<>(arguments.size());
+        for (Object argument : arguments) {
+            texts.add(JDTUtils.expressionToString((Expression) argument));
+        }
+        return texts;
+    }
+}
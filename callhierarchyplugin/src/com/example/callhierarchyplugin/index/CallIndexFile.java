@@ -0,0 +1,315 @@
+package com.example.callhierarchyplugin.index;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * 逆呼び出しインデックス (呼び出し先 → 呼び出し元) のファイル形式。読み込みはメモリマップで行い、全体をヒープに展開しません。
+ * <pre>
+ * ヘッダー        : magic(int) version(int) generation(long) fullCoverageGeneration(long)
+ *                   stringCount(int) calleeCount(int) edgeCount(int) unitCount(int)
+ * 文字列オフセット表: int[stringCount + 1] (文字列データ領域内での UTF-8 の開始位置)
+ * 文字列データ    : UTF-8 のバイト列 (文字列は String.compareTo の昇順。ID は並び順)
+ * 呼び出し先表    : calleeCount × (keyId int, coveredGeneration long, firstEdge int, edgeCount int)  keyId の昇順
+ * 辺表            : edgeCount × (callerId int, unitId int, offset int, length int, argumentsId int)
+ * ユニット表      : unitCount × (keyId int, modificationStamp long, changeGeneration long)       keyId の昇順
+ * </pre>
+ * キーはすべてハンドル識別子 (呼び出し先・呼び出し元は IMethod、ユニットはコンパイルユニットまたはクラスファイル) です。
+ * 引数は各引数の式のテキストを {@link #ARGUMENT_SEPARATOR} で連結した文字列で、不明な場合 argumentsId は -1 です。
+ * fullCoverageGeneration はワークスペース全体をインデックス化した世代で、0 の場合は未作成です。
+ */
+public class CallIndexFile {
+
+    private static final int MAGIC = 0x52434958; // "RCIX"
+    private static final int VERSION = 2;
+    private static final int HEADER_SIZE = 4 + 4 + 8 + 8 + 4 * 4;
+    private static final int CALLEE_RECORD_SIZE = 4 + 8 + 4 + 4;
+    private static final int EDGE_RECORD_SIZE = 5 * 4;
+    private static final char ARGUMENT_SEPARATOR = '\u001F';
+    private static final int UNIT_RECORD_SIZE = 4 + 8 + 8;
+
+    /** インデックスに記録された 1 つの呼び出し箇所 */
+    public static class IndexedCall {
+        public final String callerKey;
+        public final String unitKey;
+        public final int offset;
+        public final int length;
+        /** 引数の式のテキスト。不明な場合は null */
+        public final List<String> arguments;
+
+        public IndexedCall(String callerKey, String unitKey, int offset, int length, List<String> arguments) {
+            this.callerKey = callerKey;
+            this.unitKey = unitKey;
+            this.offset = offset;
+            this.length = length;
+            this.arguments = arguments;
+        }
+    }
+
+    /** 呼び出し先ごとの記録。coveredGeneration の時点で全呼び出し元を網羅している */
+    public static class CalleeEntry {
+        public final long coveredGeneration;
+        public final List<IndexedCall> calls;
+
+        public CalleeEntry(long coveredGeneration, List<IndexedCall> calls) {
+            this.coveredGeneration = coveredGeneration;
+            this.calls = calls;
+        }
+    }
+
+    /** ユニットごとの記録。changeGeneration は最後に変更を検知した世代 (0 は未変更) */
+    public static class UnitState {
+        public final long modificationStamp;
+        public final long changeGeneration;
+
+        public UnitState(long modificationStamp, long changeGeneration) {
+            this.modificationStamp = modificationStamp;
+            this.changeGeneration = changeGeneration;
+        }
+    }
+
+    private final ByteBuffer buffer;
+    private final long generation;
+    private final long fullCoverageGeneration;
+    private final int stringCount;
+    private final int calleeCount;
+    private final int edgeCount;
+    private final int unitCount;
+    private final int stringOffsetsPos;
+    private final int stringDataPos;
+    private final int calleePos;
+    private final int edgePos;
+    private final int unitPos;
+
+    private CallIndexFile(ByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a call index file");
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new IOException("Unsupported call index version: " + buffer.getInt(4));
+        }
+        generation = buffer.getLong(8);
+        fullCoverageGeneration = buffer.getLong(16);
+        stringCount = buffer.getInt(24);
+        calleeCount = buffer.getInt(28);
+        edgeCount = buffer.getInt(32);
+        unitCount = buffer.getInt(36);
+        stringOffsetsPos = HEADER_SIZE;
+        stringDataPos = stringOffsetsPos + 4 * (stringCount + 1);
+        calleePos = stringDataPos + buffer.getInt(stringOffsetsPos + 4 * stringCount);
+        edgePos = calleePos + CALLEE_RECORD_SIZE * calleeCount;
+        unitPos = edgePos + EDGE_RECORD_SIZE * edgeCount;
+        if ((long) unitPos + (long) UNIT_RECORD_SIZE * unitCount > buffer.capacity()) {
+            throw new IOException("Truncated call index file");
+        }
+    }
+
+    /** ファイルを読み取り専用でメモリマップして開きます。 */
+    public static CallIndexFile open(File file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+             FileChannel channel = raf.getChannel()) {
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new CallIndexFile(mapped);
+        }
+    }
+
+    /** 保存時点の世代 */
+    public long getGeneration() {
+        return generation;
+    }
+
+    /** ワークスペース全体をインデックス化した世代 (未作成の場合は 0) */
+    public long getFullCoverageGeneration() {
+        return fullCoverageGeneration;
+    }
+
+    /** 呼び出し先の記録を返します。記録がない場合は null */
+    public CalleeEntry findCallee(String calleeKey) {
+        int keyId = findString(calleeKey);
+        if (keyId < 0) return null;
+        int record = binarySearchRecords(calleePos, CALLEE_RECORD_SIZE, calleeCount, keyId);
+        return record < 0 ? null : readCallee(record);
+    }
+
+    /** ユニットの記録を返します。記録がない場合は null */
+    public UnitState findUnit(String unitKey) {
+        int keyId = findString(unitKey);
+        if (keyId < 0) return null;
+        int record = binarySearchRecords(unitPos, UNIT_RECORD_SIZE, unitCount, keyId);
+        return record < 0 ? null : readUnit(record);
+    }
+
+    /** すべての呼び出し先の記録 (保存時のマージ用) */
+    public Map<String, CalleeEntry> readAllCallees() {
+        Map<String, CalleeEntry> callees = new HashMap<>(calleeCount * 2);
+        for (int i = 0; i < calleeCount; i++) {
+            callees.put(stringAt(buffer.getInt(calleePos + i * CALLEE_RECORD_SIZE)), readCallee(i));
+        }
+        return callees;
+    }
+
+    /** すべてのユニットの記録 (保存時のマージ用) */
+    public Map<String, UnitState> readAllUnits() {
+        Map<String, UnitState> units = new HashMap<>(unitCount * 2);
+        for (int i = 0; i < unitCount; i++) {
+            units.put(stringAt(buffer.getInt(unitPos + i * UNIT_RECORD_SIZE)), readUnit(i));
+        }
+        return units;
+    }
+
+    private CalleeEntry readCallee(int record) {
+        int pos = calleePos + record * CALLEE_RECORD_SIZE;
+        long coveredGeneration = buffer.getLong(pos + 4);
+        int firstEdge = buffer.getInt(pos + 12);
+        int count = buffer.getInt(pos + 16);
+        List<IndexedCall> calls = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int edge = edgePos + (firstEdge + i) * EDGE_RECORD_SIZE;
+            int argumentsId = buffer.getInt(edge + 16);
+            calls.add(new IndexedCall(stringAt(buffer.getInt(edge)), stringAt(buffer.getInt(edge + 4)),
+                    buffer.getInt(edge + 8), buffer.getInt(edge + 12),
+                    argumentsId < 0 ? null : decodeArguments(stringAt(argumentsId))));
+        }
+        return new CalleeEntry(coveredGeneration, calls);
+    }
+
+    private UnitState readUnit(int record) {
+        int pos = unitPos + record * UNIT_RECORD_SIZE;
+        return new UnitState(buffer.getLong(pos + 4), buffer.getLong(pos + 12));
+    }
+
+    /** keyId の昇順に並んだレコードを二分探索し、レコード番号を返す (見つからない場合は -1) */
+    private int binarySearchRecords(int tablePos, int recordSize, int count, int keyId) {
+        int low = 0;
+        int high = count - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int midKey = buffer.getInt(tablePos + mid * recordSize);
+            if (midKey < keyId) low = mid + 1;
+            else if (midKey > keyId) high = mid - 1;
+            else return mid;
+        }
+        return -1;
+    }
+
+    /** 文字列表を二分探索して ID を返す (見つからない場合は -1) */
+    private int findString(String key) {
+        int low = 0;
+        int high = stringCount - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = stringAt(mid).compareTo(key);
+            if (cmp < 0) low = mid + 1;
+            else if (cmp > 0) high = mid - 1;
+            else return mid;
+        }
+        return -1;
+    }
+
+    private String stringAt(int id) {
+        int start = buffer.getInt(stringOffsetsPos + 4 * id);
+        int end = buffer.getInt(stringOffsetsPos + 4 * (id + 1));
+        byte[] bytes = new byte[end - start];
+        ByteBuffer view = buffer.duplicate();
+        view.position(stringDataPos + start);
+        view.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static String encodeArguments(List<String> arguments) {
+        return String.join(String.valueOf(ARGUMENT_SEPARATOR), arguments);
+    }
+
+    private static List<String> decodeArguments(String encoded) {
+        if (encoded.isEmpty()) return List.of();
+        return List.of(encoded.split(String.valueOf(ARGUMENT_SEPARATOR), -1));
+    }
+
+    /**
+     * インデックスをファイルに書き込みます。
+     */
+    public static void write(File file, long generation, long fullCoverageGeneration,
+                             Map<String, CalleeEntry> callees, Map<String, UnitState> units) throws IOException {
+        TreeSet<String> strings = new TreeSet<>();
+        strings.addAll(callees.keySet());
+        strings.addAll(units.keySet());
+        int edgeCount = 0;
+        for (CalleeEntry entry : callees.values()) {
+            for (IndexedCall call : entry.calls) {
+                strings.add(call.callerKey);
+                strings.add(call.unitKey);
+                if (call.arguments != null) strings.add(encodeArguments(call.arguments));
+            }
+            edgeCount += entry.calls.size();
+        }
+        Map<String, Integer> ids = new HashMap<>(strings.size() * 2);
+        List<byte[]> encoded = new ArrayList<>(strings.size());
+        for (String s : strings) {
+            ids.put(s, encoded.size());
+            encoded.add(s.getBytes(StandardCharsets.UTF_8));
+        }
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(generation);
+            out.writeLong(fullCoverageGeneration);
+            out.writeInt(encoded.size());
+            out.writeInt(callees.size());
+            out.writeInt(edgeCount);
+            out.writeInt(units.size());
+
+            int offset = 0;
+            for (byte[] bytes : encoded) {
+                out.writeInt(offset);
+                offset += bytes.length;
+            }
+            out.writeInt(offset);
+            for (byte[] bytes : encoded) {
+                out.write(bytes);
+            }
+
+            // 呼び出し先表と辺表 (呼び出し先はキーの昇順 = ID の昇順)
+            List<String> calleeKeys = new ArrayList<>(new TreeSet<>(callees.keySet()));
+            int firstEdge = 0;
+            for (String key : calleeKeys) {
+                CalleeEntry entry = callees.get(key);
+                out.writeInt(ids.get(key));
+                out.writeLong(entry.coveredGeneration);
+                out.writeInt(firstEdge);
+                out.writeInt(entry.calls.size());
+                firstEdge += entry.calls.size();
+            }
+            for (String key : calleeKeys) {
+                for (IndexedCall call : callees.get(key).calls) {
+                    out.writeInt(ids.get(call.callerKey));
+                    out.writeInt(ids.get(call.unitKey));
+                    out.writeInt(call.offset);
+                    out.writeInt(call.length);
+                    out.writeInt(call.arguments != null ? ids.get(encodeArguments(call.arguments)) : -1);
+                }
+            }
+
+            for (String key : new TreeSet<>(units.keySet())) {
+                UnitState state = units.get(key);
+                out.writeInt(ids.get(key));
+                out.writeLong(state.modificationStamp);
+                out.writeLong(state.changeGeneration);
+            }
+        }
+    }
+}
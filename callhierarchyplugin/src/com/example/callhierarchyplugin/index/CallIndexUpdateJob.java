@@ -0,0 +1,118 @@
+package com.example.callhierarchyplugin.index;
+
+import com.example.callhierarchyplugin.index.CallIndexFile.IndexedCall;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.SubMonitor;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.jdt.core.*;
+import org.eclipse.jdt.core.dom.AST;
+import org.eclipse.jdt.core.dom.ASTParser;
+import org.eclipse.jdt.core.dom.ASTRequestor;
+import org.eclipse.jdt.core.dom.CompilationUnit;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 変更されたコンパイルユニットの呼び出し関係を再抽出し、インデックスに反映するバックグラウンドジョブ。
+ * <p>
+ * 保存のたびに起動すると解析が重複するため、変更されたユニットを溜めて少し遅延してからまとめて処理します。
+ * ユニットはプロジェクトごとに ASTParser.createASTs で一括解析します。
+ */
+class CallIndexUpdateJob extends Job {
+
+    /** 変更を受け取ってから解析を始めるまでの遅延 (ミリ秒) */
+    private static final long UPDATE_DELAY_MS = 500;
+
+    private final PersistentCallIndex index;
+    private final Set<String> pendingUnits = new LinkedHashSet<>();
+
+    CallIndexUpdateJob(PersistentCallIndex index) {
+        super("呼び出しインデックスを更新中");
+        this.index = index;
+        setSystem(true);
+        setPriority(Job.DECORATE);
+    }
+
+    /** ユニットを更新対象に追加し、ジョブをスケジュールします。 */
+    void enqueue(String unitKey) {
+        synchronized (pendingUnits) {
+            pendingUnits.add(unitKey);
+        }
+        schedule(UPDATE_DELAY_MS);
+    }
+
+    /** 溜まっている更新対象を破棄します。 */
+    void clearPending() {
+        synchronized (pendingUnits) {
+            pendingUnits.clear();
+        }
+    }
+
+    @Override
+    protected IStatus run(IProgressMonitor monitor) {
+        List<String> unitKeys;
+        synchronized (pendingUnits) {
+            unitKeys = new ArrayList<>(pendingUnits);
+            pendingUnits.clear();
+        }
+        if (unitKeys.isEmpty()) return Status.OK_STATUS;
+
+        SubMonitor subMonitor = SubMonitor.convert(monitor, getName(), unitKeys.size());
+        // 解析開始時の世代。解析中に再び変更されたユニットはこの結果を使わない
+        long generation = index.currentGeneration();
+
+        Map<IJavaProject, List<ICompilationUnit>> unitsByProject = new LinkedHashMap<>();
+        for (String unitKey : unitKeys) {
+            IJavaElement element = JavaCore.create(unitKey);
+            if (!(element instanceof ICompilationUnit) || !element.exists()) {
+                index.refreshUnit(unitKey, generation, Map.of()); // 削除されたユニット
+                subMonitor.worked(1);
+                continue;
+            }
+            ICompilationUnit cu = (ICompilationUnit) element;
+            try {
+                if (cu.hasUnsavedChanges()) {
+                    // 保存されていない内容は記録しない (保存時に改めて通知される)
+                    subMonitor.worked(1);
+                    continue;
+                }
+            } catch (JavaModelException e) {
+                subMonitor.worked(1);
+                continue;
+            }
+            unitsByProject.computeIfAbsent(cu.getJavaProject(), k -> new ArrayList<>()).add(cu);
+        }
+
+        try {
+            for (Map.Entry<IJavaProject, List<ICompilationUnit>> entry : unitsByProject.entrySet()) {
+                if (subMonitor.isCanceled()) return Status.CANCEL_STATUS;
+                List<ICompilationUnit> units = entry.getValue();
+                ASTParser parser = ASTParser.newParser(AST.JLS_Latest);
+                parser.setProject(entry.getKey());
+                parser.setResolveBindings(true);
+                parser.setBindingsRecovery(true);
+                parser.createASTs(units.toArray(new ICompilationUnit[0]), new String[0], new ASTRequestor() {
+                    @Override
+                    public void acceptAST(ICompilationUnit source, CompilationUnit ast) {
+                        if (subMonitor.isCanceled()) throw new OperationCanceledException();
+                        String unitKey = source.getHandleIdentifier();
+                        Map<String, List<IndexedCall>> callsByCallee = CallEdgeExtractor.extract(ast, unitKey);
+                        index.refreshUnit(unitKey, generation, callsByCallee);
+                    }
+                }, subMonitor.split(units.size()));
+            }
+        } catch (OperationCanceledException e) {
+            return Status.CANCEL_STATUS;
+        }
+        return Status.OK_STATUS;
+    }
+}
@@ -0,0 +1,550 @@
+package com.example.callhierarchyplugin.index;
+
+import com.example.callhierarchyplugin.index.CallIndexFile.CalleeEntry;
+import com.example.callhierarchyplugin.index.CallIndexFile.IndexedCall;
+import com.example.callhierarchyplugin.index.CallIndexFile.UnitState;
+
+import org.eclipse.core.resources.*;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Path;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.jdt.core.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * プラグインの状態ロケーションに保存される永続的な逆呼び出しインデックス。
+ * <p>
+ * 呼び出し先ごとに「ある世代の時点で網羅した呼び出し元の一覧」を記録し、IDE の再起動後も
+ * SearchEngine による検索なしで呼び出し元を返せるようにします。
+ * ワークスペースの変更は Java 要素のデルタ (実行中) と ISavedState のリソースデルタ (前回終了時からの差分) で
+ * ユニット単位に検知し、変更の世代を記録します。呼び出し先の網羅世代より後に変更されたユニットは
+ * {@link CallerLookup#unitsToRescan} として返すので、呼び出し側はそのユニットだけを再検索して {@link #recordCallers} で更新します。
+ * 変更されたユニットはバックグラウンドで AST から呼び出し関係を再抽出し ({@link #refreshUnit})、
+ * 再抽出が済んだユニットは再検索せずに抽出結果を使います。
+ * <p>
+ * 前回保存したファイルはメモリマップで読み、今回のセッションでの更新はメモリ上に重ねて保持します。
+ * 保存は ISaveParticipant としてワークスペースの保存に合わせて行います。
+ */
+public class PersistentCallIndex implements IElementChangedListener, ISaveParticipant {
+
+    private static final String PLUGIN_ID = "com.example.callhierarchyplugin";
+    private static final String SAVE_KEY = "callIndex";
+    private static final String FILE_PREFIX = "callindex-";
+
+    private static volatile PersistentCallIndex defaultIndex;
+
+    /** 変更後に再抽出したユニットの呼び出し関係 */
+    private static class RefreshedUnit {
+        final long generation;
+        final Map<String, List<IndexedCall>> callsByCallee;
+
+        RefreshedUnit(long generation, Map<String, List<IndexedCall>> callsByCallee) {
+            this.generation = generation;
+            this.callsByCallee = callsByCallee;
+        }
+    }
+
+    /** 呼び出し先の検索結果 */
+    public static class CallerLookup {
+        /** 記録済みで現在も有効な呼び出し箇所 */
+        public final List<IndexedCall> calls;
+        /** 記録後に変更されたため再検索が必要なユニットのハンドル識別子 */
+        public final Set<String> unitsToRescan;
+
+        CallerLookup(List<IndexedCall> calls, Set<String> unitsToRescan) {
+            this.calls = calls;
+            this.unitsToRescan = unitsToRescan;
+        }
+    }
+
+    private final File stateDirectory;
+    private CallIndexFile base;
+    private String baseFileName;
+    // 今回のセッションでの更新 (base より優先する)
+    private final Map<String, CalleeEntry> updatedCallees = new HashMap<>();
+    private final Map<String, UnitState> updatedUnits = new HashMap<>();
+    // 変更を検知したユニット → 変更世代
+    private final Map<String, Long> changedUnits = new HashMap<>();
+    // 再抽出済みのユニット (保存時に網羅できた呼び出し先の記録へ統合する)
+    private final Map<String, RefreshedUnit> refreshedUnits = new HashMap<>();
+    private final CallIndexUpdateJob updateJob;
+    private long generation;
+    // ワークスペース全体をインデックス化した世代 (0 は未作成)。以降は記録のない呼び出し先を「呼び出し元なし」として扱う
+    private long fullCoverageGeneration;
+    private long modificationCount;
+
+    // 保存中のファイル (doneSaving で base に切り替える)
+    private String pendingFileName;
+    private long pendingModificationCount;
+
+    public PersistentCallIndex(File stateDirectory) {
+        this.stateDirectory = stateDirectory;
+        this.updateJob = new CallIndexUpdateJob(this);
+    }
+
+    /** Activator が開始時に登録したインスタンスを返します。プラグインが開始されていない場合は null */
+    public static PersistentCallIndex getDefault() {
+        return defaultIndex;
+    }
+
+    public static void setDefault(PersistentCallIndex index) {
+        defaultIndex = index;
+    }
+
+    /**
+     * 前回保存したインデックスを読み込み、前回の保存以降のリソースの変更を反映します。
+     * 保存状態がない場合 (初回起動や保存状態の消失) は空のインデックスから開始します。
+     */
+    public void restore(ISavedState savedState) {
+        if (savedState != null) {
+            IPath path = savedState.lookup(new Path(SAVE_KEY));
+            if (path != null) {
+                load(path.toString());
+            }
+            savedState.processResourceChangeEvents(event -> {
+                try {
+                    if (event.getDelta() != null) processResourceDelta(event.getDelta());
+                } catch (CoreException e) {
+                    System.err.println("エラー(CallIndex): 前回終了後の変更の反映に失敗したため、インデックスを破棄します: " + e.getMessage());
+                    invalidateAll();
+                }
+            });
+        }
+        deleteUnusedFiles();
+    }
+
+    private synchronized void load(String fileName) {
+        File file = new File(stateDirectory, fileName);
+        if (!file.isFile()) return;
+        try {
+            base = CallIndexFile.open(file);
+            baseFileName = fileName;
+            generation = base.getGeneration();
+            fullCoverageGeneration = base.getFullCoverageGeneration();
+            base.readAllUnits().forEach((key, state) -> {
+                if (state.changeGeneration > 0) changedUnits.put(key, state.changeGeneration);
+            });
+        } catch (IOException e) {
+            System.err.println("エラー(CallIndex): インデックスファイルを読み込めませんでした: " + file + " (" + e.getMessage() + ")");
+            base = null;
+            baseFileName = null;
+        }
+    }
+
+    /** 現在の世代。検索開始時に取得し、{@link #recordCallers} に渡してください。 */
+    public synchronized long currentGeneration() {
+        return generation;
+    }
+
+    /**
+     * 呼び出し先の記録を返します。
+     *
+     * @param calleeKey 呼び出し先メソッドのハンドル識別子
+     * @return 記録がない (網羅していない) 場合は null。ワークスペース全体をインデックス化した後は、
+     *         記録のない呼び出し先も呼び出し元のない記録として返す (その後に変更されたユニットは再検索の対象)
+     */
+    public synchronized CallerLookup lookup(String calleeKey) {
+        CalleeEntry entry = calleeEntry(calleeKey);
+        if (entry == null) return null;
+
+        // 未保存の変更があるユニットは記録と内容が異なる可能性がある
+        Set<String> unitsToRescan = new LinkedHashSet<>(unsavedUnitKeys());
+        List<IndexedCall> effective = effectiveCalls(calleeKey, entry, unitsToRescan, unitsToRescan);
+
+        List<IndexedCall> calls = new ArrayList<>(effective.size());
+        Map<String, Boolean> currentUnits = new HashMap<>();
+        for (IndexedCall call : effective) {
+            if (!currentUnits.computeIfAbsent(call.unitKey, this::isUnitCurrent)) {
+                // デルタで検知できなかった変更 (修正スタンプの不一致)
+                markUnitChanged(call.unitKey);
+                unitsToRescan.add(call.unitKey);
+                continue;
+            }
+            calls.add(call);
+        }
+        return new CallerLookup(calls, unitsToRescan);
+    }
+
+    /**
+     * 呼び出し先の呼び出し元を記録します。
+     *
+     * @param calleeKey 呼び出し先メソッドのハンドル識別子
+     * @param rescannedUnits 再検索したユニット。ワークスペース全体を検索した場合は null
+     * @param calls 検索で見つかった呼び出し箇所
+     * @param searchGeneration 検索開始時の世代 ({@link #currentGeneration()})
+     */
+    public synchronized void recordCallers(String calleeKey, Collection<String> rescannedUnits,
+                                           List<IndexedCall> calls, long searchGeneration) {
+        List<IndexedCall> stored = new ArrayList<>(calls.size());
+        if (rescannedUnits != null) {
+            CalleeEntry previous = calleeEntry(calleeKey);
+            if (previous == null) return; // 検索中に破棄された
+            stored.addAll(effectiveCalls(calleeKey, previous, rescannedUnits, new HashSet<>()));
+        }
+
+        // 未保存の変更があるユニットの結果はディスク上の内容と一致しないため記録せず、次回も再検索させる
+        Set<String> unsaved = unsavedUnitKeys();
+        for (IndexedCall call : calls) {
+            if (unsaved.contains(call.unitKey)) continue;
+            stored.add(call);
+            recordUnitStamp(call.unitKey);
+        }
+        updatedCallees.put(calleeKey, new CalleeEntry(searchGeneration, stored));
+        modificationCount++;
+        for (String unitKey : unsaved) {
+            if (rescannedUnits == null || rescannedUnits.contains(unitKey)) {
+                markUnitChanged(unitKey);
+            }
+        }
+    }
+
+    /**
+     * ユニットが変更されたことを記録します。
+     * 以降の検索では、バックグラウンドでの再抽出が済むまでこのユニットが再検索の対象になります。
+     */
+    public synchronized void markUnitChanged(String unitKey) {
+        generation++;
+        changedUnits.put(unitKey, generation);
+        refreshedUnits.remove(unitKey);
+        UnitState previous = unitState(unitKey);
+        updatedUnits.put(unitKey, new UnitState(previous != null ? previous.modificationStamp : IResource.NULL_STAMP, generation));
+        modificationCount++;
+        updateJob.enqueue(unitKey);
+    }
+
+    /**
+     * 変更されたユニットから再抽出した呼び出し関係を記録します。
+     *
+     * @param unitKey ユニットのハンドル識別子
+     * @param extractedGeneration 解析開始時の世代。その後に再び変更されている場合は記録しない
+     * @param callsByCallee 呼び出し先のハンドル識別子 → ユニット内の呼び出し箇所
+     */
+    public synchronized void refreshUnit(String unitKey, long extractedGeneration, Map<String, List<IndexedCall>> callsByCallee) {
+        if (changedUnits.getOrDefault(unitKey, 0L) > extractedGeneration) return;
+        refreshedUnits.put(unitKey, new RefreshedUnit(extractedGeneration, callsByCallee));
+        recordUnitStamp(unitKey);
+        modificationCount++;
+    }
+
+    /**
+     * ワークスペース全体から抽出した呼び出し関係で記録を置き換え、全体を網羅した状態にします。
+     * 以降は記録のない呼び出し先を呼び出し元なしとして扱います。
+     *
+     * @param callsByCallee 呼び出し先のハンドル識別子 → 呼び出し箇所
+     * @param unitStamps 抽出したユニットのハンドル識別子 → 抽出時の修正スタンプ
+     * @param extractedGeneration 抽出開始時の世代。その後に変更されたユニットは引き続き再検索の対象になる
+     */
+    public synchronized void replaceAll(Map<String, List<IndexedCall>> callsByCallee, Map<String, Long> unitStamps,
+                                        long extractedGeneration) {
+        base = null; // 前回のファイルは次の保存後に削除される
+        updatedCallees.clear();
+        updatedUnits.clear();
+        callsByCallee.forEach((calleeKey, calls) -> updatedCallees.put(calleeKey, new CalleeEntry(extractedGeneration, calls)));
+        // 抽出前の変更は抽出結果に含まれている
+        changedUnits.values().removeIf(changeGeneration -> changeGeneration <= extractedGeneration);
+        refreshedUnits.keySet().retainAll(changedUnits.keySet());
+        unitStamps.forEach((unitKey, stamp) ->
+                updatedUnits.put(unitKey, new UnitState(stamp, changedUnits.getOrDefault(unitKey, 0L))));
+        changedUnits.forEach((unitKey, changeGeneration) -> {
+            if (!updatedUnits.containsKey(unitKey)) {
+                updatedUnits.put(unitKey, new UnitState(IResource.NULL_STAMP, changeGeneration));
+            }
+        });
+        fullCoverageGeneration = extractedGeneration;
+        modificationCount++;
+    }
+
+    /** Activator の停止時に呼び出します。未処理の再抽出を破棄します。 */
+    public void dispose() {
+        updateJob.clearPending();
+        updateJob.cancel();
+    }
+
+    /** すべての記録を破棄します (クラスパスの変更など、影響範囲を特定できない変更の場合)。 */
+    public synchronized void invalidateAll() {
+        base = null;
+        updatedCallees.clear();
+        updatedUnits.clear();
+        changedUnits.clear();
+        refreshedUnits.clear();
+        updateJob.clearPending();
+        fullCoverageGeneration = 0;
+        generation++;
+        modificationCount++;
+    }
+
+    /**
+     * 呼び出し先の記録に、網羅後に変更されたユニットの再抽出結果を反映した呼び出し箇所を返します。
+     *
+     * @param excludedUnits 結果に含めないユニット
+     * @param staleUnits 網羅後に変更されたが再抽出が済んでいないユニットを追加する集合
+     */
+    private List<IndexedCall> effectiveCalls(String calleeKey, CalleeEntry entry, Collection<String> excludedUnits, Set<String> staleUnits) {
+        List<IndexedCall> calls = new ArrayList<>(entry.calls.size());
+        for (IndexedCall call : entry.calls) {
+            if (!excludedUnits.contains(call.unitKey)
+                    && changedUnits.getOrDefault(call.unitKey, 0L) <= entry.coveredGeneration) {
+                calls.add(call);
+            }
+        }
+        for (Map.Entry<String, Long> changed : changedUnits.entrySet()) {
+            String unitKey = changed.getKey();
+            if (changed.getValue() <= entry.coveredGeneration || excludedUnits.contains(unitKey)) continue;
+            RefreshedUnit refreshed = refreshedUnits.get(unitKey);
+            if (refreshed != null && refreshed.generation >= changed.getValue()) {
+                calls.addAll(refreshed.callsByCallee.getOrDefault(calleeKey, List.of()));
+            } else {
+                staleUnits.add(unitKey);
+            }
+        }
+        return calls;
+    }
+
+    /** 呼び出し先の記録。全体をインデックス化した後は、記録のない呼び出し先を全体の網羅世代で呼び出し元なしとする */
+    private CalleeEntry calleeEntry(String calleeKey) {
+        CalleeEntry entry = updatedCallees.get(calleeKey);
+        if (entry == null && base != null) entry = base.findCallee(calleeKey);
+        if (entry == null && fullCoverageGeneration > 0) entry = new CalleeEntry(fullCoverageGeneration, List.of());
+        return entry;
+    }
+
+    private UnitState unitState(String unitKey) {
+        UnitState state = updatedUnits.get(unitKey);
+        if (state == null && base != null) state = base.findUnit(unitKey);
+        return state;
+    }
+
+    private void recordUnitStamp(String unitKey) {
+        UnitState previous = unitState(unitKey);
+        long stamp = currentStamp(JavaCore.create(unitKey));
+        if (previous != null && previous.modificationStamp == stamp) return;
+        updatedUnits.put(unitKey, new UnitState(stamp, previous != null ? previous.changeGeneration : 0));
+    }
+
+    /** ユニットが記録時から変更されていないかどうか (修正スタンプで判定。クラスファイルなどスタンプがないものは変更なしとみなす) */
+    private boolean isUnitCurrent(String unitKey) {
+        IJavaElement unit = JavaCore.create(unitKey);
+        if (unit == null || !unit.exists()) return false;
+        UnitState state = unitState(unitKey);
+        if (state == null) return false;
+        long stamp = currentStamp(unit);
+        return stamp == IResource.NULL_STAMP || state.modificationStamp == IResource.NULL_STAMP || stamp == state.modificationStamp;
+    }
+
+    private static long currentStamp(IJavaElement unit) {
+        IResource resource = unit != null ? unit.getResource() : null;
+        return resource != null ? resource.getModificationStamp() : IResource.NULL_STAMP;
+    }
+
+    /** 未保存の変更があるプライマリワーキングコピーのハンドル識別子 */
+    private static Set<String> unsavedUnitKeys() {
+        Set<String> keys = new HashSet<>();
+        for (ICompilationUnit workingCopy : JavaCore.getWorkingCopies(null)) {
+            try {
+                if (workingCopy.hasUnsavedChanges()) keys.add(workingCopy.getPrimary().getHandleIdentifier());
+            } catch (JavaModelException e) {
+                keys.add(workingCopy.getPrimary().getHandleIdentifier());
+            }
+        }
+        return keys;
+    }
+
+    // --- 変更の検知 ---
+
+    @Override
+    public void elementChanged(ElementChangedEvent event) {
+        IJavaElementDelta delta = event.getDelta();
+        if (delta != null) {
+            processJavaDelta(delta);
+        }
+    }
+
+    private void processJavaDelta(IJavaElementDelta delta) {
+        IJavaElement element = delta.getElement();
+        switch (element.getElementType()) {
+            case IJavaElement.JAVA_MODEL:
+            case IJavaElement.PACKAGE_FRAGMENT:
+                break;
+            case IJavaElement.JAVA_PROJECT:
+            case IJavaElement.PACKAGE_FRAGMENT_ROOT:
+                // クラスパスの変更やプロジェクトの追加・削除は、どの呼び出し先の記録に影響するか特定できない
+                if (delta.getKind() != IJavaElementDelta.CHANGED
+                        || (delta.getFlags() & (IJavaElementDelta.F_CLASSPATH_CHANGED
+                                | IJavaElementDelta.F_RESOLVED_CLASSPATH_CHANGED
+                                | IJavaElementDelta.F_OPENED
+                                | IJavaElementDelta.F_CLOSED
+                                | IJavaElementDelta.F_ADDED_TO_CLASSPATH
+                                | IJavaElementDelta.F_REMOVED_FROM_CLASSPATH
+                                | IJavaElementDelta.F_ARCHIVE_CONTENT_CHANGED)) != 0) {
+                    invalidateAll();
+                    return;
+                }
+                break;
+            case IJavaElement.COMPILATION_UNIT:
+                // エディターでのオープン (F_PRIMARY_WORKING_COPY のみ) は内容の変更ではない
+                if (delta.getKind() != IJavaElementDelta.CHANGED
+                        || (delta.getFlags() & (IJavaElementDelta.F_CONTENT
+                                | IJavaElementDelta.F_CHILDREN
+                                | IJavaElementDelta.F_FINE_GRAINED
+                                | IJavaElementDelta.F_MOVED_FROM
+                                | IJavaElementDelta.F_MOVED_TO)) != 0) {
+                    markUnitChanged(((ICompilationUnit) element).getPrimary().getHandleIdentifier());
+                }
+                return;
+            default:
+                return;
+        }
+        for (IJavaElementDelta child : delta.getAffectedChildren()) {
+            processJavaDelta(child);
+        }
+    }
+
+    /** 前回の保存以降のリソースデルタを反映 (プラグイン停止中の変更は Java 要素のデルタでは届かないため) */
+    private void processResourceDelta(IResourceDelta delta) throws CoreException {
+        delta.accept(child -> {
+            IResource resource = child.getResource();
+            boolean contentChanged = child.getKind() != IResourceDelta.CHANGED
+                    || (child.getFlags() & (IResourceDelta.CONTENT | IResourceDelta.REPLACED
+                            | IResourceDelta.MOVED_FROM | IResourceDelta.MOVED_TO | IResourceDelta.OPEN)) != 0;
+            if (resource.getType() == IResource.PROJECT) {
+                if (contentChanged) {
+                    invalidateAll();
+                    return false;
+                }
+                return true;
+            }
+            if (resource.getType() != IResource.FILE) return true;
+            if (!contentChanged) return false;
+
+            String extension = resource.getFileExtension();
+            if (".classpath".equals(resource.getName()) || "jar".equalsIgnoreCase(extension)) {
+                invalidateAll();
+            } else if ("java".equalsIgnoreCase(extension)) {
+                IJavaElement element = JavaCore.create((IFile) resource);
+                if (element instanceof ICompilationUnit) {
+                    // 前回終了後に変更されたユニットも、バックグラウンドで再抽出される
+                    markUnitChanged(element.getHandleIdentifier());
+                }
+            }
+            return false;
+        });
+    }
+
+    // --- 保存 ---
+
+    @Override
+    public void prepareToSave(ISaveContext context) throws CoreException {
+        // 何もしない
+    }
+
+    @Override
+    public void saving(ISaveContext context) throws CoreException {
+        if (context.getKind() == ISaveContext.PROJECT_SAVE) return;
+
+        synchronized (this) {
+            String fileName;
+            if (modificationCount == 0 && baseFileName != null) {
+                fileName = baseFileName; // 前回から変更がない場合は同じファイルを使い続ける
+            } else {
+                fileName = FILE_PREFIX + context.getSaveNumber();
+                try {
+                    writeTo(new File(stateDirectory, fileName));
+                } catch (IOException e) {
+                    throw new CoreException(new Status(IStatus.ERROR, PLUGIN_ID, "呼び出しインデックスの保存に失敗しました", e));
+                }
+            }
+            pendingFileName = fileName;
+            pendingModificationCount = modificationCount;
+            context.map(new Path(SAVE_KEY), new Path(fileName));
+        }
+        context.needSaveNumber();
+        context.needDelta();
+    }
+
+    @Override
+    public synchronized void doneSaving(ISaveContext context) {
+        if (pendingFileName == null) return;
+        String previousFileName = baseFileName;
+        // 保存後に更新がなければ、保存したファイルを新しい base としてメモリ上の更新を解放する
+        if (!pendingFileName.equals(baseFileName) && pendingModificationCount == modificationCount) {
+            try {
+                base = CallIndexFile.open(new File(stateDirectory, pendingFileName));
+                baseFileName = pendingFileName;
+                updatedCallees.clear();
+                updatedUnits.clear();
+                modificationCount = 0;
+            } catch (IOException e) {
+                System.err.println("エラー(CallIndex): 保存したインデックスファイルを開けませんでした: " + e.getMessage());
+            }
+        }
+        pendingFileName = null;
+        if (previousFileName != null && !previousFileName.equals(baseFileName)) {
+            deleteFile(previousFileName);
+        }
+    }
+
+    @Override
+    public synchronized void rollback(ISaveContext context) {
+        if (pendingFileName != null && !pendingFileName.equals(baseFileName)) {
+            deleteFile(pendingFileName);
+        }
+        pendingFileName = null;
+    }
+
+    /** 前回のファイルとメモリ上の更新をマージして書き込む。参照されなくなった辺 (変更されたユニットのもの) は除く */
+    private void writeTo(File file) throws IOException {
+        Map<String, CalleeEntry> callees = base != null ? base.readAllCallees() : new HashMap<>();
+        callees.putAll(updatedCallees);
+        Map<String, UnitState> units = base != null ? base.readAllUnits() : new HashMap<>();
+        units.putAll(updatedUnits);
+
+        if (fullCoverageGeneration > 0) {
+            // 全体のインデックス化後に新たに呼び出されるようになった呼び出し先にも記録を作る
+            for (RefreshedUnit refreshed : refreshedUnits.values()) {
+                for (String calleeKey : refreshed.callsByCallee.keySet()) {
+                    callees.computeIfAbsent(calleeKey, k -> new CalleeEntry(fullCoverageGeneration, List.of()));
+                }
+            }
+        }
+        // 再抽出の結果で変更されたユニットをすべて補える呼び出し先は、現在の世代で網羅済みとして書き込む
+        for (Map.Entry<String, CalleeEntry> entry : callees.entrySet()) {
+            CalleeEntry callee = entry.getValue();
+            Set<String> staleUnits = new HashSet<>();
+            List<IndexedCall> calls = effectiveCalls(entry.getKey(), callee, Set.of(), staleUnits);
+            long coveredGeneration = staleUnits.isEmpty() ? generation : callee.coveredGeneration;
+            entry.setValue(new CalleeEntry(coveredGeneration, calls));
+        }
+        stateDirectory.mkdirs();
+        CallIndexFile.write(file, generation, fullCoverageGeneration, callees, units);
+    }
+
+    /** 使用していない古いインデックスファイルを削除 (Windows ではマップ中のファイルを削除できないため起動時にも行う) */
+    private synchronized void deleteUnusedFiles() {
+        File[] files = stateDirectory.listFiles((dir, name) -> name.startsWith(FILE_PREFIX));
+        if (files == null) return;
+        for (File file : files) {
+            if (!file.getName().equals(baseFileName)) {
+                deleteFile(file.getName());
+            }
+        }
+    }
+
+    private void deleteFile(String fileName) {
+        File file = new File(stateDirectory, fileName);
+        if (file.exists() && !file.delete()) {
+            file.deleteOnExit();
+        }
+    }
+}
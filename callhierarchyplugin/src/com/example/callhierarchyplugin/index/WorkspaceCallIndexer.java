@@ -0,0 +1,196 @@
+package com.example.callhierarchyplugin.index;
+
+import com.example.callhierarchyplugin.index.CallIndexFile.IndexedCall;
+
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.*;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.jdt.core.*;
+import org.eclipse.jdt.core.dom.AST;
+import org.eclipse.jdt.core.dom.ASTParser;
+import org.eclipse.jdt.core.dom.ASTRequestor;
+import org.eclipse.jdt.core.dom.CompilationUnit;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * ワークスペースのすべてのソースのコンパイルユニットを 1 回ずつ解析し、逆呼び出しインデックスを作成するジョブ。
+ * <p>
+ * ユニットはプロジェクトごとに一定数のバッチに分け、ワーカースレッドで並列に ASTParser.createASTs で解析します。
+ * 抽出した呼び出し関係 (呼び出し先、オフセット、引数のテキスト) で {@link PersistentCallIndex} の記録を置き換えるため、
+ * 以降の根本起点の検索は SearchEngine を使わずにインデックスの参照だけで済みます。
+ */
+public class WorkspaceCallIndexer extends Job {
+
+    /** 1 回の createASTs で解析するユニット数 (バインディング環境のメモリ使用量を抑えるため) */
+    private static final int UNITS_PER_BATCH = 200;
+
+    /** ワーカーの完了待ちの間にキャンセルを確認する間隔 (ミリ秒) */
+    private static final long CANCEL_POLL_INTERVAL_MS = 100;
+
+    private final PersistentCallIndex index;
+    private int workerCount = Runtime.getRuntime().availableProcessors();
+
+    /** 1 バッチ分の抽出結果 */
+    private static class BatchResult {
+        final Map<String, List<IndexedCall>> callsByCallee = new HashMap<>();
+        final Map<String, Long> unitStamps = new HashMap<>();
+        final List<String> unsavedUnits = new ArrayList<>();
+    }
+
+    public WorkspaceCallIndexer(PersistentCallIndex index) {
+        super("ワークスペースの呼び出しインデックスを作成中");
+        this.index = index;
+        setPriority(Job.LONG);
+    }
+
+    /** 解析を並列に実行するワーカースレッド数を設定します。デフォルトは利用可能なプロセッサ数です。 */
+    public void setWorkerCount(int workerCount) {
+        this.workerCount = Math.max(1, workerCount);
+    }
+
+    @Override
+    protected IStatus run(IProgressMonitor monitor) {
+        // 抽出開始時の世代。抽出中に変更されたユニットは置き換え後も変更済みとして扱われる
+        long generation = index.currentGeneration();
+        List<List<ICompilationUnit>> batches;
+        try {
+            batches = collectBatches();
+        } catch (JavaModelException e) {
+            return new Status(IStatus.ERROR, "com.example.callhierarchyplugin", "ソースファイルの列挙に失敗しました。", e);
+        }
+        int totalUnits = batches.stream().mapToInt(List::size).sum();
+        SubMonitor subMonitor = SubMonitor.convert(monitor, getName(), totalUnits);
+
+        ExecutorService executor = Executors.newFixedThreadPool(workerCount, new WorkerThreadFactory());
+        List<Future<BatchResult>> futures = new ArrayList<>(batches.size());
+        Map<String, List<IndexedCall>> callsByCallee = new HashMap<>();
+        Map<String, Long> unitStamps = new HashMap<>();
+        List<String> unsavedUnits = new ArrayList<>();
+        try {
+            IProgressMonitor workerMonitor = new NullProgressMonitor() {
+                @Override
+                public boolean isCanceled() {
+                    return subMonitor.isCanceled();
+                }
+            };
+            for (List<ICompilationUnit> batch : batches) {
+                futures.add(executor.submit(() -> parseBatch(batch, workerMonitor)));
+            }
+            for (int i = 0; i < futures.size(); i++) {
+                BatchResult result = awaitBatch(futures.get(i), subMonitor);
+                result.callsByCallee.forEach((callee, calls) ->
+                        callsByCallee.computeIfAbsent(callee, k -> new ArrayList<>()).addAll(calls));
+                unitStamps.putAll(result.unitStamps);
+                unsavedUnits.addAll(result.unsavedUnits);
+                subMonitor.worked(batches.get(i).size());
+            }
+        } catch (OperationCanceledException e) {
+            return Status.CANCEL_STATUS;
+        } finally {
+            for (Future<?> future : futures) {
+                future.cancel(true);
+            }
+            executor.shutdownNow();
+        }
+
+        index.replaceAll(callsByCallee, unitStamps, generation);
+        // 未保存の変更があるユニットはディスク上の内容と異なるため、保存されるまで再検索の対象にする
+        for (String unitKey : unsavedUnits) {
+            index.markUnitChanged(unitKey);
+        }
+        return Status.OK_STATUS;
+    }
+
+    /** 開いている Java プロジェクトのソースのコンパイルユニットを、プロジェクトごとのバッチに分ける */
+    private List<List<ICompilationUnit>> collectBatches() throws JavaModelException {
+        List<List<ICompilationUnit>> batches = new ArrayList<>();
+        IJavaModel model = JavaCore.create(ResourcesPlugin.getWorkspace().getRoot());
+        for (IJavaProject project : model.getJavaProjects()) {
+            if (!project.getProject().isOpen()) continue;
+            List<ICompilationUnit> batch = new ArrayList<>();
+            for (IPackageFragmentRoot root : project.getPackageFragmentRoots()) {
+                if (root.getKind() != IPackageFragmentRoot.K_SOURCE) continue;
+                for (IJavaElement child : root.getChildren()) {
+                    if (!(child instanceof IPackageFragment)) continue;
+                    for (ICompilationUnit cu : ((IPackageFragment) child).getCompilationUnits()) {
+                        batch.add(cu);
+                        if (batch.size() == UNITS_PER_BATCH) {
+                            batches.add(batch);
+                            batch = new ArrayList<>();
+                        }
+                    }
+                }
+            }
+            if (!batch.isEmpty()) batches.add(batch);
+        }
+        return batches;
+    }
+
+    /** 1 バッチ (同じプロジェクトのユニット) を解析して呼び出し関係を抽出する。ワーカースレッドで実行される */
+    private BatchResult parseBatch(List<ICompilationUnit> batch, IProgressMonitor monitor) throws JavaModelException {
+        BatchResult result = new BatchResult();
+        for (ICompilationUnit cu : batch) {
+            IResource resource = cu.getResource();
+            result.unitStamps.put(cu.getHandleIdentifier(), resource != null ? resource.getModificationStamp() : IResource.NULL_STAMP);
+            if (cu.hasUnsavedChanges()) result.unsavedUnits.add(cu.getHandleIdentifier());
+        }
+
+        ASTParser parser = ASTParser.newParser(AST.JLS_Latest);
+        parser.setProject(batch.get(0).getJavaProject());
+        parser.setResolveBindings(true);
+        parser.setBindingsRecovery(true);
+        parser.createASTs(batch.toArray(new ICompilationUnit[0]), new String[0], new ASTRequestor() {
+            @Override
+            public void acceptAST(ICompilationUnit source, CompilationUnit ast) {
+                if (monitor.isCanceled()) throw new OperationCanceledException();
+                CallEdgeExtractor.extract(ast, source.getHandleIdentifier()).forEach((callee, calls) ->
+                        result.callsByCallee.computeIfAbsent(callee, k -> new ArrayList<>()).addAll(calls));
+            }
+        }, monitor);
+        return result;
+    }
+
+    private BatchResult awaitBatch(Future<BatchResult> future, IProgressMonitor monitor) {
+        while (true) {
+            if (monitor.isCanceled()) throw new OperationCanceledException();
+            try {
+                return future.get(CANCEL_POLL_INTERVAL_MS, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                // キャンセル確認のため待機を繰り返す
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new OperationCanceledException();
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+                if (cause instanceof Error) throw (Error) cause;
+                throw new IllegalStateException(cause);
+            }
+        }
+    }
+
+    /** 解析ワーカー用のデーモンスレッドを生成 */
+    private static class WorkerThreadFactory implements ThreadFactory {
+        private final AtomicInteger threadNumber = new AtomicInteger(1);
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "WorkspaceCallIndexer-worker-" + threadNumber.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.callhierarchyplugin.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * SearchEngine.search の 1 回の呼び出し (フロンティアの 1 バッチ分の参照検索) を表す JFR イベント。
+ * ワーカースレッドで並列に検索する場合は、各ワーカーのスレッドで記録されます。
+ */
+@Name("com.example.callhierarchyplugin.ReferenceSearch")
+@Label("Reference Search")
+@Category({ "Call Hierarchy Plugin" })
+@Description("OR パターンにまとめたフロンティアのバッチの参照検索")
+public class ReferenceSearchEvent extends Event {
+
+    @Label("Methods")
+    @Description("OR パターンにまとめたメソッドの数")
+    public int methods;
+
+    @Label("Accepted Matches")
+    public int acceptedMatches;
+
+    @Label("Rejected Matches")
+    public int rejectedMatches;
+
+    @Label("Complete")
+    @Description("検索が最後まで完了したか")
+    public boolean complete;
+}
@@ -0,0 +1,34 @@
+package com.example.callhierarchyplugin.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * 1 回の根本起点検索全体を表す JFR イベント (期間は RootCallerFinder#findRootCallers の実行時間)。
+ */
+@Name("com.example.callhierarchyplugin.RootCallerSearch")
+@Label("Root Caller Search")
+@Category({ "Call Hierarchy Plugin" })
+@Description("根本起点の検索 1 回分")
+public class RootCallerSearchEvent extends Event {
+
+    @Label("Target")
+    @Description("検索対象のメソッド (複数の場合は件数)")
+    public String target;
+
+    @Label("Graph Nodes")
+    public int graphNodes;
+
+    @Label("Graph Edges")
+    public int graphEdges;
+
+    @Label("Results")
+    public int results;
+
+    @Label("Truncated")
+    @Description("上限またはキャンセルで探索を打ち切ったか")
+    public boolean truncated;
+}
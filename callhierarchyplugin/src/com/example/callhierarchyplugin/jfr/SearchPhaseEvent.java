@@ -0,0 +1,28 @@
+package com.example.callhierarchyplugin.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * 根本起点検索の 1 フェーズの実行を表す JFR イベント。
+ * 参照検索は BFS のレベルごと、呼び出し箇所の解析と起点の特定は実行ごとに 1 件記録します。
+ */
+@Name("com.example.callhierarchyplugin.SearchPhase")
+@Label("Search Phase")
+@Category({ "Call Hierarchy Plugin" })
+@Description("根本起点検索のフェーズ (referenceSearch / callSiteAnalysis / rootResolution)")
+public class SearchPhaseEvent extends Event {
+
+    @Label("Phase")
+    public String phase;
+
+    @Label("Target")
+    public String target;
+
+    @Label("Items")
+    @Description("フェーズで処理した件数 (フロンティアのメソッド数、呼び出し箇所の数など)")
+    public int items;
+}
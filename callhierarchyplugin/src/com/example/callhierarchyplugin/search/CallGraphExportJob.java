@@ -0,0 +1,92 @@
+package com.example.callhierarchyplugin.search;
+
+import com.example.callhierarchyplugin.export.CallGraphFiles;
+import com.example.callhierarchyplugin.graph.io.CallGraphWriter;
+import com.example.callhierarchyplugin.utils.JDTUtils;
+
+import org.eclipse.core.runtime.*;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.jdt.core.IMethod;
+import org.eclipse.jface.dialogs.MessageDialog;
+import org.eclipse.swt.widgets.Display;
+import org.eclipse.swt.widgets.Shell;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * 検索で探索した呼び出し関係グラフを DOT / GraphML / バイナリ形式のファイルに出力する Job。
+ * <p>
+ * 表の結果からはグラフの構造が分からないため、SearchCoordinator を経由せずにこの Job で検索し
+ * (オーバーライドの設定はビューと同じ)、検索の終了後にグラフを書き出します。結果は保持しません。
+ * 探索の上限に達した場合はそれまでに構築したグラフを出力し、キャンセルした場合は出力しません。
+ */
+public class CallGraphExportJob extends Job {
+
+    private final IMethod initialTargetMethod;
+    private final File outputFile;
+    private final CallGraphWriter.Format format;
+    private final Shell shell; // MessageDialog を表示するため
+
+    /**
+     * @param outputFile 出力先のファイル (UI スレッドで事前に選択しておく)
+     * @param shell メッセージを表示する親シェル。null の場合は表示しない
+     */
+    public CallGraphExportJob(IMethod targetMethod, File outputFile, CallGraphWriter.Format format, Shell shell) {
+        super("呼び出し関係グラフの出力: " + JDTUtils.getMethodQualifiedName(targetMethod));
+        this.initialTargetMethod = targetMethod;
+        this.outputFile = outputFile;
+        this.format = format;
+        this.shell = shell;
+    }
+
+    @Override
+    protected IStatus run(IProgressMonitor monitor) {
+        if (initialTargetMethod == null || !initialTargetMethod.exists()) {
+            showMessage(MessageDialog.ERROR, "検索対象のメソッドが無効です。");
+            return new Status(IStatus.ERROR, "com.example.callhierarchyplugin", "検索対象のメソッドが無効です。");
+        }
+
+        RootCallerFinder finder = new RootCallerFinder(initialTargetMethod);
+        finder.setRetainResults(false);
+        finder.setResolveOverrides(SearchCoordinator.getDefault().isResolveOverrides());
+        try {
+            finder.findRootCallers(monitor);
+            if (monitor.isCanceled()) {
+                showMessage(MessageDialog.INFORMATION, "呼び出し関係グラフの出力がキャンセルされました。");
+                return Status.CANCEL_STATUS;
+            }
+            CallGraphFiles.write(finder, outputFile, format);
+        } catch (IOException e) {
+            e.printStackTrace();
+            showMessage(MessageDialog.ERROR, "呼び出し関係グラフの出力中にエラーが発生しました。\n" + e.getMessage());
+            return new Status(IStatus.ERROR, "com.example.callhierarchyplugin", "グラフの書き込みエラー", e);
+        } catch (CoreException e) {
+            e.printStackTrace();
+            showMessage(MessageDialog.ERROR, "検索中にエラーが発生しました: " + e.getMessage());
+            return new Status(IStatus.ERROR, "com.example.callhierarchyplugin", "呼び出し元の検索中にエラーが発生しました。", e);
+        } catch (Exception e) { // 予期せぬ実行時例外
+            e.printStackTrace();
+            showMessage(MessageDialog.ERROR, "予期せぬエラーが発生しました: " + e.getMessage());
+            return new Status(IStatus.ERROR, "com.example.callhierarchyplugin", "予期せぬエラーが発生しました。", e);
+        } finally {
+            monitor.done();
+        }
+
+        SearchStatistics statistics = finder.getStatistics();
+        showMessage(MessageDialog.INFORMATION, "呼び出し関係グラフを出力しました (ノード " + statistics.getGraphNodes()
+                + " 個, 辺 " + statistics.getGraphEdges() + " 本"
+                + (finder.isTruncated() ? ", 探索を打ち切ったため一部のみ" : "") + ")。\n" + outputFile.getPath());
+        return Status.OK_STATUS;
+    }
+
+    /** UI スレッドでメッセージダイアログを表示する (shell が null の場合は表示しない) */
+    private void showMessage(int kind, String message) {
+        if (shell == null) return;
+        Display.getDefault().asyncExec(() -> {
+            if (!shell.isDisposed()) {
+                MessageDialog.open(kind, shell, kind == MessageDialog.ERROR ? "エラー" : "情報", message, 0);
+            }
+        });
+    }
+}
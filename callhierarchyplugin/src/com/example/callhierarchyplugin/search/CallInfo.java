@@ -7,12 +7,37 @@ import java.util.stream.Collectors;
 
 
 public class CallInfo {
+    private final IMethod target;         // 検索対象のメソッド (複数対象の検索で結果を振り分けるため)
     private final IMethod originalCaller; // 再帰の起点となったメソッド
     private final IMethod directCaller;   // 直接の呼び出し元メソッド
     private final int lineNumber;         // 呼び出し元の行番号
     private final List<String> argumentValues; // 呼び出し時の引数の文字列表現
+    private final boolean truncated;      // 探索を打ち切ったため、originalCaller が本当の起点とは限らない
+    private final CallPath callPath;      // 経路モードの場合の起点から直接の呼び出し元までの経路 (それ以外は null)
+
+    // 表示用の文字列。仮想テーブルでは表示範囲に入った行だけ計算されるよう、最初の参照時に作成してキャッシュする
+    // (String は不変のため、複数スレッドから同時に計算されても同じ値になるだけで問題ない)
+    private String originalCallerName;
+    private String directCallerName;
+    private String argumentsAsString;
 
     public CallInfo(IMethod originalCaller, IMethod directCaller, int lineNumber, List<String> argumentValues) {
+        this(null, originalCaller, directCaller, lineNumber, argumentValues);
+    }
+
+    public CallInfo(IMethod target, IMethod originalCaller, IMethod directCaller, int lineNumber, List<String> argumentValues) {
+        this(target, originalCaller, directCaller, lineNumber, argumentValues, false);
+    }
+
+    public CallInfo(IMethod target, IMethod originalCaller, IMethod directCaller, int lineNumber, List<String> argumentValues, boolean truncated) {
+        this(target, originalCaller, directCaller, lineNumber, argumentValues, truncated, null);
+    }
+
+    public CallInfo(IMethod target, IMethod originalCaller, IMethod directCaller, int lineNumber, List<String> argumentValues, boolean truncated,
+            CallPath callPath) {
+        this.target = target;
+        this.truncated = truncated;
+        this.callPath = callPath;
         this.originalCaller = originalCaller;
         this.directCaller = directCaller;
         this.lineNumber = lineNumber;
@@ -21,6 +46,11 @@ public class CallInfo {
 
     // --- Getters ---
 
+    /** 呼び出されている検索対象のメソッド (不明な場合は null) */
+    public IMethod getTarget() {
+        return target;
+    }
+
     public IMethod getOriginalCaller() {
         return originalCaller;
     }
@@ -37,17 +67,49 @@ public class CallInfo {
         return argumentValues;
     }
 
+    /**
+     * 検索の上限やキャンセルで探索を打ち切ったため、起点が確定していない行か。
+     * その場合 originalCaller は呼び出し元を検索しなかったメソッド (探索の末端) です。
+     */
+    public boolean isTruncated() {
+        return truncated;
+    }
+
+    /** 起点から直接の呼び出し元までの呼び出し経路 (経路モードで検索していない場合は null) */
+    public CallPath getCallPath() {
+        return callPath;
+    }
+
     // --- Helper methods for display ---
 
     public String getOriginalCallerName() {
-        return JDTUtils.formatMethodName(originalCaller); // Use utility method
+        String name = originalCallerName;
+        if (name == null) {
+            name = JDTUtils.formatMethodName(originalCaller); // Use utility method
+            originalCallerName = name;
+        }
+        return name;
     }
 
     public String getDirectCallerName() {
-        return JDTUtils.formatMethodName(directCaller); // Use utility method
+        String name = directCallerName;
+        if (name == null) {
+            name = JDTUtils.formatMethodName(directCaller); // Use utility method
+            directCallerName = name;
+        }
+        return name;
     }
 
     public String getArgumentsAsString() {
+        String text = argumentsAsString;
+        if (text == null) {
+            text = formatArguments();
+            argumentsAsString = text;
+        }
+        return text;
+    }
+
+    private String formatArguments() {
         if (argumentValues.isEmpty() || argumentValues.stream().allMatch(String::isEmpty)) {
             return "なし";
         }
@@ -0,0 +1,66 @@
+package com.example.callhierarchyplugin.search;
+
+import com.example.callhierarchyplugin.graph.CallPaths;
+import com.example.callhierarchyplugin.utils.JDTUtils;
+
+import org.eclipse.jdt.core.IMethod;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 経路モードの検索で 1 件の結果に付ける、起点から直接の呼び出し元までの呼び出し経路。
+ * <p>
+ * 最短経路は結果の作成時に求めて保持するため、検索中に逐次出力する結果でもそのまま出力できます。
+ * すべての経路は検索の終了時に固定したグラフ ({@link CallPaths}) を同じ検索の結果の間で共有し、
+ * {@link #getTree()} の木を展開した分だけ作成します。
+ */
+public class CallPath {
+
+    private final AtomicReference<CallPaths<IMethod>> graph;
+    private final int rootNode;
+    private final int directCallerNode;
+    private final List<IMethod> shortestPath;
+    private String shortestPathText;
+
+    /**
+     * @param graph 検索の終了時に固定したグラフを受け取る参照 (同じ検索の結果で共有する)
+     * @param shortestPath 起点から直接の呼び出し元までの最短経路 (両端を含む)
+     */
+    CallPath(AtomicReference<CallPaths<IMethod>> graph, int rootNode, int directCallerNode, List<IMethod> shortestPath) {
+        this.graph = graph;
+        this.rootNode = rootNode;
+        this.directCallerNode = directCallerNode;
+        this.shortestPath = shortestPath;
+    }
+
+    /** 起点から直接の呼び出し元までの最短経路 (両端を含む。求められなかった場合は空) */
+    public List<IMethod> getShortestPath() {
+        return shortestPath;
+    }
+
+    /** 最短経路を " > " でつないだ文字列 (CSV 出力用) */
+    public String getShortestPathText() {
+        String text = shortestPathText;
+        if (text == null) {
+            StringBuilder builder = new StringBuilder();
+            for (IMethod method : shortestPath) {
+                if (builder.length() > 0) builder.append(" > ");
+                builder.append(JDTUtils.formatMethodName(method));
+            }
+            text = builder.toString();
+            shortestPathText = text;
+        }
+        return text;
+    }
+
+    /**
+     * 起点から直接の呼び出し元までのすべての経路の木を返します。呼び出すたびに展開前の新しい木を作成します。
+     *
+     * @return 木の根。検索が終了していない場合や経路がない場合は null
+     */
+    public CallPaths<IMethod>.PathNode getTree() {
+        CallPaths<IMethod> paths = graph.get();
+        return paths != null ? paths.tree(rootNode, directCallerNode) : null;
+    }
+}
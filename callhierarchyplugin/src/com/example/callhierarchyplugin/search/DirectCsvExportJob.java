@@ -1,36 +1,46 @@
 package com.example.callhierarchyplugin.search;
 
-import com.example.callhierarchyplugin.views.CallHierarchyView; // View クラスを参照するため
+import com.example.callhierarchyplugin.export.CsvCallInfoWriter;
 import com.example.callhierarchyplugin.utils.JDTUtils; // JDTUtils を使用
 
 import org.eclipse.core.runtime.*;
 import org.eclipse.core.runtime.jobs.Job;
 import org.eclipse.jdt.core.IMethod;
 import org.eclipse.jface.dialogs.MessageDialog;
-import org.eclipse.swt.SWT;
 import org.eclipse.swt.widgets.Display;
-import org.eclipse.swt.widgets.FileDialog;
 import org.eclipse.swt.widgets.Shell;
 
-import java.io.BufferedWriter;
-import java.io.FileOutputStream;
+import java.io.File;
 import java.io.IOException;
-import java.io.OutputStreamWriter;
-import java.nio.charset.StandardCharsets;
 import java.util.List;
 
 /**
  * 検索結果を表に表示せず、直接 CSV ファイルに出力する Job。
+ * <p>
+ * 出力先のファイルは検索の開始前に開き、根本起点が確定した結果から順に書き込むため、
+ * 結果をメモリに溜めません (ヒープ使用量は結果の件数に依存しない)。
+ * ファイル名が ".gz" で終わる場合は gzip 圧縮して出力します。
+ * 検索は SearchCoordinator 経由で行うため、同じメソッドの検索が実行中の場合はその結果を出力する。
+ * 既に表示済みの結果を渡した場合は検索を行わない。
  */
 public class DirectCsvExportJob extends Job {
 
     private final IMethod initialTargetMethod;
-    private final Shell shell; // FileDialog と MessageDialog を表示するため
-
-    public DirectCsvExportJob(IMethod targetMethod, Shell shell) {
+    private final File outputFile;
+    private final Shell shell; // MessageDialog を表示するため
+    private final List<CallInfo> precomputedResults; // 表示済みの結果 (null の場合は検索する)
+
+    /**
+     * @param results 出力する検索結果。null の場合は検索しながら出力する
+     * @param outputFile 出力先のファイル (UI スレッドで事前に選択しておく)
+     * @param shell メッセージを表示する親シェル。null の場合は表示しない
+     */
+    public DirectCsvExportJob(IMethod targetMethod, List<CallInfo> results, File outputFile, Shell shell) {
         super("CSV直接出力: " + JDTUtils.getMethodQualifiedName(targetMethod));
         this.initialTargetMethod = targetMethod;
+        this.outputFile = outputFile;
         this.shell = shell; // 親シェルを保持
+        this.precomputedResults = results;
     }
 
     @Override
@@ -40,103 +50,81 @@ public class DirectCsvExportJob extends Job {
             return new Status(IStatus.ERROR, "com.example.callhierarchyplugin", "検索対象のメソッドが無効です。");
         }
 
-        // RootCallerFinder を使って検索を実行
-        RootCallerFinder finder = new RootCallerFinder(initialTargetMethod);
-        try {
-            // ファインダーを実行し、結果リストを取得
+        boolean completed = false;
+        long rowCount = 0;
+        // 検索ジョブのスレッドで発生した書き込みエラー (発生したら検索をキャンセルする)
+        IOException[] writeError = new IOException[1];
+        // 経路モードの結果は最短経路の列を追加する
+        boolean includePath = precomputedResults != null
+                ? precomputedResults.stream().anyMatch(info -> info.getCallPath() != null)
+                : SearchCoordinator.getDefault().isRecordPaths();
+        try (CsvCallInfoWriter writer = CsvCallInfoWriter.open(outputFile, CsvCallInfoWriter.isGzipFile(outputFile), false, includePath)) {
             monitor.beginTask("呼び出し元を検索中...", IProgressMonitor.UNKNOWN);
-            List<CallInfo> results = finder.findRootCallers(monitor);
+            if (precomputedResults != null) {
+                for (CallInfo info : precomputedResults) {
+                    writer.write(info);
+                }
+            } else {
+                // 実行中の同じ検索があれば共有し、起点が確定した結果から順に書き込む
+                SearchCoordinator.getDefault().streamAndWait(initialTargetMethod, results -> {
+                    if (writeError[0] != null) return;
+                    try {
+                        for (CallInfo info : results) {
+                            writer.write(info);
+                        }
+                    } catch (IOException e) {
+                        writeError[0] = e;
+                        monitor.setCanceled(true);
+                    }
+                }, monitor);
+            }
             monitor.done();
 
+            if (writeError[0] != null) throw writeError[0];
             if (monitor.isCanceled()) {
                 showInformationMessage("CSV出力がキャンセルされました。");
                 return Status.CANCEL_STATUS;
             }
-
-            if (results.isEmpty()) {
-                showInformationMessage("呼び出し元が見つからなかったため、CSVファイルは出力されませんでした。");
-                return Status.OK_STATUS;
-            }
-
-            // --- ファイルダイアログ表示と CSV 書き込み ---
-            // UI 操作は UI スレッドで行う必要がある
-            final String[] filePath = new String[1]; // 結果を格納する配列
-            Display.getDefault().syncExec(() -> {
-                FileDialog dialog = new FileDialog(shell, SWT.SAVE);
-                dialog.setText("CSVファイルとして保存");
-                dialog.setFilterNames(new String[] { "CSV ファイル (*.csv)", "すべてのファイル (*.*)" });
-                dialog.setFilterExtensions(new String[] { "*.csv", "*.*" });
-                dialog.setFileName(initialTargetMethod.getElementName() + "_callers.csv"); // デフォルトファイル名
-                dialog.setOverwrite(true);
-                filePath[0] = dialog.open();
-            });
-
-            if (filePath[0] == null) {
-                showInformationMessage("CSV出力がキャンセルされました。");
-                return Status.CANCEL_STATUS; // ユーザーキャンセル
-            }
-
-            // CSV ファイルへの書き込み
-            try {
-                // 書き込み処理自体はバックグラウンドでOK
-                exportResultsToCsv(results, filePath[0]);
-                showInformationMessage("CSVファイルへのエクスポートが完了しました。\n" + filePath[0]);
-                return Status.OK_STATUS;
-            } catch (IOException e) {
-                e.printStackTrace();
-                showErrorMessage("CSVファイルのエクスポート中にエラーが発生しました。\n" + e.getMessage());
-                return new Status(IStatus.ERROR, "com.example.callhierarchyplugin", "CSV書き込みエラー", e);
-            }
-
+            rowCount = writer.getRowCount();
+            completed = true;
+        } catch (IOException e) {
+            e.printStackTrace();
+            showErrorMessage("CSVファイルのエクスポート中にエラーが発生しました。\n" + e.getMessage());
+            return new Status(IStatus.ERROR, "com.example.callhierarchyplugin", "CSV書き込みエラー", e);
         } catch (CoreException e) {
             e.printStackTrace();
             showErrorMessage("検索中にエラーが発生しました: " + e.getMessage());
             return new Status(IStatus.ERROR, "com.example.callhierarchyplugin", "呼び出し元の検索中にエラーが発生しました。", e);
         } catch (OperationCanceledException e) {
+            if (writeError[0] != null) {
+                showErrorMessage("CSVファイルのエクスポート中にエラーが発生しました。\n" + writeError[0].getMessage());
+                return new Status(IStatus.ERROR, "com.example.callhierarchyplugin", "CSV書き込みエラー", writeError[0]);
+            }
             showInformationMessage("CSV出力がキャンセルされました。");
             return Status.CANCEL_STATUS;
         } catch (Exception e) { // 予期せぬ実行時例外
              e.printStackTrace();
              showErrorMessage("予期せぬエラーが発生しました: " + e.getMessage());
              return new Status(IStatus.ERROR, "com.example.callhierarchyplugin", "予期せぬエラーが発生しました。", e);
-        }
-    }
-
-    // --- CSV 書き込みロジック (CallHierarchyView からコピー＆調整) ---
-    private void exportResultsToCsv(List<CallInfo> results, String filePath) throws IOException {
-        try (FileOutputStream fos = new FileOutputStream(filePath);
-             OutputStreamWriter osw = new OutputStreamWriter(fos, StandardCharsets.UTF_8);
-             BufferedWriter writer = new BufferedWriter(osw)) {
-            writer.write('\uFEFF'); // BOM for Excel
-            String[] headers = { "起点クラス・メソッド", "直接の呼び出し元", "行", "引数" };
-            writer.write(String.join(",", escapeCsvFields(headers)));
-            writer.newLine();
-            for (CallInfo info : results) {
-                String[] data = {
-                    info.getOriginalCallerName(), info.getDirectCallerName(),
-                    info.getLineNumber() > 0 ? String.valueOf(info.getLineNumber()) : "",
-                    info.getArgumentsAsString()
-                };
-                writer.write(String.join(",", escapeCsvFields(data)));
-                writer.newLine();
+        } finally {
+            // 途中までの出力や空の出力は残さない
+            if (!completed || rowCount == 0) {
+                outputFile.delete();
             }
         }
-    }
-    private String[] escapeCsvFields(String[] fields) {
-        String[] escapedFields = new String[fields.length];
-        for (int i = 0; i < fields.length; i++) {
-            escapedFields[i] = escapeCsvField(fields[i]);
+
+        if (rowCount == 0) {
+            showInformationMessage("呼び出し元が見つからなかったため、CSVファイルは出力されませんでした。");
+        } else {
+            showInformationMessage("CSVファイルへのエクスポートが完了しました (" + rowCount + " 件)。\n" + outputFile.getPath());
         }
-        return escapedFields;
-    }
-    private String escapeCsvField(String data) {
-        if (data == null) return "\"\"";
-        String escapedData = data.replace("\"", "\"\"");
-        return "\"" + escapedData + "\"";
+        return Status.OK_STATUS;
     }
 
     // --- UI スレッドでメッセージダイアログを表示するヘルパー ---
+    // shell が null の場合 (ヘッドレスでの実行) は表示しない
     private void showInformationMessage(String message) {
+        if (shell == null) return;
         Display.getDefault().asyncExec(() -> {
             if (shell != null && !shell.isDisposed()) {
                 MessageDialog.openInformation(shell, "情報", message);
@@ -144,6 +132,7 @@ public class DirectCsvExportJob extends Job {
         });
     }
     private void showErrorMessage(String message) {
+        if (shell == null) return;
         Display.getDefault().asyncExec(() -> {
             if (shell != null && !shell.isDisposed()) {
                 MessageDialog.openError(shell, "エラー", message);
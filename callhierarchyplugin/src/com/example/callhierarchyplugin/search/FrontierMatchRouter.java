@@ -0,0 +1,179 @@
+package com.example.callhierarchyplugin.search;
+
+import org.eclipse.jdt.core.*;
+import org.eclipse.jdt.core.search.SearchMatch;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * OR パターンでまとめて検索したフロンティアのマッチを、どの呼び出し先メソッドへの参照かに振り分けます。
+ * <p>
+ * SearchMatch は一致したサブパターンを保持しないため、マッチ位置のソースから呼び出し名を読み取って振り分けます。
+ * 同じ名前 (コンストラクタの場合は型の単純名) のメソッドが 1 つのバッチに入らないよう {@link #partition} で
+ * 分割しておくことで、名前だけで一意に特定できます。特定できない場合のみ codeSelect にフォールバックします。
+ */
+class FrontierMatchRouter {
+
+    private final List<IMethod> batch;
+    private final Map<String, IMethod> methodsByKey = new HashMap<>();
+
+    FrontierMatchRouter(List<IMethod> batch) {
+        this.batch = batch;
+        for (IMethod method : batch) {
+            methodsByKey.put(routingKey(method), method);
+        }
+    }
+
+    /** ルーティングキー (メソッド名。コンストラクタの場合 getElementName() は型の単純名になる) */
+    static String routingKey(IMethod method) {
+        return method.getElementName();
+    }
+
+    /**
+     * フロンティアを最大 batchSize 件のバッチに分割します。
+     * 同じルーティングキーを持つメソッド (オーバーロードなど) は別々のバッチに振り分けます。
+     */
+    static List<List<IMethod>> partition(List<IMethod> frontier, int batchSize) {
+        List<List<IMethod>> batches = new ArrayList<>();
+        List<Set<String>> batchKeys = new ArrayList<>();
+        for (IMethod method : frontier) {
+            String key = routingKey(method);
+            int target = -1;
+            for (int i = 0; i < batches.size(); i++) {
+                if (batches.get(i).size() < batchSize && !batchKeys.get(i).contains(key)) {
+                    target = i;
+                    break;
+                }
+            }
+            if (target < 0) {
+                batches.add(new ArrayList<>());
+                batchKeys.add(new HashSet<>());
+                target = batches.size() - 1;
+            }
+            batches.get(target).add(method);
+            batchKeys.get(target).add(key);
+        }
+        return batches;
+    }
+
+    /**
+     * マッチをバッチ内の呼び出し先メソッドに振り分けます。
+     *
+     * @return 呼び出し先メソッド。特定できない場合は null
+     */
+    IMethod route(SearchMatch match) {
+        if (batch.size() == 1) return batch.get(0);
+        if (!(match.getElement() instanceof IJavaElement)) return null;
+
+        IJavaElement element = (IJavaElement) match.getElement();
+        ITypeRoot typeRoot = getTypeRoot(element);
+        if (typeRoot == null) return null;
+
+        try {
+            String source = typeRoot.getSource();
+            if (source != null && match.getOffset() >= 0 && match.getOffset() < source.length()) {
+                String name = readCalledName(source, match.getOffset());
+                IMethod routed = name != null ? methodsByKey.get(resolveConstructorKeyword(name, element)) : null;
+                if (routed != null) return routed;
+            }
+            return resolveByCodeSelect(typeRoot, match);
+        } catch (JavaModelException e) {
+            System.err.println("警告(Router): マッチの振り分けに失敗しました: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private ITypeRoot getTypeRoot(IJavaElement element) {
+        IJavaElement root = element.getAncestor(IJavaElement.COMPILATION_UNIT);
+        if (root == null) root = element.getAncestor(IJavaElement.CLASS_FILE);
+        return root instanceof ITypeRoot ? (ITypeRoot) root : null;
+    }
+
+    /** this(...) / super(...) を、呼び出されるコンストラクタの型の単純名に置き換える */
+    private String resolveConstructorKeyword(String name, IJavaElement element) throws JavaModelException {
+        if (!"this".equals(name) && !"super".equals(name)) return name;
+        IType enclosingType = (IType) element.getAncestor(IJavaElement.TYPE);
+        if (enclosingType == null) return name;
+        if ("this".equals(name)) return enclosingType.getElementName();
+        String superclassName = enclosingType.getSuperclassName();
+        if (superclassName == null) return name;
+        int genericStart = superclassName.indexOf('<');
+        if (genericStart >= 0) superclassName = superclassName.substring(0, genericStart);
+        return lastSegment(superclassName.trim());
+    }
+
+    /** 名前で特定できなかったマッチをバインディング解決で振り分ける */
+    private IMethod resolveByCodeSelect(ITypeRoot typeRoot, SearchMatch match) throws JavaModelException {
+        IJavaElement[] selected = typeRoot.codeSelect(match.getOffset(), match.getLength());
+        for (IJavaElement candidate : selected) {
+            if (candidate instanceof IMethod && batch.contains(candidate)) {
+                return (IMethod) candidate;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * マッチ位置のソースから呼び出されている名前を読み取ります。
+     * <ul>
+     * <li>{@code foo(...)}, {@code a.b.foo(...)} → {@code foo}</li>
+     * <li>{@code new a.Foo<>(...)} → {@code Foo}</li>
+     * <li>{@code Foo::bar} → {@code bar}、{@code Foo::new} → {@code Foo}</li>
+     * <li>{@code this(...)} / {@code super(...)} → {@code this} / {@code super}</li>
+     * </ul>
+     */
+    static String readCalledName(String source, int offset) {
+        int pos = skipWhitespace(source, offset);
+        String first = readIdentifier(source, pos);
+        if (first == null) return null;
+        if ("new".equals(first)) {
+            return lastSegment(readQualifiedName(source, skipWhitespace(source, pos + first.length())));
+        }
+        String qualified = readQualifiedName(source, pos);
+        int end = skipWhitespace(source, pos + qualified.length());
+        if (source.startsWith("::", end)) {
+            String member = readIdentifier(source, skipWhitespace(source, end + 2));
+            return "new".equals(member) ? lastSegment(qualified) : member;
+        }
+        return lastSegment(qualified);
+    }
+
+    private static int skipWhitespace(String source, int pos) {
+        while (pos < source.length() && Character.isWhitespace(source.charAt(pos))) pos++;
+        return pos;
+    }
+
+    private static String readIdentifier(String source, int pos) {
+        if (pos >= source.length() || !Character.isJavaIdentifierStart(source.charAt(pos))) return null;
+        int end = pos + 1;
+        while (end < source.length() && Character.isJavaIdentifierPart(source.charAt(end))) end++;
+        return source.substring(pos, end);
+    }
+
+    /** 識別子を '.' でつないだ修飾名を読み取る (末尾の '.' は含めない) */
+    private static String readQualifiedName(String source, int pos) {
+        int end = pos;
+        while (true) {
+            String identifier = readIdentifier(source, end);
+            if (identifier == null) break;
+            end += identifier.length();
+            if (end < source.length() - 1 && source.charAt(end) == '.'
+                    && Character.isJavaIdentifierStart(source.charAt(end + 1))) {
+                end++;
+            } else {
+                break;
+            }
+        }
+        return source.substring(pos, end);
+    }
+
+    private static String lastSegment(String qualifiedName) {
+        if (qualifiedName == null || qualifiedName.isEmpty()) return null;
+        return qualifiedName.substring(qualifiedName.lastIndexOf('.') + 1);
+    }
+}
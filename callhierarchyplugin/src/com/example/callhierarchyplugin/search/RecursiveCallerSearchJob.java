@@ -1,27 +1,78 @@
 package com.example.callhierarchyplugin.search;
 
-import com.example.callhierarchyplugin.views.CallHierarchyView;
 import com.example.callhierarchyplugin.utils.JDTUtils; // JDTUtils が必要
 
 import org.eclipse.core.runtime.*;
 import org.eclipse.core.runtime.jobs.Job;
 import org.eclipse.jdt.core.*; // IMethod のため
 
+import java.util.Collections;
 import java.util.List; // List のため
 
 /**
- * 根本的な呼び出し元を検索し、結果をビューに通知する Job。
- * 実際の検索ロジックは RootCallerFinder に委譲する。
+ * 根本的な呼び出し元を検索する Job。
+ * 実際の検索ロジックは RootCallerFinder に委譲し、結果は SearchCoordinator 経由で要求元に通知する。
  */
 public class RecursiveCallerSearchJob extends Job {
 
     private final IMethod initialTargetMethod;
-    private final CallHierarchyView resultView;
+    private volatile List<CallInfo> results = Collections.emptyList();
+    private volatile SearchStatistics statistics;
+    private RootCallerFinder.ResultListener resultListener;
+    private boolean retainResults = true;
+    private long timeLimitMillis;
+    private boolean resolveOverrides;
+    private boolean recordPaths;
 
-    public RecursiveCallerSearchJob(IMethod targetMethod, CallHierarchyView view) {
+    public RecursiveCallerSearchJob(IMethod targetMethod) {
         super("根本起点を含む呼び出し元検索: " + JDTUtils.getMethodQualifiedName(targetMethod));
         this.initialTargetMethod = targetMethod;
-        this.resultView = view;
+    }
+
+    /** 検索対象のメソッド */
+    public IMethod getTarget() {
+        return initialTargetMethod;
+    }
+
+    /** 検索中に確定した結果を逐次受け取るリスナーを設定します (ジョブのスケジュール前に呼び出してください)。 */
+    public void setResultListener(RootCallerFinder.ResultListener resultListener) {
+        this.resultListener = resultListener;
+    }
+
+    /**
+     * 結果を {@link #getResults()} 用に保持するかどうかを設定します (ジョブのスケジュール前に呼び出してください)。
+     * false の場合、結果はリスナーへの通知だけで受け取ります。
+     */
+    public void setRetainResults(boolean retainResults) {
+        this.retainResults = retainResults;
+    }
+
+    /**
+     * グラフ構築の経過時間の上限 (ミリ秒) を設定します。0 以下の場合は無制限です。
+     * 上限に達した場合は打ち切った時点の結果で正常終了します。
+     */
+    public void setTimeLimit(long timeLimitMillis) {
+        this.timeLimitMillis = timeLimitMillis;
+    }
+
+    /** オーバーライド関係を考慮して呼び出し元を求めるかどうかを設定します (ジョブのスケジュール前に呼び出してください)。 */
+    public void setResolveOverrides(boolean resolveOverrides) {
+        this.resolveOverrides = resolveOverrides;
+    }
+
+    /** 呼び出し経路を記録するかどうか (経路モード) を設定します (ジョブのスケジュール前に呼び出してください)。 */
+    public void setRecordPaths(boolean recordPaths) {
+        this.recordPaths = recordPaths;
+    }
+
+    /** 検索結果 (ジョブが終了した後に有効。キャンセルされた場合はキャンセルまでの途中結果) */
+    public List<CallInfo> getResults() {
+        return results;
+    }
+
+    /** 検索の計測値 (ジョブが終了した後に有効。検索を開始できなかった場合は null) */
+    public SearchStatistics getStatistics() {
+        return statistics;
     }
 
     @Override
@@ -32,31 +83,30 @@ public class RecursiveCallerSearchJob extends Job {
 
         // RootCallerFinder を使って検索を実行
         RootCallerFinder finder = new RootCallerFinder(initialTargetMethod);
+        finder.setResultListener(resultListener);
+        finder.setRetainResults(retainResults);
+        finder.setTimeLimit(timeLimitMillis);
+        finder.setResolveOverrides(resolveOverrides);
+        finder.setRecordPaths(recordPaths);
+        statistics = finder.getStatistics();
         try {
             // ファインダーを実行し、結果リストを取得
             // ★★★ モニターを渡すことを確認 ★★★
-            List<CallInfo> results = finder.findRootCallers(monitor);
-
-            // キャンセルされていなければビューを更新
-            if (!monitor.isCanceled() && resultView != null) {
-                // updateResults は内部で Display.asyncExec を呼ぶので、
-                // このスレッドから直接呼び出して良い
-                resultView.updateResults(results);
+            // キャンセルされた場合も、それまでに構築したグラフからの途中結果が返される
+            results = finder.findRootCallers(monitor);
+            if (monitor.isCanceled()) {
+                return Status.CANCEL_STATUS;
             }
-
-            return monitor.isCanceled() ? Status.CANCEL_STATUS : Status.OK_STATUS;
+            return Status.OK_STATUS;
 
         } catch (CoreException e) {
             e.printStackTrace();
-            setMessageInView("検索中にエラーが発生しました: " + e.getMessage());
-            return new Status(IStatus.ERROR, "com.example.callhierarchyplugin", "呼び出し元の検索中にエラーが発生しました。", e);
+            return new Status(IStatus.ERROR, "com.example.callhierarchyplugin", "呼び出し元の検索中にエラーが発生しました: " + e.getMessage(), e);
         } catch (OperationCanceledException e) {
-            setMessageInView("検索がキャンセルされました。");
             return Status.CANCEL_STATUS;
         } catch (Exception e) { // 予期せぬ実行時例外
              e.printStackTrace();
-             setMessageInView("予期せぬエラーが発生しました: " + e.getMessage());
-             return new Status(IStatus.ERROR, "com.example.callhierarchyplugin", "予期せぬエラーが発生しました。", e);
+             return new Status(IStatus.ERROR, "com.example.callhierarchyplugin", "予期せぬエラーが発生しました: " + e.getMessage(), e);
         } finally {
             // Ensure monitor is done regardless of outcome
              // ★★★ モニターが null でないことを確認 ★★★
@@ -65,11 +115,4 @@ public class RecursiveCallerSearchJob extends Job {
              }
         }
     }
-
-    /** UI スレッドでビューにメッセージを設定するヘルパー */
-    private void setMessageInView(String message) {
-        if (resultView != null) {
-            resultView.setMessage(message);
-        }
-    }
 }
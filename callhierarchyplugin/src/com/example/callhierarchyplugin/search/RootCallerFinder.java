@@ -1,6 +1,24 @@
 package com.example.callhierarchyplugin.search;
 
+import com.example.callhierarchyplugin.graph.CallGraph;
+import com.example.callhierarchyplugin.graph.CallPaths;
+import com.example.callhierarchyplugin.graph.Frontier;
+import com.example.callhierarchyplugin.graph.LongHashSet;
+import com.example.callhierarchyplugin.graph.RootResolver;
+import com.example.callhierarchyplugin.graph.ShortestPaths;
+import com.example.callhierarchyplugin.graph.io.CallGraphWriter;
+import com.example.callhierarchyplugin.index.CallEdgeExtractor;
+import com.example.callhierarchyplugin.index.CallIndexFile.IndexedCall;
+import com.example.callhierarchyplugin.index.PersistentCallIndex;
+import com.example.callhierarchyplugin.index.PersistentCallIndex.CallerLookup;
+import com.example.callhierarchyplugin.jfr.ReferenceSearchEvent;
+import com.example.callhierarchyplugin.jfr.RootCallerSearchEvent;
+import com.example.callhierarchyplugin.jfr.SearchPhaseEvent;
+import com.example.callhierarchyplugin.search.SearchStatistics.Counter;
+import com.example.callhierarchyplugin.search.SearchStatistics.Phase;
+import com.example.callhierarchyplugin.utils.AstCache;
 import com.example.callhierarchyplugin.utils.JDTUtils;
+import com.example.callhierarchyplugin.utils.TypeHierarchyCache;
 
 import org.eclipse.core.runtime.*;
 import org.eclipse.jdt.core.*;
@@ -8,261 +26,1134 @@ import org.eclipse.jdt.core.dom.*;
 import org.eclipse.jdt.core.dom.QualifiedName;
 import org.eclipse.jdt.core.search.*;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.BitSet;
+import java.util.Collection;
 import java.util.HashMap;
-import java.util.HashSet;
-import java.util.LinkedList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * 指定されたメソッドの根本的な呼び出し元を検索するコアロジックを提供します。
+ * <p>
+ * 複数のメソッドを対象にした場合は、すべての対象の呼び出し元を 1 つの呼び出し関係グラフとして 1 回だけ探索し、
+ * 共通の呼び出し元は 1 回だけ検索します。結果の {@link CallInfo#getTarget()} で対象ごとに振り分けられます。
+ * <p>
+ * 探索は呼び出しの深さ、ノード数、経過時間の上限で打ち切ることができます。打ち切った場合やキャンセルされた場合も
+ * それまでに構築したグラフから結果を返し、未探索のメソッドを起点とした行には {@link CallInfo#isTruncated()} を設定します。
  */
 public class RootCallerFinder {
 
     // DirectCallDetails は検索プロセス内部でのみ使用するため、ここに移動しても良い
+    // 行番号と引数はグラフ構築後の呼び出し箇所解析フェーズでまとめて設定する
     private static class DirectCallDetails {
+        final IMethod target;
+        // 呼び出し箇所が参照している宣言 (オーバーライド関係を考慮する場合は、target がオーバーライドしている宣言などのことがある)
+        final IMethod declaration;
         final IMethod directCaller;
-        final int lineNumber;
-        final List<String> arguments;
         final int offset;
         final int length;
+        int lineNumber = -1;
+        List<String> arguments = List.of("引数情報取得不可");
+        // インデックスに引数が記録されていた場合は AST を解析しない
+        boolean argumentsResolved;
+        // 行番号と引数の解析が済んだか
+        boolean detailsResolved;
+        // 結果リスナーに通知済みか
+        boolean published;
 
-        DirectCallDetails(IMethod directCaller, int lineNumber, List<String> arguments, int offset, int length) {
+        DirectCallDetails(IMethod target, IMethod declaration, IMethod directCaller, int offset, int length, List<String> indexedArguments) {
+            this.target = target;
+            this.declaration = declaration;
             this.directCaller = directCaller;
-            this.lineNumber = lineNumber;
-            this.arguments = arguments;
             this.offset = offset;
             this.length = length;
+            if (indexedArguments != null) {
+                this.arguments = indexedArguments;
+                this.argumentsResolved = true;
+            }
         }
     }
 
-    private final IMethod initialTargetMethod;
+    private final List<IMethod> targetMethods;
     private final List<CallInfo> finalResults = new ArrayList<>();
-    private final Set<IMethod> processedMethods = new HashSet<>();
-    private final List<IMethod> methodsToSearchQueue = new LinkedList<>();
-    private final Map<IMethod, Set<IMethod>> callersMap = new HashMap<>();
-    private final List<DirectCallDetails> directCallsToInitialTarget = new ArrayList<>();
+    // 呼び出し関係グラフ (呼び出し先 → 呼び出し元)。メソッドはハンドル識別子で整数 ID に変換して保持する
+    private final CallGraph<IMethod> callGraph = new CallGraph<>();
+    private final Frontier searchQueue = new Frontier();
+    private final List<DirectCallDetails> directCallsToTargets = new ArrayList<>();
+    // 直接呼び出しの重複判定用 (対象のノード ID → (呼び出し元 ID, オフセット) を詰めた long)
+    // オーバーライド関係を考慮する場合は、同じ呼び出し箇所が複数の対象への直接呼び出しになる
+    private final Map<Integer, LongHashSet> recordedDirectCalls = new HashMap<>();
+    // 検索対象のノード
+    private final BitSet targetNodes = new BitSet();
+    // 検索の途中で打ち切られたレベルのノード (呼び出し元が一部しか分かっていない)
+    private final BitSet interruptedNodes = new BitSet();
+    // 直前の検索で上限に達したか、キャンセルされたために探索を打ち切ったか
+    private boolean truncated;
+
+    /** 1 回の OR パターン検索にまとめるフロンティアのメソッド数の上限 (巨大な OrPattern を避けるため) */
+    private static final int FRONTIER_BATCH_SIZE = 256;
+
+    /** ワーカーの完了待ちの間にキャンセルを確認する間隔 (ミリ秒) */
+    private static final long CANCEL_POLL_INTERVAL_MS = 100;
+
+    private boolean batchFrontierSearch = true;
+    private int workerCount = Runtime.getRuntime().availableProcessors();
+    private PersistentCallIndex callIndex = PersistentCallIndex.getDefault();
+    private SearchScopeProvider scopeProvider = SearchScopeProvider.getDefault();
+    private boolean resolveOverrides;
+    private boolean recordPaths;
+    // 経路モードで、検索の終了時に固定したグラフを受け取る参照 (検索ごとに作り直し、その検索の結果で共有する)
+    private AtomicReference<CallPaths<IMethod>> pathGraph = new AtomicReference<>();
+    private final SearchStatistics statistics = new SearchStatistics();
+    private ResultListener resultListener;
+    private boolean retainResults = true;
+    private int maxDepth;
+    private int maxNodes;
+    private long timeLimitMillis;
+    // 起点の判定で辿らないノード (findExcludedNodes で callGraph のノード数まで計算済み)
+    private final BitSet excludedNodes = new BitSet();
+    private int excludedNodesComputed;
+    // リスナーに通知した (または保持した) 結果の件数
+    private int publishedResultCount;
+
+    /**
+     * 検索中に確定した結果を受け取るリスナー。
+     * 直接呼び出しの根本起点が確定した時点で (グラフ全体の構築完了を待たずに)、検索を実行しているスレッドから呼び出されます。
+     */
+    public interface ResultListener {
+        void resultsFound(List<CallInfo> results);
+    }
+
+    /** 検索結果 (またはインデックスの記録) をフロンティアの呼び出し先に振り分けた呼び出し箇所 */
+    private static class RoutedMatch {
+        final IMethod directCaller;
+        final int offset;
+        final int length;
+        final List<String> arguments; // インデックスに記録された引数 (不明な場合は null)
+
+        RoutedMatch(IMethod directCaller, int offset, int length, List<String> arguments) {
+            this.directCaller = directCaller;
+            this.offset = offset;
+            this.length = length;
+            this.arguments = arguments;
+        }
+    }
+
+    /** 1 バッチ分の検索結果。検索が途中で失敗した場合、complete は false になる (インデックスに記録しない) */
+    private static class BatchResult {
+        final Map<IMethod, List<RoutedMatch>> matchesByCallee = new HashMap<>();
+        boolean complete = true;
+    }
 
     public RootCallerFinder(IMethod initialTargetMethod) {
         if (initialTargetMethod == null) {
             throw new IllegalArgumentException("Initial target method cannot be null");
         }
-        this.initialTargetMethod = initialTargetMethod;
+        this.targetMethods = List.of(initialTargetMethod);
+    }
+
+    /**
+     * 複数のメソッドを対象にした検索を作成します。対象の呼び出し元は 1 回の探索でまとめて検索します。
+     *
+     * @param targetMethods 検索対象のメソッド (重複は無視する)
+     */
+    public RootCallerFinder(Collection<IMethod> targetMethods) {
+        if (targetMethods == null || targetMethods.isEmpty() || targetMethods.contains(null)) {
+            throw new IllegalArgumentException("Target methods cannot be null or empty");
+        }
+        this.targetMethods = List.copyOf(new LinkedHashSet<>(targetMethods));
+    }
+
+    /**
+     * フロンティア (BFS の 1 レベル分) の参照検索を OR パターンで 1 回にまとめるかどうかを設定します。
+     * false の場合はメソッドごとに SearchEngine.search を呼び出します。デフォルトは true です。
+     */
+    public void setBatchFrontierSearch(boolean batchFrontierSearch) {
+        this.batchFrontierSearch = batchFrontierSearch;
+    }
+
+    /**
+     * フロンティアの参照検索を並列に実行するワーカースレッド数を設定します。
+     * 1 以下の場合は呼び出し元のスレッドで逐次実行します。デフォルトは利用可能なプロセッサ数です。
+     */
+    public void setWorkerCount(int workerCount) {
+        this.workerCount = Math.max(1, workerCount);
+    }
+
+    /**
+     * 永続的な逆呼び出しインデックスを使用するかどうかを設定します。
+     * 使用する場合、記録済みの呼び出し先は検索せずにインデックスから呼び出し元を取得し、
+     * 検索した呼び出し先の結果はインデックスに記録します。デフォルトは true (プラグインが開始されている場合) です。
+     */
+    public void setUseCallIndex(boolean useCallIndex) {
+        this.callIndex = useCallIndex ? PersistentCallIndex.getDefault() : null;
+    }
+
+    /**
+     * 呼び出し元の検索範囲を、呼び出し先を宣言しているプロジェクトに依存するプロジェクトのソースフォルダーに絞り込むかどうかを設定します。
+     * 絞り込む場合は可視性も考慮し、パッケージプライベートのメソッドは同じパッケージだけを検索し、
+     * private メソッドは検索やインデックスを使わずに宣言しているコンパイルユニットの AST から呼び出し元を求めます。
+     * false の場合は JAR と JRE を含むワークスペース全体を検索します。デフォルトは true です。
+     */
+    public void setNarrowSearchScopes(boolean narrowSearchScopes) {
+        this.scopeProvider = narrowSearchScopes ? SearchScopeProvider.getDefault() : null;
+    }
+
+    /**
+     * オーバーライド関係を考慮して呼び出し元を求めるかどうかを設定します。デフォルトは false です。
+     * 有効な場合、メソッドがオーバーライドしているスーパータイプの宣言への呼び出しも、動的ディスパッチで
+     * そのメソッドに到達し得る呼び出しとして扱います。メソッドが抽象メソッド (インターフェースのメソッドを含む) の場合は、
+     * それをオーバーライドしているサブタイプの宣言への呼び出しも対象にします。
+     * 型階層は {@link TypeHierarchyCache} で検索間で共有します。JAR や JRE の宣言 (Object#toString など) は
+     * 呼び出しが膨大になるため対象外です。
+     */
+    public void setResolveOverrides(boolean resolveOverrides) {
+        this.resolveOverrides = resolveOverrides;
+    }
+
+    /**
+     * 呼び出し経路を記録するかどうか (経路モード) を設定します。デフォルトは false です。
+     * 有効な場合、各結果に起点から直接の呼び出し元までの最短経路を付け ({@link CallInfo#getCallPath()})、
+     * 検索の終了時に固定したグラフからすべての経路を列挙できるようにします。
+     * 経路は個別に保持せず、グラフ (ノード数と辺数に比例) を結果の間で共有します。
+     */
+    public void setRecordPaths(boolean recordPaths) {
+        this.recordPaths = recordPaths;
+    }
+
+    /**
+     * 検索中に確定した結果を逐次受け取るリスナーを設定します。
+     * 最終的に {@link #findRootCallers} が返す結果は、すべてリスナーにも 1 回ずつ通知されます。
+     */
+    public void setResultListener(ResultListener resultListener) {
+        this.resultListener = resultListener;
+    }
+
+    /**
+     * 結果を {@link #findRootCallers} の戻り値として保持するかどうかを設定します。デフォルトは true です。
+     * false の場合、結果はリスナーに通知するだけで保持せず、findRootCallers は空リストを返します
+     * (結果をファイルに書き出す場合など、件数に比例するヒープ使用を避けるため)。
+     */
+    public void setRetainResults(boolean retainResults) {
+        this.retainResults = retainResults;
+    }
+
+    /**
+     * 探索する呼び出しの深さの上限を設定します (検索対象の直接の呼び出し元が深さ 1)。0 以下の場合は無制限です。
+     * 上限の深さのメソッドの呼び出し元は検索せず、そのメソッドを打ち切られた起点として扱います。
+     */
+    public void setMaxDepth(int maxDepth) {
+        this.maxDepth = maxDepth;
+    }
+
+    /**
+     * 呼び出し関係グラフのノード数の上限を設定します。0 以下の場合は無制限です。
+     * 上限はレベル (BFS の 1 段) の区切りで判定するため、最後のレベルの分だけ上限を超えることがあります。
+     */
+    public void setMaxNodes(int maxNodes) {
+        this.maxNodes = maxNodes;
+    }
+
+    /**
+     * グラフ構築の経過時間の上限 (ミリ秒) を設定します。0 以下の場合は無制限です。
+     * 上限に達した時点で実行中のレベルの検索を中断し、そのレベルのメソッドを打ち切られた起点として扱います。
+     */
+    public void setTimeLimit(long timeLimitMillis) {
+        this.timeLimitMillis = timeLimitMillis;
+    }
+
+    /**
+     * 直前の検索の計測値 (フェーズごとの所要時間、検索やマッチの回数、グラフの規模)。
+     * 同じ値は JFR のイベント (カテゴリー "Call Hierarchy Plugin") としても記録されます。
+     */
+    public SearchStatistics getStatistics() {
+        return statistics;
+    }
+
+    /** 直前の検索が上限またはキャンセルによって打ち切られたか (結果に未確定の起点が含まれる可能性がある) */
+    public boolean isTruncated() {
+        return truncated;
+    }
+
+    /**
+     * 直前の検索で探索した呼び出し関係グラフを書き出します (次の検索を開始するまで有効)。
+     * JAR 内のメソッドや打ち切られたノードも含め、探索したすべてのノードと辺を出力します。
+     * ノードの表示名は "クラス名#メソッド名(引数の型)"、キーはメソッドのハンドル識別子です。
+     * 検索中 (findRootCallers の実行中) に呼び出さないでください。
+     *
+     * @param out 出力先 (閉じない)
+     */
+    public void writeCallGraph(CallGraphWriter writer, OutputStream out) throws IOException {
+        writer.write(callGraph, JDTUtils::formatMethodName, targetNodes::get, out);
+    }
+
+    /**
+     * 根本的な呼び出し元の検索を実行し、結果を検索対象ごとに返します。
+     * すべての対象がキーに含まれます (呼び出し元がない対象は空リスト)。
+     *
+     * @param monitor プログレスモニター
+     * @throws CoreException 検索中にエラーが発生した場合
+     */
+    public Map<IMethod, List<CallInfo>> findRootCallersByTarget(IProgressMonitor monitor) throws CoreException {
+        Map<IMethod, List<CallInfo>> resultsByTarget = new LinkedHashMap<>();
+        for (IMethod target : targetMethods) {
+            resultsByTarget.put(target, new ArrayList<>());
+        }
+        for (CallInfo info : findRootCallers(monitor)) {
+            resultsByTarget.get(info.getTarget()).add(info);
+        }
+        return resultsByTarget;
     }
 
     /**
      * 根本的な呼び出し元の検索を実行します。
      *
+     * モニターがキャンセルされた場合は、どのフェーズで中断しても、それまでに構築したグラフから
+     * 打ち切りの印を付けた結果を作成して返します (引数の解析は省略します)。
+     *
      * @param monitor プログレスモニター
-     * @return CallInfo のリスト
+     * @return CallInfo のリスト (複数の対象がある場合はすべての対象の結果)
      * @throws CoreException 検索中にエラーが発生した場合
      */
     public List<CallInfo> findRootCallers(IProgressMonitor monitor) throws CoreException {
-        if (!initialTargetMethod.exists()) {
+        if (targetMethods.stream().noneMatch(IMethod::exists)) {
              throw new CoreException(new Status(IStatus.ERROR, "com.example.callhierarchyplugin", "Target method does not exist."));
         }
 
-        String taskName = JDTUtils.getMethodQualifiedName(initialTargetMethod) + " の呼び出し階層を構築中";
+        String taskName = (targetMethods.size() == 1
+                ? JDTUtils.getMethodQualifiedName(targetMethods.get(0))
+                : targetMethods.size() + " 個のメソッド") + " の呼び出し階層を構築中";
         // サブモニターを使用するか、全体の作業量を推定する
         SubMonitor subMonitor = SubMonitor.convert(monitor, taskName, 100);
+        RootCallerSearchEvent event = new RootCallerSearchEvent();
+        event.begin();
 
         try {
             // フェーズ 1: 呼び出し関係グラフの構築
             initializeSearchState();
-            // 作業量の 80% をグラフ構築に割り当て
-            buildCallGraph(subMonitor.newChild(80, SubMonitor.SUPPRESS_SUBTASK));
+            // 作業量の 70% をグラフ構築に割り当て
+            buildCallGraph(subMonitor.newChild(70, SubMonitor.SUPPRESS_SUBTASK));
 
-            if (subMonitor.isCanceled()) throw new OperationCanceledException();
+            // フェーズ 1.5: 直接呼び出し箇所の行番号と引数をコンパイルユニット単位でまとめて解析
+            // (キャンセルされた場合は AST を解析せず、行番号だけを設定する)
+            subMonitor.setTaskName("呼び出し箇所の引数を解析中...");
+            resolveCallSiteDetails(directCallsToTargets, subMonitor.newChild(10, SubMonitor.SUPPRESS_SUBTASK));
 
             // フェーズ 2: 根本的な起点の特定と最終結果の生成
             subMonitor.setTaskName("根本的な起点を特定中...");
-            // 作業量の 20% を起点特定に割り当て
-            generateFinalResults(subMonitor.newChild(20, SubMonitor.SUPPRESS_SUBTASK));
+            // 作業量の 20% を起点特定に割り当て (キャンセル後も途中結果を作成するため、キャンセルを確認しない)
+            generateFinalResults(subMonitor.isCanceled() ? new NullProgressMonitor() : subMonitor.newChild(20, SubMonitor.SUPPRESS_SUBTASK));
 
             return new ArrayList<>(finalResults); // 結果のコピーを返す
 
         } catch (OperationCanceledException e) {
-            return Collections.emptyList(); // キャンセルされた場合は空リスト
+            // 呼び出し箇所の解析や起点の特定の途中でキャンセルされた場合も、探索済みのグラフから結果を作成する
+            truncated = true;
+            resolveLineNumbers(directCallsToTargets);
+            generateFinalResults(new NullProgressMonitor());
+            return new ArrayList<>(finalResults);
         } finally {
+            recordSummary(event);
             if (monitor != null) {
                 monitor.done();
             }
         }
     }
 
+    /** 検索全体の計測値を設定し、JFR イベントを記録 */
+    private void recordSummary(RootCallerSearchEvent event) {
+        statistics.setSummary(targetDescription(), callGraph.size(), callGraph.edgeCount(), publishedResultCount, truncated);
+        event.end();
+        if (event.shouldCommit()) {
+            event.target = statistics.getTarget();
+            event.graphNodes = statistics.getGraphNodes();
+            event.graphEdges = statistics.getGraphEdges();
+            event.results = statistics.getResultCount();
+            event.truncated = truncated;
+            event.commit();
+        }
+    }
+
+    /** 計測値とイベントに記録する検索対象 */
+    private String targetDescription() {
+        return targetMethods.size() == 1
+                ? JDTUtils.getMethodQualifiedName(targetMethods.get(0))
+                : targetMethods.size() + " 個のメソッド";
+    }
+
+    /** フェーズの計測を開始 */
+    private static SearchPhaseEvent beginPhase() {
+        SearchPhaseEvent event = new SearchPhaseEvent();
+        event.begin();
+        return event;
+    }
+
+    /** フェーズの所要時間を計測値に加算し、JFR イベントを記録 */
+    private void endPhase(Phase phase, SearchPhaseEvent event, long startNanos, int items) {
+        statistics.addPhaseTime(phase, System.nanoTime() - startNanos);
+        event.end();
+        if (event.shouldCommit()) {
+            event.phase = phase.getKey();
+            event.target = targetDescription();
+            event.items = items;
+            event.commit();
+        }
+    }
+
 
     /** 検索状態を初期化 */
     private void initializeSearchState() {
-        methodsToSearchQueue.clear();
-        processedMethods.clear();
+        searchQueue.clear();
         finalResults.clear();
-        callersMap.clear();
-        directCallsToInitialTarget.clear();
-        methodsToSearchQueue.add(initialTargetMethod);
+        callGraph.clear();
+        directCallsToTargets.clear();
+        recordedDirectCalls.clear();
+        targetNodes.clear();
+        interruptedNodes.clear();
+        truncated = false;
+        publishedResultCount = 0;
+        pathGraph = new AtomicReference<>();
+        statistics.reset();
+        excludedNodes.clear();
+        excludedNodesComputed = 0;
+        for (IMethod target : targetMethods) {
+            if (!target.exists()) {
+                System.err.println("警告(Finder): 検索対象のメソッドが存在しません: " + JDTUtils.formatMethodName(target));
+                continue;
+            }
+            int targetId = nodeId(target);
+            targetNodes.set(targetId);
+            searchQueue.offer(targetId);
+        }
+    }
+
+    /** メソッドのグラフ上のノード ID (未登録の場合は登録する) */
+    private int nodeId(IMethod method) {
+        return callGraph.intern(method.getHandleIdentifier(), method);
     }
 
-    /** フェーズ 1: SearchEngine を使って呼び出し関係を探索し、マップに格納 */
+    /**
+     * フェーズ 1: SearchEngine を使って呼び出し関係を探索し、マップに格納。
+     * 上限に達した場合やキャンセルされた場合は、キューに残ったメソッドを未探索のまま終了する。
+     */
     private void buildCallGraph(IProgressMonitor monitor) throws CoreException {
-        SearchEngine searchEngine = new SearchEngine();
-        IJavaSearchScope scope = SearchEngine.createWorkspaceScope();
+        ExecutorService executor = workerCount > 1 ? Executors.newFixedThreadPool(workerCount, new WorkerThreadFactory()) : null;
+        long deadline = timeLimitMillis > 0 ? System.nanoTime() + timeLimitMillis * 1_000_000L : Long.MAX_VALUE;
+        // 経過時間の上限に達した場合も、実行中の検索をキャンセルと同じ方法で中断させる
+        IProgressMonitor budgetMonitor = new ProgressMonitorWrapper(monitor) {
+            @Override
+            public boolean isCanceled() {
+                return super.isCanceled() || System.nanoTime() > deadline;
+            }
+        };
 
-        // 作業量をキューの初期サイズに基づいて大まかに設定 (動的に増えるため不正確)
-        // monitor.beginTask("呼び出し関係を探索中...", methodsToSearchQueue.size());
+        try {
+            // レベル同期 BFS: キューに溜まったメソッドをフロンティアとしてまとめて取り出し、レベルごとに検索する
+            int depth = 0; // これから検索するフロンティアの深さ (検索対象が 0)
+            while (!searchQueue.isEmpty()) {
+                if (budgetMonitor.isCanceled()
+                        || (maxDepth > 0 && depth >= maxDepth)
+                        || (maxNodes > 0 && callGraph.size() >= maxNodes)) {
+                    truncated = true;
+                    break;
+                }
 
-        while (!methodsToSearchQueue.isEmpty()) {
-            if (monitor.isCanceled()) throw new OperationCanceledException();
+                List<IMethod> frontier = drainFrontier();
+                if (!frontier.isEmpty()) {
+                    SearchPhaseEvent phaseEvent = beginPhase();
+                    long phaseStart = System.nanoTime();
+                    try {
+                        searchFrontier(frontier, executor, budgetMonitor);
+                    } catch (OperationCanceledException e) {
+                        // 中断したレベルの呼び出し元は反映されていないため、レベル全体を未探索として扱う
+                        for (IMethod method : frontier) {
+                            interruptedNodes.set(nodeId(method));
+                        }
+                        truncated = true;
+                        break;
+                    } finally {
+                        endPhase(Phase.REFERENCE_SEARCH, phaseEvent, phaseStart, frontier.size());
+                    }
+                }
+                depth++;
+                if (resultListener != null && !searchQueue.isEmpty()) {
+                    publishResolvedCalls(monitor);
+                }
+            }
+        } finally {
+            if (executor != null) {
+                executor.shutdownNow();
+            }
+        }
+    }
 
-            IMethod currentMethodToSearch = methodsToSearchQueue.remove(0);
+    /** 呼び出し元を検索していないノード (上限やキャンセルで探索を打ち切ったか、まだ探索中) */
+    private boolean isUnexpanded(int node) {
+        return searchQueue.isPending(node) || interruptedNodes.get(node);
+    }
 
-            if (!processedMethods.add(currentMethodToSearch)) continue;
+    /** キュー内のメソッドをすべて取り出し、存在するものをフロンティアとして返す */
+    private List<IMethod> drainFrontier() {
+        int[] level = searchQueue.drain();
+        List<IMethod> frontier = new ArrayList<>(level.length);
+        for (int id : level) {
+            IMethod method = callGraph.get(id);
+            if (!method.exists()) {
+                System.err.println("警告(Finder): キュー内のメソッドが存在しません: " + JDTUtils.formatMethodName(method));
+                continue;
+            }
+            frontier.add(method);
+        }
+        return frontier;
+    }
 
-            if (currentMethodToSearch == null || !currentMethodToSearch.exists()) {
-                System.err.println("警告(Finder): キュー内のメソッドが存在しません: " + JDTUtils.formatMethodName(currentMethodToSearch));
+    /**
+     * フロンティアの呼び出し元を求め、呼び出し関係グラフに反映します。
+     * インデックスに記録済みの呼び出し先は記録を使い、記録後に変更されたユニットだけを再検索します。
+     * 記録がない呼び出し先は呼び出し元になり得るプロジェクトのソースフォルダーを検索し、結果をインデックスに記録します。
+     * private メソッドはインデックスを使わず、宣言しているコンパイルユニットの AST を直接走査します。
+     * オーバーライド関係を考慮する場合は、関係する宣言の呼び出し元も同じ方法で求めてフロンティアのメソッドの呼び出し元にします。
+     * 呼び出し箇所はフロンティアの順序で反映するため、結果の順序は逐次検索と同じになります。
+     */
+    private void searchFrontier(List<IMethod> frontier, ExecutorService executor, IProgressMonitor monitor) {
+        // 呼び出し元を求める宣言 → その呼び出しを反映するフロンティアのメソッド
+        // (インデックスの記録は宣言ごとなので、オーバーライド関係を考慮しても記録の内容は変わらない)
+        Map<IMethod, List<IMethod>> frontierMethodsByDeclaration = new LinkedHashMap<>();
+        for (IMethod method : frontier) {
+            frontierMethodsByDeclaration.computeIfAbsent(method, k -> new ArrayList<>()).add(method);
+            if (resolveOverrides) {
+                for (IMethod related : findRelatedDeclarations(method, monitor)) {
+                    frontierMethodsByDeclaration.computeIfAbsent(related, k -> new ArrayList<>()).add(method);
+                }
+            }
+        }
+        Map<IMethod, List<RoutedMatch>> matchesByCallee = new LinkedHashMap<>();
+        for (IMethod declaration : frontierMethodsByDeclaration.keySet()) {
+            matchesByCallee.put(declaration, new ArrayList<>());
+        }
+
+        List<IMethod> unindexed = new ArrayList<>();
+        Map<IMethod, Set<String>> unitsToRescan = new LinkedHashMap<>();
+        Map<ICompilationUnit, List<IMethod>> privateMethodsByUnit = new LinkedHashMap<>();
+        for (IMethod method : matchesByCallee.keySet()) {
+            ICompilationUnit privateUnit = scopeProvider != null ? getPrivateDeclaringUnit(method) : null;
+            if (privateUnit != null) {
+                privateMethodsByUnit.computeIfAbsent(privateUnit, k -> new ArrayList<>()).add(method);
                 continue;
             }
+            CallerLookup lookup = callIndex != null ? callIndex.lookup(method.getHandleIdentifier()) : null;
+            if (lookup == null) {
+                unindexed.add(method);
+                continue;
+            }
+            statistics.increment(Counter.INDEX_HITS);
+            matchesByCallee.get(method).addAll(toRoutedMatches(lookup.calls));
+            if (!lookup.unitsToRescan.isEmpty()) {
+                unitsToRescan.put(method, lookup.unitsToRescan);
+            }
+        }
+        // 参照後に変更されたユニットは検索開始時の世代より後の変更として扱われる
+        long searchGeneration = callIndex != null ? callIndex.currentGeneration() : 0;
+
+        if (!privateMethodsByUnit.isEmpty()) {
+            // AST を取得できなかったメソッドは通常の検索に回す
+            unindexed.addAll(findPrivateCallers(privateMethodsByUnit, matchesByCallee, monitor));
+        }
+
+        if (!unindexed.isEmpty()) {
+            monitor.subTask(unindexed.size() == 1
+                    ? JDTUtils.formatMethodName(unindexed.get(0)) + " の呼び出し元を検索中..."
+                    : unindexed.size() + " 件のメソッドの呼び出し元を検索中...");
+            for (BatchResult result : searchMethods(groupByScope(unindexed), executor, monitor)) {
+                result.matchesByCallee.forEach((callee, matches) -> {
+                    matchesByCallee.get(callee).addAll(matches);
+                    if (callIndex != null && result.complete) {
+                        callIndex.recordCallers(callee.getHandleIdentifier(), null, toIndexedCalls(matches), searchGeneration);
+                    }
+                });
+            }
+        }
+
+        if (!unitsToRescan.isEmpty()) {
+            rescanChangedUnits(unitsToRescan, matchesByCallee, searchGeneration, executor, monitor);
+        }
+
+        for (Map.Entry<IMethod, List<RoutedMatch>> entry : matchesByCallee.entrySet()) {
+            IMethod declaration = entry.getKey();
+            for (IMethod callee : frontierMethodsByDeclaration.get(declaration)) {
+                for (RoutedMatch routed : entry.getValue()) {
+                    // オーバーライドしたメソッド自身からの super 呼び出しは、そのメソッドへのディスパッチではない
+                    if (callee != declaration && callee.equals(routed.directCaller)) continue;
+                    recordMatch(callee, declaration, routed);
+                }
+            }
+        }
+    }
 
-            monitor.subTask(JDTUtils.formatMethodName(currentMethodToSearch) + " の呼び出し元を検索中...");
+    /**
+     * メソッドとオーバーライド関係にあるソースの宣言を返します。
+     * スーパータイプの宣言 (オーバーライドされているメソッド) は常に、サブタイプの宣言 (オーバーライドしているメソッド) は
+     * メソッドが抽象メソッドの場合だけ含めます。型階層を取得できない場合は空リストを返します。
+     */
+    private List<IMethod> findRelatedDeclarations(IMethod method, IProgressMonitor monitor) {
+        try {
+            IType type = method.getDeclaringType();
+            int flags = method.getFlags();
+            if (type == null || method.isConstructor() || Flags.isStatic(flags) || Flags.isPrivate(flags)) {
+                return List.of();
+            }
+            ITypeHierarchy hierarchy = TypeHierarchyCache.getDefault().getHierarchy(type, createWorkerMonitor(monitor));
+            List<IMethod> related = new ArrayList<>();
+            addCorrespondingMethods(hierarchy.getAllSupertypes(type), method, related);
+            if (isAbstract(method, type)) {
+                addCorrespondingMethods(hierarchy.getAllSubtypes(type), method, related);
+            }
+            return related;
+        } catch (JavaModelException e) {
+            System.err.println("警告(Finder): 型階層を取得できないため、オーバーライド関係を考慮しません: "
+                    + JDTUtils.formatMethodName(method) + " - " + e.getMessage());
+            return List.of();
+        }
+    }
 
-            SearchPattern pattern;
+    /** 型に宣言された、メソッドと同じシグネチャのメソッドを追加 (JAR や JRE の型と private・static のメソッドは除く) */
+    private static void addCorrespondingMethods(IType[] types, IMethod method, List<IMethod> related) throws JavaModelException {
+        for (IType type : types) {
+            if (type.isBinary()) continue;
+            IMethod[] candidates = type.findMethods(method);
+            if (candidates == null) continue;
+            for (IMethod candidate : candidates) {
+                int flags = candidate.getFlags();
+                if (!Flags.isPrivate(flags) && !Flags.isStatic(flags)) related.add(candidate);
+            }
+        }
+    }
+
+    /** 本体を持たないメソッドか (インターフェースのメソッドは default・static・private 以外が抽象) */
+    private static boolean isAbstract(IMethod method, IType declaringType) throws JavaModelException {
+        int flags = method.getFlags();
+        if (Flags.isAbstract(flags)) return true;
+        return declaringType.isInterface() && !Flags.isDefaultMethod(flags) && !Flags.isStatic(flags) && !Flags.isPrivate(flags);
+    }
+
+    /** private メソッドを宣言しているコンパイルユニット。private でない場合や求められない場合は null */
+    private static ICompilationUnit getPrivateDeclaringUnit(IMethod method) {
+        try {
+            return SearchScopeProvider.getPrivateDeclaringUnit(method);
+        } catch (JavaModelException e) {
+            return null;
+        }
+    }
+
+    /**
+     * private メソッドの呼び出し元を、宣言しているコンパイルユニットの AST から求めます。
+     * 1 つのユニットにある複数の private メソッドは 1 回の走査でまとめて求めます。
+     * 走査で得た呼び出し箇所には引数も含まれるため、呼び出し箇所の解析で AST を再度探索する必要はありません。
+     *
+     * @return AST を取得できなかったメソッド
+     */
+    private List<IMethod> findPrivateCallers(Map<ICompilationUnit, List<IMethod>> methodsByUnit,
+                                             Map<IMethod, List<RoutedMatch>> matchesByCallee, IProgressMonitor monitor) {
+        List<IMethod> failed = new ArrayList<>();
+        for (Map.Entry<ICompilationUnit, List<IMethod>> entry : methodsByUnit.entrySet()) {
+            if (monitor.isCanceled()) throw new OperationCanceledException();
+            ICompilationUnit unit = entry.getKey();
+            CompilationUnit ast = AstCache.getDefault().getCachedAst(unit);
+            if (ast != null) {
+                statistics.increment(Counter.AST_CACHE_HITS);
+            } else {
+                try {
+                    ast = AstCache.getDefault().getAst(unit, monitor);
+                    statistics.increment(Counter.AST_PARSES);
+                } catch (JavaModelException e) {
+                    System.err.println("警告(Finder): AST を取得できないため、参照検索で呼び出し元を探します: "
+                            + unit.getElementName() + " - " + e.getMessage());
+                }
+            }
+            if (ast == null) {
+                failed.addAll(entry.getValue());
+                continue;
+            }
+            Map<String, List<IndexedCall>> callsByCallee = CallEdgeExtractor.extract(ast, unit.getHandleIdentifier());
+            statistics.add(Counter.PRIVATE_AST_WALKS, entry.getValue().size());
+            for (IMethod method : entry.getValue()) {
+                matchesByCallee.get(method).addAll(
+                        toRoutedMatches(callsByCallee.getOrDefault(method.getHandleIdentifier(), List.of())));
+            }
+        }
+        return failed;
+    }
+
+    /** インデックスの記録後に変更されたユニットだけを対象に、記録済みの呼び出し先をまとめて再検索する */
+    private void rescanChangedUnits(Map<IMethod, Set<String>> unitsToRescan, Map<IMethod, List<RoutedMatch>> matchesByCallee,
+                                    long searchGeneration, ExecutorService executor, IProgressMonitor monitor) {
+        Set<String> allUnits = new LinkedHashSet<>();
+        unitsToRescan.values().forEach(allUnits::addAll);
+        List<IJavaElement> existingUnits = new ArrayList<>(allUnits.size());
+        for (String unitKey : allUnits) {
+            IJavaElement unit = JavaCore.create(unitKey);
+            if (unit != null && unit.exists()) existingUnits.add(unit);
+        }
+
+        Map<IMethod, List<RoutedMatch>> found = new HashMap<>();
+        boolean complete = true;
+        if (!existingUnits.isEmpty()) {
+            monitor.subTask("変更されたファイル " + existingUnits.size() + " 件を再検索中...");
+            IJavaSearchScope rescanScope = SearchEngine.createJavaSearchScope(existingUnits.toArray(new IJavaElement[0]));
+            for (BatchResult result : searchMethods(Map.of(rescanScope, new ArrayList<>(unitsToRescan.keySet())), executor, monitor)) {
+                found.putAll(result.matchesByCallee);
+                complete &= result.complete;
+            }
+        }
+
+        for (Map.Entry<IMethod, Set<String>> entry : unitsToRescan.entrySet()) {
+            IMethod callee = entry.getKey();
+            Set<String> units = entry.getValue();
+            // 再検索の範囲は他の呼び出し先のユニットも含むため、この呼び出し先で記録が古いユニットのマッチだけを使う
+            List<RoutedMatch> matches = new ArrayList<>();
+            for (RoutedMatch routed : found.getOrDefault(callee, List.of())) {
+                if (units.contains(unitKey(routed.directCaller))) matches.add(routed);
+            }
+            matchesByCallee.get(callee).addAll(matches);
+            if (complete) {
+                callIndex.recordCallers(callee.getHandleIdentifier(), units, toIndexedCalls(matches), searchGeneration);
+            }
+        }
+    }
+
+    /**
+     * メソッドを呼び出し元の検索範囲ごとにまとめます。
+     * 範囲はプロジェクトごとにキャッシュされた同じインスタンスのため、同じプロジェクトのメソッドは同じグループになります。
+     * 範囲を求められない場合はワークスペース全体を検索します。
+     */
+    private Map<IJavaSearchScope, List<IMethod>> groupByScope(List<IMethod> methods) {
+        Map<IJavaSearchScope, List<IMethod>> methodsByScope = new LinkedHashMap<>();
+        IJavaSearchScope workspaceScope = null;
+        for (IMethod method : methods) {
+            IJavaSearchScope scope = null;
+            if (scopeProvider != null) {
+                try {
+                    scope = scopeProvider.getCallerScope(method);
+                } catch (JavaModelException e) {
+                    System.err.println("警告(Finder): 検索範囲を絞り込めないため、ワークスペース全体を検索します: "
+                            + JDTUtils.formatMethodName(method) + " - " + e.getMessage());
+                }
+            }
+            if (scope == null) {
+                if (workspaceScope == null) workspaceScope = SearchEngine.createWorkspaceScope();
+                scope = workspaceScope;
+            }
+            methodsByScope.computeIfAbsent(scope, k -> new ArrayList<>()).add(method);
+        }
+        return methodsByScope;
+    }
+
+    /**
+     * 検索範囲ごとのメソッドをバッチに分割して参照検索を行います。
+     * バッチフロンティア検索が有効な場合は各バッチの参照パターンを OR パターンにまとめて 1 回で検索し、
+     * ワーカーが複数ある場合はバッチを並列に検索します。1 つのバッチには同じ検索範囲のメソッドだけを含めます。
+     */
+    private List<BatchResult> searchMethods(Map<IJavaSearchScope, List<IMethod>> methodsByScope, ExecutorService executor, IProgressMonitor monitor) {
+        int methodCount = 0;
+        for (List<IMethod> methods : methodsByScope.values()) {
+            methodCount += methods.size();
+        }
+        int batchSize = batchFrontierSearch ? frontierBatchSize(methodCount, executor != null) : 1;
+        List<IJavaSearchScope> batchScopes = new ArrayList<>();
+        List<List<IMethod>> batches = new ArrayList<>();
+        methodsByScope.forEach((scope, methods) -> {
+            for (List<IMethod> batch : FrontierMatchRouter.partition(methods, batchSize)) {
+                batchScopes.add(scope);
+                batches.add(batch);
+            }
+        });
+
+        List<BatchResult> batchResults = new ArrayList<>(batches.size());
+        if (executor == null || batches.size() == 1) {
+            for (int i = 0; i < batches.size(); i++) {
+                if (monitor.isCanceled()) throw new OperationCanceledException();
+                batchResults.add(searchBatch(batchScopes.get(i), batches.get(i), monitor));
+            }
+        } else {
+            IProgressMonitor workerMonitor = createWorkerMonitor(monitor);
+            List<Future<BatchResult>> futures = new ArrayList<>(batches.size());
             try {
-                 pattern = SearchPattern.createPattern(currentMethodToSearch, IJavaSearchConstants.REFERENCES);
-                 if (pattern == null) {
-                      System.err.println("警告(Finder): 検索パターンの作成に失敗しました: " + JDTUtils.formatMethodName(currentMethodToSearch));
-                      continue;
-                 }
-            } catch (Exception e) {
-                 System.err.println("エラー(Finder): 検索パターンの作成中に例外が発生しました: " + JDTUtils.formatMethodName(currentMethodToSearch));
-                 e.printStackTrace();
-                 continue;
-            }
-
-            SearchRequestor requestor = new SearchRequestor() {
-                @Override
-                public void acceptSearchMatch(SearchMatch match) throws CoreException {
-                    if (monitor.isCanceled()) throw new OperationCanceledException();
-                    if (match.getAccuracy() != SearchMatch.A_ACCURATE) return;
-
-                    Object element = match.getElement();
-                    IMethod directCallerMethod = findEnclosingMethod(element);
-
-                    if (directCallerMethod != null && directCallerMethod.exists()) {
-                        callersMap.computeIfAbsent(currentMethodToSearch, k -> new HashSet<>()).add(directCallerMethod);
-
-                        if (currentMethodToSearch.equals(initialTargetMethod)) {
-                            boolean alreadyRecorded = directCallsToInitialTarget.stream()
-                                .anyMatch(d -> d.directCaller.equals(directCallerMethod) && d.offset == match.getOffset());
-                            if (!alreadyRecorded) {
-                                // 引数解析は時間がかかる可能性があるため、モニターを渡す
-                                List<String> arguments = parseArgumentsFromMatch(directCallerMethod, match.getOffset(), match.getLength(), monitor);
-                                int lineNumber = JDTUtils.getLineNumber(directCallerMethod.getCompilationUnit(), match.getOffset());
-                                directCallsToInitialTarget.add(
-                                    new DirectCallDetails(directCallerMethod, lineNumber, arguments, match.getOffset(), match.getLength())
-                                );
-                            }
-                        }
+                for (int i = 0; i < batches.size(); i++) {
+                    IJavaSearchScope scope = batchScopes.get(i);
+                    List<IMethod> batch = batches.get(i);
+                    futures.add(executor.submit(() -> searchBatch(scope, batch, workerMonitor)));
+                }
+                for (Future<BatchResult> future : futures) {
+                    batchResults.add(awaitBatch(future, monitor));
+                }
+            } finally {
+                // キャンセルや例外で抜けた場合に残りのバッチを止める (完了済みのものには影響しない)
+                for (Future<?> future : futures) {
+                    future.cancel(true);
+                }
+            }
+        }
+        return batchResults;
+    }
 
-                        if (!isInJar(directCallerMethod) && !processedMethods.contains(directCallerMethod) && !methodsToSearchQueue.contains(directCallerMethod)) {
-                            methodsToSearchQueue.add(directCallerMethod);
-                            // monitor. Kicsit növelni a totalWork-ot? Vagy ismeretlenként hagyni.
-                        }
-                    }
+    /** インデックスの記録を呼び出し箇所に変換 */
+    private static List<RoutedMatch> toRoutedMatches(List<IndexedCall> calls) {
+        List<RoutedMatch> matches = new ArrayList<>(calls.size());
+        for (IndexedCall call : calls) {
+            IJavaElement caller = JavaCore.create(call.callerKey);
+            if (caller instanceof IMethod) {
+                matches.add(new RoutedMatch((IMethod) caller, call.offset, call.length, call.arguments));
+            }
+        }
+        return matches;
+    }
+
+    /** 呼び出し箇所をインデックスの記録形式に変換 */
+    private static List<IndexedCall> toIndexedCalls(List<RoutedMatch> matches) {
+        List<IndexedCall> calls = new ArrayList<>(matches.size());
+        for (RoutedMatch routed : matches) {
+            calls.add(new IndexedCall(routed.directCaller.getHandleIdentifier(), unitKey(routed.directCaller),
+                    routed.offset, routed.length, routed.arguments));
+        }
+        return calls;
+    }
+
+    /** 呼び出し元を含むユニット (コンパイルユニットまたはクラスファイル) のハンドル識別子 */
+    private static String unitKey(IMethod method) {
+        ITypeRoot typeRoot = method.getTypeRoot();
+        return typeRoot != null ? typeRoot.getHandleIdentifier() : method.getHandleIdentifier();
+    }
+
+    /** 1 バッチあたりのメソッド数 (並列実行時はワーカー全体にバッチが行き渡るように小さくする) */
+    private int frontierBatchSize(int frontierSize, boolean parallel) {
+        if (!parallel) return FRONTIER_BATCH_SIZE;
+        int perWorker = (frontierSize + workerCount - 1) / workerCount;
+        return Math.max(1, Math.min(FRONTIER_BATCH_SIZE, perWorker));
+    }
+
+    /**
+     * 1 バッチ分の参照検索を実行し、マッチを呼び出し先ごとに振り分けて返します。
+     * ワーカースレッドから呼び出されるため共有状態は更新せず、グラフへの反映は呼び出し元のスレッドで行います。
+     */
+    private BatchResult searchBatch(IJavaSearchScope scope, List<IMethod> batch, IProgressMonitor monitor) {
+        BatchResult result = new BatchResult();
+        Map<IMethod, List<RoutedMatch>> matchesByCallee = result.matchesByCallee;
+        List<IMethod> searchable = new ArrayList<>(batch.size());
+        SearchPattern orPattern = null;
+        for (IMethod method : batch) {
+            SearchPattern pattern = createReferencePattern(method);
+            if (pattern == null) continue;
+            searchable.add(method);
+            matchesByCallee.put(method, new ArrayList<>());
+            orPattern = orPattern == null ? pattern : SearchPattern.createOrPattern(orPattern, pattern);
+        }
+        if (orPattern == null) return result;
+
+        FrontierMatchRouter router = new FrontierMatchRouter(searchable);
+        // リクエスターは検索を実行するスレッドからだけ呼び出される
+        int[] acceptedAndRejected = new int[2];
+        SearchRequestor requestor = new SearchRequestor() {
+            @Override
+            public void acceptSearchMatch(SearchMatch match) throws CoreException {
+                if (monitor.isCanceled()) throw new OperationCanceledException();
+                if (match.getAccuracy() != SearchMatch.A_ACCURATE) {
+                    acceptedAndRejected[1]++;
+                    return;
+                }
+
+                IMethod callee = router.route(match);
+                if (callee == null) {
+                    System.err.println("警告(Finder): マッチの呼び出し先を特定できませんでした: " + match);
+                    acceptedAndRejected[1]++;
+                    return;
                 }
-            };
+                IMethod directCallerMethod = findEnclosingMethod(match.getElement());
+                if (directCallerMethod == null || !directCallerMethod.exists()) {
+                    acceptedAndRejected[1]++;
+                    return;
+                }
+
+                matchesByCallee.get(callee).add(new RoutedMatch(directCallerMethod, match.getOffset(), match.getLength(), null));
+                acceptedAndRejected[0]++;
+            }
+        };
+        String description = searchable.size() == 1 ? JDTUtils.formatMethodName(searchable.get(0)) : searchable.size() + " 件のフロンティア";
+        ReferenceSearchEvent event = new ReferenceSearchEvent();
+        event.begin();
+        try {
+            result.complete = runSearch(new SearchEngine(), orPattern, scope, requestor, description, monitor);
+        } finally {
+            statistics.add(Counter.MATCHES_ACCEPTED, acceptedAndRejected[0]);
+            statistics.add(Counter.MATCHES_REJECTED, acceptedAndRejected[1]);
+            event.end();
+            if (event.shouldCommit()) {
+                event.methods = searchable.size();
+                event.acceptedMatches = acceptedAndRejected[0];
+                event.rejectedMatches = acceptedAndRejected[1];
+                event.complete = result.complete;
+                event.commit();
+            }
+        }
+        return result;
+    }
 
+    /** ワーカーのバッチ検索の完了を待つ。待機中もモニターのキャンセルを確認する */
+    private BatchResult awaitBatch(Future<BatchResult> future, IProgressMonitor monitor) {
+        while (true) {
+            if (monitor.isCanceled()) throw new OperationCanceledException();
             try {
-                searchEngine.search(pattern,
-                                    new SearchParticipant[]{SearchEngine.getDefaultSearchParticipant()},
-                                    scope,
-                                    requestor,
-                                    monitor); // Pass monitor for cancellation
-            } catch (CoreException ce) {
-                 System.err.println("エラー(Finder): SearchEngine.search 中に CoreException (メソッド: " + JDTUtils.formatMethodName(currentMethodToSearch) + ")");
-                 ce.printStackTrace();
-                 // Stop or continue? Let's continue for now.
-                 continue;
-            } catch (Exception ex) {
-                 System.err.println("エラー(Finder): SearchEngine.search 中に予期せぬ例外 (メソッド: " + JDTUtils.formatMethodName(currentMethodToSearch) + ")");
-                 ex.printStackTrace();
-                 continue;
-            }
-            // monitor.worked(1); // 1メソッド分の探索完了
-        }
-        // monitor.done();
-    }
-
-    /** フェーズ 2: directCallsToInitialTarget リストを元に、各呼び出しの根本起点を探し、最終結果を生成 */
+                return future.get(CANCEL_POLL_INTERVAL_MS, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                // キャンセル確認のため待機を繰り返す
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new OperationCanceledException();
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+                if (cause instanceof Error) throw (Error) cause;
+                throw new IllegalStateException(cause);
+            }
+        }
+    }
+
+    /** ワーカースレッド用のモニター。キャンセル状態だけを元のモニターに委譲する (IProgressMonitor はスレッドセーフではないため) */
+    private static IProgressMonitor createWorkerMonitor(IProgressMonitor monitor) {
+        return new NullProgressMonitor() {
+            @Override
+            public boolean isCanceled() {
+                return monitor.isCanceled();
+            }
+        };
+    }
+
+    /** 検索ワーカー用のデーモンスレッドを生成 */
+    private static class WorkerThreadFactory implements ThreadFactory {
+        private final AtomicInteger threadNumber = new AtomicInteger(1);
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "RootCallerFinder-worker-" + threadNumber.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+
+    /** 参照検索用のパターンを作成。失敗した場合は null */
+    private SearchPattern createReferencePattern(IMethod method) {
+        try {
+            SearchPattern pattern = SearchPattern.createPattern(method, IJavaSearchConstants.REFERENCES);
+            if (pattern == null) {
+                System.err.println("警告(Finder): 検索パターンの作成に失敗しました: " + JDTUtils.formatMethodName(method));
+            }
+            return pattern;
+        } catch (Exception e) {
+            System.err.println("エラー(Finder): 検索パターンの作成中に例外が発生しました: " + JDTUtils.formatMethodName(method));
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * SearchEngine.search を実行。キャンセル以外の例外はログに出力して探索を続行する
+     *
+     * @return 検索が最後まで完了した場合は true
+     */
+    private boolean runSearch(SearchEngine searchEngine, SearchPattern pattern, IJavaSearchScope scope,
+                           SearchRequestor requestor, String description, IProgressMonitor monitor) {
+        statistics.increment(Counter.SEARCH_ENGINE_CALLS);
+        try {
+            searchEngine.search(pattern,
+                                new SearchParticipant[]{SearchEngine.getDefaultSearchParticipant()},
+                                scope,
+                                requestor,
+                                monitor); // Pass monitor for cancellation
+            return true;
+        } catch (OperationCanceledException e) {
+            throw e;
+        } catch (CoreException ce) {
+            System.err.println("エラー(Finder): SearchEngine.search 中に CoreException (対象: " + description + ")");
+            ce.printStackTrace();
+        } catch (Exception ex) {
+            System.err.println("エラー(Finder): SearchEngine.search 中に予期せぬ例外 (対象: " + description + ")");
+            ex.printStackTrace();
+        }
+        return false;
+    }
+
+    /**
+     * 呼び出し先 callee に対する呼び出し箇所を呼び出し関係グラフに反映し、呼び出し元を探索キューに追加します。
+     * declaration は呼び出し箇所を検索した宣言で、オーバーライド関係を考慮しない場合は callee と同じです。
+     * フロンティアの順序で呼び出し元のスレッドから呼ばれるため、ノード ID は逐次検索と同じ順序で振られます。
+     */
+    private void recordMatch(IMethod callee, IMethod declaration, RoutedMatch routed) {
+        IMethod directCallerMethod = routed.directCaller;
+        int calleeId = nodeId(callee);
+        int callerId = nodeId(directCallerMethod);
+        callGraph.addEdge(calleeId, callerId);
+
+        // 引数の解析は検索コールバック内では行わず、resolveCallSiteDetails でまとめて行う
+        if (targetNodes.get(calleeId) && recordedDirectCalls.computeIfAbsent(calleeId, k -> new LongHashSet())
+                .add(LongHashSet.pack(callerId, routed.offset))) {
+            directCallsToTargets.add(new DirectCallDetails(callee, declaration, directCallerMethod, routed.offset, routed.length, routed.arguments));
+        }
+
+        if (!isInJar(directCallerMethod)) {
+            searchQueue.offer(callerId);
+        }
+    }
+
+    /**
+     * フェーズ 2: directCallsToTargets リストを元に、各呼び出しの根本起点を探し、最終結果を生成。
+     * 起点は RootResolver で呼び出し関係グラフを強連結成分に縮約して SCC ごとに 1 回だけ計算し、直接呼び出し間で共有する。
+     */
     private void generateFinalResults(IProgressMonitor monitor) {
         finalResults.clear();
-        int total = directCallsToInitialTarget.size();
+        int total = directCallsToTargets.size();
         monitor.beginTask("根本的な起点を特定中...", total > 0 ? total : 1);
 
         if (total == 0) {
              monitor.done();
              return;
         }
+        SearchPhaseEvent phaseEvent = beginPhase();
+        long phaseStart = System.nanoTime();
+        try {
+            resolveRoots(monitor);
+        } finally {
+            endPhase(Phase.ROOT_RESOLUTION, phaseEvent, phaseStart, total);
+        }
+        monitor.done();
+    }
 
-        for (DirectCallDetails details : directCallsToInitialTarget) {
-            if (monitor.isCanceled()) throw new OperationCanceledException();
-            monitor.subTask("起点を確認中: " + JDTUtils.formatMethodName(details.directCaller));
+    /** すべての直接呼び出しの起点を特定して最終結果を作成し、未通知の結果をリスナーに通知 */
+    private void resolveRoots(IProgressMonitor monitor) {
 
-            Set<IMethod> rootCallers = findAllRootCallers(details.directCaller, this.callersMap);
+        BitSet excluded = findExcludedNodes();
+        RootResolver rootResolver = new RootResolver(callGraph, excluded::get, this::isUnexpanded);
+        ShortestPaths shortestPaths = recordPaths ? new ShortestPaths(callGraph, excluded::get) : null;
 
-            if (rootCallers.isEmpty()) {
-                 System.err.println("警告(Finder): 根本的な呼び出し元が見つかりませんでした: " + JDTUtils.formatMethodName(details.directCaller));
-                 finalResults.add(new CallInfo(details.directCaller, details.directCaller, details.lineNumber, details.arguments));
-            } else {
-                for (IMethod rootCaller : rootCallers) {
-                    finalResults.add(new CallInfo(rootCaller, details.directCaller, details.lineNumber, details.arguments));
-                }
+        List<CallInfo> unpublished = new ArrayList<>();
+        List<DirectCallDetails> publishing = new ArrayList<>();
+        for (DirectCallDetails details : directCallsToTargets) {
+            if (monitor.isCanceled()) throw new OperationCanceledException();
+
+            if (retainResults) {
+                List<CallInfo> infos = createCallInfos(details, rootResolver, shortestPaths);
+                finalResults.addAll(infos);
+                if (!details.published) unpublished.addAll(infos);
+            } else if (!details.published) {
+                unpublished.addAll(createCallInfos(details, rootResolver, shortestPaths));
             }
+            if (!details.published) publishing.add(details);
             monitor.worked(1);
         }
-        monitor.done();
+        // 途中でキャンセルされた場合は再度作成して通知するため、通知済みの印は最後に付ける
+        for (DirectCallDetails details : publishing) {
+            details.published = true;
+        }
+        if (recordPaths) {
+            // 検索中に通知した結果を含め、この検索のすべての結果が同じグラフを参照する
+            pathGraph.set(CallPaths.snapshot(callGraph, excluded::get));
+        }
+        publishedResultCount += unpublished.size();
+        if (resultListener != null && !unpublished.isEmpty()) {
+            resultListener.resultsFound(unpublished);
+        }
     }
 
-    /** 指定されたメソッドから呼び出し元マップを遡り、考えられる全ての根本的な起点を探します */
-    private Set<IMethod> findAllRootCallers(IMethod startMethod, Map<IMethod, Set<IMethod>> callersMap) {
-        Set<IMethod> roots = new HashSet<>();
-        findAllRootCallersRecursive(startMethod, callersMap, roots, new HashSet<>());
-        return roots;
+    /**
+     * 直接呼び出し 1 件分の結果 (起点ごとに 1 行) を作成。
+     * 探索を打ち切ったメソッドは呼び出し元がないものとして起点になるため、その行は打ち切りとして印を付ける。
+     */
+    private List<CallInfo> createCallInfos(DirectCallDetails details, RootResolver rootResolver, ShortestPaths shortestPaths) {
+        int directCallerId = nodeId(details.directCaller);
+        int[] rootCallers = rootResolver.rootsOf(directCallerId);
+        if (rootCallers.length == 0) {
+            // 呼び出し元が循環しているだけで外部からの起点がない場合など
+            CallPath path = shortestPaths != null
+                    ? new CallPath(pathGraph, directCallerId, directCallerId, List.of(details.directCaller)) : null;
+            return List.of(new CallInfo(details.target, details.directCaller, details.directCaller, details.lineNumber, details.arguments,
+                    !rootResolver.isResolved(directCallerId), path));
+        }
+        int[][] paths = shortestPaths != null ? shortestPaths.pathsTo(directCallerId, rootCallers) : null;
+        List<CallInfo> infos = new ArrayList<>(rootCallers.length);
+        for (int i = 0; i < rootCallers.length; i++) {
+            int rootCaller = rootCallers[i];
+            CallPath path = paths != null ? new CallPath(pathGraph, rootCaller, directCallerId, toMethods(paths[i])) : null;
+            infos.add(new CallInfo(details.target, callGraph.get(rootCaller), details.directCaller, details.lineNumber, details.arguments,
+                    isUnexpanded(rootCaller), path));
+        }
+        return infos;
     }
 
-    /** findAllRootCallers のための再帰ヘルパーメソッド */
-    private void findAllRootCallersRecursive(IMethod currentMethod,
-                                             Map<IMethod, Set<IMethod>> callersMap,
-                                             Set<IMethod> roots,
-                                             Set<IMethod> visitedInPath) {
-        if (!visitedInPath.add(currentMethod)) {
-             System.err.println("findAllRootCallersRecursive: 循環呼び出しを検出しました: " + JDTUtils.formatMethodName(currentMethod));
-            return;
+    /** ノード ID の列をメソッドのリストに変換 */
+    private List<IMethod> toMethods(int[] nodes) {
+        IMethod[] methods = new IMethod[nodes.length];
+        for (int i = 0; i < nodes.length; i++) {
+            methods[i] = callGraph.get(nodes[i]);
         }
-        Set<IMethod> callers = callersMap.get(currentMethod);
-        if (callers == null || callers.isEmpty()) {
-            if (!isInJar(currentMethod)) { // JAR由来はルートとしない
-                 roots.add(currentMethod);
-            }
-        } else {
-            boolean canRecurseFurther = false;
-            for (IMethod caller : callers) {
-                 if (caller != null && caller.exists()) {
-                    if (!isInJar(caller)) { // JAR由来でない場合のみ再帰
-                        canRecurseFurther = true;
-                        findAllRootCallersRecursive(caller, callersMap, roots, visitedInPath);
-                    }
-                 } else {
-                     System.err.println("findAllRootCallersRecursive: 存在しない、または不正な呼び出し元をスキップします。");
-                     // このパスはここで止まるが、currentMethodがルートとは限らない
-                 }
+        return List.of(methods);
+    }
+
+    /**
+     * グラフの構築中に、起点が確定した直接呼び出しの結果をリスナーに通知します。
+     * 呼び出し元側がすべて検索済みの直接呼び出しは、この後の探索で起点が変わらないため先に出力できます。
+     */
+    private void publishResolvedCalls(IProgressMonitor monitor) {
+        List<DirectCallDetails> resolved = new ArrayList<>();
+        SearchPhaseEvent phaseEvent = beginPhase();
+        long phaseStart = System.nanoTime();
+        BitSet excluded = findExcludedNodes();
+        RootResolver rootResolver = new RootResolver(callGraph, excluded::get, this::isUnexpanded);
+        ShortestPaths shortestPaths = recordPaths ? new ShortestPaths(callGraph, excluded::get) : null;
+        for (DirectCallDetails details : directCallsToTargets) {
+            if (!details.published && rootResolver.isResolved(nodeId(details.directCaller))) {
+                resolved.add(details);
             }
-            // 非JARの呼び出し元が一つもなかった場合、現在のメソッドが実質的なルート
-            if (!canRecurseFurther && !isInJar(currentMethod)) {
-                 roots.add(currentMethod);
+        }
+        endPhase(Phase.ROOT_RESOLUTION, phaseEvent, phaseStart, resolved.size());
+        if (resolved.isEmpty()) return;
+
+        // 進捗はグラフ構築の作業量に含めるため、キャンセル状態だけを共有する
+        resolveCallSiteDetails(resolved, createWorkerMonitor(monitor));
+        // 呼び出し箇所の解析は別のフェーズとして計測し、その後の結果の作成を起点の特定に加える
+        phaseStart = System.nanoTime();
+        List<CallInfo> results = new ArrayList<>();
+        for (DirectCallDetails details : resolved) {
+            results.addAll(createCallInfos(details, rootResolver, shortestPaths));
+            details.published = true;
+        }
+        statistics.addPhaseTime(Phase.ROOT_RESOLUTION, System.nanoTime() - phaseStart);
+        publishedResultCount += results.size();
+        resultListener.resultsFound(results);
+    }
+
+    /** 起点の探索で辿らないノード (JAR 由来、または存在しないメソッド)。前回の呼び出し以降に追加されたノードだけを判定する */
+    private BitSet findExcludedNodes() {
+        for (int id = excludedNodesComputed; id < callGraph.size(); id++) {
+            IMethod method = callGraph.get(id);
+            if (!method.exists() || isInJar(method)) {
+                excludedNodes.set(id);
             }
         }
-        visitedInPath.remove(currentMethod);
+        excludedNodesComputed = callGraph.size();
+        return excludedNodes;
     }
 
     /** 指定された IMethod が JAR アーカイブファイルに含まれているかどうかを判定 */
@@ -286,23 +1177,112 @@ public class RootCallerFinder {
         return null;
     }
 
-    /** SearchMatch の位置情報を使用して、呼び出し箇所の引数を AST を使って解析 */
-    private List<String> parseArgumentsFromMatch(IMethod callerMethod, int matchOffset, int matchLength, IProgressMonitor monitor) {
-        // このメソッドは JDTUtils に移しても良いかもしれない
-        ICompilationUnit cu = callerMethod.getCompilationUnit();
-        if (cu == null || !cu.exists()) return List.of("ソースなし");
+    /**
+     * フェーズ 1.5: 検索対象への直接呼び出しをコンパイルユニットごとにまとめ、行番号と引数を解析します。
+     * キャッシュ済みの AST があるユニットはそれを使い、残りはプロジェクトごとに ASTParser.createASTs で一括解析します
+     * (バインディング解決の環境をユニット間で共有できるため、ユニットごとの createAST より大幅に安い)。
+     */
+    private void resolveCallSiteDetails(List<DirectCallDetails> targets, IProgressMonitor monitor) {
+        SearchPhaseEvent phaseEvent = beginPhase();
+        long phaseStart = System.nanoTime();
+        try {
+            resolveUnresolvedCallSites(targets, monitor);
+        } finally {
+            endPhase(Phase.CALL_SITE_ANALYSIS, phaseEvent, phaseStart, targets.size());
+        }
+    }
+
+    /** 行番号と引数が未解析の呼び出し箇所を解析 */
+    private void resolveUnresolvedCallSites(List<DirectCallDetails> targets, IProgressMonitor monitor) {
+        List<DirectCallDetails> unresolved = new ArrayList<>(targets.size());
+        for (DirectCallDetails details : targets) {
+            if (!details.detailsResolved) unresolved.add(details);
+        }
+        Map<ICompilationUnit, List<DirectCallDetails>> callsByUnit = new LinkedHashMap<>();
+        for (DirectCallDetails details : unresolved) {
+            if (details.argumentsResolved) continue; // 行番号は最後に行頭オフセット表から求める
+            ICompilationUnit cu = details.directCaller.getCompilationUnit();
+            if (cu == null || !cu.exists()) {
+                details.arguments = List.of("ソースなし");
+                continue;
+            }
+            callsByUnit.computeIfAbsent(cu, k -> new ArrayList<>()).add(details);
+        }
+        SubMonitor subMonitor = SubMonitor.convert(monitor, "呼び出し箇所の引数を解析中...", callsByUnit.size() + 1);
+
+        Map<IJavaProject, List<ICompilationUnit>> unitsToParse = new LinkedHashMap<>();
+        for (Map.Entry<ICompilationUnit, List<DirectCallDetails>> entry : callsByUnit.entrySet()) {
+            ICompilationUnit cu = entry.getKey();
+            CompilationUnit cachedAst = AstCache.getDefault().getCachedAst(cu);
+            if (cachedAst != null) {
+                statistics.increment(Counter.AST_CACHE_HITS);
+                applyCallSiteDetails(cachedAst, entry.getValue());
+                subMonitor.worked(1);
+            } else {
+                unitsToParse.computeIfAbsent(cu.getJavaProject(), k -> new ArrayList<>()).add(cu);
+            }
+        }
 
         try {
-            ASTParser parser = ASTParser.newParser(AST.JLS_Latest);
-            parser.setSource(cu);
-            parser.setKind(ASTParser.K_COMPILATION_UNIT);
-            parser.setResolveBindings(true);
-            parser.setBindingsRecovery(true);
-            CompilationUnit astRoot = (CompilationUnit) parser.createAST(monitor); // Pass monitor
+            for (Map.Entry<IJavaProject, List<ICompilationUnit>> entry : unitsToParse.entrySet()) {
+                if (subMonitor.isCanceled()) throw new OperationCanceledException();
 
-            if (monitor != null && monitor.isCanceled()) throw new OperationCanceledException();
+                List<ICompilationUnit> units = entry.getValue();
+                ASTParser parser = ASTParser.newParser(AST.JLS_Latest);
+                parser.setProject(entry.getKey());
+                parser.setResolveBindings(true);
+                parser.setBindingsRecovery(true);
+                ASTRequestor requestor = new ASTRequestor() {
+                    @Override
+                    public void acceptAST(ICompilationUnit source, CompilationUnit ast) {
+                        if (subMonitor.isCanceled()) throw new OperationCanceledException();
+                        statistics.increment(Counter.AST_PARSES);
+                        List<DirectCallDetails> calls = callsByUnit.get(source);
+                        if (calls != null) {
+                            applyCallSiteDetails(ast, calls);
+                        }
+                    }
+                };
+                // 一括解析した AST は環境を共有しているため AstCache には入れず、解析後すぐに解放させる
+                parser.createASTs(units.toArray(new ICompilationUnit[0]), new String[0], requestor, subMonitor.split(units.size()));
+            }
+        } catch (OperationCanceledException e) {
+            // キャンセルされた場合は残りのユニットの解析を省略する (途中結果の引数は「引数情報取得不可」のまま)
+        }
+
+        resolveLineNumbers(unresolved);
+    }
 
-            NodeFinder nodeFinder = new NodeFinder(astRoot, matchOffset, matchLength);
+    /**
+     * 行番号が未設定の呼び出し箇所の行番号を行頭オフセット表から求め、解析済みとする。
+     * 引数がインデックスにあった呼び出しや、解析できなかったユニット (解析エラーなど)、キャンセルで解析を省略した呼び出しが対象。
+     */
+    private void resolveLineNumbers(List<DirectCallDetails> calls) {
+        for (DirectCallDetails details : calls) {
+            if (details.detailsResolved) continue;
+            if (details.lineNumber <= 0 && details.directCaller.getCompilationUnit() != null) {
+                details.lineNumber = JDTUtils.getLineNumber(details.directCaller.getCompilationUnit(), details.offset);
+            }
+            details.detailsResolved = true;
+        }
+    }
+
+    /** 解析済みの AST から、コンパイルユニット内の各呼び出し箇所の行番号と引数を設定 */
+    private void applyCallSiteDetails(CompilationUnit astRoot, List<DirectCallDetails> calls) {
+        for (DirectCallDetails details : calls) {
+            // AST の行番号表を使う (範囲外の場合は負の値になり、最後に行頭オフセット表から求め直す)
+            details.lineNumber = astRoot.getLineNumber(details.offset);
+            details.arguments = parseArgumentsFromAst(astRoot, details);
+        }
+    }
+
+    /**
+     * SearchMatch の位置情報を使用して、呼び出し箇所の引数を AST から取得。
+     * 呼び出しのバインディングは、検索対象ではなく呼び出し箇所を検索した宣言 (インターフェースのメソッドなど) と比較する
+     */
+    private List<String> parseArgumentsFromAst(CompilationUnit astRoot, DirectCallDetails details) {
+        try {
+            NodeFinder nodeFinder = new NodeFinder(astRoot, details.offset, details.length);
             ASTNode node = nodeFinder.getCoveringNode();
             MethodInvocation invocation = null;
             List<String> argStrings = new ArrayList<>();
@@ -315,7 +1295,7 @@ public class RootCallerFinder {
                 else if (parent instanceof SuperMethodInvocation) {
                      SuperMethodInvocation superInv = (SuperMethodInvocation) parent;
                      IMethodBinding binding = superInv.resolveMethodBinding();
-                     if (binding != null && binding.getJavaElement() != null && binding.getJavaElement().equals(this.initialTargetMethod)) {
+                     if (binding != null && binding.getJavaElement() != null && binding.getJavaElement().equals(details.declaration)) {
                          @SuppressWarnings("unchecked") List<Expression> arguments = superInv.arguments();
                          for (Expression arg : arguments) argStrings.add(JDTUtils.expressionToString(arg));
                          return argStrings; // Return early for SuperMethodInvocation
@@ -328,7 +1308,7 @@ public class RootCallerFinder {
                 IMethodBinding methodBinding = invocation.resolveMethodBinding();
                 if (methodBinding != null) {
                     IJavaElement resolvedElement = methodBinding.getJavaElement();
-                    if (resolvedElement != null && resolvedElement.equals(this.initialTargetMethod)) {
+                    if (resolvedElement != null && resolvedElement.equals(details.declaration)) {
                         @SuppressWarnings("unchecked") List<Expression> arguments = invocation.arguments();
                         for (Expression arg : arguments) argStrings.add(JDTUtils.expressionToString(arg));
                         return argStrings; // Return arguments
@@ -341,7 +1321,7 @@ public class RootCallerFinder {
         } catch (OperationCanceledException e) {
              throw e;
         } catch (Exception e) {
-             System.err.println("エラー(Finder): AST解析中に例外 (" + JDTUtils.formatMethodName(callerMethod) + "): " + e.getMessage());
+             System.err.println("エラー(Finder): AST解析中に例外 (" + JDTUtils.formatMethodName(details.directCaller) + "): " + e.getMessage());
              // e.printStackTrace();
             return List.of("AST解析エラー");
         }
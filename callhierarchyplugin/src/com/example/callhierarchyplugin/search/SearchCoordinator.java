@@ -0,0 +1,363 @@
+package com.example.callhierarchyplugin.search;
+
+import org.eclipse.core.runtime.*;
+import org.eclipse.core.runtime.jobs.IJobChangeEvent;
+import org.eclipse.core.runtime.jobs.ISchedulingRule;
+import org.eclipse.core.runtime.jobs.JobChangeAdapter;
+import org.eclipse.jdt.core.IMethod;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 根本起点の検索ジョブを共有・制御するコーディネーター。
+ * <ul>
+ * <li>同じメソッドに対する検索要求は、実行中の 1 つのジョブにまとめる (シングルフライト)</li>
+ * <li>要求元がすべて {@link Subscription#cancel()} した検索はジョブをキャンセルする</li>
+ * <li>同時に実行する検索の数はスケジューリングルール (検索スロット) で制限する</li>
+ * <li>結果を保持しない検索 ({@link #streamAndWait}) は、他の要求と共有できる場合だけ共有する</li>
+ * </ul>
+ * ビューとCSV出力のどちらからの検索も {@link #getDefault()} のインスタンスを経由してください。
+ */
+public class SearchCoordinator {
+
+    /** 同時に実行する検索の数のデフォルト (各検索は内部でプロセッサ数分のワーカーを使うため小さくする) */
+    private static final int DEFAULT_MAX_CONCURRENT_SEARCHES = 2;
+
+    /** 待機中にキャンセルを確認する間隔 (ミリ秒) */
+    private static final long CANCEL_POLL_INTERVAL_MS = 100;
+
+    /** 画面に表示する検索 (共有する検索) のグラフ構築時間の上限のデフォルト (ミリ秒) */
+    private static final long DEFAULT_INTERACTIVE_TIME_LIMIT_MS = 10_000;
+
+    private static final SearchCoordinator DEFAULT = new SearchCoordinator(DEFAULT_MAX_CONCURRENT_SEARCHES);
+
+    /** 検索の完了通知を受け取るリスナー */
+    public interface Listener {
+        /**
+         * 検索中に起点が確定した結果を、ジョブのスレッドから通知します。
+         * 要求した時点で既に確定していた結果もまとめて通知されます。
+         * 通知された結果は {@link #searchDone} の結果にもすべて含まれます。
+         */
+        default void resultsFound(IMethod target, List<CallInfo> results) {
+        }
+
+        /**
+         * 検索が終了したときに、ジョブのスレッドから呼び出されます。
+         *
+         * @param status ジョブの結果 (OK / CANCEL / ERROR)
+         * @param results 検索結果。CANCEL の場合はキャンセルまでの途中結果、ERROR の場合は空リスト
+         */
+        void searchDone(IMethod target, IStatus status, List<CallInfo> results);
+
+        /**
+         * 検索が終了したときに、{@link #searchDone} の前に検索の計測値を通知します。
+         * 検索を開始できなかった場合は通知されません。
+         */
+        default void statisticsAvailable(IMethod target, SearchStatistics statistics) {
+        }
+    }
+
+    /** 検索要求の登録。不要になったら {@link #cancel()} を呼び出してください。 */
+    public class Subscription {
+        private final SharedSearch search;
+        private final Listener listener;
+
+        private Subscription(SharedSearch search, Listener listener) {
+            this.search = search;
+            this.listener = listener;
+        }
+
+        /** この要求を取り消します。他に要求元がない場合は検索ジョブもキャンセルします。 */
+        public void cancel() {
+            unsubscribe(search, listener);
+        }
+    }
+
+    /** 検索スロット。同じスロットのジョブ同士だけが競合するため、スロット数が同時実行数の上限になる */
+    private static class SearchSlotRule implements ISchedulingRule {
+        final int slot;
+
+        SearchSlotRule(int slot) {
+            this.slot = slot;
+        }
+
+        @Override
+        public boolean contains(ISchedulingRule rule) {
+            return rule == this;
+        }
+
+        @Override
+        public boolean isConflicting(ISchedulingRule rule) {
+            return rule == this;
+        }
+    }
+
+    /** 実行中の検索と、その結果を待っている要求元 */
+    private static class SharedSearch {
+        final String key;
+        final RecursiveCallerSearchJob job;
+        final List<Listener> listeners = new ArrayList<>();
+        // 途中で参加した要求元に再通知するための、これまでに確定した結果 (shared の場合のみ)
+        final List<CallInfo> partialResults = new ArrayList<>();
+        // 結果を保持し、後から参加する要求元と共有する検索か
+        final boolean shared;
+        // グラフ構築時間の上限がある (結果が打ち切られている可能性がある) 検索か
+        final boolean timeLimited;
+        int slot;
+
+        SharedSearch(String key, RecursiveCallerSearchJob job, boolean shared, boolean timeLimited) {
+            this.key = key;
+            this.job = job;
+            this.shared = shared;
+            this.timeLimited = timeLimited;
+        }
+    }
+
+    private final SearchSlotRule[] slots;
+    private final int[] slotLoads;
+    private final Map<String, SharedSearch> inFlight = new HashMap<>();
+    private volatile long interactiveTimeLimitMillis = DEFAULT_INTERACTIVE_TIME_LIMIT_MS;
+    private volatile boolean resolveOverrides;
+    private volatile boolean recordPaths;
+
+    public SearchCoordinator(int maxConcurrentSearches) {
+        int count = Math.max(1, maxConcurrentSearches);
+        slots = new SearchSlotRule[count];
+        slotLoads = new int[count];
+        for (int i = 0; i < count; i++) {
+            slots[i] = new SearchSlotRule(i);
+        }
+    }
+
+    /**
+     * {@link #search} と {@link #searchAndWait} で開始する検索の、グラフ構築時間の上限 (ミリ秒) を設定します。
+     * 0 以下の場合は無制限です。上限に達した検索は打ち切った時点の結果 (起点が未確定の行を含む) を返します。
+     * 結果を保持しない {@link #streamAndWait} の検索には上限を設けません。
+     */
+    public void setInteractiveTimeLimit(long timeLimitMillis) {
+        this.interactiveTimeLimitMillis = timeLimitMillis;
+    }
+
+    /**
+     * これから開始する検索で、オーバーライド関係を考慮して呼び出し元を求めるかどうかを設定します。
+     * 設定の異なる検索は結果が異なるため、同じメソッドでも共有しません。
+     */
+    public void setResolveOverrides(boolean resolveOverrides) {
+        this.resolveOverrides = resolveOverrides;
+    }
+
+    /** オーバーライド関係を考慮して呼び出し元を求める設定か */
+    public boolean isResolveOverrides() {
+        return resolveOverrides;
+    }
+
+    /**
+     * これから開始する検索で、起点から直接の呼び出し元までの呼び出し経路を記録するかどうか (経路モード) を設定します。
+     * 経路を記録しない検索の結果には経路がないため、同じメソッドでも共有しません。
+     */
+    public void setRecordPaths(boolean recordPaths) {
+        this.recordPaths = recordPaths;
+    }
+
+    /** 呼び出し経路を記録する設定か */
+    public boolean isRecordPaths() {
+        return recordPaths;
+    }
+
+    /** プラグイン全体で共有するコーディネーターを返します。 */
+    public static SearchCoordinator getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * メソッドの根本起点の検索を要求します。同じメソッドの検索が実行中の場合はそのジョブの結果を共有します。
+     *
+     * @return 要求の登録。結果が不要になった場合 (新しい検索で置き換えた場合など) は cancel() を呼び出す
+     */
+    public Subscription search(IMethod target, Listener listener) {
+        return subscribe(target, listener, true);
+    }
+
+    private synchronized Subscription subscribe(IMethod target, Listener listener, boolean shared) {
+        boolean overrides = resolveOverrides;
+        boolean paths = recordPaths;
+        String key = target.getHandleIdentifier() + (overrides ? "#overrides" : "") + (paths ? "#paths" : "");
+        SharedSearch search = inFlight.get(key);
+        // 上限のない検索 (CSV 出力など) は、時間の上限で打ち切られる可能性のある検索を共有しない
+        if (search == null || (!shared && search.timeLimited)) {
+            search = start(key, target, shared, overrides, paths);
+        }
+        search.listeners.add(listener);
+        if (!search.partialResults.isEmpty()) {
+            notifyPartial(search, Collections.singletonList(listener), new ArrayList<>(search.partialResults));
+        }
+        return new Subscription(search, listener);
+    }
+
+    /**
+     * メソッドの根本起点を検索し、結果を待ちます。同じメソッドの検索が実行中の場合はその結果を待ちます。
+     * モニターがキャンセルされた場合は要求を取り消して OperationCanceledException をスローします。
+     */
+    public List<CallInfo> searchAndWait(IMethod target, IProgressMonitor monitor) throws CoreException {
+        List<List<CallInfo>> results = new ArrayList<>(1);
+        await(target, true, new Listener() {
+            @Override
+            public void searchDone(IMethod method, IStatus status, List<CallInfo> doneResults) {
+                results.add(doneResults);
+            }
+        }, monitor);
+        return results.get(0);
+    }
+
+    /**
+     * メソッドの根本起点を検索し、起点が確定した結果を順に sink に渡しながら検索の終了を待ちます。
+     * 同じメソッドの検索が実行中の場合はその結果 (実行中に確定済みのものを含む) を渡します。
+     * ただし実行中の検索にグラフ構築時間の上限がある場合は共有せず、上限なしで検索し直します。
+     * 新しく開始する検索は結果を保持しないため、ヒープ使用量は結果の件数に依存しません
+     * (その代わり、他の要求元とは共有しません)。
+     * sink は検索ジョブのスレッドまたは呼び出し元のスレッドから、同時に 1 つずつ呼び出されます。
+     */
+    public void streamAndWait(IMethod target, RootCallerFinder.ResultListener sink, IProgressMonitor monitor) throws CoreException {
+        await(target, false, new Listener() {
+            @Override
+            public void resultsFound(IMethod method, List<CallInfo> results) {
+                sink.resultsFound(results);
+            }
+
+            @Override
+            public void searchDone(IMethod method, IStatus status, List<CallInfo> results) {
+                // 結果は resultsFound ですべて受け取っている
+            }
+        }, monitor);
+    }
+
+    /**
+     * 検索を要求して終了を待ちます。
+     * モニターがキャンセルされた場合は要求を取り消して OperationCanceledException をスローします。
+     */
+    private void await(IMethod target, boolean shared, Listener listener, IProgressMonitor monitor) throws CoreException {
+        CountDownLatch latch = new CountDownLatch(1);
+        IStatus[] status = new IStatus[1];
+        Subscription subscription = subscribe(target, new Listener() {
+            @Override
+            public void resultsFound(IMethod method, List<CallInfo> results) {
+                listener.resultsFound(method, results);
+            }
+
+            @Override
+            public void searchDone(IMethod method, IStatus doneStatus, List<CallInfo> results) {
+                status[0] = doneStatus;
+                listener.searchDone(method, doneStatus, results);
+                latch.countDown();
+            }
+        }, shared);
+        try {
+            while (!latch.await(CANCEL_POLL_INTERVAL_MS, TimeUnit.MILLISECONDS)) {
+                if (monitor != null && monitor.isCanceled()) {
+                    subscription.cancel();
+                    throw new OperationCanceledException();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            subscription.cancel();
+            throw new OperationCanceledException();
+        }
+        if (status[0].getSeverity() == IStatus.CANCEL) throw new OperationCanceledException();
+        if (!status[0].isOK()) throw new CoreException(status[0]);
+    }
+
+    private SharedSearch start(String key, IMethod target, boolean shared, boolean overrides, boolean paths) {
+        RecursiveCallerSearchJob job = new RecursiveCallerSearchJob(target);
+        job.setRetainResults(shared);
+        long timeLimit = shared ? interactiveTimeLimitMillis : 0;
+        job.setTimeLimit(timeLimit);
+        job.setResolveOverrides(overrides);
+        job.setRecordPaths(paths);
+        SharedSearch search = new SharedSearch(key, job, shared, timeLimit > 0);
+        search.slot = leastLoadedSlot();
+        slotLoads[search.slot]++;
+        job.setRule(slots[search.slot]);
+        job.setUser(true);
+        job.setResultListener(batch -> partialResultsFound(search, batch));
+        job.addJobChangeListener(new JobChangeAdapter() {
+            @Override
+            public void done(IJobChangeEvent event) {
+                finished(search, event.getResult());
+            }
+        });
+        if (shared) {
+            inFlight.put(key, search);
+        }
+        job.schedule();
+        return search;
+    }
+
+    private void finished(SharedSearch search, IStatus status) {
+        List<Listener> listeners;
+        synchronized (this) {
+            if (inFlight.get(search.key) == search) {
+                inFlight.remove(search.key);
+            }
+            slotLoads[search.slot]--;
+            listeners = new ArrayList<>(search.listeners);
+            search.listeners.clear();
+            search.partialResults.clear();
+        }
+        List<CallInfo> results = status.isOK() || status.getSeverity() == IStatus.CANCEL
+                ? search.job.getResults() : Collections.emptyList();
+        SearchStatistics statistics = search.job.getStatistics();
+        for (Listener listener : listeners) {
+            try {
+                if (statistics != null) listener.statisticsAvailable(search.job.getTarget(), statistics);
+                listener.searchDone(search.job.getTarget(), status, results);
+            } catch (RuntimeException e) {
+                System.err.println("エラー(Coordinator): 検索完了の通知中に例外が発生しました: " + e.getMessage());
+                e.printStackTrace();
+            }
+        }
+    }
+
+    private void partialResultsFound(SharedSearch search, List<CallInfo> batch) {
+        List<Listener> listeners;
+        synchronized (this) {
+            if (search.shared) search.partialResults.addAll(batch);
+            listeners = new ArrayList<>(search.listeners);
+        }
+        notifyPartial(search, listeners, Collections.unmodifiableList(batch));
+    }
+
+    private void notifyPartial(SharedSearch search, List<Listener> listeners, List<CallInfo> batch) {
+        for (Listener listener : listeners) {
+            try {
+                listener.resultsFound(search.job.getTarget(), batch);
+            } catch (RuntimeException e) {
+                System.err.println("エラー(Coordinator): 途中結果の通知中に例外が発生しました: " + e.getMessage());
+                e.printStackTrace();
+            }
+        }
+    }
+
+    private synchronized void unsubscribe(SharedSearch search, Listener listener) {
+        if (!search.listeners.remove(listener) || !search.listeners.isEmpty()) return;
+        // 誰も結果を待っていない検索は止める
+        if (inFlight.get(search.key) == search) {
+            inFlight.remove(search.key);
+        }
+        search.job.cancel();
+    }
+
+    private int leastLoadedSlot() {
+        int best = 0;
+        for (int i = 1; i < slotLoads.length; i++) {
+            if (slotLoads[i] < slotLoads[best]) best = i;
+        }
+        return best;
+    }
+}
@@ -0,0 +1,259 @@
+package com.example.callhierarchyplugin.search;
+
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.jdt.core.*;
+import org.eclipse.jdt.core.search.IJavaSearchScope;
+import org.eclipse.jdt.core.search.SearchEngine;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * メソッドの呼び出し元を検索する範囲を、プロジェクトの依存関係から絞り込んで提供します。
+ * <p>
+ * メソッドを呼び出せるのは、宣言しているプロジェクト自身と、そのプロジェクトにクラスパスで (推移的に) 依存している
+ * プロジェクトだけです。検索範囲はそれらのプロジェクトのソースフォルダーだけにし、JAR と JRE は含めません
+ * (JAR 内の呼び出し元は起点の探索で辿らないため)。JAR 内のメソッドの場合は、その JAR をクラスパスに持つプロジェクトと
+ * その依存元が対象です。
+ * <p>
+ * さらにメソッドの可視性で範囲を狭めます。private メソッドは宣言しているコンパイルユニットだけ、
+ * パッケージプライベートのメソッドは上記のソースフォルダーのうち同じ名前のパッケージだけを検索します。
+ * <p>
+ * 検索範囲は宣言しているプロジェクト (JAR の場合はそのパス) とパッケージごとにキャッシュし、クラスパスやプロジェクトの構成が
+ * 変わったときにすべて破棄します。パッケージの範囲は作成した時点のパッケージだけを含むため、
+ * 同じ名前のパッケージが追加・削除されたときにその名前の範囲を破棄します。
+ * {@link IElementChangedListener} として JavaCore に登録してください。
+ */
+public class SearchScopeProvider implements IElementChangedListener {
+
+    private static final SearchScopeProvider DEFAULT = new SearchScopeProvider();
+
+    // 宣言元のキー (プロジェクト名または JAR などのパス) → 呼び出し元になり得るソースフォルダー
+    private final Map<String, List<IPackageFragmentRoot>> sourceRootsByOrigin = new HashMap<>();
+    // 宣言元のキー (パッケージプライベートの場合は "#" とパッケージ名を付加) → 呼び出し元を検索する範囲
+    private final Map<String, IJavaSearchScope> scopes = new HashMap<>();
+    // プロジェクト名 → そのプロジェクトに直接依存しているプロジェクト名 (null の場合は未計算)
+    private Map<String, Set<String>> dependentsByProject;
+
+    /** プラグイン全体で共有するインスタンスを返します。 */
+    public static SearchScopeProvider getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * メソッドの呼び出し元を検索する範囲を返します。
+     * 宣言しているプロジェクトやルートが特定できない場合はワークスペース全体を返します。
+     */
+    public synchronized IJavaSearchScope getCallerScope(IMethod method) throws JavaModelException {
+        IPackageFragmentRoot root = (IPackageFragmentRoot) method.getAncestor(IJavaElement.PACKAGE_FRAGMENT_ROOT);
+        if (root == null) {
+            return SearchEngine.createWorkspaceScope();
+        }
+        ICompilationUnit unit = getPrivateDeclaringUnit(method);
+        if (unit != null) {
+            // コンパイルユニットごとの範囲は作成が軽く、数が多いためキャッシュしない
+            return SearchEngine.createJavaSearchScope(new IJavaElement[] { unit }, IJavaSearchScope.SOURCES);
+        }
+
+        boolean source = root.getKind() == IPackageFragmentRoot.K_SOURCE;
+        String origin = source ? method.getJavaProject().getElementName() : root.getPath().toString();
+        String packageName = isPackagePrivate(method)
+                ? method.getDeclaringType().getPackageFragment().getElementName() : null;
+        String key = packageName != null ? origin + "#" + packageName : origin;
+        IJavaSearchScope scope = scopes.get(key);
+        if (scope == null) {
+            List<IPackageFragmentRoot> sourceRoots = sourceRootsByOrigin.get(origin);
+            if (sourceRoots == null) {
+                sourceRoots = collectSourceRoots(source
+                        ? dependentsOf(List.of(origin))
+                        : dependentsOf(projectsReferencing(root.getPath())));
+                sourceRootsByOrigin.put(origin, sourceRoots);
+            }
+            scope = packageName != null ? createPackageScope(sourceRoots, packageName) : createScope(sourceRoots);
+            scopes.put(key, scope);
+        }
+        return scope;
+    }
+
+    /**
+     * ソースの private メソッドの場合、それを宣言しているコンパイルユニットを返します。
+     * private メソッドはコンパイルユニットの外 (入れ子のクラスを含む) からは呼び出せません。
+     *
+     * @return コンパイルユニット。private メソッドでない場合やソースがない場合は null
+     */
+    public static ICompilationUnit getPrivateDeclaringUnit(IMethod method) throws JavaModelException {
+        ICompilationUnit unit = method.getCompilationUnit();
+        if (unit == null) return null;
+        IType declaringType = method.getDeclaringType();
+        // 修飾子のない enum のコンストラクターは暗黙的に private
+        boolean implicitlyPrivate = method.isConstructor() && declaringType != null && declaringType.isEnum();
+        return Flags.isPrivate(method.getFlags()) || implicitlyPrivate ? unit : null;
+    }
+
+    /** 同じパッケージからしか呼び出せないメソッドか (インターフェースのメンバーは暗黙的に public) */
+    private static boolean isPackagePrivate(IMethod method) throws JavaModelException {
+        int flags = method.getFlags();
+        if (Flags.isPublic(flags) || Flags.isProtected(flags) || Flags.isPrivate(flags)) return false;
+        IType declaringType = method.getDeclaringType();
+        return declaringType != null && !declaringType.isInterface()
+                && !(method.isConstructor() && declaringType.isEnum());
+    }
+
+    /** キャッシュした検索範囲と依存関係をすべて破棄します。 */
+    public synchronized void invalidate() {
+        sourceRootsByOrigin.clear();
+        scopes.clear();
+        dependentsByProject = null;
+    }
+
+    @Override
+    public void elementChanged(ElementChangedEvent event) {
+        if (affectsDependencies(event.getDelta())) {
+            invalidate();
+            return;
+        }
+        Set<String> packageNames = new HashSet<>();
+        collectAddedOrRemovedPackages(event.getDelta(), packageNames);
+        if (!packageNames.isEmpty()) {
+            invalidatePackageScopes(packageNames);
+        }
+    }
+
+    /** 指定した名前のパッケージの検索範囲 (パッケージプライベートのメソッド用) を破棄する */
+    private synchronized void invalidatePackageScopes(Set<String> packageNames) {
+        scopes.keySet().removeIf(key -> {
+            int separator = key.lastIndexOf('#');
+            return separator >= 0 && packageNames.contains(key.substring(separator + 1));
+        });
+    }
+
+    /** 差分に含まれる、追加・削除されたパッケージの名前を集める */
+    private static void collectAddedOrRemovedPackages(IJavaElementDelta delta, Set<String> packageNames) {
+        IJavaElement element = delta.getElement();
+        if (element instanceof IPackageFragment) {
+            if (delta.getKind() != IJavaElementDelta.CHANGED) {
+                packageNames.add(element.getElementName());
+            }
+            return;
+        }
+        if (element instanceof IJavaModel || element instanceof IJavaProject || element instanceof IPackageFragmentRoot) {
+            for (IJavaElementDelta child : delta.getAffectedChildren()) {
+                collectAddedOrRemovedPackages(child, packageNames);
+            }
+        }
+    }
+
+    /** プロジェクトの追加・削除・開閉や、クラスパスの変更を含む差分か */
+    private boolean affectsDependencies(IJavaElementDelta delta) {
+        IJavaElement element = delta.getElement();
+        if (element instanceof IJavaModel) {
+            for (IJavaElementDelta child : delta.getAffectedChildren()) {
+                if (affectsDependencies(child)) return true;
+            }
+            return false;
+        }
+        if (!(element instanceof IJavaProject)) return false;
+        if (delta.getKind() != IJavaElementDelta.CHANGED) return true; // 追加・削除
+        int flags = delta.getFlags();
+        if ((flags & (IJavaElementDelta.F_OPENED | IJavaElementDelta.F_CLOSED
+                | IJavaElementDelta.F_CLASSPATH_CHANGED | IJavaElementDelta.F_RESOLVED_CLASSPATH_CHANGED)) != 0) {
+            return true;
+        }
+        // ソースフォルダーや JAR のクラスパスへの追加・削除
+        for (IJavaElementDelta child : delta.getAffectedChildren()) {
+            if (child.getKind() != IJavaElementDelta.CHANGED
+                    || (child.getFlags() & (IJavaElementDelta.F_ADDED_TO_CLASSPATH | IJavaElementDelta.F_REMOVED_FROM_CLASSPATH)) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** 指定したプロジェクトと、それらに推移的に依存しているプロジェクトの名前 */
+    private Set<String> dependentsOf(List<String> projectNames) throws JavaModelException {
+        Map<String, Set<String>> dependents = dependentsByProject();
+        Set<String> result = new LinkedHashSet<>(projectNames);
+        Deque<String> queue = new ArrayDeque<>(projectNames);
+        while (!queue.isEmpty()) {
+            for (String dependent : dependents.getOrDefault(queue.poll(), Set.of())) {
+                if (result.add(dependent)) queue.add(dependent);
+            }
+        }
+        return result;
+    }
+
+    /** プロジェクト名 → 直接依存しているプロジェクト名 (クラスパスのプロジェクト参照の逆向き) */
+    private Map<String, Set<String>> dependentsByProject() throws JavaModelException {
+        if (dependentsByProject == null) {
+            Map<String, Set<String>> dependents = new HashMap<>();
+            for (IJavaProject project : openJavaProjects()) {
+                for (String required : project.getRequiredProjectNames()) {
+                    dependents.computeIfAbsent(required, k -> new LinkedHashSet<>()).add(project.getElementName());
+                }
+            }
+            dependentsByProject = dependents;
+        }
+        return dependentsByProject;
+    }
+
+    /** 解決済みのクラスパスに指定したパスのライブラリを含むプロジェクトの名前 */
+    private List<String> projectsReferencing(IPath libraryPath) throws JavaModelException {
+        List<String> names = new ArrayList<>();
+        for (IJavaProject project : openJavaProjects()) {
+            for (IClasspathEntry entry : project.getResolvedClasspath(true)) {
+                if (entry.getEntryKind() == IClasspathEntry.CPE_LIBRARY && entry.getPath().equals(libraryPath)) {
+                    names.add(project.getElementName());
+                    break;
+                }
+            }
+        }
+        return names;
+    }
+
+    /** プロジェクト自身のソースフォルダー */
+    private static List<IPackageFragmentRoot> collectSourceRoots(Set<String> projectNames) throws JavaModelException {
+        IJavaModel model = JavaCore.create(ResourcesPlugin.getWorkspace().getRoot());
+        List<IPackageFragmentRoot> sourceRoots = new ArrayList<>();
+        for (String name : projectNames) {
+            IJavaProject project = model.getJavaProject(name);
+            if (!project.exists() || !project.getProject().isOpen()) continue;
+            for (IPackageFragmentRoot root : project.getPackageFragmentRoots()) {
+                if (root.getKind() == IPackageFragmentRoot.K_SOURCE && project.equals(root.getJavaProject())) {
+                    sourceRoots.add(root);
+                }
+            }
+        }
+        return sourceRoots;
+    }
+
+    /** ソースフォルダーだけを含む検索範囲 */
+    private static IJavaSearchScope createScope(List<IPackageFragmentRoot> sourceRoots) {
+        return SearchEngine.createJavaSearchScope(sourceRoots.toArray(new IJavaElement[0]), IJavaSearchScope.SOURCES);
+    }
+
+    /** ソースフォルダーのうち、指定した名前のパッケージだけを含む検索範囲 (サブパッケージは含まない) */
+    private static IJavaSearchScope createPackageScope(List<IPackageFragmentRoot> sourceRoots, String packageName) {
+        List<IJavaElement> fragments = new ArrayList<>();
+        for (IPackageFragmentRoot root : sourceRoots) {
+            IPackageFragment fragment = root.getPackageFragment(packageName);
+            if (fragment.exists()) fragments.add(fragment);
+        }
+        return SearchEngine.createJavaSearchScope(fragments.toArray(new IJavaElement[0]), IJavaSearchScope.SOURCES);
+    }
+
+    private static List<IJavaProject> openJavaProjects() throws JavaModelException {
+        List<IJavaProject> projects = new ArrayList<>();
+        for (IJavaProject project : JavaCore.create(ResourcesPlugin.getWorkspace().getRoot()).getJavaProjects()) {
+            if (project.getProject().isOpen()) projects.add(project);
+        }
+        return projects;
+    }
+}
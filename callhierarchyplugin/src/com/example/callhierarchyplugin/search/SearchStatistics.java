@@ -0,0 +1,211 @@
+package com.example.callhierarchyplugin.search;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 1 回の根本起点検索の計測値 (フェーズごとの所要時間と、検索・マッチ・AST 解析などの回数)。
+ * <p>
+ * カウンターはワーカースレッドからも更新されるため {@link LongAdder} で保持します。
+ * グラフの規模と結果の件数は検索の終了時に設定されます。
+ * 値はビューの統計表示と JSON 出力 ({@link #toJson()}) に使用します。
+ */
+public class SearchStatistics {
+
+    /** 計測するフェーズ (各フェーズの時間は重複しない) */
+    public enum Phase {
+        /** フロンティアの呼び出し元の検索 (参照検索、インデックス参照、private メソッドの AST 走査) とグラフへの反映 */
+        REFERENCE_SEARCH("referenceSearch", "参照検索"),
+        /** 直接呼び出し箇所の行番号と引数の解析 */
+        CALL_SITE_ANALYSIS("callSiteAnalysis", "呼び出し箇所の解析"),
+        /** RootResolver による起点の特定と結果の作成 */
+        ROOT_RESOLUTION("rootResolution", "起点の特定");
+
+        private final String key;
+        private final String label;
+
+        Phase(String key, String label) {
+            this.key = key;
+            this.label = label;
+        }
+
+        /** JSON と JFR イベントで使用するキー */
+        public String getKey() {
+            return key;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+    }
+
+    /** 回数を数える項目 */
+    public enum Counter {
+        SEARCH_ENGINE_CALLS("searchEngineCalls", "SearchEngine.search の呼び出し"),
+        MATCHES_ACCEPTED("matchesAccepted", "採用したマッチ"),
+        MATCHES_REJECTED("matchesRejected", "除外したマッチ"),
+        INDEX_HITS("indexHits", "インデックスから取得した呼び出し先"),
+        PRIVATE_AST_WALKS("privateAstWalks", "AST の走査で求めた private メソッド"),
+        AST_PARSES("astParses", "AST の解析"),
+        AST_CACHE_HITS("astCacheHits", "AST キャッシュのヒット");
+
+        private final String key;
+        private final String label;
+
+        Counter(String key, String label) {
+            this.key = key;
+            this.label = label;
+        }
+
+        /** JSON で使用するキー */
+        public String getKey() {
+            return key;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+    }
+
+    private final LongAdder[] counters = new LongAdder[Counter.values().length];
+    private final LongAdder[] phaseNanos = new LongAdder[Phase.values().length];
+    private volatile String target;
+    private volatile int graphNodes;
+    private volatile int graphEdges;
+    private volatile int resultCount;
+    private volatile boolean truncated;
+
+    public SearchStatistics() {
+        for (int i = 0; i < counters.length; i++) counters[i] = new LongAdder();
+        for (int i = 0; i < phaseNanos.length; i++) phaseNanos[i] = new LongAdder();
+    }
+
+    /** すべての値を 0 に戻します。 */
+    public void reset() {
+        for (LongAdder counter : counters) counter.reset();
+        for (LongAdder nanos : phaseNanos) nanos.reset();
+        target = null;
+        graphNodes = 0;
+        graphEdges = 0;
+        resultCount = 0;
+        truncated = false;
+    }
+
+    public void increment(Counter counter) {
+        counters[counter.ordinal()].increment();
+    }
+
+    public void add(Counter counter, long count) {
+        counters[counter.ordinal()].add(count);
+    }
+
+    public long get(Counter counter) {
+        return counters[counter.ordinal()].sum();
+    }
+
+    /** フェーズの所要時間を加算します (同じフェーズを複数回実行した場合は合計になる)。 */
+    public void addPhaseTime(Phase phase, long nanos) {
+        phaseNanos[phase.ordinal()].add(nanos);
+    }
+
+    public long getPhaseMillis(Phase phase) {
+        return TimeUnit.NANOSECONDS.toMillis(phaseNanos[phase.ordinal()].sum());
+    }
+
+    /** 検索の終了時に、対象とグラフの規模、結果を設定します。 */
+    void setSummary(String target, int graphNodes, int graphEdges, int resultCount, boolean truncated) {
+        this.target = target;
+        this.graphNodes = graphNodes;
+        this.graphEdges = graphEdges;
+        this.resultCount = resultCount;
+        this.truncated = truncated;
+    }
+
+    public String getTarget() {
+        return target;
+    }
+
+    public int getGraphNodes() {
+        return graphNodes;
+    }
+
+    public int getGraphEdges() {
+        return graphEdges;
+    }
+
+    /** 結果の件数 (結果を保持しない検索ではリスナーに通知した件数) */
+    public int getResultCount() {
+        return resultCount;
+    }
+
+    public boolean isTruncated() {
+        return truncated;
+    }
+
+    /** ビューに表示する複数行のテキスト */
+    public String toDisplayString() {
+        StringBuilder text = new StringBuilder();
+        text.append("グラフ: ノード ").append(graphNodes).append(" / エッジ ").append(graphEdges)
+                .append(", 結果 ").append(resultCount).append(" 件");
+        if (truncated) text.append(" (打ち切り)");
+        text.append('\n');
+        for (Phase phase : Phase.values()) {
+            if (phase.ordinal() > 0) text.append(", ");
+            text.append(phase.getLabel()).append(' ').append(getPhaseMillis(phase)).append(" ms");
+        }
+        text.append('\n');
+        for (Counter counter : Counter.values()) {
+            if (counter.ordinal() > 0) text.append(", ");
+            text.append(counter.getLabel()).append(' ').append(get(counter));
+        }
+        return text.toString();
+    }
+
+    /**
+     * JSON オブジェクトとして出力します。
+     * <pre>
+     * {"target":"...","truncated":false,"graph":{"nodes":0,"edges":0},"results":0,
+     *  "phasesMillis":{"referenceSearch":0,...},"counters":{"searchEngineCalls":0,...}}
+     * </pre>
+     */
+    public String toJson() {
+        StringBuilder json = new StringBuilder(512);
+        json.append("{\"target\":");
+        appendJsonString(json, target);
+        json.append(",\"truncated\":").append(truncated);
+        json.append(",\"graph\":{\"nodes\":").append(graphNodes).append(",\"edges\":").append(graphEdges).append('}');
+        json.append(",\"results\":").append(resultCount);
+        json.append(",\"phasesMillis\":{");
+        for (Phase phase : Phase.values()) {
+            if (phase.ordinal() > 0) json.append(',');
+            json.append('"').append(phase.getKey()).append("\":").append(getPhaseMillis(phase));
+        }
+        json.append("},\"counters\":{");
+        for (Counter counter : Counter.values()) {
+            if (counter.ordinal() > 0) json.append(',');
+            json.append('"').append(counter.getKey()).append("\":").append(get(counter));
+        }
+        json.append("}}");
+        return json.toString();
+    }
+
+    /** JSON の文字列リテラルとして追加 (null の場合は null) */
+    private static void appendJsonString(StringBuilder json, String value) {
+        if (value == null) {
+            json.append("null");
+            return;
+        }
+        json.append('"');
+        for (int i = 0, length = value.length(); i < length; i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                json.append('\\').append(c);
+            } else if (c < 0x20) {
+                json.append(String.format("\\u%04x", (int) c));
+            } else {
+                json.append(c);
+            }
+        }
+        json.append('"');
+    }
+}
@@ -0,0 +1,299 @@
+package com.example.callhierarchyplugin.utils;
+
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.jdt.core.*;
+import org.eclipse.jdt.core.dom.AST;
+import org.eclipse.jdt.core.dom.ASTParser;
+import org.eclipse.jdt.core.dom.CompilationUnit;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * コンパイルユニットごとのバインディング解決済み AST と行頭オフセット表を保持する LRU キャッシュ。
+ * <p>
+ * キーはコンパイルユニットのハンドル識別子で、リソースの修正スタンプが変わったエントリは使用しません。
+ * 保持量は見積もりで上限を設け、超えた場合は最も古く使われたものから破棄します。解決済み AST は
+ * ユニットごとに別のバインディング環境 (参照している型のバインディング) を保持するため、ソースサイズに比例する分に
+ * 加えて環境の分を固定で見積もります (既定の上限では解決済み AST はおよそ 30 個まで)。
+ * Java 要素のデルタでコンパイルユニットの内容が変わると、そのユニットのエントリを破棄し、
+ * 他のユニットの解決済み AST も破棄して行頭表だけ残します (変更前のユニットを指すバインディングでは、
+ * 呼び出し箇所のバインディングと宣言の比較が一致しなくなるため)。
+ * クラスパスの変更やプロジェクトのクローズでは、すべてのエントリを破棄します。
+ * <p>
+ * RootCallerFinder と JDTUtils で共有するため、{@link #getDefault()} のインスタンスを使用してください。
+ */
+public class AstCache implements IElementChangedListener {
+
+    /** キャッシュ全体の保持量の上限 (見積もりバイト数) */
+    private static final long DEFAULT_MAX_BYTES = 128L * 1024 * 1024;
+    /** バインディング解決済み AST の保持量をソース 1 文字あたりで見積もる係数 */
+    private static final int AST_BYTES_PER_SOURCE_CHAR = 40;
+    /** 解決済み AST 1 つが保持するバインディング環境の見積もり (JRE と参照先の型のバインディング) */
+    private static final long BINDING_ENVIRONMENT_BYTES = 4L * 1024 * 1024;
+
+    private static final AstCache DEFAULT = new AstCache(DEFAULT_MAX_BYTES);
+
+    private static class Entry {
+        final long modificationStamp;
+        final int[] lineStarts;
+        final int sourceLength;
+        CompilationUnit ast;
+
+        Entry(long modificationStamp, int[] lineStarts, int sourceLength) {
+            this.modificationStamp = modificationStamp;
+            this.lineStarts = lineStarts;
+            this.sourceLength = sourceLength;
+        }
+
+        long estimatedBytes() {
+            long bytes = 64L + 4L * lineStarts.length;
+            if (ast != null) bytes += BINDING_ENVIRONMENT_BYTES + (long) sourceLength * AST_BYTES_PER_SOURCE_CHAR;
+            return bytes;
+        }
+    }
+
+    private final long maxBytes;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(64, 0.75f, true); // アクセス順 = LRU
+    private long usedBytes;
+
+    public AstCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /** プラグイン全体で共有するキャッシュを返します。 */
+    public static AstCache getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * バインディング解決済みの AST を返します。キャッシュにない場合や古い場合は解析してキャッシュします。
+     * 未保存の変更があるワーキングコピーはキャッシュせず、毎回解析します。
+     *
+     * @return AST。ソースがない場合は null
+     */
+    public CompilationUnit getAst(ICompilationUnit cu, IProgressMonitor monitor) throws JavaModelException {
+        long stamp = getModificationStamp(cu);
+        if (stamp != IResource.NULL_STAMP) {
+            synchronized (this) {
+                Entry entry = getValidEntry(cu, stamp);
+                if (entry != null && entry.ast != null) return entry.ast;
+            }
+        }
+
+        CompilationUnit ast = parse(cu, monitor);
+        if (ast != null && stamp != IResource.NULL_STAMP) {
+            putAst(cu, stamp, ast);
+        }
+        return ast;
+    }
+
+    /**
+     * キャッシュ済みで最新の AST がある場合はそれを返します。解析は行いません。
+     *
+     * @return AST。キャッシュにない場合は null
+     */
+    public CompilationUnit getCachedAst(ICompilationUnit cu) {
+        try {
+            long stamp = getModificationStamp(cu);
+            if (stamp == IResource.NULL_STAMP) return null;
+            synchronized (this) {
+                Entry entry = getValidEntry(cu, stamp);
+                return entry != null ? entry.ast : null;
+            }
+        } catch (JavaModelException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 指定されたオフセットの 1 ベースの行番号を返します。AST は解析せず、ソースから作成した行頭オフセット表を使用します。
+     *
+     * @return 行番号。求められない場合は -1
+     */
+    public int getLineNumber(ICompilationUnit cu, int offset) throws JavaModelException {
+        if (cu == null || offset < 0) return -1;
+
+        long stamp = getModificationStamp(cu);
+        Entry entry = null;
+        if (stamp != IResource.NULL_STAMP) {
+            synchronized (this) {
+                entry = getValidEntry(cu, stamp);
+            }
+        }
+        if (entry == null) {
+            String source = cu.getSource();
+            if (source == null) return -1;
+            entry = new Entry(stamp, computeLineStarts(source), source.length());
+            if (stamp != IResource.NULL_STAMP) {
+                synchronized (this) {
+                    Entry current = getValidEntry(cu, stamp);
+                    if (current == null) {
+                        put(cu.getHandleIdentifier(), entry);
+                    }
+                }
+            }
+        }
+        return lineNumberOf(entry, offset);
+    }
+
+    /** 指定されたコンパイルユニットのエントリを破棄します。 */
+    public synchronized void evict(ICompilationUnit cu) {
+        Entry removed = entries.remove(cu.getHandleIdentifier());
+        if (removed != null) usedBytes -= removed.estimatedBytes();
+    }
+
+    /** すべてのエントリを破棄します。 */
+    public synchronized void clear() {
+        entries.clear();
+        usedBytes = 0;
+    }
+
+    @Override
+    public void elementChanged(ElementChangedEvent event) {
+        IJavaElementDelta delta = event.getDelta();
+        if (delta != null) {
+            processDelta(delta);
+        }
+    }
+
+    private void processDelta(IJavaElementDelta delta) {
+        IJavaElement element = delta.getElement();
+        switch (element.getElementType()) {
+            case IJavaElement.JAVA_MODEL:
+            case IJavaElement.PACKAGE_FRAGMENT:
+                break;
+            case IJavaElement.JAVA_PROJECT:
+            case IJavaElement.PACKAGE_FRAGMENT_ROOT:
+                // クラスパスの変更やプロジェクトのクローズはすべてのバインディングに影響する
+                if (delta.getKind() != IJavaElementDelta.CHANGED
+                        || (delta.getFlags() & (IJavaElementDelta.F_CLASSPATH_CHANGED
+                                | IJavaElementDelta.F_RESOLVED_CLASSPATH_CHANGED
+                                | IJavaElementDelta.F_CLOSED
+                                | IJavaElementDelta.F_REMOVED_FROM_CLASSPATH)) != 0) {
+                    clear();
+                    return;
+                }
+                break;
+            case IJavaElement.COMPILATION_UNIT:
+                // エディターでのオープン (F_PRIMARY_WORKING_COPY のみ) は内容の変更ではない
+                if (delta.getKind() != IJavaElementDelta.CHANGED
+                        || (delta.getFlags() & ~IJavaElementDelta.F_PRIMARY_WORKING_COPY) != 0) {
+                    evict(((ICompilationUnit) element).getPrimary());
+                    // 他のユニットの AST のバインディングも変更前のユニットを指している
+                    dropResolvedAsts();
+                }
+                return;
+            default:
+                return;
+        }
+        for (IJavaElementDelta child : delta.getAffectedChildren()) {
+            processDelta(child);
+        }
+    }
+
+    /** 解決済み AST だけを破棄し、行頭オフセット表は残す */
+    private synchronized void dropResolvedAsts() {
+        for (Entry entry : entries.values()) {
+            if (entry.ast != null) {
+                usedBytes -= entry.estimatedBytes();
+                entry.ast = null;
+                usedBytes += entry.estimatedBytes();
+            }
+        }
+    }
+
+    private void putAst(ICompilationUnit cu, long stamp, CompilationUnit ast) throws JavaModelException {
+        String key = cu.getHandleIdentifier();
+        synchronized (this) {
+            Entry entry = getValidEntry(cu, stamp);
+            if (entry != null) {
+                entries.remove(key);
+                usedBytes -= entry.estimatedBytes();
+                entry.ast = ast;
+                put(key, entry);
+                return;
+            }
+        }
+        String source = cu.getSource();
+        if (source == null) return;
+        Entry entry = new Entry(stamp, computeLineStarts(source), source.length());
+        entry.ast = ast;
+        synchronized (this) {
+            put(key, entry);
+        }
+    }
+
+    private void put(String key, Entry entry) {
+        Entry previous = entries.put(key, entry);
+        if (previous != null) usedBytes -= previous.estimatedBytes();
+        usedBytes += entry.estimatedBytes();
+
+        Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+        while (usedBytes > maxBytes && it.hasNext()) {
+            Map.Entry<String, Entry> eldest = it.next();
+            if (eldest.getValue() == entry) continue; // 追加したばかりのエントリは残す
+            usedBytes -= eldest.getValue().estimatedBytes();
+            it.remove();
+        }
+    }
+
+    /** 修正スタンプが一致するエントリを返す (古いエントリは破棄する) */
+    private Entry getValidEntry(ICompilationUnit cu, long stamp) {
+        String key = cu.getHandleIdentifier();
+        Entry entry = entries.get(key);
+        if (entry != null && entry.modificationStamp != stamp) {
+            entries.remove(key);
+            usedBytes -= entry.estimatedBytes();
+            return null;
+        }
+        return entry;
+    }
+
+    /** キャッシュのキーに使う修正スタンプ。キャッシュできない場合は IResource.NULL_STAMP */
+    private static long getModificationStamp(ICompilationUnit cu) throws JavaModelException {
+        if (cu.hasUnsavedChanges()) return IResource.NULL_STAMP;
+        IResource resource = cu.getResource();
+        return resource != null ? resource.getModificationStamp() : IResource.NULL_STAMP;
+    }
+
+    private static CompilationUnit parse(ICompilationUnit cu, IProgressMonitor monitor) {
+        ASTParser parser = ASTParser.newParser(AST.JLS_Latest);
+        parser.setSource(cu);
+        parser.setKind(ASTParser.K_COMPILATION_UNIT);
+        parser.setResolveBindings(true);
+        parser.setBindingsRecovery(true);
+        CompilationUnit ast = (CompilationUnit) parser.createAST(monitor);
+        if (monitor != null && monitor.isCanceled()) throw new OperationCanceledException();
+        return ast;
+    }
+
+    /** ソースから行頭オフセット表を作成 (\r\n, \r, \n のいずれも改行として扱う) */
+    static int[] computeLineStarts(String source) {
+        int[] lineStarts = new int[16];
+        int count = 0;
+        lineStarts[count++] = 0;
+        for (int i = 0; i < source.length(); i++) {
+            char c = source.charAt(i);
+            if (c == '\r' && i + 1 < source.length() && source.charAt(i + 1) == '\n') {
+                i++;
+            } else if (c != '\r' && c != '\n') {
+                continue;
+            }
+            if (count == lineStarts.length) lineStarts = Arrays.copyOf(lineStarts, count * 2);
+            lineStarts[count++] = i + 1;
+        }
+        return Arrays.copyOf(lineStarts, count);
+    }
+
+    private static int lineNumberOf(Entry entry, int offset) {
+        // ファイル末尾のオフセットは最終行として扱う
+        if (offset > entry.sourceLength) return -1;
+        int index = Arrays.binarySearch(entry.lineStarts, offset);
+        return index >= 0 ? index + 1 : -index - 1;
+    }
+}
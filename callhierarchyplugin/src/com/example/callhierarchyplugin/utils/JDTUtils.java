@@ -1,10 +1,15 @@
 package com.example.callhierarchyplugin.utils;
 
-import org.eclipse.core.resources.IWorkspaceRoot;
-import org.eclipse.core.resources.ResourcesPlugin;
 import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.NullProgressMonitor;
 import org.eclipse.jdt.core.*;
+import org.eclipse.jdt.core.compiler.CharOperation;
+import org.eclipse.jdt.core.search.IJavaSearchConstants;
+import org.eclipse.jdt.core.search.SearchEngine;
+import org.eclipse.jdt.core.search.SearchPattern;
+import org.eclipse.jdt.core.search.TypeNameMatch;
+import org.eclipse.jdt.core.search.TypeNameMatchRequestor;
 import org.eclipse.jdt.core.dom.*; // ASTノードのためにパッケージ全体をインポート
 import org.eclipse.jdt.ui.JavaUI;
 import org.eclipse.jface.text.ITextSelection;
@@ -13,8 +18,11 @@ import org.eclipse.ui.IEditorPart;
 import org.eclipse.ui.PlatformUI;
 import org.eclipse.ui.texteditor.ITextEditor;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.stream.Collectors;
 import java.util.stream.Stream; // Stream のキャストのためにインポート
 
@@ -96,7 +104,7 @@ public class JDTUtils {
 
      /**
      * 入力に適した完全修飾名を取得します (例: com.example.MyClass#myMethod)。
-     * (変更なし)
+     * オーバーロードを区別する場合は {@link #getMethodSignature} を使用してください。
      */
      public static String getMethodQualifiedName(IMethod method) {
          if (method == null) return "";
@@ -107,47 +115,190 @@ public class JDTUtils {
 
 
     /**
-     * "com.example.MyClass#myMethod" のような修飾名文字列に基づいて IMethod を検索します。
-     * (変更なし)
+     * 引数の型を含む入力用の名前を取得します (例: com.example.MyClass#myMethod(String,int))。
+     * 引数の型は型引数を除いた単純名です。{@link #findMethodFromQualifiedName} で同じオーバーロードに解決できます。
+     */
+    public static String getMethodSignature(IMethod method) {
+        if (method == null) return "";
+        StringBuilder signature = new StringBuilder(getMethodQualifiedName(method)).append('(');
+        String[] parameterTypes = method.getParameterTypes();
+        for (int i = 0; i < parameterTypes.length; i++) {
+            if (i > 0) signature.append(',');
+            signature.append(Signature.getSimpleName(Signature.toString(Signature.getTypeErasure(parameterTypes[i]))));
+        }
+        return signature.append(')').toString();
+    }
+
+    /**
+     * "com.example.MyClass#myMethod" や "com.example.MyClass#myMethod(String,int)" のような修飾名に一致する IMethod を検索します。
+     * <p>
+     * 型は {@link TypeNameIndex} で解決します。パッケージを省略したクラス名も指定できます
+     * (同じ名前のクラスが複数ある場合は、メソッドが一致する最初のクラス)。
+     * 引数の型を指定した場合は、オーバーロードのうち引数の型が一致するメソッドを返します。引数の型は単純名でも完全修飾名でもよく、
+     * 型引数は無視します (List&lt;String&gt; と List は一致)。可変長引数は String... と String[] のどちらでも指定できます。
+     * 引数を省略した場合は、名前が一致する最初のメソッドを返します。コンストラクターはクラス名をメソッド名として指定します。
+     * 型名の索引の作成を待つため、UI スレッドでは {@link TypeNameIndex#tryFindIndexedTypes} で型を求めて
+     * {@link #findMethodInTypes} を使用してください。
+     *
+     * @return 一致したメソッド。形式が不正な場合や見つからない場合は null
      */
     public static IMethod findMethodFromQualifiedName(String qualifiedName) throws CoreException {
-        if (qualifiedName == null || !qualifiedName.contains("#")) {
+        String typeName = getQualifiedNameTypePart(qualifiedName);
+        if (typeName == null) {
             return null; // 無効な形式
         }
-        String[] parts = qualifiedName.split("#", 2);
+        return findMethodInTypes(qualifiedName, TypeNameIndex.getDefault().findTypes(typeName, new NullProgressMonitor()));
+    }
+
+    /**
+     * {@link #findMethodFromQualifiedName} の形式の修飾名から、クラス名の部分 ("#" の前) を返します。
+     *
+     * @return クラス名。形式が不正な場合は null
+     */
+    public static String getQualifiedNameTypePart(String qualifiedName) {
+        if (qualifiedName == null || !qualifiedName.contains("#")) {
+            return null;
+        }
+        String[] parts = qualifiedName.trim().split("#", 2);
         if (parts.length != 2 || parts[0].isEmpty() || parts[1].isEmpty()) {
+            return null;
+        }
+        return parts[0];
+    }
+
+    /**
+     * {@link #findMethodFromQualifiedName} の形式の修飾名に一致するメソッドを、指定された型 (クラス名の部分に一致する型) から探します。
+     *
+     * @return 一致したメソッド。形式が不正な場合や見つからない場合は null
+     */
+    public static IMethod findMethodInTypes(String qualifiedName, List<IType> types) throws JavaModelException {
+        if (getQualifiedNameTypePart(qualifiedName) == null) {
             return null; // 無効な形式
         }
-        String typeName = parts[0];
-        String methodName = parts[1];
-        IWorkspaceRoot workspaceRoot = ResourcesPlugin.getWorkspace().getRoot();
-        IJavaModel javaModel = JavaCore.create(workspaceRoot);
-        if (!javaModel.isOpen()) {
-             System.err.println("Java Model is not open.");
-             return null;
+        String methodName = qualifiedName.trim().split("#", 2)[1];
+        List<String> parameterTypes = null; // null の場合は引数を指定していない
+        int open = methodName.indexOf('(');
+        if (open >= 0) {
+            if (!methodName.endsWith(")")) return null; // 無効な形式
+            parameterTypes = splitParameterTypes(methodName.substring(open + 1, methodName.length() - 1));
+            methodName = methodName.substring(0, open).trim();
         }
-        IJavaProject[] javaProjects = javaModel.getJavaProjects();
-        for (IJavaProject project : javaProjects) {
-            if (!project.isOpen()) continue;
-            IType type = project.findType(typeName, new NullProgressMonitor());
-            if (type != null && type.exists()) {
-                for (IMethod method : type.getMethods()) {
-                    if (method.getElementName().equals(methodName)) {
-                        return method;
-                    }
+        for (IType type : types) {
+            boolean constructor = type.getElementName().equals(methodName);
+            for (IMethod method : type.getMethods()) {
+                boolean nameMatches = constructor ? method.isConstructor() : method.getElementName().equals(methodName);
+                if (nameMatches && (parameterTypes == null || parameterTypesMatch(method, parameterTypes))) {
+                    return method;
                 }
-                 if (type.getElementName().equals(methodName)) {
-                     for (IMethod method : type.getMethods()) {
-                         if (method.isConstructor()) {
-                              return method;
-                         }
-                     }
-                 }
             }
         }
         return null; // 見つからない
     }
 
+    /** "String, Map<String,Integer>, int..." を最上位の "," で区切り、正規化した型名のリストにする */
+    private static List<String> splitParameterTypes(String parameters) {
+        List<String> types = new ArrayList<>();
+        if (parameters.trim().isEmpty()) return types;
+        int depth = 0;
+        int start = 0;
+        for (int i = 0; i < parameters.length(); i++) {
+            char c = parameters.charAt(i);
+            if (c == '<') depth++;
+            else if (c == '>') depth--;
+            else if (c == ',' && depth == 0) {
+                types.add(normalizeTypeName(parameters.substring(start, i)));
+                start = i + 1;
+            }
+        }
+        types.add(normalizeTypeName(parameters.substring(start)));
+        return types;
+    }
+
+    /** 型名の比較用の形式 (空白と型引数を除き、可変長引数は配列、入れ子の型は "." 区切りにする) */
+    private static String normalizeTypeName(String typeName) {
+        StringBuilder normalized = new StringBuilder();
+        int depth = 0;
+        for (int i = 0; i < typeName.length(); i++) {
+            char c = typeName.charAt(i);
+            if (c == '<') depth++;
+            else if (c == '>') depth--;
+            else if (depth == 0 && !Character.isWhitespace(c)) normalized.append(c == '$' ? '.' : c);
+        }
+        String name = normalized.toString();
+        return name.endsWith("...") ? name.substring(0, name.length() - 3) + "[]" : name;
+    }
+
+    /**
+     * メソッドの引数の型が指定した型名と一致するか。
+     * 一方が単純名の場合は、もう一方の末尾の名前 ("." の後) と比較します (ソースの型は宣言どおりの名前で保持されるため)。
+     */
+    private static boolean parameterTypesMatch(IMethod method, List<String> requested) {
+        String[] parameterTypes = method.getParameterTypes();
+        if (parameterTypes.length != requested.size()) return false;
+        for (int i = 0; i < parameterTypes.length; i++) {
+            String declared = normalizeTypeName(Signature.toString(Signature.getTypeErasure(parameterTypes[i])));
+            String wanted = requested.get(i);
+            if (!declared.equals(wanted) && !declared.endsWith("." + wanted) && !wanted.endsWith("." + declared)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+
+    /** 修飾名がワイルドカード (* または ?) を含むパターンかどうか */
+    public static boolean isMethodPattern(String qualifiedName) {
+        return qualifiedName != null && (qualifiedName.indexOf('*') >= 0 || qualifiedName.indexOf('?') >= 0);
+    }
+
+    /**
+     * "com.example.*Service#find*" のようなパターンに一致するメソッドを、型名インデックスを使って検索します。
+     * クラス名とメソッド名には * (任意の文字列) と ? (任意の 1 文字) を使用できます。パッケージを省略した場合は
+     * すべてのパッケージが対象です。JAR 内の型は対象外です (ワークスペースのソースのメソッドだけを返します)。
+     *
+     * @return 一致したメソッド (型の検索順、型内では宣言順)。形式が不正な場合は空リスト
+     */
+    public static List<IMethod> findMethodsByPattern(String pattern, IProgressMonitor monitor) throws CoreException {
+        if (pattern == null || !pattern.contains("#")) {
+            return List.of(); // 無効な形式
+        }
+        String[] parts = pattern.split("#", 2);
+        if (parts[0].isEmpty() || parts[1].isEmpty()) {
+            return List.of(); // 無効な形式
+        }
+        int lastDot = parts[0].lastIndexOf('.');
+        String packagePattern = lastDot >= 0 ? parts[0].substring(0, lastDot) : null;
+        String typePattern = parts[0].substring(lastDot + 1);
+        char[] methodPattern = parts[1].toCharArray();
+
+        Set<IType> types = new LinkedHashSet<>();
+        new SearchEngine().searchAllTypeNames(
+                packagePattern != null ? packagePattern.toCharArray() : null, matchRule(packagePattern),
+                typePattern.toCharArray(), matchRule(typePattern),
+                IJavaSearchConstants.TYPE, SearchEngine.createWorkspaceScope(),
+                new TypeNameMatchRequestor() {
+                    @Override
+                    public void acceptTypeNameMatch(TypeNameMatch match) {
+                        IType type = match.getType();
+                        if (type != null && !type.isBinary()) types.add(type);
+                    }
+                }, IJavaSearchConstants.WAIT_UNTIL_READY_TO_SEARCH, monitor);
+
+        List<IMethod> methods = new ArrayList<>();
+        for (IType type : types) {
+            for (IMethod method : type.getMethods()) {
+                if (CharOperation.match(methodPattern, method.getElementName().toCharArray(), true)) {
+                    methods.add(method);
+                }
+            }
+        }
+        return methods;
+    }
+
+    private static int matchRule(String namePattern) {
+        return (isMethodPattern(namePattern) ? SearchPattern.R_PATTERN_MATCH : SearchPattern.R_EXACT_MATCH) | SearchPattern.R_CASE_SENSITIVE;
+    }
+
 
      /**
      * アクティブな Java エディタの現在の選択範囲に対応する IMethod を検索しようとします。
@@ -358,34 +509,16 @@ public class JDTUtils {
 
     /**
      * コンパイルユニット内の指定されたオフセットに対する 1 ベースの行番号を取得します。
-     * (変更なし)
+     * AST は解析せず、{@link AstCache} の行頭オフセット表を使用します。
      */
     public static int getLineNumber(ICompilationUnit cu, int offset) {
         if (cu == null || offset < 0) {
              return -1;
         }
         try {
-            ASTParser parser = ASTParser.newParser(AST.JLS_Latest);
-            parser.setSource(cu);
-            parser.setKind(ASTParser.K_COMPILATION_UNIT);
-            parser.setResolveBindings(false);
-            CompilationUnit astRoot = (CompilationUnit) parser.createAST(null);
-            int line = astRoot.getLineNumber(offset);
-            if (line <= 0) {
-                 try {
-                     String source = cu.getSource();
-                     if (source != null && offset == source.length()) {
-                          int lastCharOffset = offset - 1;
-                          if (lastCharOffset >= 0) {
-                              line = astRoot.getLineNumber(lastCharOffset);
-                          }
-                     }
-                 } catch (JavaModelException e) {
-                 }
-            }
-            return line > 0 ? line : -1;
+            return AstCache.getDefault().getLineNumber(cu, offset);
         } catch (Exception e) {
-            System.err.println("Error getting line number via AST for offset " + offset + " in " + cu.getElementName());
+            System.err.println("Error getting line number for offset " + offset + " in " + cu.getElementName());
             return -1;
         }
     }
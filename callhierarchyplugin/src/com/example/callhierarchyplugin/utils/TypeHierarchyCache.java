@@ -0,0 +1,86 @@
+package com.example.callhierarchyplugin.utils;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.jdt.core.IType;
+import org.eclipse.jdt.core.ITypeHierarchy;
+import org.eclipse.jdt.core.ITypeHierarchyChangedListener;
+import org.eclipse.jdt.core.JavaModelException;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 型ごとの型階層 (スーパータイプとワークスペース内のすべてのサブタイプ) を共有するキャッシュ。
+ * <p>
+ * 型階層の計算はワークスペース全体を対象にするため重く、検索ごとに作り直すと探索のたびに同じ階層を計算することになります。
+ * キャッシュした階層には {@link ITypeHierarchyChangedListener} を登録し、階層に影響する変更が通知されたら破棄します。
+ * 1 つの階層は多数の型を保持するため、件数で上限を設け、超えた場合は最も古く使われたものから破棄します。
+ * <p>
+ * 複数の検索で共有するため、{@link #getDefault()} のインスタンスを使用してください。
+ */
+public class TypeHierarchyCache implements ITypeHierarchyChangedListener {
+
+    /** 保持する型階層の件数の上限 */
+    private static final int DEFAULT_MAX_ENTRIES = 64;
+
+    private static final TypeHierarchyCache DEFAULT = new TypeHierarchyCache(DEFAULT_MAX_ENTRIES);
+
+    private final int maxEntries;
+    // 型のハンドル識別子 → 型階層
+    private final LinkedHashMap<String, ITypeHierarchy> hierarchies = new LinkedHashMap<>(32, 0.75f, true); // アクセス順 = LRU
+
+    public TypeHierarchyCache(int maxEntries) {
+        this.maxEntries = Math.max(1, maxEntries);
+    }
+
+    /** プラグイン全体で共有するキャッシュを返します。 */
+    public static TypeHierarchyCache getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * 型の型階層を返します。キャッシュにない場合は計算してキャッシュします。
+     * 計算はロックの外で行うため、同じ型を同時に要求した場合は先にキャッシュされた階層を返します。
+     */
+    public ITypeHierarchy getHierarchy(IType type, IProgressMonitor monitor) throws JavaModelException {
+        String key = type.getHandleIdentifier();
+        synchronized (this) {
+            ITypeHierarchy cached = hierarchies.get(key);
+            if (cached != null) return cached;
+        }
+
+        ITypeHierarchy hierarchy = type.newTypeHierarchy(monitor);
+        synchronized (this) {
+            ITypeHierarchy cached = hierarchies.get(key);
+            if (cached != null) return cached;
+            hierarchy.addTypeHierarchyChangedListener(this);
+            hierarchies.put(key, hierarchy);
+            evictOverflow();
+        }
+        return hierarchy;
+    }
+
+    /** すべての型階層を破棄します。 */
+    public synchronized void clear() {
+        for (ITypeHierarchy hierarchy : hierarchies.values()) {
+            hierarchy.removeTypeHierarchyChangedListener(this);
+        }
+        hierarchies.clear();
+    }
+
+    @Override
+    public synchronized void typeHierarchyChanged(ITypeHierarchy typeHierarchy) {
+        typeHierarchy.removeTypeHierarchyChangedListener(this);
+        hierarchies.values().removeIf(hierarchy -> hierarchy == typeHierarchy);
+    }
+
+    /** 上限を超えた分を最も古く使われたものから破棄 */
+    private void evictOverflow() {
+        Iterator<Map.Entry<String, ITypeHierarchy>> it = hierarchies.entrySet().iterator();
+        while (hierarchies.size() > maxEntries && it.hasNext()) {
+            it.next().getValue().removeTypeHierarchyChangedListener(this);
+            it.remove();
+        }
+    }
+}
@@ -0,0 +1,415 @@
+package com.example.callhierarchyplugin.utils;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.Path;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.jdt.core.*;
+import org.eclipse.jdt.core.search.IJavaSearchConstants;
+import org.eclipse.jdt.core.search.IJavaSearchScope;
+import org.eclipse.jdt.core.search.SearchEngine;
+import org.eclipse.jdt.core.search.SearchPattern;
+import org.eclipse.jdt.core.search.TypeNameRequestor;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * ワークスペースのすべての型 (JAR 内の型を含む) の完全修飾名の索引。
+ * <p>
+ * 初回の使用時に {@link SearchEngine#searchAllTypeNames} で 1 回だけ作成し、以降は Java 要素のデルタで更新します。
+ * コンパイルユニットの追加・削除・変更は、次の問い合わせのときにそのユニットの型だけを読み直します。
+ * プロジェクトの追加・削除・開閉、クラスパスやパッケージの追加・削除は索引全体を作り直します (次の {@link #findTypes} のとき)。
+ * {@link IElementChangedListener} として JavaCore に登録してください。
+ * <p>
+ * 索引は名前とファイルのパスだけを保持し、IType は問い合わせのときに作成します。
+ * 入力補完 ({@link #completeTypeNames}, {@link #findIndexedTypes}) は索引を作り直さず、
+ * 作成中や別のスレッドが更新中の場合は待たずに空の結果を返します (UI スレッドから呼び出すため)。
+ * UI スレッドでの型の解決には {@link #findTypes} ではなく {@link #tryFindIndexedTypes} を使用してください。
+ */
+public class TypeNameIndex implements IElementChangedListener {
+
+    private static final TypeNameIndex DEFAULT = new TypeNameIndex();
+
+    /** {@link #tryFindIndexedTypes} で更新中の索引を待つ時間 (ミリ秒) */
+    private static final long INDEXED_LOOKUP_WAIT_MS = 200;
+
+    /** 索引の 1 つの型 */
+    private static final class TypeEntry {
+        final String qualifiedName; // 入れ子の型は "." 区切り (com.example.Outer.Inner)
+        final String simpleName;
+        final String path; // ソースはコンパイルユニットのパス、JAR 内の型は "JAR のパス|クラスファイルのパス"
+
+        TypeEntry(String qualifiedName, String simpleName, String path) {
+            this.qualifiedName = qualifiedName;
+            this.simpleName = simpleName;
+            this.path = path;
+        }
+    }
+
+    // 以下の索引は lock で保護する
+    private final ReentrantLock lock = new ReentrantLock();
+    private final TreeMap<String, List<TypeEntry>> byQualifiedName = new TreeMap<>();
+    // 小文字にした単純名 → 型 (単純名の前方一致の補完用)
+    private final TreeMap<String, List<TypeEntry>> bySimpleName = new TreeMap<>();
+    // ファイルのパス → そのファイルの型 (コンパイルユニットの更新用)
+    private final Map<String, List<TypeEntry>> byPath = new HashMap<>();
+    private volatile boolean built;
+
+    // デルタで通知され、まだ索引に反映していない変更 (pendingUnits で同期)
+    private final Set<ICompilationUnit> pendingUnits = new LinkedHashSet<>();
+    private volatile boolean stale = true;
+
+    /** プラグイン全体で共有するインスタンスを返します。 */
+    public static TypeNameIndex getDefault() {
+        return DEFAULT;
+    }
+
+    /** 索引が作成済みか (入力補完が結果を返せるか) */
+    public boolean isBuilt() {
+        return built;
+    }
+
+    /** 索引をバックグラウンドのジョブで作成します (作成済みで変更がない場合は何もしない)。 */
+    public void scheduleBuild() {
+        if (built && !stale) return;
+        Job job = new Job("型名の索引を作成中") {
+            @Override
+            protected IStatus run(IProgressMonitor monitor) {
+                lock.lock();
+                try {
+                    update(true, monitor);
+                    return Status.OK_STATUS;
+                } catch (CoreException e) {
+                    return new Status(IStatus.WARNING, "com.example.callhierarchyplugin", "型名の索引を作成できません: " + e.getMessage(), e);
+                } finally {
+                    lock.unlock();
+                }
+            }
+        };
+        job.setSystem(true);
+        job.schedule();
+    }
+
+    /**
+     * 名前に一致する型を返します。名前は完全修飾名 (入れ子の型は "." または "$" 区切り) で、
+     * 完全修飾名に一致する型がなく名前に "." を含まない場合は単純名で検索します。
+     * 索引が未作成か古い場合は作成してから検索します。
+     * 作成中は待つため、UI スレッドから呼び出さないでください。
+     *
+     * @return 一致した型 (同じ名前の型が複数のプロジェクトや JAR にある場合はすべて)。ない場合は空リスト
+     */
+    public List<IType> findTypes(String name, IProgressMonitor monitor) throws CoreException {
+        String normalized = name.replace('$', '.');
+        List<TypeEntry> entries;
+        lock.lock();
+        try {
+            update(true, monitor);
+            entries = lookup(normalized);
+        } finally {
+            lock.unlock();
+        }
+        return resolveAll(entries);
+    }
+
+    /**
+     * {@link #findTypes} と同じ検索を、索引を作り直さずに行います (入力補完用)。
+     * 索引が未作成の場合や更新中の場合は空リストを返します。
+     */
+    public List<IType> findIndexedTypes(String name) {
+        List<TypeEntry> entries;
+        if (!built || !lock.tryLock()) return List.of();
+        try {
+            update(false, null);
+            entries = lookup(name.replace('$', '.'));
+        } catch (CoreException e) {
+            return List.of();
+        } finally {
+            lock.unlock();
+        }
+        return resolveAll(entries);
+    }
+
+    /**
+     * {@link #findTypes} と同じ検索を、索引を作り直さずに行います (UI スレッドでの型の解決用)。
+     * 別のスレッドが更新中の場合は短い時間だけ待ちます。
+     *
+     * @return 一致した型。索引が未作成か更新中で検索できなかった場合は null (空リストの場合は一致する型がない)
+     */
+    public List<IType> tryFindIndexedTypes(String name) {
+        List<TypeEntry> entries;
+        try {
+            if (!built || !lock.tryLock(INDEXED_LOOKUP_WAIT_MS, TimeUnit.MILLISECONDS)) return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+        try {
+            if (!built) return null;
+            update(false, null);
+            entries = lookup(name.replace('$', '.'));
+        } catch (CoreException e) {
+            return null;
+        } finally {
+            lock.unlock();
+        }
+        return resolveAll(entries);
+    }
+
+    /**
+     * 前方一致で型の完全修飾名を補完します (索引を作り直さない。未作成の場合や更新中の場合は空リスト)。
+     * 接頭辞が "." を含む場合は完全修飾名、含まない場合は単純名 (大文字と小文字を区別しない) の前方一致です。
+     *
+     * @param limit 返す名前の数の上限
+     * @return 完全修飾名 (名前の順)
+     */
+    public List<String> completeTypeNames(String prefix, int limit) {
+        if (!built || !lock.tryLock()) return List.of();
+        try {
+            update(false, null);
+            String normalized = prefix.replace('$', '.');
+            boolean qualified = normalized.indexOf('.') >= 0;
+            String key = qualified ? normalized : normalized.toLowerCase(Locale.ROOT);
+            NavigableMap<String, List<TypeEntry>> map = qualified ? byQualifiedName : bySimpleName;
+            Set<String> names = new LinkedHashSet<>();
+            for (Map.Entry<String, List<TypeEntry>> entry : map.tailMap(key, true).entrySet()) {
+                if (!entry.getKey().startsWith(key) || names.size() >= limit) break;
+                for (TypeEntry type : entry.getValue()) {
+                    names.add(type.qualifiedName);
+                }
+            }
+            List<String> result = new ArrayList<>(names);
+            return result.size() > limit ? result.subList(0, limit) : result;
+        } catch (CoreException e) {
+            return List.of();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** 索引を破棄します (次の問い合わせで作り直す)。 */
+    public void clear() {
+        lock.lock();
+        try {
+            byQualifiedName.clear();
+            bySimpleName.clear();
+            byPath.clear();
+            built = false;
+            stale = true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void elementChanged(ElementChangedEvent event) {
+        collectChanges(event.getDelta());
+    }
+
+    /** 索引に影響する変更を記録する (索引そのものは次の問い合わせのときに更新する) */
+    private void collectChanges(IJavaElementDelta delta) {
+        IJavaElement element = delta.getElement();
+        int kind = delta.getKind();
+        int flags = delta.getFlags();
+        switch (element.getElementType()) {
+            case IJavaElement.JAVA_PROJECT:
+                if (kind != IJavaElementDelta.CHANGED || (flags & (IJavaElementDelta.F_OPENED | IJavaElementDelta.F_CLOSED
+                        | IJavaElementDelta.F_CLASSPATH_CHANGED | IJavaElementDelta.F_RESOLVED_CLASSPATH_CHANGED)) != 0) {
+                    stale = true;
+                    return;
+                }
+                break;
+            case IJavaElement.PACKAGE_FRAGMENT_ROOT:
+                if (kind != IJavaElementDelta.CHANGED || (flags & (IJavaElementDelta.F_ADDED_TO_CLASSPATH
+                        | IJavaElementDelta.F_REMOVED_FROM_CLASSPATH | IJavaElementDelta.F_ARCHIVE_CONTENT_CHANGED)) != 0) {
+                    stale = true;
+                    return;
+                }
+                break;
+            case IJavaElement.PACKAGE_FRAGMENT:
+                // 削除されたパッケージのコンパイルユニットは列挙できないため作り直す
+                if (kind != IJavaElementDelta.CHANGED) {
+                    stale = true;
+                    return;
+                }
+                break;
+            case IJavaElement.COMPILATION_UNIT:
+                // ワーキングコピーの作成・破棄だけの差分は無視する (保存されたときに F_CONTENT が通知される)
+                if (kind != IJavaElementDelta.CHANGED || (flags & (IJavaElementDelta.F_CONTENT | IJavaElementDelta.F_CHILDREN
+                        | IJavaElementDelta.F_FINE_GRAINED | IJavaElementDelta.F_PRIMARY_RESOURCE)) != 0) {
+                    synchronized (pendingUnits) {
+                        pendingUnits.add(((ICompilationUnit) element).getPrimary());
+                    }
+                }
+                return;
+            default:
+                break;
+        }
+        for (IJavaElementDelta child : delta.getAffectedChildren()) {
+            collectChanges(child);
+        }
+    }
+
+    /**
+     * 記録した変更を索引に反映します (lock を保持して呼び出す)。
+     *
+     * @param allowRebuild 索引が未作成か古い場合に作り直すか
+     */
+    private void update(boolean allowRebuild, IProgressMonitor monitor) throws CoreException {
+        if (allowRebuild && (stale || !built)) {
+            rebuild(monitor != null ? monitor : new NullProgressMonitor());
+        }
+        List<ICompilationUnit> units;
+        synchronized (pendingUnits) {
+            if (pendingUnits.isEmpty()) return;
+            units = new ArrayList<>(pendingUnits);
+            pendingUnits.clear();
+        }
+        for (ICompilationUnit unit : units) {
+            reindexUnit(unit);
+        }
+    }
+
+    /** すべての型の名前を検索して索引を作り直す */
+    private void rebuild(IProgressMonitor monitor) throws CoreException {
+        // 検索の開始後に届いた変更は、検索の後に読み直す
+        stale = false;
+        synchronized (pendingUnits) {
+            pendingUnits.clear();
+        }
+        byQualifiedName.clear();
+        bySimpleName.clear();
+        byPath.clear();
+        built = false;
+        new SearchEngine().searchAllTypeNames(null, SearchPattern.R_PATTERN_MATCH, null, SearchPattern.R_PATTERN_MATCH,
+                IJavaSearchConstants.TYPE, SearchEngine.createWorkspaceScope(), new TypeNameRequestor() {
+                    @Override
+                    public void acceptType(int modifiers, char[] packageName, char[] simpleTypeName,
+                            char[][] enclosingTypeNames, String path) {
+                        String qualifiedName = qualifiedName(packageName, simpleTypeName, enclosingTypeNames);
+                        if (qualifiedName != null) {
+                            add(new TypeEntry(qualifiedName, new String(simpleTypeName), path));
+                        }
+                    }
+                }, IJavaSearchConstants.WAIT_UNTIL_READY_TO_SEARCH, monitor);
+        built = true;
+    }
+
+    /** 完全修飾名。ローカル型や匿名型 (入れ子の名前が空か数字で始まる) の場合は null */
+    private static String qualifiedName(char[] packageName, char[] simpleTypeName, char[][] enclosingTypeNames) {
+        if (simpleTypeName.length == 0 || Character.isDigit(simpleTypeName[0])) return null;
+        StringBuilder name = new StringBuilder();
+        if (packageName.length > 0) {
+            name.append(packageName).append('.');
+        }
+        for (char[] enclosing : enclosingTypeNames) {
+            if (enclosing.length == 0 || Character.isDigit(enclosing[0])) return null;
+            name.append(enclosing).append('.');
+        }
+        return name.append(simpleTypeName).toString();
+    }
+
+    /** コンパイルユニットの型を読み直す (削除された場合は索引から除くだけ) */
+    private void reindexUnit(ICompilationUnit unit) {
+        String path = unit.getPath().toString();
+        List<TypeEntry> previous = byPath.remove(path);
+        if (previous != null) {
+            for (TypeEntry entry : previous) {
+                removeFrom(byQualifiedName, entry.qualifiedName, entry);
+                removeFrom(bySimpleName, entry.simpleName.toLowerCase(Locale.ROOT), entry);
+            }
+        }
+        if (!unit.exists()) return;
+        try {
+            for (IType type : unit.getAllTypes()) {
+                add(new TypeEntry(type.getFullyQualifiedName('.'), type.getElementName(), path));
+            }
+        } catch (JavaModelException e) {
+            System.err.println("警告(TypeIndex): 型を取得できません: " + path + " - " + e.getMessage());
+        }
+    }
+
+    private void add(TypeEntry entry) {
+        byQualifiedName.computeIfAbsent(entry.qualifiedName, k -> new ArrayList<>(1)).add(entry);
+        bySimpleName.computeIfAbsent(entry.simpleName.toLowerCase(Locale.ROOT), k -> new ArrayList<>(1)).add(entry);
+        byPath.computeIfAbsent(entry.path, k -> new ArrayList<>(1)).add(entry);
+    }
+
+    private static void removeFrom(Map<String, List<TypeEntry>> map, String key, TypeEntry entry) {
+        List<TypeEntry> entries = map.get(key);
+        if (entries != null && entries.remove(entry) && entries.isEmpty()) {
+            map.remove(key);
+        }
+    }
+
+    /** 完全修飾名で検索し、なければ単純名で検索する (lock を保持して呼び出す) */
+    private List<TypeEntry> lookup(String name) {
+        List<TypeEntry> entries = byQualifiedName.get(name);
+        if (entries != null) return new ArrayList<>(entries);
+        List<TypeEntry> result = new ArrayList<>();
+        if (name.indexOf('.') < 0) {
+            List<TypeEntry> candidates = bySimpleName.get(name.toLowerCase(Locale.ROOT));
+            if (candidates != null) {
+                for (TypeEntry entry : candidates) {
+                    if (entry.simpleName.equals(name)) result.add(entry);
+                }
+            }
+        }
+        return result;
+    }
+
+    private static List<IType> resolveAll(List<TypeEntry> entries) {
+        Set<IType> types = new LinkedHashSet<>();
+        for (TypeEntry entry : entries) {
+            try {
+                IType type = resolve(entry);
+                if (type != null && type.exists()) types.add(type);
+            } catch (JavaModelException e) {
+                System.err.println("警告(TypeIndex): 型を取得できません: " + entry.qualifiedName + " - " + e.getMessage());
+            }
+        }
+        return new ArrayList<>(types);
+    }
+
+    /** 索引のエントリの IType を作成する。ソースの型はファイルから、JAR 内の型は JAR をクラスパスに持つプロジェクトから取得する */
+    private static IType resolve(TypeEntry entry) throws JavaModelException {
+        int separator = entry.path.indexOf(IJavaSearchScope.JAR_FILE_ENTRY_SEPARATOR);
+        if (separator < 0) {
+            IFile file = ResourcesPlugin.getWorkspace().getRoot().getFile(new Path(entry.path));
+            IJavaElement element = JavaCore.create(file);
+            if (element instanceof ICompilationUnit) {
+                for (IType type : ((ICompilationUnit) element).getAllTypes()) {
+                    if (type.getFullyQualifiedName('.').equals(entry.qualifiedName)) return type;
+                }
+                return null;
+            }
+            if (element instanceof IOrdinaryClassFile) {
+                return ((IOrdinaryClassFile) element).getType();
+            }
+            return null;
+        }
+        IPath archivePath = new Path(entry.path.substring(0, separator));
+        IJavaModel javaModel = JavaCore.create(ResourcesPlugin.getWorkspace().getRoot());
+        for (IJavaProject project : javaModel.getJavaProjects()) {
+            if (!project.isOpen() || project.findPackageFragmentRoot(archivePath) == null) continue;
+            IType type = project.findType(entry.qualifiedName, new NullProgressMonitor());
+            if (type != null) return type;
+        }
+        return null;
+    }
+}
@@ -1,9 +1,16 @@
 package com.example.callhierarchyplugin.views;
 
+import com.example.callhierarchyplugin.index.PersistentCallIndex;
+import com.example.callhierarchyplugin.index.WorkspaceCallIndexer;
+import com.example.callhierarchyplugin.export.CallGraphFiles;
+import com.example.callhierarchyplugin.graph.io.CallGraphWriter;
+import com.example.callhierarchyplugin.search.CallGraphExportJob;
 import com.example.callhierarchyplugin.search.CallInfo;
 import com.example.callhierarchyplugin.search.DirectCsvExportJob;
-import com.example.callhierarchyplugin.search.RecursiveCallerSearchJob;
+import com.example.callhierarchyplugin.search.SearchCoordinator;
+import com.example.callhierarchyplugin.search.SearchStatistics;
 import com.example.callhierarchyplugin.utils.JDTUtils;
+import com.example.callhierarchyplugin.utils.TypeNameIndex;
 
 import org.eclipse.swt.widgets.Composite;
 import org.eclipse.ui.part.*;
@@ -22,15 +29,21 @@ import org.eclipse.swt.widgets.TableItem;
 import org.eclipse.swt.graphics.Point;
 import org.eclipse.swt.graphics.Rectangle;
 import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IStatus;
 import org.eclipse.jdt.core.IMethod;
+import org.eclipse.jdt.core.IType;
 import org.eclipse.jdt.core.JavaModelException;
 import org.eclipse.jdt.ui.JavaUI;
 import org.eclipse.jface.action.Action;
+import org.eclipse.jface.action.IAction;
 import org.eclipse.ui.IActionBars;
 import org.eclipse.jface.action.IMenuListener;
 import org.eclipse.jface.action.IMenuManager;
 import org.eclipse.jface.action.MenuManager;
+import org.eclipse.jface.bindings.keys.KeyStroke;
 import org.eclipse.jface.dialogs.MessageDialog;
+import org.eclipse.jface.fieldassist.ContentProposalAdapter;
+import org.eclipse.jface.fieldassist.TextContentAdapter;
 import org.eclipse.swt.SWT;
 import org.eclipse.swt.events.KeyAdapter;
 import org.eclipse.swt.events.KeyEvent;
@@ -48,11 +61,10 @@ import org.eclipse.jface.text.BadLocationException;
 import org.eclipse.jface.text.IDocument;
 
 
-import java.io.BufferedWriter;
-import java.io.FileOutputStream;
+import java.io.File;
 import java.io.IOException;
-import java.io.OutputStreamWriter;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
@@ -67,9 +79,59 @@ public class CallHierarchyView extends ViewPart {
     private Button searchButton;
     private Button directExportCsvButton;
     private TableViewer viewer;
+    private CallInfoLazyContentProvider contentProvider;
+    // 選択した結果の呼び出し経路 (経路モードの場合)
+    private TreeViewer pathViewer;
+    private Text statisticsText;
+    // 直前に表示した検索の計測値 (JSON 出力用)
+    private volatile SearchStatistics lastStatistics;
     // private Label countLabel; // ★★★ 件数表示用ラベルを削除 ★★★
 
-    private List<CallInfo> lastFullResults = Collections.emptyList();
+    // updateResults は検索ジョブのスレッドからも呼ばれる
+    private volatile List<CallInfo> lastFullResults = Collections.emptyList();
+    // 表示中の結果を求めた検索 (検索が正常に完了した場合のみ設定)
+    private volatile DisplayedSearch lastCompletedSearch;
+    // 表示用の検索要求。新しい検索を開始したら取り消す
+    private SearchCoordinator.Subscription currentSearch;
+    // 古い検索の完了通知を無視するための通し番号
+    private volatile int searchSequence;
+    // 検索中に通知され、まだテーブルに追加していない結果 (pendingRows で同期)
+    private final List<CallInfo> pendingRows = new ArrayList<>();
+    private boolean rowFlushScheduled;
+
+    /** 表示中の結果と、それを求めた検索の対象と設定 */
+    private static final class DisplayedSearch {
+        final IMethod method;
+        final List<CallInfo> results;
+        final boolean resolveOverrides;
+        final boolean recordPaths;
+        // 時間の上限などで探索を打ち切ったか
+        final boolean truncated;
+
+        DisplayedSearch(IMethod method, List<CallInfo> results, boolean resolveOverrides, boolean recordPaths, boolean truncated) {
+            this.method = method;
+            this.results = results;
+            this.resolveOverrides = resolveOverrides;
+            this.recordPaths = recordPaths;
+            this.truncated = truncated || results.stream().anyMatch(CallInfo::isTruncated);
+        }
+
+        /** 現在の設定で target を最後まで検索した結果として CSV 出力に使えるか */
+        boolean isReusableFor(IMethod target) {
+            SearchCoordinator coordinator = SearchCoordinator.getDefault();
+            return method.equals(target) && !truncated
+                    && resolveOverrides == coordinator.isResolveOverrides()
+                    && recordPaths == coordinator.isRecordPaths();
+        }
+    }
+
+    /** 途中結果をテーブルに反映する間隔 (ミリ秒)。この間に届いた結果は 1 回の更新にまとめる */
+    private static final int STREAM_REFRESH_INTERVAL_MS = 200;
+
+    /** 補完候補を自動的に表示する文字と、表示までの待ち時間 (ミリ秒) */
+    private static final char[] PROPOSAL_ACTIVATION_CHARS =
+            "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789_$.#".toCharArray();
+    private static final int PROPOSAL_ACTIVATION_DELAY_MS = 300;
 
     // テーブル列のインデックス (変更なし)
     private static final int COL_ORIGINAL_CALLER = 0;
@@ -95,7 +157,13 @@ public class CallHierarchyView extends ViewPart {
 
         methodInputText = new Text(topComposite, SWT.BORDER | SWT.SINGLE);
         methodInputText.setLayoutData(new GridData(SWT.FILL, SWT.CENTER, true, false));
-        methodInputText.setToolTipText("例: com.example.MyClass#myMethod");
+        methodInputText.setToolTipText("例: com.example.MyClass#myMethod または com.example.MyClass#myMethod(String,int) (Ctrl+Space で補完)");
+        // 型名の索引による補完。英数字と "." "#" の入力で候補を表示する
+        ContentProposalAdapter proposalAdapter = new ContentProposalAdapter(methodInputText, new TextContentAdapter(),
+                new MethodContentProposalProvider(), KeyStroke.getInstance(SWT.CTRL, SWT.SPACE), PROPOSAL_ACTIVATION_CHARS);
+        proposalAdapter.setProposalAcceptanceStyle(ContentProposalAdapter.PROPOSAL_REPLACE);
+        proposalAdapter.setAutoActivationDelay(PROPOSAL_ACTIVATION_DELAY_MS);
+        TypeNameIndex.getDefault().scheduleBuild();
 
         searchButton = new Button(topComposite, SWT.PUSH);
         searchButton.setText("検索");
@@ -108,14 +176,37 @@ public class CallHierarchyView extends ViewPart {
 
 
         // --- 中央テーブルビューアエリア (変更なし) ---
-        viewer = new TableViewer(parent, SWT.MULTI | SWT.H_SCROLL | SWT.V_SCROLL | SWT.FULL_SELECTION | SWT.BORDER);
+        // 仮想テーブル: TableItem とラベルは表示範囲に入った行についてだけ作成する
+        viewer = new TableViewer(parent, SWT.MULTI | SWT.H_SCROLL | SWT.V_SCROLL | SWT.FULL_SELECTION | SWT.BORDER | SWT.VIRTUAL);
         // ★★★ テーブルが利用可能な垂直スペース全体を占めるようにする ★★★
         viewer.getControl().setLayoutData(new GridData(SWT.FILL, SWT.FILL, true, true));
         createColumns(viewer);
         final Table table = viewer.getTable();
         table.setHeaderVisible(true);
         table.setLinesVisible(true);
-        viewer.setContentProvider(ArrayContentProvider.getInstance());
+        contentProvider = new CallInfoLazyContentProvider();
+        viewer.setContentProvider(contentProvider);
+        viewer.setUseHashlookup(true);
+
+        // --- 呼び出し経路エリア (テーブルで選択した結果の経路を展開して表示) ---
+        Label pathLabel = new Label(parent, SWT.NONE);
+        pathLabel.setText("呼び出し経路:");
+        pathViewer = new TreeViewer(parent, SWT.SINGLE | SWT.H_SCROLL | SWT.V_SCROLL | SWT.BORDER);
+        GridData pathData = new GridData(SWT.FILL, SWT.END, true, false);
+        pathData.heightHint = pathViewer.getTree().getItemHeight() * 8;
+        pathViewer.getControl().setLayoutData(pathData);
+        CallPathContentProvider pathContentProvider = new CallPathContentProvider();
+        pathViewer.setContentProvider(pathContentProvider);
+        pathViewer.setLabelProvider(pathContentProvider.new PathLabelProvider());
+
+        // --- 検索統計エリア ---
+        Label statisticsLabel = new Label(parent, SWT.NONE);
+        statisticsLabel.setText("検索統計:");
+        statisticsText = new Text(parent, SWT.BORDER | SWT.MULTI | SWT.READ_ONLY | SWT.WRAP);
+        GridData statisticsData = new GridData(SWT.FILL, SWT.END, true, false);
+        statisticsData.heightHint = statisticsText.getLineHeight() * 3;
+        statisticsText.setLayoutData(statisticsData);
+        statisticsText.setText("(検索後に表示されます)");
 
         // --- 下部エリア (件数ラベルとボタンがあったコンポジットを削除) ---
         // Composite bottomComposite = new Composite(parent, SWT.NONE); // ★★★ 削除 ★★★
@@ -125,7 +216,8 @@ public class CallHierarchyView extends ViewPart {
         methodInputText.addKeyListener(new KeyAdapter() {
             @Override
             public void keyPressed(KeyEvent e) {
-                if (e.keyCode == SWT.CR || e.keyCode == SWT.KEYPAD_CR) { startSearchFromInput(); }
+                // 補完候補を確定した Enter (doit が false になる) では検索しない
+                if ((e.keyCode == SWT.CR || e.keyCode == SWT.KEYPAD_CR) && e.doit && !proposalAdapter.isProposalPopupOpen()) { startSearchFromInput(); }
             }
         });
         searchButton.addSelectionListener(new SelectionAdapter() {
@@ -140,8 +232,69 @@ public class CallHierarchyView extends ViewPart {
         });
 
         addMouseListener(); // テーブルのダブルクリックリスナー
+        viewer.addSelectionChangedListener(event -> showCallPath(event.getStructuredSelection().getFirstElement()));
+        pathViewer.addDoubleClickListener(event -> openPathElement(event.getStructuredSelection().getFirstElement()));
 
         getSite().setSelectionProvider(viewer);
+        contributeToActionBars();
+    }
+
+    /** ビューのメニューにアクションを追加 */
+    private void contributeToActionBars() {
+        IActionBars bars = getViewSite().getActionBars();
+        Action buildIndexAction = new Action("ワークスペースの呼び出しインデックスを作成") {
+            @Override
+            public void run() {
+                PersistentCallIndex index = PersistentCallIndex.getDefault();
+                if (index == null) {
+                    MessageDialog.openError(getSite().getShell(), "エラー", "呼び出しインデックスが初期化されていません。");
+                    return;
+                }
+                WorkspaceCallIndexer indexer = new WorkspaceCallIndexer(index);
+                indexer.setUser(true);
+                indexer.schedule();
+            }
+        };
+        buildIndexAction.setToolTipText("すべてのソースファイルを解析し、以降の検索を SearchEngine なしで行えるようにします");
+        bars.getMenuManager().add(buildIndexAction);
+
+        Action overridesAction = new Action("オーバーライド関係を考慮", IAction.AS_CHECK_BOX) {
+            @Override
+            public void run() {
+                SearchCoordinator.getDefault().setResolveOverrides(isChecked());
+            }
+        };
+        overridesAction.setChecked(SearchCoordinator.getDefault().isResolveOverrides());
+        overridesAction.setToolTipText("スーパータイプやインターフェースの宣言を経由した呼び出しも呼び出し元として検索します");
+        bars.getMenuManager().add(overridesAction);
+
+        Action pathsAction = new Action("呼び出し経路を記録", IAction.AS_CHECK_BOX) {
+            @Override
+            public void run() {
+                SearchCoordinator.getDefault().setRecordPaths(isChecked());
+            }
+        };
+        pathsAction.setChecked(SearchCoordinator.getDefault().isRecordPaths());
+        pathsAction.setToolTipText("起点から直接の呼び出し元までの経路を記録し、選択した結果の経路を展開して表示できるようにします");
+        bars.getMenuManager().add(pathsAction);
+
+        Action exportStatisticsAction = new Action("検索統計を JSON で保存...") {
+            @Override
+            public void run() {
+                exportStatistics();
+            }
+        };
+        exportStatisticsAction.setToolTipText("直前の検索のフェーズごとの時間や検索回数を JSON ファイルに保存します");
+        bars.getMenuManager().add(exportStatisticsAction);
+
+        Action exportGraphAction = new Action("呼び出し関係グラフを出力...") {
+            @Override
+            public void run() {
+                exportCallGraph();
+            }
+        };
+        exportGraphAction.setToolTipText("入力したメソッドの呼び出し元を検索し、探索したグラフを DOT / GraphML / バイナリ形式で保存します");
+        bars.getMenuManager().add(exportGraphAction);
     }
 
     /** テーブルビューアに列を作成 (変更なし) */
@@ -150,7 +303,7 @@ public class CallHierarchyView extends ViewPart {
         int[] bounds = { 250, 250, 50, 400 };
         TableViewerColumn col;
         col = createTableViewerColumn(titles[COL_ORIGINAL_CALLER], bounds[COL_ORIGINAL_CALLER], COL_ORIGINAL_CALLER);
-        col.setLabelProvider(new ColumnLabelProvider() { @Override public String getText(Object element) { return ((CallInfo) element).getOriginalCallerName(); } });
+        col.setLabelProvider(new ColumnLabelProvider() { @Override public String getText(Object element) { CallInfo info = (CallInfo) element; return info.isTruncated() ? info.getOriginalCallerName() + " (打ち切り)" : info.getOriginalCallerName(); } });
         col = createTableViewerColumn(titles[COL_DIRECT_CALLER], bounds[COL_DIRECT_CALLER], COL_DIRECT_CALLER);
         col.setLabelProvider(new ColumnLabelProvider() { @Override public String getText(Object element) { return ((CallInfo) element).getDirectCallerName(); } });
         col = createTableViewerColumn(titles[COL_LINE], bounds[COL_LINE], COL_LINE);
@@ -213,7 +366,12 @@ public class CallHierarchyView extends ViewPart {
             if (methodIdentifier instanceof String) {
                 String inputText = (String) methodIdentifier;
                 searchTargetDescription = inputText;
-                targetMethod = JDTUtils.findMethodFromQualifiedName(inputText);
+                List<IType> types = findInputTypes(inputText);
+                if (types == null) {
+                    showTypeIndexNotReady();
+                    return;
+                }
+                targetMethod = JDTUtils.findMethodInTypes(inputText, types);
                  if (targetMethod == null) {
                      setMessage("エラー: メソッドが見つかりません - " + inputText);
                      updateResults(Collections.emptyList());
@@ -223,7 +381,8 @@ public class CallHierarchyView extends ViewPart {
             } else if (methodIdentifier instanceof IMethod) {
                 targetMethod = (IMethod) methodIdentifier;
                 searchTargetDescription = JDTUtils.getMethodQualifiedName(targetMethod);
-                methodInputText.setText(searchTargetDescription);
+                // 再検索で同じオーバーロードに解決できるよう、引数の型を含めて入力欄に設定する
+                methodInputText.setText(JDTUtils.getMethodSignature(targetMethod));
             } else {
                  setMessage("エラー: 無効な検索対象です。");
                  updateResults(Collections.emptyList());
@@ -234,20 +393,29 @@ public class CallHierarchyView extends ViewPart {
             // 検索ジョブの起動
             if (targetMethod != null) {
                 if (directExport) {
-                    // 直接CSV出力ジョブを起動
-                    setMessage("CSV出力のための検索を実行中: " + searchTargetDescription + " ...");
+                    // 直接CSV出力ジョブを起動 (表示中の結果が同じメソッドを同じ設定で最後まで検索したものであれば再検索しない)
+                    // 出力先は検索の開始前に選択し、ジョブは検索しながら書き込む
+                    File outputFile = chooseCsvFile(targetMethod);
+                    if (outputFile == null) {
+                        setMessage("CSV出力がキャンセルされました。");
+                        return;
+                    }
+                    DisplayedSearch displayed = lastCompletedSearch;
+                    List<CallInfo> displayedResults = displayed != null && displayed.isReusableFor(targetMethod) ? displayed.results : null;
+                    setMessage(displayedResults != null
+                            ? "表示中の結果をCSV出力します: " + searchTargetDescription
+                            : "CSV出力のための検索を実行中: " + searchTargetDescription + " ...");
                     // countLabel.setText("検索中..."); // ★★★ 削除 ★★★
-                    DirectCsvExportJob job = new DirectCsvExportJob(targetMethod, getSite().getShell());
+                    DirectCsvExportJob job = new DirectCsvExportJob(targetMethod, displayedResults, outputFile, getSite().getShell());
                     job.setUser(true);
                     job.schedule();
                 } else {
-                    // 通常の検索ジョブを起動 (表示あり)
+                    // 通常の検索を開始 (表示あり)。実行中の前回の検索は取り消す
                     setMessage("検索中: " + searchTargetDescription + " ...");
                     updateResults(Collections.emptyList()); // 結果クリア
+                    lastCompletedSearch = null;
                     // countLabel.setText("検索中..."); // ★★★ 削除 ★★★
-                    RecursiveCallerSearchJob job = new RecursiveCallerSearchJob(targetMethod, this);
-                    job.setUser(true);
-                    job.schedule();
+                    startViewSearch(targetMethod);
                 }
             }
         } catch (CoreException e) {
@@ -260,45 +428,215 @@ public class CallHierarchyView extends ViewPart {
 
 
     /**
-     * 検索結果でテーブルビューアを更新します。
-     * 10件を超える場合はダイアログで確認します。
-     * UI スレッドで呼び出す必要があります。
+     * 入力された修飾名のクラス名に一致する型を、型名の索引から求めます (UI スレッドで索引の作成を待たない)。
+     *
+     * @return 一致した型。索引が作成中か更新中で求められない場合は null (索引の作成をジョブで開始する)
      */
-    public void updateResults(final List<CallInfo> results) {
-        this.lastFullResults = results != null ? new ArrayList<>(results) : Collections.emptyList();
+    private List<IType> findInputTypes(String inputText) {
+        String typeName = JDTUtils.getQualifiedNameTypePart(inputText);
+        if (typeName == null) return List.of();
+        List<IType> types = TypeNameIndex.getDefault().tryFindIndexedTypes(typeName);
+        if (types == null) {
+            TypeNameIndex.getDefault().scheduleBuild();
+        }
+        return types;
+    }
 
-        Display.getDefault().asyncExec(() -> {
-            if (viewer == null || viewer.getControl().isDisposed()) {
-                return;
+    /** 型名の索引を作成中のため、メソッドを解決できないことを通知 */
+    private void showTypeIndexNotReady() {
+        MessageDialog.openInformation(getSite().getShell(), "情報",
+                "型名の索引を作成中です。しばらくしてから再度実行してください。");
+    }
+
+    /** SearchCoordinator に表示用の検索を要求し、前回の要求を取り消す */
+    private void startViewSearch(IMethod targetMethod) {
+        if (currentSearch != null) {
+            currentSearch.cancel();
+        }
+        final int sequence = ++searchSequence;
+        synchronized (pendingRows) {
+            pendingRows.clear();
+        }
+        // 検索を開始した時点の設定 (結果を CSV 出力で再利用できるかの判定に使う)
+        final boolean overrides = SearchCoordinator.getDefault().isResolveOverrides();
+        final boolean paths = SearchCoordinator.getDefault().isRecordPaths();
+        final boolean[] truncated = new boolean[1];
+        currentSearch = SearchCoordinator.getDefault().search(targetMethod, new SearchCoordinator.Listener() {
+            @Override
+            public void resultsFound(IMethod target, List<CallInfo> results) {
+                if (sequence != searchSequence) return;
+                queueStreamedRows(sequence, results);
+            }
+
+            @Override
+            public void statisticsAvailable(IMethod target, SearchStatistics statistics) {
+                if (sequence != searchSequence) return;
+                truncated[0] = statistics.isTruncated();
+                showStatistics(statistics);
             }
 
-            int resultCount = lastFullResults.size();
-            boolean displayResults = true;
-
-            // 件数チェックと確認ダイアログ
-            if (resultCount > 10) {
-                boolean confirm = MessageDialog.openQuestion(
-                    viewer.getControl().getShell(),
-                    "検索結果多数",
-                    "結果が " + resultCount + " 件見つかりました (10件を超えています)。\n表に表示しますか？\n\n" +
-                    "「いいえ」を選択した場合、表への表示は行われません。"
-                );
-                if (!confirm) {
-                    displayResults = false;
+            @Override
+            public void searchDone(IMethod target, IStatus status, List<CallInfo> results) {
+                if (sequence != searchSequence) return; // 新しい検索で置き換えられた
+                // 最終結果で置き換えるため、未反映の途中結果は捨てる
+                synchronized (pendingRows) {
+                    pendingRows.clear();
+                }
+                if (status.isOK()) {
+                    updateResults(results);
+                    lastCompletedSearch = new DisplayedSearch(target, lastFullResults, overrides, paths, truncated[0]);
+                } else if (status.getSeverity() == IStatus.CANCEL) {
+                    // キャンセルまでに構築したグラフからの途中結果を表示する (CSV 出力では再利用しない)
+                    updateResults(results);
+                    setMessage("検索がキャンセルされました (途中結果 " + results.size() + " 件)。");
+                } else {
+                    setMessage("検索中にエラーが発生しました: " + status.getMessage());
                 }
             }
+        });
+    }
 
-            // 結果を表示するかどうかに基づいて処理
-            if (displayResults) {
-                viewer.setInput(lastFullResults);
-                setMessage(resultCount + " 件の結果を表示しました。");
-            } else {
-                viewer.setInput(Collections.emptyList());
-                setMessage(resultCount + " 件の結果が見つかりました (表示中止)。");
+    /**
+     * 検索中に確定した結果を溜め、一定間隔ごとに 1 回だけ UI スレッドでテーブルに追加します。
+     * 結果の通知ごとに asyncExec すると大量の結果で UI スレッドのキューが溢れるため、
+     * 反映が予約されていない場合だけ asyncExec し、間隔の経過後にそれまでの結果をまとめて追加します。
+     */
+    private void queueStreamedRows(int sequence, List<CallInfo> results) {
+        synchronized (pendingRows) {
+            pendingRows.addAll(results);
+            if (rowFlushScheduled) return;
+            rowFlushScheduled = true;
+        }
+        Display display = Display.getDefault();
+        display.asyncExec(() -> display.timerExec(STREAM_REFRESH_INTERVAL_MS, () -> flushStreamedRows(sequence)));
+    }
+
+    /** 溜まっている途中結果をテーブルに追加 (UI スレッドで実行) */
+    private void flushStreamedRows(int sequence) {
+        List<CallInfo> rows;
+        synchronized (pendingRows) {
+            rows = new ArrayList<>(pendingRows);
+            pendingRows.clear();
+            rowFlushScheduled = false;
+        }
+        if (rows.isEmpty() || sequence != searchSequence || viewer == null || viewer.getControl().isDisposed()) {
+            return;
+        }
+        contentProvider.append(rows);
+        setMessage("検索中: " + contentProvider.size() + " 件の結果を表示しています...");
+    }
+
+    /** 選択した結果の呼び出し経路を表示 (UI スレッドで実行)。最初の 2 段だけ展開する */
+    private void showCallPath(Object selected) {
+        if (pathViewer == null || pathViewer.getControl().isDisposed()) return;
+        pathViewer.setInput(selected instanceof CallInfo ? selected : null);
+        pathViewer.expandToLevel(2);
+    }
+
+    /** 経路の木の節のメソッドをエディターで開く */
+    private void openPathElement(Object element) {
+        IMethod method = CallPathContentProvider.methodOf(element);
+        if (method == null || !method.exists()) return;
+        try {
+            JavaUI.openInEditor(method);
+        } catch (PartInitException | JavaModelException ex) {
+            handleOpenEditorException(ex);
+        }
+    }
+
+    /** 検索の計測値を統計エリアに表示 */
+    private void showStatistics(SearchStatistics statistics) {
+        lastStatistics = statistics;
+        String text = statistics.toDisplayString();
+        Display.getDefault().asyncExec(() -> {
+            if (statisticsText != null && !statisticsText.isDisposed()) {
+                statisticsText.setText(text);
+            }
+        });
+    }
+
+    /** 直前の検索の計測値を JSON ファイルに保存 */
+    private void exportStatistics() {
+        SearchStatistics statistics = lastStatistics;
+        if (statistics == null) {
+            MessageDialog.openInformation(getSite().getShell(), "情報", "保存する検索統計がありません。先に検索を実行してください。");
+            return;
+        }
+        FileDialog dialog = new FileDialog(getSite().getShell(), SWT.SAVE);
+        dialog.setText("検索統計を JSON として保存");
+        dialog.setFilterNames(new String[] { "JSON ファイル (*.json)", "すべてのファイル (*.*)" });
+        dialog.setFilterExtensions(new String[] { "*.json", "*.*" });
+        dialog.setFileName("search-statistics.json");
+        dialog.setOverwrite(true);
+        String path = dialog.open();
+        if (path == null) return;
+        try {
+            Files.writeString(new File(path).toPath(), statistics.toJson() + System.lineSeparator(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            e.printStackTrace();
+            MessageDialog.openError(getSite().getShell(), "エラー", "検索統計の保存中にエラーが発生しました。\n" + e.getMessage());
+        }
+    }
+
+    /** 入力欄のメソッド (空の場合は表示中の結果のメソッド) の呼び出し関係グラフをファイルに出力 */
+    private void exportCallGraph() {
+        DisplayedSearch displayed = lastCompletedSearch;
+        IMethod targetMethod = displayed != null ? displayed.method : null;
+        String inputText = methodInputText.getText().trim();
+        try {
+            if (!inputText.isEmpty()) {
+                List<IType> types = findInputTypes(inputText);
+                if (types == null) {
+                    showTypeIndexNotReady();
+                    return;
+                }
+                targetMethod = JDTUtils.findMethodInTypes(inputText, types);
             }
+        } catch (CoreException e) {
+            e.printStackTrace();
+            targetMethod = null;
+        }
+        if (targetMethod == null) {
+            MessageDialog.openInformation(getSite().getShell(), "情報", "出力するメソッドが見つかりません。入力欄にメソッドを指定してください。");
+            return;
+        }
+        FileDialog dialog = new FileDialog(getSite().getShell(), SWT.SAVE);
+        dialog.setText("呼び出し関係グラフを保存");
+        dialog.setFilterNames(new String[] { "DOT ファイル (*.dot)", "GraphML ファイル (*.graphml)",
+                "バイナリ形式 (*.cgraph)", "すべてのファイル (*.*)" });
+        dialog.setFilterExtensions(new String[] { "*.dot", "*.graphml", "*.cgraph", "*.*" });
+        dialog.setFileName(targetMethod.getElementName() + "_callers.dot");
+        dialog.setOverwrite(true);
+        String path = dialog.open();
+        if (path == null) return;
+        File outputFile = new File(path);
+        CallGraphWriter.Format format = CallGraphFiles.formatOf(outputFile);
+        if (format == null) {
+            MessageDialog.openError(getSite().getShell(), "エラー", "ファイルの拡張子から出力形式を判定できません (.dot / .graphml / .cgraph。gzip 圧縮する場合は .gz を付けてください)。");
+            return;
+        }
+        setMessage("呼び出し関係グラフを出力するための検索を実行中: " + JDTUtils.getMethodQualifiedName(targetMethod) + " ...");
+        CallGraphExportJob job = new CallGraphExportJob(targetMethod, outputFile, format, getSite().getShell());
+        job.setUser(true);
+        job.schedule();
+    }
 
-            // 件数ラベルを更新するコードは削除
-            // countLabel.setText(resultCount + " 件"); // ★★★ 削除 ★★★
+    /**
+     * 検索結果でテーブルビューアを更新します。
+     * 表示中の途中結果は最終結果で置き換えます。テーブルは仮想テーブルのため、件数に関係なくそのまま表示します。
+     */
+    public void updateResults(final List<CallInfo> results) {
+        this.lastFullResults = results != null ? new ArrayList<>(results) : Collections.emptyList();
+
+        Display.getDefault().asyncExec(() -> {
+            if (viewer == null || viewer.getControl().isDisposed()) {
+                return;
+            }
+            viewer.setInput(lastFullResults);
+            pathViewer.setInput(null);
+            long truncatedCount = lastFullResults.stream().filter(CallInfo::isTruncated).count();
+            setMessage(lastFullResults.size() + " 件の結果を表示しました。"
+                    + (truncatedCount > 0 ? " (探索を打ち切ったため、" + truncatedCount + " 件は起点が未確定です)" : ""));
         });
     }
 
@@ -322,40 +660,24 @@ public class CallHierarchyView extends ViewPart {
 
     @Override
     public void dispose() {
+        if (currentSearch != null) {
+            currentSearch.cancel();
+            currentSearch = null;
+        }
         super.dispose();
     }
 
-    // --- CSV エクスポート関連メソッド (変更なし) ---
-    public void exportResultsToCsv(List<CallInfo> results, String filePath) throws IOException {
-        try (FileOutputStream fos = new FileOutputStream(filePath);
-             OutputStreamWriter osw = new OutputStreamWriter(fos, StandardCharsets.UTF_8);
-             BufferedWriter writer = new BufferedWriter(osw)) {
-            writer.write('\uFEFF');
-            String[] headers = { "起点クラス・メソッド", "直接の呼び出し元", "行", "引数" };
-            writer.write(String.join(",", escapeCsvFields(headers)));
-            writer.newLine();
-            for (CallInfo info : results) {
-                String[] data = {
-                    info.getOriginalCallerName(), info.getDirectCallerName(),
-                    info.getLineNumber() > 0 ? String.valueOf(info.getLineNumber()) : "",
-                    info.getArgumentsAsString()
-                };
-                writer.write(String.join(",", escapeCsvFields(data)));
-                writer.newLine();
-            }
-        }
-    }
-    private String[] escapeCsvFields(String[] fields) {
-        String[] escapedFields = new String[fields.length];
-        for (int i = 0; i < fields.length; i++) {
-            escapedFields[i] = escapeCsvField(fields[i]);
-        }
-        return escapedFields;
-    }
-    private String escapeCsvField(String data) {
-        if (data == null) return "\"\"";
-        String escapedData = data.replace("\"", "\"\"");
-        return "\"" + escapedData + "\"";
+    // --- CSV エクスポート関連メソッド ---
+    /** CSV の出力先をファイルダイアログで選択 (キャンセルされた場合は null) */
+    private File chooseCsvFile(IMethod targetMethod) {
+        FileDialog dialog = new FileDialog(getSite().getShell(), SWT.SAVE);
+        dialog.setText("CSVファイルとして保存");
+        dialog.setFilterNames(new String[] { "CSV ファイル (*.csv)", "gzip 圧縮 CSV ファイル (*.csv.gz)", "すべてのファイル (*.*)" });
+        dialog.setFilterExtensions(new String[] { "*.csv", "*.csv.gz", "*.*" });
+        dialog.setFileName(targetMethod.getElementName() + "_callers.csv"); // デフォルトファイル名
+        dialog.setOverwrite(true);
+        String path = dialog.open();
+        return path != null ? new File(path) : null;
     }
 
     // --- マウスリスナー (ダブルクリック処理) (変更なし) ---
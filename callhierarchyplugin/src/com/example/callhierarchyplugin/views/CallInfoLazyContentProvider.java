@@ -0,0 +1,61 @@
+package com.example.callhierarchyplugin.views;
+
+import com.example.callhierarchyplugin.search.CallInfo;
+
+import org.eclipse.jface.viewers.ILazyContentProvider;
+import org.eclipse.jface.viewers.TableViewer;
+import org.eclipse.jface.viewers.Viewer;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * SWT.VIRTUAL のテーブル用の遅延コンテンツプロバイダー。
+ * <p>
+ * 入力の List&lt;CallInfo&gt; を保持し、テーブルには件数だけを設定します。
+ * TableItem は表示範囲に入った行についてだけ {@link #updateElement(int)} で作成されるため、
+ * 数万件の結果でも UI スレッドの処理量は表示中の行数に比例します。
+ * UI スレッドからのみ使用してください。
+ */
+class CallInfoLazyContentProvider implements ILazyContentProvider {
+
+    private TableViewer viewer;
+    private final List<CallInfo> rows = new ArrayList<>();
+
+    @Override
+    public void inputChanged(Viewer viewer, Object oldInput, Object newInput) {
+        this.viewer = (TableViewer) viewer;
+        rows.clear();
+        if (newInput instanceof Collection) {
+            for (Object element : (Collection<?>) newInput) {
+                rows.add((CallInfo) element);
+            }
+        }
+        this.viewer.setItemCount(rows.size());
+    }
+
+    @Override
+    public void updateElement(int index) {
+        if (index < rows.size()) {
+            viewer.replace(rows.get(index), index);
+        }
+    }
+
+    /** 行を末尾に追加します。追加した行も表示範囲に入るまで TableItem は作成されません。 */
+    public void append(List<CallInfo> added) {
+        if (viewer == null || added.isEmpty()) return;
+        rows.addAll(added);
+        viewer.setItemCount(rows.size());
+    }
+
+    /** 現在の行数 */
+    public int size() {
+        return rows.size();
+    }
+
+    @Override
+    public void dispose() {
+        rows.clear();
+    }
+}
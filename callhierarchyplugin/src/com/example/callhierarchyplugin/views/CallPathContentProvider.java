@@ -0,0 +1,102 @@
+package com.example.callhierarchyplugin.views;
+
+import com.example.callhierarchyplugin.graph.CallPaths;
+import com.example.callhierarchyplugin.search.CallInfo;
+import com.example.callhierarchyplugin.search.CallPath;
+import com.example.callhierarchyplugin.utils.JDTUtils;
+
+import org.eclipse.jdt.core.IMethod;
+import org.eclipse.jface.viewers.ITreeContentProvider;
+import org.eclipse.jface.viewers.LabelProvider;
+import org.eclipse.jface.viewers.Viewer;
+
+/**
+ * 選択した結果 (CallInfo) の呼び出し経路を、起点を根とする木として表示するコンテンツプロバイダー。
+ * <p>
+ * 木の節は {@link CallPaths.PathNode} で、展開したときに初めて子 (経路を 1 段延ばしたもの) を計算します。
+ * 直接の呼び出し元の節の下には検索対象のメソッドを 1 つだけ表示します。
+ * 経路モードで検索していない結果や、検索の終了前の結果には説明の文字列だけを表示します。
+ */
+class CallPathContentProvider implements ITreeContentProvider {
+
+    /** 直接の呼び出し元の下に表示する検索対象 (同じメソッドが複数の節に現れるため、節ごとに作成する) */
+    static final class TargetElement {
+        final IMethod method;
+
+        TargetElement(IMethod method) {
+            this.method = method;
+        }
+    }
+
+    /** 直接の呼び出し元の節に表示する行番号を取得するため、入力の CallInfo を保持する */
+    private CallInfo input;
+
+    @Override
+    public void inputChanged(Viewer viewer, Object oldInput, Object newInput) {
+        input = newInput instanceof CallInfo ? (CallInfo) newInput : null;
+    }
+
+    @Override
+    public Object[] getElements(Object inputElement) {
+        if (!(inputElement instanceof CallInfo)) return new Object[0];
+        CallPath path = ((CallInfo) inputElement).getCallPath();
+        if (path == null) {
+            return new Object[] { "呼び出し経路は記録されていません (ビューのメニューの「呼び出し経路を記録」を有効にして検索してください)" };
+        }
+        CallPaths<IMethod>.PathNode tree = path.getTree();
+        if (tree == null) {
+            return new Object[] { "最短経路: " + path.getShortestPathText() + " (すべての経路は検索の終了後に表示されます)" };
+        }
+        return new Object[] { tree };
+    }
+
+    @Override
+    public Object[] getChildren(Object parentElement) {
+        if (!(parentElement instanceof CallPaths.PathNode)) return new Object[0];
+        CallPaths<?>.PathNode node = (CallPaths<?>.PathNode) parentElement;
+        if (node.isEnd()) {
+            return input != null && input.getTarget() != null ? new Object[] { new TargetElement(input.getTarget()) } : new Object[0];
+        }
+        return node.children().toArray();
+    }
+
+    @Override
+    public Object getParent(Object element) {
+        return element instanceof CallPaths.PathNode ? ((CallPaths<?>.PathNode) element).parent() : null;
+    }
+
+    @Override
+    public boolean hasChildren(Object element) {
+        // 終点の節の子は検索対象だけ。途中の節は展開するまで子を計算しない (子は必ず 1 つ以上ある)
+        return element instanceof CallPaths.PathNode
+                && (!((CallPaths<?>.PathNode) element).isEnd() || (input != null && input.getTarget() != null));
+    }
+
+    /** 節に対応するメソッド (説明の文字列の場合は null) */
+    static IMethod methodOf(Object element) {
+        if (element instanceof CallPaths.PathNode) {
+            return (IMethod) ((CallPaths<?>.PathNode) element).value();
+        }
+        if (element instanceof TargetElement) {
+            return ((TargetElement) element).method;
+        }
+        return null;
+    }
+
+    /** 経路の木のラベル */
+    class PathLabelProvider extends LabelProvider {
+        @Override
+        public String getText(Object element) {
+            IMethod method = methodOf(element);
+            if (method == null) return String.valueOf(element);
+            String name = JDTUtils.formatMethodName(method);
+            if (element instanceof TargetElement) {
+                return name + " (検索対象)";
+            }
+            if (((CallPaths<?>.PathNode) element).isEnd() && input != null && input.getLineNumber() > 0) {
+                return name + " (L" + input.getLineNumber() + " で呼び出し)";
+            }
+            return name;
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.callhierarchyplugin.views;
+
+import com.example.callhierarchyplugin.utils.JDTUtils;
+import com.example.callhierarchyplugin.utils.TypeNameIndex;
+
+import org.eclipse.jdt.core.IMethod;
+import org.eclipse.jdt.core.IType;
+import org.eclipse.jdt.core.JavaModelException;
+import org.eclipse.jdt.core.Signature;
+import org.eclipse.jface.fieldassist.ContentProposal;
+import org.eclipse.jface.fieldassist.IContentProposal;
+import org.eclipse.jface.fieldassist.IContentProposalProvider;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * メソッドの入力欄の補完候補。{@link TypeNameIndex} を使い、入力中の内容に応じて次の候補を返します。
+ * <ul>
+ * <li>"#" の前: 型名 (完全修飾名または単純名の前方一致)。選択すると "完全修飾名#" を入力する</li>
+ * <li>"#" の後: その型のメソッドのうち名前が前方一致するもの。選択すると引数の型を含む名前
+ *     ({@link JDTUtils#getMethodSignature}) を入力する</li>
+ * </ul>
+ * 索引の作成中は候補を返しません。
+ */
+class MethodContentProposalProvider implements IContentProposalProvider {
+
+    /** 表示する候補の数の上限 */
+    private static final int MAX_PROPOSALS = 50;
+
+    @Override
+    public IContentProposal[] getProposals(String contents, int position) {
+        String prefix = contents.substring(0, position).trim();
+        int hash = prefix.indexOf('#');
+        List<IContentProposal> proposals = hash < 0 ? typeProposals(prefix) : methodProposals(prefix.substring(0, hash), prefix.substring(hash + 1));
+        return proposals.toArray(new IContentProposal[0]);
+    }
+
+    private static List<IContentProposal> typeProposals(String prefix) {
+        List<IContentProposal> proposals = new ArrayList<>();
+        if (prefix.isEmpty()) return proposals;
+        for (String qualifiedName : TypeNameIndex.getDefault().completeTypeNames(prefix, MAX_PROPOSALS)) {
+            int lastDot = qualifiedName.lastIndexOf('.');
+            String label = lastDot >= 0
+                    ? qualifiedName.substring(lastDot + 1) + " - " + qualifiedName.substring(0, lastDot)
+                    : qualifiedName;
+            proposals.add(new ContentProposal(qualifiedName + "#", label, null));
+        }
+        return proposals;
+    }
+
+    private static List<IContentProposal> methodProposals(String typeName, String methodPrefix) {
+        List<IContentProposal> proposals = new ArrayList<>();
+        int open = methodPrefix.indexOf('(');
+        String namePrefix = (open >= 0 ? methodPrefix.substring(0, open) : methodPrefix).toLowerCase(Locale.ROOT);
+        for (IType type : TypeNameIndex.getDefault().findIndexedTypes(typeName)) {
+            try {
+                for (IMethod method : type.getMethods()) {
+                    String name = method.isConstructor() ? type.getElementName() : method.getElementName();
+                    if (!name.toLowerCase(Locale.ROOT).startsWith(namePrefix)) continue;
+                    proposals.add(new ContentProposal(JDTUtils.getMethodSignature(method),
+                            name + parameterList(method) + " - " + type.getFullyQualifiedName('.'), null));
+                    if (proposals.size() >= MAX_PROPOSALS) return proposals;
+                }
+            } catch (JavaModelException e) {
+                System.err.println("警告(View): メソッドを取得できません: " + type.getFullyQualifiedName('.') + " - " + e.getMessage());
+            }
+        }
+        return proposals;
+    }
+
+    /** 表示用の引数の型の並び (例: "(String, List<Integer>)") */
+    private static String parameterList(IMethod method) {
+        StringBuilder parameters = new StringBuilder("(");
+        String[] types = method.getParameterTypes();
+        for (int i = 0; i < types.length; i++) {
+            if (i > 0) parameters.append(", ");
+            parameters.append(Signature.getSimpleName(Signature.toString(types[i])));
+        }
+        return parameters.append(')').toString();
+    }
+}